@@ -0,0 +1,39 @@
+package com.elasticquest.backend.actuator;
+
+import com.elasticquest.backend.service.SlowCommandLog;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 慢命令 Actuator 端点
+ * GET /actuator/slowcommands 返回最近的慢命令（按耗时降序）
+ */
+@Component
+@Endpoint(id = "slowcommands")
+public class SlowCommandsEndpoint {
+
+    private final SlowCommandLog slowCommandLog;
+
+    public SlowCommandsEndpoint(SlowCommandLog slowCommandLog) {
+        this.slowCommandLog = slowCommandLog;
+    }
+
+    @ReadOperation
+    public Map<String, Object> slowCommands() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("thresholdMs", slowCommandLog.getThresholdMs());
+        response.put("capacity", slowCommandLog.getCapacity());
+        response.put("commands", slowCommandLog.worstFirst());
+        return response;
+    }
+
+    @DeleteOperation
+    public void clear() {
+        slowCommandLog.clear();
+    }
+}
@@ -0,0 +1,172 @@
+package com.elasticquest.backend.config;
+
+import com.elasticquest.backend.model.ESConnectionConfig;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Elasticsearch 配置
+ * 绑定 application.yml 中的 elasticsearch.default 和 elasticsearch.profiles
+ */
+@Component
+@ConfigurationProperties(prefix = "elasticsearch")
+public class ElasticsearchProperties {
+
+    private ConnectionProperties defaultConnection = new ConnectionProperties();
+
+    // 预置连接，key 为连接名称
+    private Map<String, ConnectionProperties> profiles = new LinkedHashMap<>();
+
+    // 启动时是否预热预置连接
+    private boolean warmupOnStartup = true;
+
+    // 空闲客户端的回收时间（毫秒）
+    private long clientIdleTimeout = 600000;
+
+    /**
+     * 默认连接（对应 elasticsearch.default）
+     */
+    public ConnectionProperties getDefault() {
+        return defaultConnection;
+    }
+
+    public void setDefault(ConnectionProperties defaultConnection) {
+        this.defaultConnection = defaultConnection;
+    }
+
+    public Map<String, ConnectionProperties> getProfiles() {
+        return profiles;
+    }
+
+    public void setProfiles(Map<String, ConnectionProperties> profiles) {
+        this.profiles = profiles;
+    }
+
+    public boolean isWarmupOnStartup() {
+        return warmupOnStartup;
+    }
+
+    public void setWarmupOnStartup(boolean warmupOnStartup) {
+        this.warmupOnStartup = warmupOnStartup;
+    }
+
+    public long getClientIdleTimeout() {
+        return clientIdleTimeout;
+    }
+
+    public void setClientIdleTimeout(long clientIdleTimeout) {
+        this.clientIdleTimeout = clientIdleTimeout;
+    }
+
+    /**
+     * 所有预置连接（默认连接 + profiles）
+     */
+    public Map<String, ESConnectionConfig> preconfiguredConnections() {
+        Map<String, ESConnectionConfig> connections = new LinkedHashMap<>();
+        if (defaultConnection.getHost() != null && !defaultConnection.getHost().isBlank()) {
+            connections.put("default", defaultConnection.toConnectionConfig("default"));
+        }
+        profiles.forEach((name, profile) -> connections.put(name, profile.toConnectionConfig(name)));
+        return connections;
+    }
+
+    /**
+     * 单个连接的配置
+     */
+    public static class ConnectionProperties {
+
+        private String host;
+        private int port = 9200;
+        private String scheme = "http";
+        private String username;
+        private String password;
+        private int connectionTimeout = 5000;
+        private int socketTimeout = 60000;
+        private String transport = "rest-client";
+
+        /**
+         * 转换为连接配置模型
+         */
+        public ESConnectionConfig toConnectionConfig(String name) {
+            ESConnectionConfig config = new ESConnectionConfig();
+            config.setId(name);
+            config.setName(name);
+            config.setHost(host);
+            config.setPort(port);
+            config.setScheme(scheme);
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setTransport(transport);
+            config.setEnvironment("preconfigured");
+            return config;
+        }
+
+        // Getters and Setters
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public String getScheme() {
+            return scheme;
+        }
+
+        public void setScheme(String scheme) {
+            this.scheme = scheme;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public int getConnectionTimeout() {
+            return connectionTimeout;
+        }
+
+        public void setConnectionTimeout(int connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+        }
+
+        public int getSocketTimeout() {
+            return socketTimeout;
+        }
+
+        public void setSocketTimeout(int socketTimeout) {
+            this.socketTimeout = socketTimeout;
+        }
+
+        public String getTransport() {
+            return transport;
+        }
+
+        public void setTransport(String transport) {
+            this.transport = transport;
+        }
+    }
+}
@@ -0,0 +1,530 @@
+package com.elasticquest.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LLM 配置
+ * 绑定 application.yml 中 llm 下除 molizk 以外的配置（llm.molizk 仍通过 @Value 读取）
+ */
+@Component
+@ConfigurationProperties(prefix = "llm")
+public class LLMProperties {
+
+    // OpenAI 兼容端点，为空时只使用 llm.molizk
+    private List<Endpoint> endpoints = new ArrayList<>();
+
+    private Hedging hedging = new Hedging();
+
+    private Limits limits = new Limits();
+
+    private Conversation conversation = new Conversation();
+
+    private Retrieval retrieval = new Retrieval();
+
+    private Embedding embedding = new Embedding();
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(List<Endpoint> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    public Hedging getHedging() {
+        return hedging;
+    }
+
+    public void setHedging(Hedging hedging) {
+        this.hedging = hedging;
+    }
+
+    public Limits getLimits() {
+        return limits;
+    }
+
+    public void setLimits(Limits limits) {
+        this.limits = limits;
+    }
+
+    public Conversation getConversation() {
+        return conversation;
+    }
+
+    public void setConversation(Conversation conversation) {
+        this.conversation = conversation;
+    }
+
+    public Retrieval getRetrieval() {
+        return retrieval;
+    }
+
+    public void setRetrieval(Retrieval retrieval) {
+        this.retrieval = retrieval;
+    }
+
+    public Embedding getEmbedding() {
+        return embedding;
+    }
+
+    public void setEmbedding(Embedding embedding) {
+        this.embedding = embedding;
+    }
+
+    /**
+     * 单个 OpenAI 兼容端点
+     */
+    public static class Endpoint {
+
+        private String name;
+        private String apiUrl;
+        private String apiKey;
+        private String model;
+
+        public Endpoint() {
+        }
+
+        public Endpoint(String name, String apiUrl, String apiKey, String model) {
+            this.name = name;
+            this.apiUrl = apiUrl;
+            this.apiKey = apiKey;
+            this.model = model;
+        }
+
+        // Getters and Setters
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getApiUrl() {
+            return apiUrl;
+        }
+
+        public void setApiUrl(String apiUrl) {
+            this.apiUrl = apiUrl;
+        }
+
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        public void setApiKey(String apiKey) {
+            this.apiKey = apiKey;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public void setModel(String model) {
+            this.model = model;
+        }
+    }
+
+    /**
+     * 对冲请求配置
+     */
+    public static class Hedging {
+
+        private boolean enabled = true;
+        // 对冲等待时间取主端点首 token 耗时的该分位数
+        private double percentile = 0.95;
+        private long minDelayMs = 300;
+        private long maxDelayMs = 5000;
+        // 样本不足时的等待时间
+        private long defaultDelayMs = 2000;
+        // 对冲请求占全部请求的上限
+        private double maxRatio = 0.1;
+        // 端点失败后降低优先级的时间
+        private long failureCooldownMs = 30000;
+
+        // Getters and Setters
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public long getMinDelayMs() {
+            return minDelayMs;
+        }
+
+        public void setMinDelayMs(long minDelayMs) {
+            this.minDelayMs = minDelayMs;
+        }
+
+        public long getMaxDelayMs() {
+            return maxDelayMs;
+        }
+
+        public void setMaxDelayMs(long maxDelayMs) {
+            this.maxDelayMs = maxDelayMs;
+        }
+
+        public long getDefaultDelayMs() {
+            return defaultDelayMs;
+        }
+
+        public void setDefaultDelayMs(long defaultDelayMs) {
+            this.defaultDelayMs = defaultDelayMs;
+        }
+
+        public double getMaxRatio() {
+            return maxRatio;
+        }
+
+        public void setMaxRatio(double maxRatio) {
+            this.maxRatio = maxRatio;
+        }
+
+        public long getFailureCooldownMs() {
+            return failureCooldownMs;
+        }
+
+        public void setFailureCooldownMs(long failureCooldownMs) {
+            this.failureCooldownMs = failureCooldownMs;
+        }
+    }
+
+    /**
+     * 请求限流与排队配置
+     */
+    public static class Limits {
+
+        private boolean enabled = true;
+        // 每个用户（X-User-Id）每分钟的请求数和估算 token 数
+        private int userRequestsPerMinute = 20;
+        private long userTokensPerMinute = 60000;
+        // 全部用户合计
+        private int globalRequestsPerMinute = 300;
+        private long globalTokensPerMinute = 1000000;
+        // 请求未指定 maxTokens 时按该值估算回答长度
+        private int defaultCompletionTokens = 1024;
+        // 同时进行的 LLM 调用上限，超出后按用户轮转排队
+        private int maxConcurrent = 16;
+        private int maxQueued = 200;
+        private int maxQueuedPerUser = 4;
+        private long queueTimeoutMs = 30000;
+
+        // Getters and Setters
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getUserRequestsPerMinute() {
+            return userRequestsPerMinute;
+        }
+
+        public void setUserRequestsPerMinute(int userRequestsPerMinute) {
+            this.userRequestsPerMinute = userRequestsPerMinute;
+        }
+
+        public long getUserTokensPerMinute() {
+            return userTokensPerMinute;
+        }
+
+        public void setUserTokensPerMinute(long userTokensPerMinute) {
+            this.userTokensPerMinute = userTokensPerMinute;
+        }
+
+        public int getGlobalRequestsPerMinute() {
+            return globalRequestsPerMinute;
+        }
+
+        public void setGlobalRequestsPerMinute(int globalRequestsPerMinute) {
+            this.globalRequestsPerMinute = globalRequestsPerMinute;
+        }
+
+        public long getGlobalTokensPerMinute() {
+            return globalTokensPerMinute;
+        }
+
+        public void setGlobalTokensPerMinute(long globalTokensPerMinute) {
+            this.globalTokensPerMinute = globalTokensPerMinute;
+        }
+
+        public int getDefaultCompletionTokens() {
+            return defaultCompletionTokens;
+        }
+
+        public void setDefaultCompletionTokens(int defaultCompletionTokens) {
+            this.defaultCompletionTokens = defaultCompletionTokens;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+
+        public int getMaxQueuedPerUser() {
+            return maxQueuedPerUser;
+        }
+
+        public void setMaxQueuedPerUser(int maxQueuedPerUser) {
+            this.maxQueuedPerUser = maxQueuedPerUser;
+        }
+
+        public long getQueueTimeoutMs() {
+            return queueTimeoutMs;
+        }
+
+        public void setQueueTimeoutMs(long queueTimeoutMs) {
+            this.queueTimeoutMs = queueTimeoutMs;
+        }
+    }
+
+    /**
+     * 多轮对话配置
+     */
+    public static class Conversation {
+
+        // 提示词（系统提示、摘要、历史轮次和本轮问题）的估算 token 上限
+        private int maxPromptTokens = 8000;
+        // 保留原文的最近轮次数，更早的轮次并入摘要
+        private int recentTurns = 4;
+        // 待并入摘要的轮次达到该数量时触发一次摘要
+        private int summarizeBatch = 2;
+        private int summaryMaxTokens = 400;
+        private long idleTimeoutMs = 3600000;
+        private int maxConversations = 10000;
+        // 未并入摘要的轮次上限（摘要持续失败时丢弃最早的轮次）
+        private int maxRetainedTurns = 20;
+
+        // Getters and Setters
+        public int getMaxPromptTokens() {
+            return maxPromptTokens;
+        }
+
+        public void setMaxPromptTokens(int maxPromptTokens) {
+            this.maxPromptTokens = maxPromptTokens;
+        }
+
+        public int getRecentTurns() {
+            return recentTurns;
+        }
+
+        public void setRecentTurns(int recentTurns) {
+            this.recentTurns = recentTurns;
+        }
+
+        public int getSummarizeBatch() {
+            return summarizeBatch;
+        }
+
+        public void setSummarizeBatch(int summarizeBatch) {
+            this.summarizeBatch = summarizeBatch;
+        }
+
+        public int getSummaryMaxTokens() {
+            return summaryMaxTokens;
+        }
+
+        public void setSummaryMaxTokens(int summaryMaxTokens) {
+            this.summaryMaxTokens = summaryMaxTokens;
+        }
+
+        public long getIdleTimeoutMs() {
+            return idleTimeoutMs;
+        }
+
+        public void setIdleTimeoutMs(long idleTimeoutMs) {
+            this.idleTimeoutMs = idleTimeoutMs;
+        }
+
+        public int getMaxConversations() {
+            return maxConversations;
+        }
+
+        public void setMaxConversations(int maxConversations) {
+            this.maxConversations = maxConversations;
+        }
+
+        public int getMaxRetainedTurns() {
+            return maxRetainedTurns;
+        }
+
+        public void setMaxRetainedTurns(int maxRetainedTurns) {
+            this.maxRetainedTurns = maxRetainedTurns;
+        }
+    }
+
+    /**
+     * 参考材料分块检索配置
+     */
+    public static class Retrieval {
+
+        // 默认关闭：hashing 向量只按字面相似度，建议配置 openai 等向量服务后再开启
+        private boolean enabled = false;
+        // 参考材料超过该长度时才分块检索，否则整体放入提示词
+        private int minMaterialChars = 4000;
+        private int chunkSize = 500;
+        private int chunkOverlap = 50;
+        private int topK = 6;
+        // 缓存的材料索引数
+        private int cacheSize = 32;
+        // HNSW 图参数：每个节点的最大连接数和构建时的候选队列大小
+        private int hnswM = 16;
+        private int hnswBeamWidth = 100;
+
+        // Getters and Setters
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMinMaterialChars() {
+            return minMaterialChars;
+        }
+
+        public void setMinMaterialChars(int minMaterialChars) {
+            this.minMaterialChars = minMaterialChars;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public int getChunkOverlap() {
+            return chunkOverlap;
+        }
+
+        public void setChunkOverlap(int chunkOverlap) {
+            this.chunkOverlap = chunkOverlap;
+        }
+
+        public int getTopK() {
+            return topK;
+        }
+
+        public void setTopK(int topK) {
+            this.topK = topK;
+        }
+
+        public int getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+
+        public int getHnswM() {
+            return hnswM;
+        }
+
+        public void setHnswM(int hnswM) {
+            this.hnswM = hnswM;
+        }
+
+        public int getHnswBeamWidth() {
+            return hnswBeamWidth;
+        }
+
+        public void setHnswBeamWidth(int hnswBeamWidth) {
+            this.hnswBeamWidth = hnswBeamWidth;
+        }
+    }
+
+    /**
+     * 向量模型配置
+     */
+    public static class Embedding {
+
+        // hashing：本地确定性的字符 n-gram 哈希向量；openai：OpenAI 兼容的 /v1/embeddings 接口
+        private String provider = "hashing";
+        private int dimension = 256;
+        private String apiUrl;
+        private String apiKey;
+        private String model;
+        private int batchSize = 64;
+
+        // Getters and Setters
+        public String getProvider() {
+            return provider;
+        }
+
+        public void setProvider(String provider) {
+            this.provider = provider;
+        }
+
+        public int getDimension() {
+            return dimension;
+        }
+
+        public void setDimension(int dimension) {
+            this.dimension = dimension;
+        }
+
+        public String getApiUrl() {
+            return apiUrl;
+        }
+
+        public void setApiUrl(String apiUrl) {
+            this.apiUrl = apiUrl;
+        }
+
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        public void setApiKey(String apiKey) {
+            this.apiKey = apiKey;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public void setModel(String model) {
+            this.model = model;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.elasticquest.backend.controller;
+
+import com.elasticquest.backend.model.BatchEvaluationRequest;
+import com.elasticquest.backend.model.BatchEvaluationStatus;
+import com.elasticquest.backend.service.BatchEvaluationService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+
+/**
+ * 批量问题评测控制器
+ */
+@RestController
+@RequestMapping("/rag-batch")
+public class BatchEvaluationController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchEvaluationController.class);
+
+    @Autowired
+    private BatchEvaluationService batchEvaluationService;
+
+    /**
+     * 启动评测任务
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<BatchEvaluationStatus> start(
+            @Valid @RequestBody BatchEvaluationRequest request,
+            @RequestHeader(value = "X-User-Id", defaultValue = "default") String userId
+    ) {
+        logger.info("批量评测: user={}, questions={}", userId, request.getQuestions().size());
+        try {
+            return ResponseEntity.ok(batchEvaluationService.start(request, userId));
+        } catch (IllegalStateException e) {
+            // 该用户同时运行的任务已达上限
+            BatchEvaluationStatus status = new BatchEvaluationStatus();
+            status.setError(e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(status);
+        } catch (IOException e) {
+            logger.error("启动批量评测失败", e);
+            BatchEvaluationStatus status = new BatchEvaluationStatus();
+            status.setState("FAILED");
+            status.setError(e.getMessage());
+            return ResponseEntity.internalServerError().body(status);
+        }
+    }
+
+    /**
+     * 查询进度、吞吐和单题延迟
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<BatchEvaluationStatus> getStatus(
+            @PathVariable String jobId,
+            @RequestHeader(value = "X-User-Id", defaultValue = "default") String userId
+    ) {
+        BatchEvaluationStatus status = batchEvaluationService.getStatus(jobId, userId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 取消任务
+     */
+    @PostMapping("/jobs/{jobId}/cancel")
+    public ResponseEntity<BatchEvaluationStatus> cancel(
+            @PathVariable String jobId,
+            @RequestHeader(value = "X-User-Id", defaultValue = "default") String userId
+    ) {
+        BatchEvaluationStatus status = batchEvaluationService.cancel(jobId, userId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 续跑中断、取消或失败的任务，已成功的问题不再重复调用，失败的问题重新调用
+     */
+    @PostMapping("/jobs/{jobId}/resume")
+    public ResponseEntity<BatchEvaluationStatus> resume(
+            @PathVariable String jobId,
+            @RequestHeader(value = "X-User-Id", defaultValue = "default") String userId
+    ) {
+        try {
+            BatchEvaluationStatus status = batchEvaluationService.resume(jobId, userId);
+            return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+        } catch (IllegalStateException | IOException e) {
+            BatchEvaluationStatus status = batchEvaluationService.getStatus(jobId, userId);
+            status.setError(e.getMessage());
+            return ResponseEntity.badRequest().body(status);
+        }
+    }
+
+    /**
+     * 下载结果（NDJSON，每行一个问题：先是按完成顺序的成功结果，再是仍失败的问题）
+     */
+    @GetMapping("/jobs/{jobId}/results")
+    public ResponseEntity<StreamingResponseBody> results(
+            @PathVariable String jobId,
+            @RequestHeader(value = "X-User-Id", defaultValue = "default") String userId
+    ) {
+        if (batchEvaluationService.getStatus(jobId, userId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        StreamingResponseBody body = outputStream -> batchEvaluationService.writeResults(jobId, userId, outputStream);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .body(body);
+    }
+}
@@ -0,0 +1,71 @@
+package com.elasticquest.backend.controller;
+
+import com.elasticquest.backend.model.DatasetGenerateRequest;
+import com.elasticquest.backend.model.DatasetJobStatus;
+import com.elasticquest.backend.service.DatasetGeneratorService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 练习数据集生成控制器
+ */
+@RestController
+@RequestMapping("/es-dataset")
+public class DatasetController {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatasetController.class);
+
+    @Autowired
+    private DatasetGeneratorService datasetGeneratorService;
+
+    /**
+     * 启动数据集生成任务
+     */
+    @PostMapping("/generate")
+    public ResponseEntity<DatasetJobStatus> generate(
+            @Valid @RequestBody DatasetGenerateRequest request,
+            @RequestHeader(value = "X-User-Id", defaultValue = "default") String userId
+    ) {
+        logger.info("生成数据集: user={}, index={}, documents={}", userId, request.getIndex(), request.getDocumentCount());
+        try {
+            return ResponseEntity.ok(datasetGeneratorService.start(request, userId));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            DatasetJobStatus status = new DatasetJobStatus();
+            status.setIndex(request.getIndex());
+            status.setState("FAILED");
+            status.setError(e.getMessage());
+            return e instanceof IllegalStateException
+                ? ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(status)
+                : ResponseEntity.badRequest().body(status);
+        }
+    }
+
+    /**
+     * 查询任务进度与吞吐
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<DatasetJobStatus> getStatus(
+            @PathVariable String jobId,
+            @RequestHeader(value = "X-User-Id", defaultValue = "default") String userId
+    ) {
+        DatasetJobStatus status = datasetGeneratorService.getStatus(jobId, userId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 取消任务
+     */
+    @PostMapping("/jobs/{jobId}/cancel")
+    public ResponseEntity<DatasetJobStatus> cancel(
+            @PathVariable String jobId,
+            @RequestHeader(value = "X-User-Id", defaultValue = "default") String userId
+    ) {
+        DatasetJobStatus status = datasetGeneratorService.cancel(jobId, userId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.elasticquest.backend.controller;
 
+import com.elasticquest.backend.model.ClusterStatus;
 import com.elasticquest.backend.model.ConnectionTestResult;
 import com.elasticquest.backend.model.ESConnectionConfig;
 import com.elasticquest.backend.service.ESConnectionService;
@@ -10,6 +11,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * ES 连接配置控制器
  */
@@ -40,6 +43,14 @@ public class ESConnectionController {
         }
     }
     
+    /**
+     * 获取连接的集群状态（读取后台监控的缓存快照，不发起远程请求）
+     */
+    @PostMapping("/status")
+    public ResponseEntity<List<ClusterStatus>> getStatuses(@RequestBody List<@Valid ESConnectionConfig> configs) {
+        return ResponseEntity.ok(esConnectionService.getStatuses(configs));
+    }
+    
     /**
      * 健康检查
      */
@@ -1,8 +1,10 @@
 package com.elasticquest.backend.controller;
 
+import com.elasticquest.backend.model.ESBatchExecutionResult;
 import com.elasticquest.backend.model.ESExecutionRequest;
 import com.elasticquest.backend.model.ESExecutionResult;
 import com.elasticquest.backend.service.ESExecutionService;
+import com.elasticquest.backend.service.ESResultSpool;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,6 +12,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * ES 命令执行控制器
  */
@@ -22,12 +26,15 @@ public class ESExecutionController {
     @Autowired
     private ESExecutionService esExecutionService;
     
+    @Autowired
+    private ESResultSpool resultSpool;
+    
     /**
      * 执行 ES 命令
      */
     @PostMapping("/execute")
     public ResponseEntity<ESExecutionResult> executeCommand(@Valid @RequestBody ESExecutionRequest request) {
-        logger.info("执行 ES 命令: {}", request.getCommand().split("\n")[0]);
+        logger.info("执行 ES 命令: {}", firstLine(request.getCommand()));
         
         try {
             ESExecutionResult result = esExecutionService.executeCommand(
@@ -48,5 +55,85 @@ public class ESExecutionController {
             return ResponseEntity.ok(ESExecutionResult.failure(e.getMessage()));
         }
     }
+    
+    /**
+     * 执行包含多条命令的脚本，连续的搜索合并为一次 _msearch
+     */
+    @PostMapping("/execute-batch")
+    public ResponseEntity<ESBatchExecutionResult> executeBatch(@Valid @RequestBody ESExecutionRequest request) {
+        logger.info("执行 ES 脚本: {}", firstLine(request.getCommand()));
+        
+        try {
+            ESBatchExecutionResult result = esExecutionService.executeBatch(
+                request.getCommand(),
+                request.getConnection()
+            );
+            return ResponseEntity.ok(result);
+            
+        } catch (Exception e) {
+            logger.error("执行 ES 脚本时发生异常", e);
+            return ResponseEntity.ok(new ESBatchExecutionResult(
+                List.of(), List.of(ESExecutionResult.failure(e.getMessage())), 0));
+        }
+    }
+    
+    /**
+     * 读取落盘结果中的命中区间
+     */
+    @GetMapping("/results/{handle}/hits")
+    public ResponseEntity<ESExecutionResult> getResultHits(@PathVariable String handle,
+                                                           @RequestParam(defaultValue = "0") int from,
+                                                           @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(ESExecutionResult.success(200, resultSpool.readHits(handle, from, size)));
+        } catch (Exception e) {
+            logger.warn("读取落盘结果失败: handle={}, error={}", handle, e.getMessage());
+            return ResponseEntity.ok(ESExecutionResult.failure(e.getMessage()));
+        }
+    }
+    
+    /**
+     * 按 JSON Pointer 读取落盘结果中的片段
+     */
+    @GetMapping("/results/{handle}/path")
+    public ResponseEntity<ESExecutionResult> getResultPath(@PathVariable String handle,
+                                                           @RequestParam String pointer) {
+        try {
+            return ResponseEntity.ok(ESExecutionResult.success(200, resultSpool.readPath(handle, pointer)));
+        } catch (Exception e) {
+            logger.warn("读取落盘结果失败: handle={}, error={}", handle, e.getMessage());
+            return ResponseEntity.ok(ESExecutionResult.failure(e.getMessage()));
+        }
+    }
+    
+    /**
+     * 按字节区间读取落盘结果（非 JSON 响应）
+     */
+    @GetMapping("/results/{handle}/raw")
+    public ResponseEntity<ESExecutionResult> getResultRaw(@PathVariable String handle,
+                                                          @RequestParam(defaultValue = "0") long offset,
+                                                          @RequestParam(defaultValue = "65536") int length) {
+        try {
+            return ResponseEntity.ok(ESExecutionResult.success(200, resultSpool.readRaw(handle, offset, length)));
+        } catch (Exception e) {
+            logger.warn("读取落盘结果失败: handle={}, error={}", handle, e.getMessage());
+            return ResponseEntity.ok(ESExecutionResult.failure(e.getMessage()));
+        }
+    }
+    
+    /**
+     * 释放落盘结果
+     */
+    @DeleteMapping("/results/{handle}")
+    public ResponseEntity<Void> deleteResult(@PathVariable String handle) {
+        return resultSpool.remove(handle) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+    
+    /**
+     * 命令首行（避免为日志拆分整个请求体）
+     */
+    private String firstLine(String command) {
+        int end = command.indexOf('\n');
+        return (end < 0 ? command : command.substring(0, end)).trim();
+    }
 }
-
@@ -0,0 +1,120 @@
+package com.elasticquest.backend.controller;
+
+import com.elasticquest.backend.model.ESExportRequest;
+import com.elasticquest.backend.service.ESExportService;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 索引导出控制器
+ */
+@RestController
+@RequestMapping("/es-export")
+public class ESExportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ESExportController.class);
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    @Autowired
+    private ESExportService esExportService;
+
+    // 导出是长连接，单独设置超时，不影响其他异步接口
+    @Value("${elasticsearch.export.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+
+    /**
+     * 以 NDJSON 流式导出整个索引（可选 gzip 压缩）
+     */
+    @PostMapping("/ndjson")
+    public ResponseEntity<ResponseBodyEmitter> exportIndex(@Valid @RequestBody ESExportRequest request) {
+        logger.info("导出索引: index={}, slices={}, gzip={}", request.getIndex(), request.getSlices(), request.isGzip());
+
+        String fileName = request.getIndex().replaceAll("[^A-Za-z0-9._-]", "_")
+            + (request.isGzip() ? ".ndjson.gz" : ".ndjson");
+        MediaType mediaType = request.isGzip()
+            ? MediaType.parseMediaType("application/gzip")
+            : MediaType.parseMediaType("application/x-ndjson");
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeoutMs);
+        emitter.onTimeout(() -> logger.warn("导出索引超时: index={}", request.getIndex()));
+
+        executorService.execute(() -> {
+            try {
+                OutputStream out = new BufferedOutputStream(new EmitterOutputStream(emitter, mediaType), CHUNK_SIZE);
+                if (request.isGzip()) {
+                    GZIPOutputStream gzip = new GZIPOutputStream(out, CHUNK_SIZE);
+                    esExportService.export(request, gzip);
+                    gzip.finish();
+                } else {
+                    esExportService.export(request, out);
+                }
+                out.flush();
+                emitter.complete();
+            } catch (Exception e) {
+                logger.error("导出索引失败: index={}, error={}", request.getIndex(), e.getMessage());
+                emitter.completeWithError(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+            .contentType(mediaType)
+            .body(emitter);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * 把写入的字节按块发送到 emitter；emitter 已结束（超时或客户端断开）时写入失败，导出随之停止
+     */
+    private static class EmitterOutputStream extends OutputStream {
+
+        private final ResponseBodyEmitter emitter;
+        private final MediaType mediaType;
+
+        EmitterOutputStream(ResponseBodyEmitter emitter, MediaType mediaType) {
+            this.emitter = emitter;
+            this.mediaType = mediaType;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            try {
+                emitter.send(Arrays.copyOfRange(b, off, off + len), mediaType);
+            } catch (IllegalStateException e) {
+                throw new IOException("导出连接已结束", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.elasticquest.backend.controller;
+
+import com.elasticquest.backend.model.ESMetadataRequest;
+import com.elasticquest.backend.model.FieldSuggestion;
+import com.elasticquest.backend.service.ESMetadataCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 控制台自动补全元数据控制器
+ */
+@RestController
+@RequestMapping("/es-metadata")
+public class ESMetadataController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ESMetadataController.class);
+
+    @Autowired
+    private ESMetadataCache metadataCache;
+
+    /**
+     * 按前缀补全索引名和别名
+     */
+    @PostMapping("/indices")
+    public ResponseEntity<List<String>> findIndices(@RequestBody ESMetadataRequest request) {
+        try {
+            return ResponseEntity.ok(metadataCache.findIndices(
+                request.getConnection(), request.getPrefix(), request.getLimit()));
+        } catch (Exception e) {
+            // 补全失败不影响编辑，返回空列表
+            logger.warn("获取索引名失败: {}", e.getMessage());
+            return ResponseEntity.ok(List.of());
+        }
+    }
+
+    /**
+     * 按前缀补全指定索引中的字段
+     */
+    @PostMapping("/fields")
+    public ResponseEntity<List<FieldSuggestion>> findFields(@RequestBody ESMetadataRequest request) {
+        try {
+            return ResponseEntity.ok(metadataCache.findFields(
+                request.getConnection(), request.getIndex(), request.getPrefix(), request.getLimit()));
+        } catch (Exception e) {
+            logger.warn("获取字段失败: index={}, error={}", request.getIndex(), e.getMessage());
+            return ResponseEntity.ok(List.of());
+        }
+    }
+
+    /**
+     * 清空连接的元数据缓存（集群在控制台之外发生变更时使用）
+     */
+    @PostMapping("/invalidate")
+    public ResponseEntity<Void> invalidate(@RequestBody ESMetadataRequest request) {
+        metadataCache.invalidate(request.getConnection());
+        return ResponseEntity.noContent().build();
+    }
+}
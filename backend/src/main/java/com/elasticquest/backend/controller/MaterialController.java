@@ -0,0 +1,87 @@
+package com.elasticquest.backend.controller;
+
+import com.elasticquest.backend.model.MaterialInfo;
+import com.elasticquest.backend.model.MaterialUploadRequest;
+import com.elasticquest.backend.retrieval.LibraryMaterial;
+import com.elasticquest.backend.retrieval.MaterialLibrary;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 参考材料资料库控制器
+ * 上传后返回材料 id，聊天和批量评测请求通过 materialId 引用；材料只对上传者（X-User-Id）可见
+ */
+@RestController
+@RequestMapping("/materials")
+public class MaterialController {
+
+    private static final Logger logger = LoggerFactory.getLogger(MaterialController.class);
+
+    @Autowired
+    private MaterialLibrary materialLibrary;
+
+    /**
+     * 上传材料并建立索引；同一用户上传相同内容时返回已有材料
+     */
+    @PostMapping
+    public ResponseEntity<MaterialInfo> upload(
+            @Valid @RequestBody MaterialUploadRequest request,
+            @RequestHeader(value = "X-User-Id", defaultValue = "default") String userId
+    ) {
+        logger.info("上传参考材料: user={}, title={}, chars={}", userId, request.getTitle(), request.getContent().length());
+        try {
+            return ResponseEntity.ok(materialLibrary.upload(request.getTitle(), request.getContent(), userId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            logger.error("保存参考材料失败", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping
+    public List<MaterialInfo> list(@RequestHeader(value = "X-User-Id", defaultValue = "default") String userId) {
+        return materialLibrary.list(userId);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<MaterialInfo> get(
+            @PathVariable String id,
+            @RequestHeader(value = "X-User-Id", defaultValue = "default") String userId
+    ) {
+        MaterialInfo info = materialLibrary.getInfo(id, userId);
+        return info != null ? ResponseEntity.ok(info) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 材料原文
+     */
+    @GetMapping(value = "/{id}/content", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> content(
+            @PathVariable String id,
+            @RequestHeader(value = "X-User-Id", defaultValue = "default") String userId
+    ) throws IOException {
+        try (LibraryMaterial material = materialLibrary.acquire(id, userId)) {
+            return material != null ? ResponseEntity.ok(material.content()) : ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * 删除材料，只有上传者（X-User-Id）可以删除，其他用户得到 404
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(
+            @PathVariable String id,
+            @RequestHeader(value = "X-User-Id", defaultValue = "default") String userId
+    ) throws IOException {
+        return materialLibrary.delete(id, userId) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
@@ -3,19 +3,31 @@ package com.elasticquest.backend.controller;
 import com.elasticquest.backend.model.HighlightSegment;
 import com.elasticquest.backend.model.RAGChatRequest;
 import com.elasticquest.backend.model.StreamChatChunk;
+import com.elasticquest.backend.retrieval.LibraryMaterial;
+import com.elasticquest.backend.retrieval.MaterialLibrary;
+import com.elasticquest.backend.service.ConversationStore;
 import com.elasticquest.backend.service.LLMChatService;
+import com.elasticquest.backend.service.LLMFairScheduler;
+import com.elasticquest.backend.service.LLMRateLimiter;
+import com.elasticquest.backend.service.LLMRejectedException;
+import com.elasticquest.backend.service.LLMStreamMetrics;
 import com.elasticquest.backend.service.TextHighlightService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -35,79 +47,50 @@ public class RAGChatController {
     @Autowired
     private TextHighlightService textHighlightService;
     
+    @Autowired
+    private LLMRateLimiter rateLimiter;
+    
+    @Autowired
+    private LLMFairScheduler scheduler;
+    
+    @Autowired
+    private LLMStreamMetrics metrics;
+    
+    @Autowired
+    private ConversationStore conversationStore;
+    
+    @Autowired
+    private MaterialLibrary materialLibrary;
+    
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final ExecutorService executorService = Executors.newCachedThreadPool();
     
     /**
      * 流式聊天接口
-     * 使用 Server-Sent Events (SSE) 返回流式响应
+     * 使用 Server-Sent Events (SSE) 返回流式响应；按 X-User-Id 限流，并发已满时公平排队
      */
     @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamChat(@Valid @RequestBody RAGChatRequest request) {
-        logger.info("收到 RAG 聊天请求: question={}", request.getQuestion());
+    public SseEmitter streamChat(
+            @Valid @RequestBody RAGChatRequest request,
+            @RequestHeader(value = "X-User-Id", defaultValue = "default") String userId
+    ) {
+        logger.info("收到 RAG 聊天请求: user={}, question={}", userId, request.getQuestion());
         
         SseEmitter emitter = new SseEmitter(120000L); // 2分钟超时
         
         executorService.execute(() -> {
+            // 持有材料引用直到高亮完成，期间材料被删除也不会关闭映射文件
+            List<LibraryMaterial> materials;
             try {
-                llmChatService.streamChat(
-                    request,
-                    // onChunk: 发送每个内容块
-                    (content) -> {
-                        try {
-                            StreamChatChunk chunk = StreamChatChunk.content(content);
-                            String json = objectMapper.writeValueAsString(chunk);
-                            emitter.send(SseEmitter.event()
-                                    .data(json)
-                                    .name("message"));
-                        } catch (IOException e) {
-                            logger.error("发送流式数据失败", e);
-                            emitter.completeWithError(e);
-                        }
-                    },
-                    // onComplete: 发送高亮信息并完成
-                    (fullAnswer) -> {
-                        try {
-                            // 计算高亮
-                            List<HighlightSegment> highlights = textHighlightService.highlightAnswer(
-                                    fullAnswer, 
-                                    request.getContextMaterial()
-                            );
-                            
-                            // 发送完成消息（包含高亮信息）
-                            StreamChatChunk doneChunk = StreamChatChunk.done(highlights);
-                            String json = objectMapper.writeValueAsString(doneChunk);
-                            emitter.send(SseEmitter.event()
-                                    .data(json)
-                                    .name("done"));
-                            
-                            emitter.complete();
-                            logger.info("RAG 聊天完成");
-                            
-                        } catch (IOException e) {
-                            logger.error("发送完成消息失败", e);
-                            emitter.completeWithError(e);
-                        }
-                    },
-                    // onError: 发送错误并完成
-                    (error) -> {
-                        try {
-                            StreamChatChunk errorChunk = StreamChatChunk.error(error);
-                            String json = objectMapper.writeValueAsString(errorChunk);
-                            emitter.send(SseEmitter.event()
-                                    .data(json)
-                                    .name("error"));
-                            emitter.completeWithError(new RuntimeException(error));
-                        } catch (IOException e) {
-                            logger.error("发送错误消息失败", e);
-                            emitter.completeWithError(e);
-                        }
-                    }
-                );
-                
-            } catch (Exception e) {
-                logger.error("RAG 聊天异常", e);
-                emitter.completeWithError(e);
+                materials = materialLibrary.acquireAll(request.referencedMaterialIds(), userId);
+            } catch (IllegalArgumentException e) {
+                sendError(emitter, e.getMessage());
+                return;
+            }
+            try {
+                chat(request, userId, materials, emitter);
+            } finally {
+                LibraryMaterial.closeAll(materials);
             }
         });
         
@@ -124,6 +107,150 @@ public class RAGChatController {
         return emitter;
     }
     
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+    
+    /**
+     * 构建提示词、限流、排队并流式输出；materials 由调用方持有引用
+     */
+    private void chat(RAGChatRequest request, String userId, List<LibraryMaterial> materials, SseEmitter emitter) {
+        LLMChatService.Prompt prompt;
+        try {
+            // 先解析材料和多轮历史，按实际发送的内容估算 token
+            prompt = llmChatService.buildMessages(userId, request, materials);
+        } catch (IllegalArgumentException e) {
+            sendError(emitter, e.getMessage());
+            return;
+        } catch (Exception e) {
+            logger.error("LLM 消息构建失败", e);
+            sendError(emitter, "调用失败: " + e.getMessage());
+            return;
+        }
+        
+        LLMRateLimiter.Charge charge;
+        try {
+            charge = rateLimiter.acquire(userId, request, prompt.getMessages());
+        } catch (LLMRejectedException e) {
+            sendError(emitter, e.getMessage());
+            return;
+        }
+        
+        LLMFairScheduler.Permit permit;
+        try {
+            permit = scheduler.acquire(userId);
+        } catch (LLMRejectedException e) {
+            // 请求没有发出，退回已扣减的令牌
+            charge.refund();
+            sendError(emitter, e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            charge.refund();
+            Thread.currentThread().interrupt();
+            emitter.completeWithError(e);
+            return;
+        }
+        
+        try {
+            llmChatService.streamChat(
+                userId,
+                request,
+                prompt.getMessages(),
+                // onChunk: 发送每个内容块
+                (content) -> {
+                    try {
+                        StreamChatChunk chunk = StreamChatChunk.content(content);
+                        String json = objectMapper.writeValueAsString(chunk);
+                        emitter.send(SseEmitter.event()
+                                .data(json)
+                                .name("message"));
+                    } catch (IOException e) {
+                        logger.error("发送流式数据失败", e);
+                        emitter.completeWithError(e);
+                        // 通知 LLMChatService 停止读取上游
+                        throw new CancellationException("客户端已断开");
+                    }
+                },
+                // onComplete: 发送高亮信息并完成
+                (fullAnswer) -> {
+                    try {
+                        // 计算高亮（资料库材料直接使用磁盘上的后缀数组，按材料并行匹配并标注来源）
+                        long highlightStart = System.nanoTime();
+                        List<HighlightSegment> highlights = materials.isEmpty()
+                                ? textHighlightService.highlightAnswer(fullAnswer, request.getContextMaterial())
+                                : textHighlightService.highlightAnswer(fullAnswer, highlightSources(materials));
+                        metrics.recordHighlight(System.nanoTime() - highlightStart);
+                        
+                        // 发送完成消息（包含高亮信息）
+                        StreamChatChunk doneChunk = StreamChatChunk.done(highlights);
+                        doneChunk.setNotice(prompt.getNotice());
+                        String json = objectMapper.writeValueAsString(doneChunk);
+                        emitter.send(SseEmitter.event()
+                                .data(json)
+                                .name("done"));
+                        
+                        emitter.complete();
+                        logger.info("RAG 聊天完成");
+                        
+                    } catch (IOException e) {
+                        logger.error("发送完成消息失败", e);
+                        emitter.completeWithError(e);
+                    }
+                },
+                // onError: 发送错误并完成
+                (error) -> sendError(emitter, error)
+            );
+            
+        } catch (Exception e) {
+            logger.error("RAG 聊天异常", e);
+            emitter.completeWithError(e);
+        } finally {
+            permit.close();
+        }
+    }
+    
+    /**
+     * 资料库材料的高亮匹配器，按请求中的顺序
+     */
+    private Map<String, TextHighlightService.HighlightContext> highlightSources(List<LibraryMaterial> materials)
+            throws IOException {
+        Map<String, TextHighlightService.HighlightContext> sources = new LinkedHashMap<>();
+        for (LibraryMaterial material : materials) {
+            sources.put(material.getId(), textHighlightService.prepare(material.matcher(), material.paraphrases()));
+        }
+        return sources;
+    }
+    
+    /**
+     * 发送错误并完成
+     */
+    private void sendError(SseEmitter emitter, String error) {
+        try {
+            StreamChatChunk errorChunk = StreamChatChunk.error(error);
+            String json = objectMapper.writeValueAsString(errorChunk);
+            emitter.send(SseEmitter.event()
+                    .data(json)
+                    .name("error"));
+            // 错误已通过事件发送，正常结束响应（completeWithError 会让容器在事件流中再写错误页，客户端读到中断的流）
+            emitter.complete();
+        } catch (IOException e) {
+            logger.error("发送错误消息失败", e);
+            emitter.completeWithError(e);
+        }
+    }
+    
+    /**
+     * 结束多轮对话，释放服务端保存的历史
+     */
+    @DeleteMapping("/conversations/{conversationId}")
+    public ResponseEntity<Void> deleteConversation(
+            @PathVariable String conversationId,
+            @RequestHeader(value = "X-User-Id", defaultValue = "default") String userId
+    ) {
+        return conversationStore.remove(userId, conversationId) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+    
     /**
      * 健康检查
      */
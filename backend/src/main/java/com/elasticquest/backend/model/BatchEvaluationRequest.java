@@ -0,0 +1,115 @@
+package com.elasticquest.backend.model;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * 批量问题评测请求
+ * 同一份参考材料下的一组问题，逐个通过 RAG 流程生成回答和高亮
+ */
+public class BatchEvaluationRequest {
+
+    @NotEmpty(message = "问题列表不能为空")
+    @Size(max = 5000, message = "问题数不能超过5000")
+    private List<String> questions;
+
+    private String contextMaterial; // 所有问题共用的参考材料
+
+    private String materialId; // 资料库中的参考材料 ID，设置后忽略 contextMaterial
+
+    private String systemPrompt; // 系统提示词
+
+    private Double temperature; // 温度参数
+
+    private Integer maxTokens; // 最大token数
+
+    @Min(value = 1, message = "并发数必须大于0")
+    @Max(value = 16, message = "并发数不能超过16")
+    private int parallelism = 4;
+
+    private boolean highlight = true; // 是否计算高亮
+
+    public BatchEvaluationRequest() {
+    }
+
+    /**
+     * 单个问题对应的聊天请求
+     */
+    public RAGChatRequest toChatRequest(int index) {
+        RAGChatRequest request = new RAGChatRequest(questions.get(index), contextMaterial);
+        request.setSystemPrompt(systemPrompt);
+        request.setTemperature(temperature);
+        request.setMaxTokens(maxTokens);
+        request.setMaterialId(materialId);
+        return request;
+    }
+
+    // Getters and Setters
+    public List<String> getQuestions() {
+        return questions;
+    }
+
+    public void setQuestions(List<String> questions) {
+        this.questions = questions;
+    }
+
+    public String getContextMaterial() {
+        return contextMaterial;
+    }
+
+    public void setContextMaterial(String contextMaterial) {
+        this.contextMaterial = contextMaterial;
+    }
+
+    public String getMaterialId() {
+        return materialId;
+    }
+
+    public void setMaterialId(String materialId) {
+        this.materialId = materialId;
+    }
+
+    public String getSystemPrompt() {
+        return systemPrompt;
+    }
+
+    public void setSystemPrompt(String systemPrompt) {
+        this.systemPrompt = systemPrompt;
+    }
+
+    public Double getTemperature() {
+        return temperature;
+    }
+
+    public void setTemperature(Double temperature) {
+        this.temperature = temperature;
+    }
+
+    public Integer getMaxTokens() {
+        return maxTokens;
+    }
+
+    public void setMaxTokens(Integer maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public boolean isHighlight() {
+        return highlight;
+    }
+
+    public void setHighlight(boolean highlight) {
+        this.highlight = highlight;
+    }
+}
@@ -0,0 +1,98 @@
+package com.elasticquest.backend.model;
+
+import java.util.List;
+
+/**
+ * 批量评测中单个问题的结果（结果文件中的一行）
+ */
+public class BatchEvaluationResult {
+
+    private int index; // 问题在请求中的序号
+    private String question;
+    private String answer;
+    private List<HighlightSegment> highlights;
+    private String error;
+    private long latencyMs; // 从开始调用到回答完成
+    private long highlightMs;
+
+    public BatchEvaluationResult() {
+    }
+
+    public static BatchEvaluationResult success(int index, String question, String answer,
+                                                List<HighlightSegment> highlights, long latencyMs, long highlightMs) {
+        BatchEvaluationResult result = new BatchEvaluationResult();
+        result.setIndex(index);
+        result.setQuestion(question);
+        result.setAnswer(answer);
+        result.setHighlights(highlights);
+        result.setLatencyMs(latencyMs);
+        result.setHighlightMs(highlightMs);
+        return result;
+    }
+
+    public static BatchEvaluationResult failure(int index, String question, String error, long latencyMs) {
+        BatchEvaluationResult result = new BatchEvaluationResult();
+        result.setIndex(index);
+        result.setQuestion(question);
+        result.setError(error);
+        result.setLatencyMs(latencyMs);
+        return result;
+    }
+
+    // Getters and Setters
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getQuestion() {
+        return question;
+    }
+
+    public void setQuestion(String question) {
+        this.question = question;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+
+    public void setAnswer(String answer) {
+        this.answer = answer;
+    }
+
+    public List<HighlightSegment> getHighlights() {
+        return highlights;
+    }
+
+    public void setHighlights(List<HighlightSegment> highlights) {
+        this.highlights = highlights;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public long getLatencyMs() {
+        return latencyMs;
+    }
+
+    public void setLatencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    public long getHighlightMs() {
+        return highlightMs;
+    }
+
+    public void setHighlightMs(long highlightMs) {
+        this.highlightMs = highlightMs;
+    }
+}
@@ -0,0 +1,120 @@
+package com.elasticquest.backend.model;
+
+/**
+ * 批量评测任务状态
+ */
+public class BatchEvaluationStatus {
+
+    private String jobId;
+    private String state; // RUNNING, COMPLETED, FAILED, CANCELLED, INTERRUPTED（进程退出前未完成，可续跑）
+    private int total;
+    private int completed; // 已有结果的问题数（含失败，失败的问题续跑时重试）
+    private int failed;
+    private int resumedFrom; // 续跑时已成功的问题数
+    private long elapsedMs; // 本次运行耗时，重启后加载的任务没有本进程内的运行记录，与吞吐一样为 0
+    private double questionsPerMinute;
+    private long latencyP50Ms;
+    private long latencyP95Ms;
+    private long latencyMaxMs;
+    private String error;
+
+    public BatchEvaluationStatus() {
+    }
+
+    // Getters and Setters
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(int completed) {
+        this.completed = completed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public int getResumedFrom() {
+        return resumedFrom;
+    }
+
+    public void setResumedFrom(int resumedFrom) {
+        this.resumedFrom = resumedFrom;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+
+    public double getQuestionsPerMinute() {
+        return questionsPerMinute;
+    }
+
+    public void setQuestionsPerMinute(double questionsPerMinute) {
+        this.questionsPerMinute = questionsPerMinute;
+    }
+
+    public long getLatencyP50Ms() {
+        return latencyP50Ms;
+    }
+
+    public void setLatencyP50Ms(long latencyP50Ms) {
+        this.latencyP50Ms = latencyP50Ms;
+    }
+
+    public long getLatencyP95Ms() {
+        return latencyP95Ms;
+    }
+
+    public void setLatencyP95Ms(long latencyP95Ms) {
+        this.latencyP95Ms = latencyP95Ms;
+    }
+
+    public long getLatencyMaxMs() {
+        return latencyMaxMs;
+    }
+
+    public void setLatencyMaxMs(long latencyMaxMs) {
+        this.latencyMaxMs = latencyMaxMs;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -8,6 +8,8 @@ public class ChallengeSubmission {
     private String answer;
     private String code;
     private int timeSpent;
+    // 可选，挑战所属的考试类别，用于统计擅长和薄弱类别
+    private String category;
 
     // Getters and Setters
     public String getChallengeId() {
@@ -41,4 +43,12 @@ public class ChallengeSubmission {
     public void setTimeSpent(int timeSpent) {
         this.timeSpent = timeSpent;
     }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
 }
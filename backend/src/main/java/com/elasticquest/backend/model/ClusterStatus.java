@@ -0,0 +1,169 @@
+package com.elasticquest.backend.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 集群状态快照（由后台定时探测更新）
+ */
+public class ClusterStatus {
+    
+    private String connectionId;
+    private String name;
+    private String url;
+    // pending: 尚未完成首次探测
+    private boolean pending;
+    private boolean reachable;
+    private String clusterName;
+    private String version;
+    private String health; // green、yellow、red
+    private Integer numberOfNodes;
+    private Integer numberOfDataNodes;
+    private Integer activeShards;
+    private Integer unassignedShards;
+    // 各节点中最高的堆内存使用率
+    private Integer maxHeapUsedPercent;
+    private String error;
+    private long probeDurationMs;
+    private LocalDateTime lastUpdated;
+    
+    public ClusterStatus() {
+    }
+    
+    public static ClusterStatus pending(ESConnectionConfig config) {
+        ClusterStatus status = new ClusterStatus();
+        status.setConnectionId(config.getId());
+        status.setName(config.getName());
+        status.setUrl(config.getFullUrl());
+        status.setPending(true);
+        return status;
+    }
+    
+    // Getters and Setters
+    public String getConnectionId() {
+        return connectionId;
+    }
+    
+    public void setConnectionId(String connectionId) {
+        this.connectionId = connectionId;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getUrl() {
+        return url;
+    }
+    
+    public void setUrl(String url) {
+        this.url = url;
+    }
+    
+    public boolean isPending() {
+        return pending;
+    }
+    
+    public void setPending(boolean pending) {
+        this.pending = pending;
+    }
+    
+    public boolean isReachable() {
+        return reachable;
+    }
+    
+    public void setReachable(boolean reachable) {
+        this.reachable = reachable;
+    }
+    
+    public String getClusterName() {
+        return clusterName;
+    }
+    
+    public void setClusterName(String clusterName) {
+        this.clusterName = clusterName;
+    }
+    
+    public String getVersion() {
+        return version;
+    }
+    
+    public void setVersion(String version) {
+        this.version = version;
+    }
+    
+    public String getHealth() {
+        return health;
+    }
+    
+    public void setHealth(String health) {
+        this.health = health;
+    }
+    
+    public Integer getNumberOfNodes() {
+        return numberOfNodes;
+    }
+    
+    public void setNumberOfNodes(Integer numberOfNodes) {
+        this.numberOfNodes = numberOfNodes;
+    }
+    
+    public Integer getNumberOfDataNodes() {
+        return numberOfDataNodes;
+    }
+    
+    public void setNumberOfDataNodes(Integer numberOfDataNodes) {
+        this.numberOfDataNodes = numberOfDataNodes;
+    }
+    
+    public Integer getActiveShards() {
+        return activeShards;
+    }
+    
+    public void setActiveShards(Integer activeShards) {
+        this.activeShards = activeShards;
+    }
+    
+    public Integer getUnassignedShards() {
+        return unassignedShards;
+    }
+    
+    public void setUnassignedShards(Integer unassignedShards) {
+        this.unassignedShards = unassignedShards;
+    }
+    
+    public Integer getMaxHeapUsedPercent() {
+        return maxHeapUsedPercent;
+    }
+    
+    public void setMaxHeapUsedPercent(Integer maxHeapUsedPercent) {
+        this.maxHeapUsedPercent = maxHeapUsedPercent;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    public long getProbeDurationMs() {
+        return probeDurationMs;
+    }
+    
+    public void setProbeDurationMs(long probeDurationMs) {
+        this.probeDurationMs = probeDurationMs;
+    }
+    
+    public LocalDateTime getLastUpdated() {
+        return lastUpdated;
+    }
+    
+    public void setLastUpdated(LocalDateTime lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+}
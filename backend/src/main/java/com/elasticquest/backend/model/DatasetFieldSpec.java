@@ -0,0 +1,110 @@
+package com.elasticquest.backend.model;
+
+import jakarta.validation.constraints.NotBlank;
+
+import java.util.List;
+
+/**
+ * 数据集字段定义
+ */
+public class DatasetFieldSpec {
+
+    @NotBlank(message = "字段名不能为空")
+    private String name; // 支持点号表示的对象字段，如 address.city
+
+    @NotBlank(message = "字段类型不能为空")
+    private String type; // keyword, text, integer, long, double, float, boolean, date, geo_point, ip
+
+    private String distribution; // uniform（默认）, normal, zipf, sequence
+
+    private List<String> values; // keyword 的候选值
+
+    private Double min; // 数值下界；date 为 epoch 毫秒；text 为最少词数
+    private Double max; // 数值上界；date 为 epoch 毫秒；text 为最多词数
+
+    private Double mean; // normal 分布均值
+    private Double stddev; // normal 分布标准差
+
+    private Double nullRate; // 字段缺失概率（0-1）
+
+    public DatasetFieldSpec() {
+    }
+
+    public DatasetFieldSpec(String name, String type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getDistribution() {
+        return distribution;
+    }
+
+    public void setDistribution(String distribution) {
+        this.distribution = distribution;
+    }
+
+    public List<String> getValues() {
+        return values;
+    }
+
+    public void setValues(List<String> values) {
+        this.values = values;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+
+    public void setMin(Double min) {
+        this.min = min;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+
+    public void setMax(Double max) {
+        this.max = max;
+    }
+
+    public Double getMean() {
+        return mean;
+    }
+
+    public void setMean(Double mean) {
+        this.mean = mean;
+    }
+
+    public Double getStddev() {
+        return stddev;
+    }
+
+    public void setStddev(Double stddev) {
+        this.stddev = stddev;
+    }
+
+    public Double getNullRate() {
+        return nullRate;
+    }
+
+    public void setNullRate(Double nullRate) {
+        this.nullRate = nullRate;
+    }
+}
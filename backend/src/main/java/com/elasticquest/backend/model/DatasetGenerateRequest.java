@@ -0,0 +1,120 @@
+package com.elasticquest.backend.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+/**
+ * 数据集生成请求
+ * fields 与 mapping 至少提供一个；同时提供时以 fields 为准，mapping 仅用于建索引
+ */
+public class DatasetGenerateRequest {
+
+    @Valid
+    @NotNull(message = "连接配置不能为空")
+    private ESConnectionConfig connection;
+
+    @NotBlank(message = "索引不能为空")
+    private String index;
+
+    private String mapping; // 索引 mapping（JSON），可从中推导字段
+
+    @Valid
+    private List<DatasetFieldSpec> fields; // 字段模板
+
+    @Min(value = 1, message = "文档数必须大于0")
+    @Max(value = 100_000_000L, message = "文档数不能超过1亿")
+    private long documentCount = 10000;
+
+    @Min(value = 1, message = "批大小必须大于0")
+    @Max(value = 10000, message = "批大小不能超过10000")
+    private int batchSize = 1000;
+
+    @Min(value = 1, message = "并发数必须大于0")
+    @Max(value = 16, message = "并发数不能超过16")
+    private int parallelism = 4;
+
+    private long seed = 42L; // 随机种子，相同种子生成相同数据
+
+    private boolean createIndex; // 是否先按 mapping 创建索引
+
+    public DatasetGenerateRequest() {
+    }
+
+    // Getters and Setters
+    public ESConnectionConfig getConnection() {
+        return connection;
+    }
+
+    public void setConnection(ESConnectionConfig connection) {
+        this.connection = connection;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public void setIndex(String index) {
+        this.index = index;
+    }
+
+    public String getMapping() {
+        return mapping;
+    }
+
+    public void setMapping(String mapping) {
+        this.mapping = mapping;
+    }
+
+    public List<DatasetFieldSpec> getFields() {
+        return fields;
+    }
+
+    public void setFields(List<DatasetFieldSpec> fields) {
+        this.fields = fields;
+    }
+
+    public long getDocumentCount() {
+        return documentCount;
+    }
+
+    public void setDocumentCount(long documentCount) {
+        this.documentCount = documentCount;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public boolean isCreateIndex() {
+        return createIndex;
+    }
+
+    public void setCreateIndex(boolean createIndex) {
+        this.createIndex = createIndex;
+    }
+}
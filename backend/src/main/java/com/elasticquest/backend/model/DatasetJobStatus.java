@@ -0,0 +1,120 @@
+package com.elasticquest.backend.model;
+
+/**
+ * 数据集生成任务状态
+ */
+public class DatasetJobStatus {
+
+    private String jobId;
+    private String index;
+    private String state; // RUNNING, COMPLETED, FAILED, CANCELLED
+    private long requested;
+    private long indexed;
+    private long failed;
+    private long retries; // 因 bulk 拒绝（429）而重试的次数
+    private long bytesSent;
+    private long elapsedMs;
+    private double docsPerSecond;
+    private double mbPerSecond;
+    private String error;
+
+    public DatasetJobStatus() {
+    }
+
+    // Getters and Setters
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public void setIndex(String index) {
+        this.index = index;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public long getRequested() {
+        return requested;
+    }
+
+    public void setRequested(long requested) {
+        this.requested = requested;
+    }
+
+    public long getIndexed() {
+        return indexed;
+    }
+
+    public void setIndexed(long indexed) {
+        this.indexed = indexed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public long getRetries() {
+        return retries;
+    }
+
+    public void setRetries(long retries) {
+        this.retries = retries;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public void setBytesSent(long bytesSent) {
+        this.bytesSent = bytesSent;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+
+    public double getDocsPerSecond() {
+        return docsPerSecond;
+    }
+
+    public void setDocsPerSecond(double docsPerSecond) {
+        this.docsPerSecond = docsPerSecond;
+    }
+
+    public double getMbPerSecond() {
+        return mbPerSecond;
+    }
+
+    public void setMbPerSecond(double mbPerSecond) {
+        this.mbPerSecond = mbPerSecond;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,48 @@
+package com.elasticquest.backend.model;
+
+import java.util.List;
+
+/**
+ * 多条 ES 命令的执行结果，results 与脚本中的命令一一对应
+ */
+public class ESBatchExecutionResult {
+    
+    private List<String> commands;
+    private List<ESExecutionResult> results;
+    // 实际发往 ES 的请求数（连续的搜索合并为一次 _msearch）
+    private int roundTrips;
+    
+    public ESBatchExecutionResult() {
+    }
+    
+    public ESBatchExecutionResult(List<String> commands, List<ESExecutionResult> results, int roundTrips) {
+        this.commands = commands;
+        this.results = results;
+        this.roundTrips = roundTrips;
+    }
+    
+    // Getters and Setters
+    public List<String> getCommands() {
+        return commands;
+    }
+    
+    public void setCommands(List<String> commands) {
+        this.commands = commands;
+    }
+    
+    public List<ESExecutionResult> getResults() {
+        return results;
+    }
+    
+    public void setResults(List<ESExecutionResult> results) {
+        this.results = results;
+    }
+    
+    public int getRoundTrips() {
+        return roundTrips;
+    }
+    
+    public void setRoundTrips(int roundTrips) {
+        this.roundTrips = roundTrips;
+    }
+}
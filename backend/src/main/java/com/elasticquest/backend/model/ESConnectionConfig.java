@@ -30,6 +30,8 @@ public class ESConnectionConfig {
     private String password;
     private String apiKey;
     
+    private String transport; // rest-client（默认）或 http-client
+    
     @NotBlank(message = "环境不能为空")
     private String environment; // development, test, production
     
@@ -121,6 +123,14 @@ public class ESConnectionConfig {
         this.apiKey = apiKey;
     }
     
+    public String getTransport() {
+        return transport;
+    }
+    
+    public void setTransport(String transport) {
+        this.transport = transport;
+    }
+    
     public String getEnvironment() {
         return environment;
     }
@@ -11,6 +11,11 @@ public class ESExecutionResult {
     private String responseBody;
     private String error;
     
+    // 响应过大时落盘，responseBody 只包含摘要和第一页命中
+    private String resultHandle;
+    private Long totalBytes;
+    private Integer hitCount;
+    
     public ESExecutionResult() {
     }
     
@@ -23,6 +28,16 @@ public class ESExecutionResult {
         return result;
     }
     
+    public static ESExecutionResult spooled(int statusCode, String summary, String resultHandle,
+                                            long totalBytes, Integer hitCount) {
+        ESExecutionResult result = success(statusCode, summary);
+        result.setMessage("执行成功（响应过大，已返回摘要）");
+        result.setResultHandle(resultHandle);
+        result.setTotalBytes(totalBytes);
+        result.setHitCount(hitCount);
+        return result;
+    }
+    
     public static ESExecutionResult failure(String error) {
         ESExecutionResult result = new ESExecutionResult();
         result.setSuccess(false);
@@ -71,5 +86,28 @@ public class ESExecutionResult {
     public void setError(String error) {
         this.error = error;
     }
+    
+    public String getResultHandle() {
+        return resultHandle;
+    }
+    
+    public void setResultHandle(String resultHandle) {
+        this.resultHandle = resultHandle;
+    }
+    
+    public Long getTotalBytes() {
+        return totalBytes;
+    }
+    
+    public void setTotalBytes(Long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+    
+    public Integer getHitCount() {
+        return hitCount;
+    }
+    
+    public void setHitCount(Integer hitCount) {
+        this.hitCount = hitCount;
+    }
 }
-
@@ -0,0 +1,94 @@
+package com.elasticquest.backend.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * 索引导出请求
+ */
+public class ESExportRequest {
+
+    @Valid
+    @NotNull(message = "连接配置不能为空")
+    private ESConnectionConfig connection;
+
+    @NotBlank(message = "索引不能为空")
+    private String index;
+
+    private String query; // 可选的查询 DSL（query 子句的 JSON），为空时导出全部文档
+
+    @Min(value = 1, message = "切片数必须大于0")
+    @Max(value = 16, message = "切片数不能超过16")
+    private int slices = 1;
+
+    @Min(value = 1, message = "分页大小必须大于0")
+    @Max(value = 10000, message = "分页大小不能超过10000")
+    private int pageSize = 1000;
+
+    private boolean gzip;
+
+    private String keepAlive = "1m"; // PIT 保活时间
+
+    public ESExportRequest() {
+    }
+
+    // Getters and Setters
+    public ESConnectionConfig getConnection() {
+        return connection;
+    }
+
+    public void setConnection(ESConnectionConfig connection) {
+        this.connection = connection;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public void setIndex(String index) {
+        this.index = index;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public int getSlices() {
+        return slices;
+    }
+
+    public void setSlices(int slices) {
+        this.slices = slices;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    public String getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(String keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+}
@@ -0,0 +1,52 @@
+package com.elasticquest.backend.model;
+
+/**
+ * 索引名/字段名补全请求
+ */
+public class ESMetadataRequest {
+    
+    private ESConnectionConfig connection;
+    
+    // 字段补全时的目标索引，支持通配符和逗号分隔
+    private String index;
+    
+    private String prefix = "";
+    
+    private int limit = 50;
+    
+    public ESMetadataRequest() {
+    }
+    
+    // Getters and Setters
+    public ESConnectionConfig getConnection() {
+        return connection;
+    }
+    
+    public void setConnection(ESConnectionConfig connection) {
+        this.connection = connection;
+    }
+    
+    public String getIndex() {
+        return index;
+    }
+    
+    public void setIndex(String index) {
+        this.index = index;
+    }
+    
+    public String getPrefix() {
+        return prefix;
+    }
+    
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+}
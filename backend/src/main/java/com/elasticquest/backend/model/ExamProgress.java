@@ -23,6 +23,7 @@ public class ExamProgress {
         private int attempts;
         private String lastAttempt;
         private int bestScore;
+        private String category;
 
         // Getters and Setters
         public int getScore() {
@@ -64,6 +65,47 @@ public class ExamProgress {
         public void setBestScore(int bestScore) {
             this.bestScore = bestScore;
         }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public void setCategory(String category) {
+            this.category = category;
+        }
+    }
+
+    /**
+     * 单个类别的挑战统计
+     */
+    public static class CategoryStats {
+        private int challenges;
+        private int successfulChallenges;
+
+        public CategoryStats() {
+        }
+
+        public CategoryStats(int challenges, int successfulChallenges) {
+            this.challenges = challenges;
+            this.successfulChallenges = successfulChallenges;
+        }
+
+        // Getters and Setters
+        public int getChallenges() {
+            return challenges;
+        }
+
+        public void setChallenges(int challenges) {
+            this.challenges = challenges;
+        }
+
+        public int getSuccessfulChallenges() {
+            return successfulChallenges;
+        }
+
+        public void setSuccessfulChallenges(int successfulChallenges) {
+            this.successfulChallenges = successfulChallenges;
+        }
     }
 
     public static class ExamStats {
@@ -72,6 +114,10 @@ public class ExamProgress {
         private int successRate;
         private List<String> strongCategories;
         private List<String> weakCategories;
+        // 以下为增量维护的汇总值，提交挑战时不再遍历全部挑战结果
+        private int successfulChallenges;
+        private int totalTimeSpent; // 秒
+        private Map<String, CategoryStats> categories;
 
         // Getters and Setters
         public int getTotalStudyTime() {
@@ -113,6 +159,30 @@ public class ExamProgress {
         public void setWeakCategories(List<String> weakCategories) {
             this.weakCategories = weakCategories;
         }
+
+        public int getSuccessfulChallenges() {
+            return successfulChallenges;
+        }
+
+        public void setSuccessfulChallenges(int successfulChallenges) {
+            this.successfulChallenges = successfulChallenges;
+        }
+
+        public int getTotalTimeSpent() {
+            return totalTimeSpent;
+        }
+
+        public void setTotalTimeSpent(int totalTimeSpent) {
+            this.totalTimeSpent = totalTimeSpent;
+        }
+
+        public Map<String, CategoryStats> getCategories() {
+            return categories;
+        }
+
+        public void setCategories(Map<String, CategoryStats> categories) {
+            this.categories = categories;
+        }
     }
 
     // Getters and Setters
@@ -0,0 +1,35 @@
+package com.elasticquest.backend.model;
+
+/**
+ * 字段补全候选
+ */
+public class FieldSuggestion {
+    
+    private String name; // 完整路径，如 user.name、title.keyword
+    private String type;
+    
+    public FieldSuggestion() {
+    }
+    
+    public FieldSuggestion(String name, String type) {
+        this.name = name;
+        this.type = type;
+    }
+    
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getType() {
+        return type;
+    }
+    
+    public void setType(String type) {
+        this.type = type;
+    }
+}
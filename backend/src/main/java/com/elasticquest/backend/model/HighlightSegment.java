@@ -7,6 +7,8 @@ public class HighlightSegment {
     
     private String text; // 文本内容
     private boolean highlighted; // 是否高亮
+    private String sourceId; // 多文档高亮时匹配到的参考文档 ID
+    private Double similarity; // 与参考材料的相似度，原文匹配为 1，改写匹配为估计的 Jaccard 相似度；非高亮为 null
     
     public HighlightSegment() {
     }
@@ -16,6 +18,19 @@ public class HighlightSegment {
         this.highlighted = highlighted;
     }
     
+    public HighlightSegment(String text, boolean highlighted, String sourceId) {
+        this.text = text;
+        this.highlighted = highlighted;
+        this.sourceId = sourceId;
+    }
+    
+    public HighlightSegment(String text, String sourceId, double similarity) {
+        this.text = text;
+        this.highlighted = true;
+        this.sourceId = sourceId;
+        this.similarity = similarity;
+    }
+    
     // Getters and Setters
     public String getText() {
         return text;
@@ -32,5 +47,21 @@ public class HighlightSegment {
     public void setHighlighted(boolean highlighted) {
         this.highlighted = highlighted;
     }
+    
+    public String getSourceId() {
+        return sourceId;
+    }
+    
+    public void setSourceId(String sourceId) {
+        this.sourceId = sourceId;
+    }
+    
+    public Double getSimilarity() {
+        return similarity;
+    }
+    
+    public void setSimilarity(Double similarity) {
+        this.similarity = similarity;
+    }
 }
 
@@ -0,0 +1,75 @@
+package com.elasticquest.backend.model;
+
+/**
+ * 资料库中的参考材料信息
+ */
+public class MaterialInfo {
+
+    private String id; // 由内容哈希得出，相同内容得到相同 id
+    private String title;
+    private String uploadedBy; // 上传者 userId，只有上传者可以查看、引用和删除
+    private int chars; // 字符数
+    private int chunks; // 检索分块数
+    private String embedding; // 构建向量索引时使用的向量模型
+    private long createdAt;
+
+    public MaterialInfo() {
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getUploadedBy() {
+        return uploadedBy;
+    }
+
+    public void setUploadedBy(String uploadedBy) {
+        this.uploadedBy = uploadedBy;
+    }
+
+    public int getChars() {
+        return chars;
+    }
+
+    public void setChars(int chars) {
+        this.chars = chars;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(int chunks) {
+        this.chunks = chunks;
+    }
+
+    public String getEmbedding() {
+        return embedding;
+    }
+
+    public void setEmbedding(String embedding) {
+        this.embedding = embedding;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+}
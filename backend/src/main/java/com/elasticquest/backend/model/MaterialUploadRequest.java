@@ -0,0 +1,34 @@
+package com.elasticquest.backend.model;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * 参考材料上传请求
+ */
+public class MaterialUploadRequest {
+
+    private String title; // 标题，可为空
+
+    @NotBlank(message = "材料内容不能为空")
+    private String content;
+
+    public MaterialUploadRequest() {
+    }
+
+    // Getters and Setters
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+}
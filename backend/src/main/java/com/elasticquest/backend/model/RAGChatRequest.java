@@ -1,6 +1,10 @@
 package com.elasticquest.backend.model;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * RAG 聊天请求模型
@@ -18,6 +22,13 @@ public class RAGChatRequest {
     
     private Integer maxTokens; // 最大token数
     
+    private String conversationId; // 多轮对话 ID，为空时为单轮对话
+    
+    private String materialId; // 资料库中的参考材料 ID，设置后忽略 contextMaterial
+    
+    @Size(max = 16, message = "参考材料不能超过16份")
+    private List<String> materialIds; // 多份资料库材料，高亮片段标注来源材料 ID
+    
     public RAGChatRequest() {
     }
     
@@ -66,5 +77,46 @@ public class RAGChatRequest {
     public void setMaxTokens(Integer maxTokens) {
         this.maxTokens = maxTokens;
     }
+    
+    public String getConversationId() {
+        return conversationId;
+    }
+    
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+    
+    public String getMaterialId() {
+        return materialId;
+    }
+    
+    public void setMaterialId(String materialId) {
+        this.materialId = materialId;
+    }
+    
+    public List<String> getMaterialIds() {
+        return materialIds;
+    }
+    
+    public void setMaterialIds(List<String> materialIds) {
+        this.materialIds = materialIds;
+    }
+    
+    /**
+     * 引用的全部资料库材料 ID（materialId 在前，去重）
+     */
+    public List<String> referencedMaterialIds() {
+        List<String> ids = new ArrayList<>();
+        if (materialId != null && !materialId.isEmpty()) {
+            ids.add(materialId);
+        }
+        if (materialIds != null) {
+            for (String id : materialIds) {
+                if (id != null && !id.isEmpty() && !ids.contains(id)) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
 }
-
@@ -0,0 +1,85 @@
+package com.elasticquest.backend.model;
+
+/**
+ * 慢命令记录
+ */
+public class SlowCommandRecord {
+    
+    private String timestamp;
+    private String connection;
+    private String method;
+    private String endpoint;
+    private String endpointPattern;
+    private int statusCode;
+    private long durationMs;
+    private long responseBytes;
+    
+    public SlowCommandRecord() {
+    }
+    
+    // Getters and Setters
+    public String getTimestamp() {
+        return timestamp;
+    }
+    
+    public void setTimestamp(String timestamp) {
+        this.timestamp = timestamp;
+    }
+    
+    public String getConnection() {
+        return connection;
+    }
+    
+    public void setConnection(String connection) {
+        this.connection = connection;
+    }
+    
+    public String getMethod() {
+        return method;
+    }
+    
+    public void setMethod(String method) {
+        this.method = method;
+    }
+    
+    public String getEndpoint() {
+        return endpoint;
+    }
+    
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+    
+    public String getEndpointPattern() {
+        return endpointPattern;
+    }
+    
+    public void setEndpointPattern(String endpointPattern) {
+        this.endpointPattern = endpointPattern;
+    }
+    
+    public int getStatusCode() {
+        return statusCode;
+    }
+    
+    public void setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+    }
+    
+    public long getDurationMs() {
+        return durationMs;
+    }
+    
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+    
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+    
+    public void setResponseBytes(long responseBytes) {
+        this.responseBytes = responseBytes;
+    }
+    
+}
@@ -11,6 +11,7 @@ public class StreamChatChunk {
     private boolean done; // 是否完成
     private List<HighlightSegment> highlights; // 高亮片段（仅在done=true时返回）
     private String error; // 错误信息
+    private String notice; // 提示信息（如参考材料过长只使用了部分片段，仅在done=true时返回）
     
     public StreamChatChunk() {
     }
@@ -68,5 +69,12 @@ public class StreamChatChunk {
     public void setError(String error) {
         this.error = error;
     }
+    
+    public String getNotice() {
+        return notice;
+    }
+    
+    public void setNotice(String notice) {
+        this.notice = notice;
+    }
 }
-
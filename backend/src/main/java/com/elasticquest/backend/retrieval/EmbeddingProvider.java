@@ -0,0 +1,57 @@
+package com.elasticquest.backend.retrieval;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文本向量模型
+ * 返回的向量需归一化为单位长度（索引使用点积相似度）
+ */
+public interface EmbeddingProvider {
+
+    String HASHING = "hashing";
+    String OPENAI = "openai";
+
+    /**
+     * 向量维度
+     */
+    int dimension();
+
+    float[] embed(String text) throws IOException;
+
+    /**
+     * 批量计算向量，远程实现应覆盖以减少请求次数
+     */
+    default List<float[]> embedAll(List<String> texts) throws IOException {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            vectors.add(embed(text));
+        }
+        return vectors;
+    }
+
+    /**
+     * 实现名称，用于日志和缓存键
+     */
+    String name();
+
+    /**
+     * 归一化为单位长度；零向量返回第一维为 1 的单位向量
+     */
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            vector[0] = 1;
+            return vector;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,80 @@
+package com.elasticquest.backend.retrieval;
+
+import com.elasticquest.backend.config.LLMProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地哈希向量
+ * 把文本的字符 1/2/3-gram 哈希到固定维度并归一化，不依赖外部服务且结果确定；
+ * 能匹配用词相近的改写，语义改写的召回不如真实向量模型，适合离线测试和基准
+ */
+@Component
+@ConditionalOnProperty(name = "llm.embedding.provider", havingValue = EmbeddingProvider.HASHING, matchIfMissing = true)
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+
+    private final int dimension;
+
+    @Autowired
+    public HashingEmbeddingProvider(LLMProperties properties) {
+        this(properties.getEmbedding().getDimension());
+    }
+
+    public HashingEmbeddingProvider(int dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimension];
+        int length = text.length();
+        char previous = 0;
+        char beforePrevious = 0;
+        for (int i = 0; i < length; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (!Character.isLetterOrDigit(c)) {
+                // 空白和标点断开 n-gram
+                previous = 0;
+                beforePrevious = 0;
+                continue;
+            }
+            add(vector, c, 0.5f);
+            if (previous != 0) {
+                add(vector, (previous << 16) | c, 1f);
+                if (beforePrevious != 0) {
+                    add(vector, ((long) beforePrevious << 32) | ((long) previous << 16) | c, 1f);
+                }
+            }
+            beforePrevious = previous;
+            previous = c;
+        }
+        return EmbeddingProvider.normalize(vector);
+    }
+
+    @Override
+    public String name() {
+        return HASHING + "-" + dimension;
+    }
+
+    /**
+     * 哈希到某一维，符号由另一部分哈希位决定，减少冲突带来的偏差
+     */
+    private void add(float[] vector, long feature, float weight) {
+        long hash = mix(feature);
+        int index = (int) Long.remainderUnsigned(hash, dimension);
+        vector[index] += (hash & (1L << 63)) != 0 ? -weight : weight;
+    }
+
+    private static long mix(long value) {
+        // SplitMix64 终结函数
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
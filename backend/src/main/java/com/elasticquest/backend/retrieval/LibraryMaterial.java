@@ -0,0 +1,159 @@
+package com.elasticquest.backend.retrieval;
+
+import com.elasticquest.backend.model.MaterialInfo;
+import com.elasticquest.backend.service.MinHashIndex;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 资料库中已打开的参考材料
+ * 分块向量索引和后缀数组都在同一个内存映射目录中，只读，可在线程间共享。
+ * 按引用计数关闭：资料库持有一个引用，读取映射文件的调用方通过 MaterialLibrary.acquire 另外持有，
+ * 用完后 close；材料被删除后，最后一个引用释放时才关闭映射并删除目录
+ */
+public class LibraryMaterial implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LibraryMaterial.class);
+
+    private final MaterialInfo info;
+    private final VectorIndex vectors;
+    private final SuffixArray text;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private volatile MinHashIndex paraphrases;
+    private volatile Path deleteOnRelease;
+
+    LibraryMaterial(MaterialInfo info, VectorIndex vectors, SuffixArray text) {
+        this.info = info;
+        this.vectors = vectors;
+        this.text = text;
+    }
+
+    /**
+     * 增加一个引用
+     * @return 材料已关闭时为 false
+     */
+    boolean retain() {
+        int count;
+        do {
+            count = references.get();
+            if (count <= 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    /**
+     * 最后一个引用释放后删除该目录
+     */
+    void deleteOnRelease(Path dir) {
+        this.deleteOnRelease = dir;
+    }
+
+    public MaterialInfo getInfo() {
+        return info;
+    }
+
+    public String getId() {
+        return info.getId();
+    }
+
+    /**
+     * 原文长度（字符数）
+     */
+    public int length() {
+        return text.length();
+    }
+
+    /**
+     * 从映射文件读取原文
+     */
+    public String content() throws IOException {
+        return text.content();
+    }
+
+    /**
+     * 分块向量索引，分块原文保存在索引中
+     */
+    public VectorIndex vectors() {
+        return vectors;
+    }
+
+    /**
+     * 高亮使用的短语匹配器
+     */
+    public SuffixArray matcher() {
+        return text;
+    }
+
+    /**
+     * 改写匹配索引，首次使用时由原文构建并保留在内存中
+     */
+    public MinHashIndex paraphrases() throws IOException {
+        MinHashIndex index = paraphrases;
+        if (index == null) {
+            synchronized (this) {
+                index = paraphrases;
+                if (index == null) {
+                    index = MinHashIndex.build(text.content());
+                    paraphrases = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 释放一个引用，最后一个引用释放时关闭映射文件
+     */
+    @Override
+    public void close() throws IOException {
+        if (references.decrementAndGet() != 0) {
+            return;
+        }
+        try {
+            text.close();
+        } finally {
+            // 同时关闭目录
+            vectors.close();
+            Path dir = deleteOnRelease;
+            if (dir != null) {
+                deleteRecursively(dir);
+            }
+        }
+    }
+
+    /**
+     * 释放多份材料的引用，不抛出异常
+     */
+    public static void closeAll(List<LibraryMaterial> materials) {
+        for (LibraryMaterial material : materials) {
+            try {
+                material.close();
+            } catch (IOException e) {
+                logger.debug("关闭参考材料失败: id={}, {}", material.getId(), e.getMessage());
+            }
+        }
+    }
+
+    static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.elasticquest.backend.retrieval;
+
+import com.elasticquest.backend.config.LLMProperties;
+import com.elasticquest.backend.model.MaterialInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 参考材料资料库
+ * 上传的材料保存在磁盘上，每份材料一个目录（MMapDirectory），包含分块向量索引、原文和高亮用的后缀数组；
+ * 聊天请求只需携带材料 id，检索和高亮直接使用映射的文件，不再逐次传输和分词原文；
+ * 材料只对上传者（X-User-Id）可见，其他用户查询、引用或读取原文时视为不存在
+ */
+@Service
+public class MaterialLibrary {
+
+    private static final Logger logger = LoggerFactory.getLogger(MaterialLibrary.class);
+
+    // 材料信息文件，最后写入，存在即表示目录完整
+    private static final String INFO_FILE = "material.json";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // 已删除但仍有请求在使用的材料目录改名为 {id}.deleted-{时间}，最后一个引用释放时删除
+    private static final String DELETED_SUFFIX = ".deleted-";
+    // 引入上传者之前入库的材料视为默认用户上传
+    private static final String DEFAULT_USER = "default";
+
+    @Autowired
+    private LLMProperties properties;
+
+    @Autowired
+    private EmbeddingProvider embeddingProvider;
+
+    @Value("${llm.materials.dir:./data/materials}")
+    private String directory;
+
+    @Value("${llm.materials.max-chars:2000000}")
+    private int maxChars;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, LibraryMaterial> materials = new ConcurrentHashMap<>();
+    private final Object uploadLock = new Object();
+
+    /**
+     * 打开已有材料；未写完的目录和上次运行遗留的已删除目录直接删除，向量模型变化的材料重建向量索引
+     */
+    @PostConstruct
+    public void loadMaterials() throws IOException {
+        Path root = Path.of(directory);
+        Files.createDirectories(root);
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                if (!Files.exists(dir.resolve(INFO_FILE)) || dir.getFileName().toString().contains(".")) {
+                    logger.warn("删除不完整或已删除的材料目录: {}", dir);
+                    deleteRecursively(dir);
+                    continue;
+                }
+                try {
+                    LibraryMaterial material = open(dir);
+                    materials.put(material.getId(), material);
+                } catch (Exception e) {
+                    logger.warn("无法打开参考材料: {}, {}", dir, e.getMessage());
+                }
+            }
+        }
+        if (!materials.isEmpty()) {
+            logger.info("已加载参考材料 {} 份", materials.size());
+        }
+    }
+
+    /**
+     * 保存材料并建立索引；同一用户上传相同内容时返回已有材料
+     * @throws IllegalArgumentException 材料超过长度上限
+     */
+    public MaterialInfo upload(String title, String content, String userId) throws IOException {
+        if (content.length() > maxChars) {
+            throw new IllegalArgumentException("材料长度不能超过 " + maxChars + " 字符");
+        }
+        String id = contentId(userId, content);
+        LibraryMaterial existing = materials.get(id);
+        if (existing != null) {
+            return existing.getInfo();
+        }
+
+        // 构建较耗时，逐个进行
+        synchronized (uploadLock) {
+            existing = materials.get(id);
+            if (existing != null) {
+                return existing.getInfo();
+            }
+            long start = System.nanoTime();
+            Path target = Path.of(directory, id);
+            Path temp = Path.of(directory, id + TEMP_SUFFIX);
+            deleteRecursively(temp);
+
+            MaterialInfo info = new MaterialInfo();
+            info.setId(id);
+            info.setTitle(title);
+            info.setUploadedBy(userId);
+            info.setChars(content.length());
+            info.setCreatedAt(System.currentTimeMillis());
+            try (Directory dir = new MMapDirectory(temp)) {
+                SuffixArray.write(dir, content);
+                buildVectors(dir, content, info);
+            }
+            objectMapper.writeValue(temp.resolve(INFO_FILE).toFile(), info);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+
+            LibraryMaterial material = open(target);
+            materials.put(id, material);
+            logger.info("参考材料已入库: id={}, chars={}, chunks={}, 耗时 {}ms",
+                id, info.getChars(), info.getChunks(), (System.nanoTime() - start) / 1_000_000);
+            return info;
+        }
+    }
+
+    /**
+     * 材料信息，不存在或不属于该用户时为 null
+     */
+    public MaterialInfo getInfo(String id, String userId) {
+        LibraryMaterial material = id != null ? materials.get(id) : null;
+        return material != null && owner(material).equals(userId) ? material.getInfo() : null;
+    }
+
+    /**
+     * 取出材料并持有引用，用完后需 close；不存在或不属于该用户时为 null
+     */
+    public LibraryMaterial acquire(String id, String userId) {
+        LibraryMaterial material = id != null ? materials.get(id) : null;
+        return material != null && owner(material).equals(userId) && material.retain() ? material : null;
+    }
+
+    /**
+     * 按顺序取出多份材料并持有引用，用完后需 LibraryMaterial.closeAll
+     * @throws IllegalArgumentException 有材料不存在或不属于该用户
+     */
+    public List<LibraryMaterial> acquireAll(List<String> ids, String userId) {
+        List<LibraryMaterial> found = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            LibraryMaterial material = acquire(id, userId);
+            if (material == null) {
+                LibraryMaterial.closeAll(found);
+                throw new IllegalArgumentException("参考材料不存在: " + id);
+            }
+            found.add(material);
+        }
+        return found;
+    }
+
+    /**
+     * 该用户上传的材料，按上传时间排序
+     */
+    public List<MaterialInfo> list(String userId) {
+        List<MaterialInfo> infos = new ArrayList<>();
+        for (LibraryMaterial material : materials.values()) {
+            if (owner(material).equals(userId)) {
+                infos.add(material.getInfo());
+            }
+        }
+        infos.sort(Comparator.comparingLong(MaterialInfo::getCreatedAt));
+        return infos;
+    }
+
+    /**
+     * 删除材料；只有上传者可以删除。正在使用该材料的请求不受影响，
+     * 目录先改名，最后一个请求结束后关闭映射并删除
+     * @return 材料不存在或不属于该用户时为 false
+     */
+    public boolean delete(String id, String userId) throws IOException {
+        LibraryMaterial material = materials.get(id);
+        if (material == null || !owner(material).equals(userId)) {
+            return false;
+        }
+        synchronized (uploadLock) {
+            if (!materials.remove(id, material)) {
+                return false;
+            }
+            // 改名后同一内容可以立即重新上传
+            Path deleted = Path.of(directory, id + DELETED_SUFFIX + System.nanoTime());
+            Files.move(Path.of(directory, id), deleted, StandardCopyOption.ATOMIC_MOVE);
+            material.deleteOnRelease(deleted);
+        }
+        material.close();
+        logger.info("参考材料已删除: id={}", id);
+        return true;
+    }
+
+    @PreDestroy
+    public void close() {
+        for (LibraryMaterial material : materials.values()) {
+            try {
+                material.close();
+            } catch (IOException e) {
+                logger.debug("关闭参考材料失败: {}", e.getMessage());
+            }
+        }
+        materials.clear();
+    }
+
+    private LibraryMaterial open(Path dir) throws IOException {
+        MaterialInfo info = objectMapper.readValue(dir.resolve(INFO_FILE).toFile(), MaterialInfo.class);
+        Directory luceneDir = new MMapDirectory(dir);
+        try {
+            if (!embeddingProvider.name().equals(info.getEmbedding())) {
+                // 查询向量必须与索引来自同一个模型
+                logger.info("向量模型已变更，重建材料向量索引: id={}, {} -> {}",
+                    info.getId(), info.getEmbedding(), embeddingProvider.name());
+                String content;
+                try (SuffixArray text = SuffixArray.open(luceneDir)) {
+                    content = text.content();
+                }
+                buildVectors(luceneDir, content, info);
+                Path temp = dir.resolve(INFO_FILE + TEMP_SUFFIX);
+                objectMapper.writeValue(temp.toFile(), info);
+                Files.move(temp, dir.resolve(INFO_FILE), StandardCopyOption.ATOMIC_MOVE);
+            }
+            SuffixArray text = SuffixArray.open(luceneDir);
+            try {
+                return new LibraryMaterial(info, VectorIndex.open(luceneDir), text);
+            } catch (IOException e) {
+                text.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            luceneDir.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 分块、计算向量并写入索引（覆盖已有索引）
+     */
+    private void buildVectors(Directory dir, String content, MaterialInfo info) throws IOException {
+        LLMProperties.Retrieval settings = properties.getRetrieval();
+        List<String> chunks = TextChunker.chunk(content, settings.getChunkSize(), settings.getChunkOverlap());
+        List<float[]> vectors = embeddingProvider.embedAll(chunks);
+        VectorIndex.write(dir, vectors, chunks, settings.getHnswM(), settings.getHnswBeamWidth());
+        info.setChunks(chunks.size());
+        info.setEmbedding(embeddingProvider.name());
+    }
+
+    // 没有上传者记录的材料归默认用户
+    private static String owner(LibraryMaterial material) {
+        String uploadedBy = material.getInfo().getUploadedBy();
+        return uploadedBy != null ? uploadedBy : DEFAULT_USER;
+    }
+
+    /**
+     * 由上传者和内容得出 id，不同用户上传相同内容得到各自的材料
+     */
+    private static String contentId(String userId, String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(userId.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8))).substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        LibraryMaterial.deleteRecursively(path);
+    }
+}
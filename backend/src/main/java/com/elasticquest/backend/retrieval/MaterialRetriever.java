@@ -0,0 +1,212 @@
+package com.elasticquest.backend.retrieval;
+
+import com.elasticquest.backend.config.LLMProperties;
+import jakarta.annotation.PostConstruct;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * 参考材料检索
+ * 较长的材料按块计算向量并建立 HNSW 索引，按问题选出最相关的若干块放入提示词；
+ * 索引按材料内容缓存，同一份材料的多次提问只构建一次
+ */
+@Service
+public class MaterialRetriever {
+
+    private static final Logger logger = LoggerFactory.getLogger(MaterialRetriever.class);
+
+    private static final String CHUNK_SEPARATOR = "\n……\n";
+
+    @Autowired
+    private LLMProperties properties;
+
+    @Autowired
+    private EmbeddingProvider embeddingProvider;
+
+    // 访问顺序的 LRU 缓存，key 为材料内容的 SHA-256
+    private final Map<String, MaterialIndex> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    @PostConstruct
+    public void checkProvider() {
+        if (properties.getRetrieval().isEnabled() && embeddingProvider.name().startsWith(EmbeddingProvider.HASHING)) {
+            logger.warn("材料检索使用 hashing 向量，只按字面相似度选取片段，可能漏掉相关内容；建议配置 llm.embedding.provider=openai");
+        }
+    }
+
+    /**
+     * 选出与问题最相关的材料片段，按原文顺序拼接；
+     * 材料较短、检索关闭或向量计算失败时返回原材料
+     */
+    public Selection select(String material, String question) {
+        LLMProperties.Retrieval settings = properties.getRetrieval();
+        if (!settings.isEnabled() || material.length() < settings.getMinMaterialChars()) {
+            return Selection.full(material);
+        }
+        try {
+            MaterialIndex index = index(material, settings);
+            if (index.chunks.size() <= settings.getTopK()) {
+                return Selection.full(material);
+            }
+            return join(index.vectors, question, settings.getTopK(), index.chunks::get);
+        } catch (IOException e) {
+            logger.warn("材料检索失败，使用完整材料: {}", e.getMessage());
+            return Selection.full(material);
+        }
+    }
+
+    /**
+     * 从资料库材料中选出与问题最相关的片段，向量索引和分块原文都从磁盘读取
+     */
+    public Selection select(LibraryMaterial material, String question) throws IOException {
+        LLMProperties.Retrieval settings = properties.getRetrieval();
+        if (!settings.isEnabled() || material.length() < settings.getMinMaterialChars()
+                || material.vectors().size() <= settings.getTopK()) {
+            return Selection.full(material.content());
+        }
+        try {
+            VectorIndex vectors = material.vectors();
+            return join(vectors, question, settings.getTopK(), vectors::text);
+        } catch (IOException e) {
+            logger.warn("材料检索失败，使用完整材料: id={}, {}", material.getId(), e.getMessage());
+            return Selection.full(material.content());
+        }
+    }
+
+    /**
+     * 查询 top-k 分块，按原文顺序拼接
+     */
+    private Selection join(VectorIndex vectors, String question, int topK, ChunkSource chunks) throws IOException {
+        int[] ordinals = vectors.search(embeddingProvider.embed(question), topK);
+        Arrays.sort(ordinals);
+        StringJoiner joiner = new StringJoiner(CHUNK_SEPARATOR);
+        for (int ordinal : ordinals) {
+            joiner.add(chunks.get(ordinal));
+        }
+        logger.info("参考材料只放入部分片段: chunks={}/{}, selected={}",
+                ordinals.length, vectors.size(), Arrays.toString(ordinals));
+        return new Selection(joiner.toString(), ordinals.length, vectors.size());
+    }
+
+    private MaterialIndex index(String material, LLMProperties.Retrieval settings) throws IOException {
+        String key = embeddingProvider.name() + ":" + sha256(material);
+        synchronized (cache) {
+            MaterialIndex index = cache.get(key);
+            if (index != null) {
+                return index;
+            }
+        }
+
+        long start = System.nanoTime();
+        List<String> chunks = TextChunker.chunk(material, settings.getChunkSize(), settings.getChunkOverlap());
+        List<float[]> vectors = embeddingProvider.embedAll(chunks);
+        VectorIndex vectorIndex = VectorIndex.build(new ByteBuffersDirectory(), vectors,
+                settings.getHnswM(), settings.getHnswBeamWidth());
+        MaterialIndex index = new MaterialIndex(chunks, vectorIndex);
+        logger.info("材料索引构建完成: chars={}, chunks={}, 耗时 {}ms",
+                material.length(), chunks.size(), (System.nanoTime() - start) / 1_000_000);
+
+        synchronized (cache) {
+            // 并发构建同一份材料时保留先放入的一份
+            MaterialIndex existing = cache.putIfAbsent(key, index);
+            if (existing != null) {
+                closeQuietly(index);
+                return existing;
+            }
+            if (cache.size() > settings.getCacheSize()) {
+                var eldest = cache.entrySet().iterator();
+                // 被淘汰的索引可能仍有查询在进行，交给 GC 回收内存目录，不主动关闭
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return index;
+    }
+
+    private static void closeQuietly(MaterialIndex index) {
+        try {
+            index.vectors.close();
+        } catch (IOException e) {
+            logger.debug("关闭材料索引失败: {}", e.getMessage());
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 检索结果：放入提示词的材料文本，以及选中的分块数和总分块数（未截取时两者都为 0）
+     */
+    public static class Selection {
+
+        private final String text;
+        private final int selectedChunks;
+        private final int totalChunks;
+
+        Selection(String text, int selectedChunks, int totalChunks) {
+            this.text = text;
+            this.selectedChunks = selectedChunks;
+            this.totalChunks = totalChunks;
+        }
+
+        static Selection full(String text) {
+            return new Selection(text, 0, 0);
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public boolean isTruncated() {
+            return selectedChunks < totalChunks;
+        }
+
+        public int getSelectedChunks() {
+            return selectedChunks;
+        }
+
+        public int getTotalChunks() {
+            return totalChunks;
+        }
+    }
+
+    /**
+     * 按序号读取分块原文
+     */
+    private interface ChunkSource {
+        String get(int ordinal) throws IOException;
+    }
+
+    /**
+     * 单份材料的分块及其向量索引
+     */
+    private static class MaterialIndex {
+
+        final List<String> chunks;
+        final VectorIndex vectors;
+
+        MaterialIndex(List<String> chunks, VectorIndex vectors) {
+            this.chunks = chunks;
+            this.vectors = vectors;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.elasticquest.backend.retrieval;
+
+import com.elasticquest.backend.config.LLMProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OpenAI 兼容的向量接口（POST /v1/embeddings）
+ */
+@Component
+@ConditionalOnProperty(name = "llm.embedding.provider", havingValue = EmbeddingProvider.OPENAI)
+public class OpenAIEmbeddingProvider implements EmbeddingProvider {
+
+    private final LLMProperties.Embedding settings;
+    private final OkHttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public OpenAIEmbeddingProvider(LLMProperties properties) {
+        this.settings = properties.getEmbedding();
+        if (settings.getApiUrl() == null || settings.getModel() == null) {
+            throw new IllegalStateException("llm.embedding.api-url 和 llm.embedding.model 不能为空");
+        }
+        this.httpClient = new OkHttpClient.Builder()
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(60, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Override
+    public int dimension() {
+        return settings.getDimension();
+    }
+
+    @Override
+    public float[] embed(String text) throws IOException {
+        return embedAll(List.of(text)).get(0);
+    }
+
+    @Override
+    public List<float[]> embedAll(List<String> texts) throws IOException {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (int from = 0; from < texts.size(); from += settings.getBatchSize()) {
+            List<String> batch = texts.subList(from, Math.min(texts.size(), from + settings.getBatchSize()));
+            vectors.addAll(request(batch));
+        }
+        return vectors;
+    }
+
+    @Override
+    public String name() {
+        return OPENAI + "-" + settings.getModel();
+    }
+
+    private List<float[]> request(List<String> batch) throws IOException {
+        Map<String, Object> body = new HashMap<>();
+        body.put("model", settings.getModel());
+        body.put("input", batch);
+
+        Request.Builder builder = new Request.Builder()
+                .url(settings.getApiUrl())
+                .post(RequestBody.create(objectMapper.writeValueAsString(body), MediaType.parse("application/json")));
+        if (settings.getApiKey() != null && !settings.getApiKey().isEmpty()) {
+            builder.addHeader("Authorization", "Bearer " + settings.getApiKey());
+        }
+
+        try (Response response = httpClient.newCall(builder.build()).execute()) {
+            ResponseBody responseBody = response.body();
+            if (!response.isSuccessful() || responseBody == null) {
+                throw new IOException("向量接口调用失败: " + response.code());
+            }
+            JsonNode data = objectMapper.readTree(responseBody.byteStream()).path("data");
+            float[][] vectors = new float[batch.size()][];
+            for (JsonNode item : data) {
+                JsonNode embedding = item.path("embedding");
+                if (embedding.size() != settings.getDimension()) {
+                    throw new IOException("向量维度不匹配: 期望 " + settings.getDimension() + "，实际 " + embedding.size());
+                }
+                float[] vector = new float[embedding.size()];
+                for (int i = 0; i < vector.length; i++) {
+                    vector[i] = (float) embedding.get(i).asDouble();
+                }
+                vectors[item.path("index").asInt()] = EmbeddingProvider.normalize(vector);
+            }
+            List<float[]> result = new ArrayList<>(batch.size());
+            for (float[] vector : vectors) {
+                if (vector == null) {
+                    throw new IOException("向量接口返回的结果数不足");
+                }
+                result.add(vector);
+            }
+            return result;
+        }
+    }
+}
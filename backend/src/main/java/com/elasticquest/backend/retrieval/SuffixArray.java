@@ -0,0 +1,163 @@
+package com.elasticquest.backend.retrieval;
+
+import com.elasticquest.backend.service.TextHighlightService;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RandomAccessInput;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 磁盘上的截断后缀数组，用于在参考材料中查找回答片段的最长匹配
+ * 材料原文按 UTF-16 码元保存，后缀按前 MAX_PREFIX 个字符排序；
+ * 查询时在内存映射的文件上逐字符二分收窄区间，打开和查询的开销与材料长度基本无关；
+ * 映射文件上的随机读取不改变读取位置，实例可在线程间共享
+ */
+public class SuffixArray implements TextHighlightService.PhraseMatcher, Closeable {
+
+    static final String TEXT_FILE = "content.chars";
+    static final String SUFFIX_FILE = "content.suffixes";
+
+    // 排序只比较前缀，查询的最大匹配长度不能超过它
+    private static final int MAX_PREFIX = 64;
+
+    private final IndexInput textInput;
+    private final IndexInput suffixInput;
+    private final RandomAccessInput text;
+    private final RandomAccessInput suffixes;
+    private final int length;
+
+    private SuffixArray(IndexInput textInput, IndexInput suffixInput) throws IOException {
+        this.textInput = textInput;
+        this.suffixInput = suffixInput;
+        this.text = textInput.randomAccessSlice(0, textInput.length());
+        this.suffixes = suffixInput.randomAccessSlice(0, suffixInput.length());
+        this.length = (int) (textInput.length() / Character.BYTES);
+    }
+
+    /**
+     * 把原文和排序后的后缀写入目录
+     */
+    public static void write(Directory directory, String content) throws IOException {
+        int n = content.length();
+        try (IndexOutput out = directory.createOutput(TEXT_FILE, IOContext.DEFAULT)) {
+            for (int i = 0; i < n; i++) {
+                out.writeShort((short) content.charAt(i));
+            }
+        }
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compareSuffixes(content, a, b));
+        try (IndexOutput out = directory.createOutput(SUFFIX_FILE, IOContext.DEFAULT)) {
+            for (Integer position : order) {
+                out.writeInt(position);
+            }
+        }
+    }
+
+    public static SuffixArray open(Directory directory) throws IOException {
+        IndexInput textInput = directory.openInput(TEXT_FILE, IOContext.DEFAULT);
+        try {
+            return new SuffixArray(textInput, directory.openInput(SUFFIX_FILE, IOContext.DEFAULT));
+        } catch (IOException e) {
+            textInput.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 原文长度（字符数）
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * 读取原文
+     */
+    public String content() throws IOException {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) text.readShort((long) i * Character.BYTES);
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public int longestMatch(String query, int start, int maxLength) {
+        int limit = Math.min(Math.min(maxLength, MAX_PREFIX), query.length() - start);
+        try {
+            // [low, high) 为与 query 已匹配前缀相同的后缀区间
+            int low = 0;
+            int high = length;
+            int matched = 0;
+            while (matched < limit) {
+                int c = query.charAt(start + matched);
+                int from = lowerBound(low, high, matched, c);
+                int to = lowerBound(from, high, matched, c + 1);
+                if (from == to) {
+                    break;
+                }
+                low = from;
+                high = to;
+                matched++;
+            }
+            return matched;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 区间内第一个在 offset 处字符不小于 c 的位置
+     */
+    private int lowerBound(int low, int high, int offset, int c) throws IOException {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (charAt(suffixes.readInt((long) middle * Integer.BYTES) + offset) < c) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 越过末尾的位置视为最小字符，与排序规则一致
+     */
+    private int charAt(int position) throws IOException {
+        return position < length ? text.readShort((long) position * Character.BYTES) & 0xFFFF : -1;
+    }
+
+    private static int compareSuffixes(String content, int a, int b) {
+        int n = content.length();
+        for (int i = 0; i < MAX_PREFIX; i++) {
+            int ca = a + i < n ? content.charAt(a + i) : -1;
+            int cb = b + i < n ? content.charAt(b + i) : -1;
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            if (ca < 0) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            textInput.close();
+        } finally {
+            suffixInput.close();
+        }
+    }
+}
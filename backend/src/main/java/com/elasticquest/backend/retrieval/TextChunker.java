@@ -0,0 +1,44 @@
+package com.elasticquest.backend.retrieval;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 参考材料分块
+ * 按固定长度切分，尽量在窗口后段的句末标点或换行处断开，相邻块保留一定重叠
+ */
+public final class TextChunker {
+
+    private static final String SENTENCE_ENDS = "。！？；.!?;\n";
+
+    private TextChunker() {
+    }
+
+    public static List<String> chunk(String text, int chunkSize, int overlap) {
+        List<String> chunks = new ArrayList<>();
+        int length = text.length();
+        int start = 0;
+        while (start < length) {
+            int end = Math.min(length, start + chunkSize);
+            if (end < length) {
+                // 在窗口后 30% 内寻找句子边界
+                int floor = start + chunkSize * 7 / 10;
+                for (int i = end - 1; i >= floor; i--) {
+                    if (SENTENCE_ENDS.indexOf(text.charAt(i)) >= 0) {
+                        end = i + 1;
+                        break;
+                    }
+                }
+            }
+            String chunk = text.substring(start, end).trim();
+            if (!chunk.isEmpty()) {
+                chunks.add(chunk);
+            }
+            if (end >= length) {
+                break;
+            }
+            start = Math.max(start + 1, end - overlap);
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,128 @@
+package com.elasticquest.backend.retrieval;
+
+import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.codecs.lucene95.Lucene95Codec;
+import org.apache.lucene.codecs.lucene95.Lucene95HnswVectorsFormat;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.KnnFloatVectorField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LogDocMergePolicy;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.KnnFloatVectorQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.Directory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 基于 Lucene HNSW 的向量索引
+ * 每个向量对应一个文档，文档号即加入顺序的序号，可附带原文；
+ * 目录可以是内存（ByteBuffersDirectory）或磁盘目录（MMapDirectory）
+ */
+public class VectorIndex implements Closeable {
+
+    private static final String VECTOR_FIELD = "vector";
+    private static final String TEXT_FIELD = "text";
+
+    private final Directory directory;
+    private final DirectoryReader reader;
+    private final IndexSearcher searcher;
+
+    private VectorIndex(Directory directory) throws IOException {
+        this.directory = directory;
+        this.reader = DirectoryReader.open(directory);
+        this.searcher = new IndexSearcher(reader);
+    }
+
+    /**
+     * 在目录中构建索引（向量需已归一化）
+     * @param m 每个节点的最大连接数
+     * @param beamWidth 构建时的候选队列大小
+     */
+    public static VectorIndex build(Directory directory, List<float[]> vectors, int m, int beamWidth)
+            throws IOException {
+        return build(directory, vectors, null, m, beamWidth);
+    }
+
+    /**
+     * 在目录中构建索引，并保存每个向量对应的原文
+     * @param texts 与 vectors 一一对应，为 null 时不保存
+     */
+    public static VectorIndex build(Directory directory, List<float[]> vectors, List<String> texts,
+                                    int m, int beamWidth) throws IOException {
+        write(directory, vectors, texts, m, beamWidth);
+        return new VectorIndex(directory);
+    }
+
+    /**
+     * 只写入索引（覆盖目录中已有的索引），不打开
+     */
+    public static void write(Directory directory, List<float[]> vectors, List<String> texts,
+                             int m, int beamWidth) throws IOException {
+        IndexWriterConfig config = new IndexWriterConfig()
+            .setOpenMode(IndexWriterConfig.OpenMode.CREATE)
+            .setRAMBufferSizeMB(256)
+            // 只合并相邻的段，且不删除文档，文档号与加入顺序一致
+            .setMergePolicy(new LogDocMergePolicy())
+            .setCodec(new Lucene95Codec() {
+                @Override
+                public KnnVectorsFormat getKnnVectorsFormatForField(String field) {
+                    return new Lucene95HnswVectorsFormat(m, beamWidth);
+                }
+            });
+        try (IndexWriter writer = new IndexWriter(directory, config)) {
+            for (int i = 0; i < vectors.size(); i++) {
+                Document document = new Document();
+                document.add(new KnnFloatVectorField(VECTOR_FIELD, vectors.get(i), VectorSimilarityFunction.DOT_PRODUCT));
+                if (texts != null) {
+                    document.add(new StoredField(TEXT_FIELD, texts.get(i)));
+                }
+                writer.addDocument(document);
+            }
+            writer.commit();
+        }
+    }
+
+    /**
+     * 打开已构建的索引
+     */
+    public static VectorIndex open(Directory directory) throws IOException {
+        return new VectorIndex(directory);
+    }
+
+    /**
+     * 近似最近邻查询
+     * @return 按相似度降序排列的向量序号
+     */
+    public int[] search(float[] query, int k) throws IOException {
+        ScoreDoc[] hits = searcher.search(new KnnFloatVectorQuery(VECTOR_FIELD, query, k), k).scoreDocs;
+        int[] ordinals = new int[hits.length];
+        for (int i = 0; i < hits.length; i++) {
+            ordinals[i] = hits[i].doc;
+        }
+        return ordinals;
+    }
+
+    /**
+     * 序号对应的原文，构建时未保存则为 null
+     */
+    public String text(int ordinal) throws IOException {
+        return searcher.storedFields().document(ordinal).get(TEXT_FIELD);
+    }
+
+    public int size() {
+        return reader.numDocs();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+        directory.close();
+    }
+}
@@ -0,0 +1,608 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.model.BatchEvaluationRequest;
+import com.elasticquest.backend.model.BatchEvaluationResult;
+import com.elasticquest.backend.model.BatchEvaluationStatus;
+import com.elasticquest.backend.model.ChatMessage;
+import com.elasticquest.backend.model.HighlightSegment;
+import com.elasticquest.backend.model.RAGChatRequest;
+import com.elasticquest.backend.retrieval.LibraryMaterial;
+import com.elasticquest.backend.retrieval.MaterialLibrary;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 批量问题评测服务
+ * 一组问题共用一份参考材料，按设定的并发数逐个调用 LLMChatService，参考材料只分词一次供所有回答高亮；
+ * 每个结果完成后立即追加到 NDJSON 结果文件，进程退出后可从结果文件续跑未完成的问题；
+ * 失败的问题单独记录在失败文件中，续跑时重新调用。任务只对创建它的用户可见；
+ * 每个问题与交互式聊天一样计入用户和全局限流，每个用户同时运行的任务数有上限，结束的任务保留一段时间后删除
+ */
+@Service
+public class BatchEvaluationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchEvaluationService.class);
+
+    private static final String REQUEST_SUFFIX = ".request.json";
+    private static final String RESULTS_SUFFIX = ".results.ndjson";
+    private static final String FAILURES_SUFFIX = ".failures.ndjson";
+    private static final String STATE_SUFFIX = ".state";
+
+    // 名额被拒绝（排队已满或超时）后的重试间隔
+    private static final long PERMIT_RETRY_MS = 1000;
+
+    @Autowired
+    private LLMChatService llmChatService;
+
+    @Autowired
+    private TextHighlightService textHighlightService;
+
+    @Autowired
+    private LLMFairScheduler scheduler;
+
+    @Autowired
+    private LLMRateLimiter rateLimiter;
+
+    @Autowired
+    private MaterialLibrary materialLibrary;
+
+    @Value("${llm.batch.dir:./data/batch}")
+    private String directory;
+
+    @Value("${llm.batch.max-running-per-user:2}")
+    private int maxRunningPerUser;
+
+    @Value("${llm.batch.retention-ms:604800000}")
+    private long retentionMs;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private final Map<String, EvaluationJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * 加载此前的任务；未正常结束的任务标记为 INTERRUPTED，可续跑
+     */
+    @PostConstruct
+    public void loadJobs() throws IOException {
+        Path dir = Path.of(directory);
+        Files.createDirectories(dir);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + REQUEST_SUFFIX)) {
+            for (Path file : files) {
+                String jobId = file.getFileName().toString().replace(REQUEST_SUFFIX, "");
+                try {
+                    JsonNode saved = objectMapper.readTree(file.toFile());
+                    EvaluationJob job = new EvaluationJob(jobId, saved.path("userId").asText("default"),
+                        objectMapper.treeToValue(saved.get("request"), BatchEvaluationRequest.class));
+                    readResults(job);
+                    Path stateFile = dir.resolve(jobId + STATE_SUFFIX);
+                    job.state = Files.exists(stateFile) ? Files.readString(stateFile).trim() : "INTERRUPTED";
+                    job.finishedAt = lastModified(jobId);
+                    job.finished = true;
+                    jobs.put(jobId, job);
+                } catch (Exception e) {
+                    logger.warn("无法加载批量评测任务: {}, {}", file, e.getMessage());
+                }
+            }
+        }
+        if (!jobs.isEmpty()) {
+            logger.info("已加载批量评测任务 {} 个", jobs.size());
+        }
+    }
+
+    /**
+     * 启动评测任务
+     * @throws IllegalStateException 该用户同时运行的任务已达上限
+     */
+    public BatchEvaluationStatus start(BatchEvaluationRequest request, String userId) throws IOException {
+        checkRunningLimit(userId);
+        EvaluationJob job = new EvaluationJob(UUID.randomUUID().toString(), userId, request);
+
+        // 先落盘请求，崩溃后据此续跑
+        ObjectNode saved = objectMapper.createObjectNode();
+        saved.put("userId", userId);
+        saved.set("request", objectMapper.valueToTree(request));
+        Path requestFile = file(job.id, REQUEST_SUFFIX);
+        Path temp = file(job.id, REQUEST_SUFFIX + ".tmp");
+        objectMapper.writeValue(temp.toFile(), saved);
+        Files.move(temp, requestFile, StandardCopyOption.ATOMIC_MOVE);
+
+        synchronized (this) {
+            checkRunningLimit(userId);
+            jobs.put(job.id, job);
+            launch(job);
+        }
+        logger.info("启动批量评测: jobId={}, questions={}, parallelism={}",
+            job.id, request.getQuestions().size(), request.getParallelism());
+        return job.toStatus();
+    }
+
+    /**
+     * 续跑未完成和失败的问题
+     * @return 任务不存在或不属于该用户时为 null
+     * @throws IllegalStateException 任务正在运行或已全部成功，或该用户同时运行的任务已达上限
+     */
+    public BatchEvaluationStatus resume(String jobId, String userId) throws IOException {
+        EvaluationJob job = find(jobId, userId);
+        if (job == null) {
+            return null;
+        }
+        synchronized (this) {
+            synchronized (job) {
+                if ("RUNNING".equals(job.state) || ("COMPLETED".equals(job.state) && job.failed.isEmpty())) {
+                    throw new IllegalStateException("任务状态为 " + job.state + "，不能续跑");
+                }
+                checkRunningLimit(userId);
+                readResults(job);
+                Files.deleteIfExists(file(jobId, STATE_SUFFIX));
+                job.reset();
+                launch(job);
+            }
+        }
+        logger.info("续跑批量评测: jobId={}, 已完成={}/{}", jobId, job.resumedFrom, job.total);
+        return job.toStatus();
+    }
+
+    /**
+     * @return 任务不存在或不属于该用户时为 null
+     */
+    public BatchEvaluationStatus getStatus(String jobId, String userId) {
+        EvaluationJob job = find(jobId, userId);
+        return job != null ? job.toStatus() : null;
+    }
+
+    /**
+     * 取消任务（正在进行的问题会完成并写入结果）
+     * @return 任务不存在或不属于该用户时为 null
+     */
+    public BatchEvaluationStatus cancel(String jobId, String userId) {
+        EvaluationJob job = find(jobId, userId);
+        if (job == null) {
+            return null;
+        }
+        job.cancelled = true;
+        return job.toStatus();
+    }
+
+    /**
+     * 输出结果：成功的结果按完成顺序，之后是仍未成功的问题最近一次的失败记录
+     * @return 任务不存在或不属于该用户时为 false
+     */
+    public boolean writeResults(String jobId, String userId, OutputStream out) throws IOException {
+        EvaluationJob job = find(jobId, userId);
+        if (job == null) {
+            return false;
+        }
+        Path results = file(jobId, RESULTS_SUFFIX);
+        if (Files.exists(results)) {
+            Files.copy(results, out);
+        }
+        Path failures = file(jobId, FAILURES_SUFFIX);
+        if (Files.exists(failures)) {
+            // 同一问题可能失败多次或之后成功，只输出仍失败问题的最后一条记录
+            Map<Integer, String> latest = new TreeMap<>();
+            for (String line : Files.readAllLines(failures, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    latest.put(objectMapper.readTree(line).path("index").asInt(), line);
+                }
+            }
+            BitSet failed = job.failedSnapshot();
+            for (Map.Entry<Integer, String> entry : latest.entrySet()) {
+                if (failed.get(entry.getKey())) {
+                    out.write((entry.getValue() + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 停止运行中的任务；不写入状态文件，重启后按 INTERRUPTED 加载并可续跑
+     */
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * 删除结束超过保留时间的任务及其文件（运行中的任务不删除）
+     */
+    @Scheduled(fixedDelay = 3600000)
+    public void evictFinishedJobs() {
+        long now = System.currentTimeMillis();
+        for (EvaluationJob job : jobs.values()) {
+            synchronized (this) {
+                if ("RUNNING".equals(job.state) || now - job.finishedAt < retentionMs) {
+                    continue;
+                }
+                jobs.remove(job.id);
+            }
+            for (String suffix : List.of(REQUEST_SUFFIX, RESULTS_SUFFIX, FAILURES_SUFFIX, STATE_SUFFIX)) {
+                try {
+                    Files.deleteIfExists(file(job.id, suffix));
+                } catch (IOException e) {
+                    logger.warn("删除批量评测文件失败: jobId={}, {}", job.id, e.getMessage());
+                }
+            }
+            logger.info("已删除过期的批量评测任务: jobId={}, state={}", job.id, job.state);
+        }
+    }
+
+    private EvaluationJob find(String jobId, String userId) {
+        EvaluationJob job = jobs.get(jobId);
+        return job != null && job.userId.equals(userId) ? job : null;
+    }
+
+    /**
+     * @throws IllegalStateException 该用户同时运行的任务已达上限
+     */
+    private void checkRunningLimit(String userId) {
+        long running = jobs.values().stream()
+            .filter(job -> job.userId.equals(userId) && "RUNNING".equals(job.state))
+            .count();
+        if (running >= maxRunningPerUser) {
+            throw new IllegalStateException("同时运行的批量评测任务不能超过 " + maxRunningPerUser + " 个");
+        }
+    }
+
+    private void launch(EvaluationJob job) {
+        job.started();
+        job.state = "RUNNING";
+        executorService.execute(() -> run(job));
+    }
+
+    private void run(EvaluationJob job) {
+        BatchEvaluationRequest request = job.request;
+        ConcurrentLinkedQueue<Integer> pending = new ConcurrentLinkedQueue<>();
+        for (int i = job.done.nextClearBit(0); i < job.total; i = job.done.nextClearBit(i + 1)) {
+            pending.add(i);
+        }
+
+        LibraryMaterial material = null;
+        try (BufferedWriter writer = Files.newBufferedWriter(file(job.id, RESULTS_SUFFIX), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             BufferedWriter failureWriter = Files.newBufferedWriter(file(job.id, FAILURES_SUFFIX), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            // 参考材料只分词一次，所有回答共用；资料库材料在任务结束前持有引用
+            String materialId = request.getMaterialId();
+            List<LibraryMaterial> materials = materialLibrary.acquireAll(
+                materialId != null && !materialId.isEmpty() ? List.of(materialId) : List.of(), job.userId);
+            material = materials.isEmpty() ? null : materials.get(0);
+            TextHighlightService.HighlightContext context = request.isHighlight() ? prepareHighlight(request, material) : null;
+
+            int workers = Math.min(request.getParallelism(), Math.max(1, pending.size()));
+            CountDownLatch workersDone = new CountDownLatch(workers);
+            // 第一个未预期的异常，出现后其余 worker 停止领取问题
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            for (int w = 0; w < workers; w++) {
+                executorService.execute(() -> {
+                    try {
+                        Integer index;
+                        while (!job.cancelled && error.get() == null && (index = pending.poll()) != null) {
+                            BatchEvaluationResult result = evaluate(job, index, materials, context);
+                            if (result == null) {
+                                break;
+                            }
+                            // 失败的问题不写入结果文件，续跑时重试
+                            BufferedWriter target = result.getError() != null ? failureWriter : writer;
+                            String line = objectMapper.writeValueAsString(result);
+                            synchronized (target) {
+                                target.write(line);
+                                target.newLine();
+                                target.flush();
+                            }
+                            job.record(index, result);
+                        }
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    } finally {
+                        workersDone.countDown();
+                    }
+                });
+            }
+            workersDone.await();
+
+            if (error.get() != null) {
+                throw error.get();
+            }
+            job.state = job.cancelled ? "CANCELLED" : "COMPLETED";
+            Files.writeString(file(job.id, STATE_SUFFIX), job.state);
+            logger.info("批量评测结束: jobId={}, state={}, completed={}/{}, failed={}",
+                job.id, job.state, job.completedCount(), job.total, job.failedCount());
+
+        } catch (Throwable e) {
+            logger.error("批量评测失败: jobId={}", job.id, e);
+            job.error = e.getMessage();
+            job.state = "FAILED";
+        } finally {
+            if (material != null) {
+                LibraryMaterial.closeAll(List.of(material));
+            }
+            job.endTime = System.nanoTime();
+            job.finishedAt = System.currentTimeMillis();
+            job.finished = true;
+        }
+    }
+
+    /**
+     * 高亮用的参考材料；资料库材料直接使用磁盘上的后缀数组
+     * @param material 已持有引用的资料库材料，没有时为 null
+     */
+    private TextHighlightService.HighlightContext prepareHighlight(BatchEvaluationRequest request,
+                                                                   LibraryMaterial material) throws IOException {
+        return material != null
+            ? textHighlightService.prepare(material.matcher(), material.paraphrases())
+            // 整个任务共用一份，改写匹配索引的构建开销可以分摊
+            : textHighlightService.prepare(request.getContextMaterial(), true);
+    }
+
+    /**
+     * 评测单个问题；与交互式聊天一样按实际提示词限流，并通过公平调度获取调用名额，共享并发上限
+     * @param materials 任务持有引用的资料库材料
+     * @return 任务被取消时为 null
+     */
+    private BatchEvaluationResult evaluate(EvaluationJob job, int index, List<LibraryMaterial> materials,
+                                           TextHighlightService.HighlightContext context) throws InterruptedException {
+        String question = job.request.getQuestions().get(index);
+        RAGChatRequest chatRequest = job.request.toChatRequest(index);
+        List<ChatMessage> messages;
+        try {
+            // 先构建提示词，按实际发送的内容估算 token
+            messages = llmChatService.buildMessages(job.userId, chatRequest, materials).getMessages();
+        } catch (Exception e) {
+            return BatchEvaluationResult.failure(index, question, "调用失败: " + e.getMessage(), 0);
+        }
+        LLMFairScheduler.Permit permit = acquirePermit(job, chatRequest, messages);
+        if (permit == null) {
+            return null;
+        }
+
+        long start = System.nanoTime();
+        AtomicReference<String> answer = new AtomicReference<>();
+        AtomicReference<String> error = new AtomicReference<>();
+        try {
+            llmChatService.streamChat(job.userId, chatRequest, messages, chunk -> { }, answer::set, error::set);
+        } finally {
+            permit.close();
+        }
+        long latencyMs = (System.nanoTime() - start) / 1_000_000;
+
+        if (answer.get() == null) {
+            return BatchEvaluationResult.failure(index, question, error.get() != null ? error.get() : "未返回回答", latencyMs);
+        }
+        List<HighlightSegment> highlights = null;
+        long highlightMs = 0;
+        if (context != null) {
+            long highlightStart = System.nanoTime();
+            highlights = textHighlightService.highlightAnswer(answer.get(), context);
+            highlightMs = (System.nanoTime() - highlightStart) / 1_000_000;
+        }
+        return BatchEvaluationResult.success(index, question, answer.get(), highlights, latencyMs, highlightMs);
+    }
+
+    /**
+     * 扣减限流令牌并获取调用名额，被拒绝时稍后重试；排队被拒绝时退回已扣减的令牌
+     * @return 任务被取消时为 null
+     */
+    private LLMFairScheduler.Permit acquirePermit(EvaluationJob job, RAGChatRequest chatRequest,
+                                                  List<ChatMessage> messages) throws InterruptedException {
+        while (!job.cancelled) {
+            LLMRateLimiter.Charge charge;
+            try {
+                charge = rateLimiter.acquire(job.userId, chatRequest, messages);
+            } catch (LLMRejectedException e) {
+                backOff(e);
+                continue;
+            }
+            try {
+                return scheduler.acquire(job.userId);
+            } catch (LLMRejectedException e) {
+                charge.refund();
+                backOff(e);
+            } catch (InterruptedException e) {
+                charge.refund();
+                throw e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 被拒绝后等待；限流给出了令牌补足时间时按该时间等待
+     */
+    private static void backOff(LLMRejectedException e) throws InterruptedException {
+        Thread.sleep(Math.max(PERMIT_RETRY_MS, e.getRetryAfterMs()));
+    }
+
+    /**
+     * 读取已有结果和失败记录，记录已成功和仍失败的问题
+     */
+    private void readResults(EvaluationJob job) throws IOException {
+        synchronized (job) {
+            job.done.clear();
+            job.failed.clear();
+            for (String line : readLines(job, file(job.id, RESULTS_SUFFIX))) {
+                BatchEvaluationResult result = objectMapper.readValue(line, BatchEvaluationResult.class);
+                // 旧版本的结果文件中也包含失败结果，同样视为需要重试
+                (result.getError() != null ? job.failed : job.done).set(result.getIndex());
+            }
+            for (String line : readLines(job, file(job.id, FAILURES_SUFFIX))) {
+                job.failed.set(objectMapper.readTree(line).path("index").asInt());
+            }
+            job.failed.andNot(job.done);
+            job.resumedFrom = job.done.cardinality();
+        }
+    }
+
+    /**
+     * 读取 NDJSON 文件的完整行；崩溃时写了一半的最后一行被截掉
+     */
+    private List<String> readLines(EvaluationJob job, Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return List.of();
+        }
+        byte[] content = Files.readAllBytes(path);
+        int end = content.length;
+        while (end > 0 && content[end - 1] != '\n') {
+            end--;
+        }
+        if (end < content.length) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+            }
+            logger.warn("批量评测记录末尾不完整，已截断: jobId={}, file={}, bytes={}",
+                job.id, path.getFileName(), content.length - end);
+        }
+        List<String> lines = new ArrayList<>();
+        for (String line : new String(content, 0, end, StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isBlank()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private Path file(String jobId, String suffix) {
+        return Path.of(directory, jobId + suffix);
+    }
+
+    /**
+     * 任务文件最近的修改时间，作为加载的任务的结束时间
+     */
+    private long lastModified(String jobId) throws IOException {
+        long latest = 0;
+        for (String suffix : List.of(REQUEST_SUFFIX, RESULTS_SUFFIX, FAILURES_SUFFIX, STATE_SUFFIX)) {
+            Path path = file(jobId, suffix);
+            if (Files.exists(path)) {
+                latest = Math.max(latest, Files.getLastModifiedTime(path).toMillis());
+            }
+        }
+        return latest;
+    }
+
+    private static class EvaluationJob {
+
+        final String id;
+        final String userId;
+        final BatchEvaluationRequest request;
+        final int total;
+        final BitSet done = new BitSet(); // 已成功的问题，持有 this 时读写
+        final BitSet failed = new BitSet(); // 最近一次失败且尚未成功的问题，持有 this 时读写
+        int resumedFrom;
+        long[] latencies = new long[64];
+        int latencyCount;
+        long startTime;
+        // 本进程内运行过；重启后加载的任务没有耗时和吞吐
+        boolean measured;
+        volatile String state = "RUNNING";
+        volatile String error;
+        volatile boolean cancelled;
+        volatile long endTime;
+        // nanoTime 可能为 0 或负数，是否结束单独记录；先写 endTime 再置位
+        volatile boolean finished;
+        volatile long finishedAt; // 结束时的系统时间，用于过期删除
+
+        EvaluationJob(String id, String userId, BatchEvaluationRequest request) {
+            this.id = id;
+            this.userId = userId;
+            this.request = request;
+            this.total = request.getQuestions().size();
+        }
+
+        synchronized void reset() {
+            latencyCount = 0;
+            error = null;
+            cancelled = false;
+        }
+
+        synchronized void started() {
+            startTime = System.nanoTime();
+            finished = false;
+            measured = true;
+        }
+
+        synchronized void record(int index, BatchEvaluationResult result) {
+            if (result.getError() != null) {
+                failed.set(index);
+            } else {
+                done.set(index);
+                failed.clear(index);
+            }
+            if (latencyCount == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencyCount * 2);
+            }
+            latencies[latencyCount++] = result.getLatencyMs();
+        }
+
+        synchronized int completedCount() {
+            return done.cardinality() + failed.cardinality();
+        }
+
+        synchronized int failedCount() {
+            return failed.cardinality();
+        }
+
+        synchronized BitSet failedSnapshot() {
+            return (BitSet) failed.clone();
+        }
+
+        synchronized BatchEvaluationStatus toStatus() {
+            long elapsedNanos = (finished ? endTime : System.nanoTime()) - startTime;
+            BatchEvaluationStatus status = new BatchEvaluationStatus();
+            status.setJobId(id);
+            status.setState(state);
+            status.setTotal(total);
+            status.setCompleted(done.cardinality() + failed.cardinality());
+            status.setFailed(failed.cardinality());
+            status.setResumedFrom(resumedFrom);
+            status.setError(error);
+            if (measured) {
+                status.setElapsedMs(elapsedNanos / 1_000_000);
+                double minutes = Math.max(elapsedNanos / 6e10, 1e-6);
+                status.setQuestionsPerMinute(Math.round(latencyCount / minutes * 10) / 10.0);
+            }
+            if (latencyCount > 0) {
+                long[] sorted = Arrays.copyOf(latencies, latencyCount);
+                Arrays.sort(sorted);
+                status.setLatencyP50Ms(sorted[(int) Math.ceil(0.5 * latencyCount) - 1]);
+                status.setLatencyP95Ms(sorted[(int) Math.ceil(0.95 * latencyCount) - 1]);
+                status.setLatencyMaxMs(sorted[latencyCount - 1]);
+            }
+            return status;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.config.ElasticsearchProperties;
+import com.elasticquest.backend.model.ClusterStatus;
+import com.elasticquest.backend.model.ESConnectionConfig;
+import com.elasticquest.backend.transport.ESRequest;
+import com.elasticquest.backend.transport.ESResponse;
+import com.elasticquest.backend.transport.ESTransport;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 集群健康监控
+ * 后台定时并发探测已登记的连接（集群健康、版本、节点数、堆内存压力），
+ * 状态查询直接返回内存中的最新快照，不等待远程请求；
+ * 只登记已保存（带 id）的连接，登记数量有上限，未保存的连接只在测试时探测一次
+ */
+@Service
+public class ClusterHealthMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterHealthMonitor.class);
+
+    private final ESClientFactory clientFactory;
+    private final ElasticsearchProperties properties;
+    private final long idleTimeoutMillis;
+    private final int maxConnections;
+
+    private final Map<String, MonitoredConnection> connections = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executorService;
+
+    public ClusterHealthMonitor(ESClientFactory clientFactory, ElasticsearchProperties properties,
+                                @Value("${elasticsearch.monitor.parallelism:8}") int parallelism,
+                                @Value("${elasticsearch.monitor.idle-timeout-ms:1800000}") long idleTimeoutMillis,
+                                @Value("${elasticsearch.monitor.max-connections:200}") int maxConnections) {
+        this.clientFactory = clientFactory;
+        this.properties = properties;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxConnections = maxConnections;
+        this.executorService = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "cluster-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 预置连接始终处于监控中
+     */
+    @PostConstruct
+    public void registerPreconfigured() {
+        properties.preconfiguredConnections().values().forEach(config -> register(config, true));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * 登记连接并返回缓存的状态；首次登记时在后台发起探测，立即返回 pending 状态；
+     * 未保存的连接或登记数量已达上限时不登记，返回带错误信息的状态
+     */
+    public ClusterStatus getStatus(ESConnectionConfig config) {
+        if (!isSaved(config)) {
+            return notMonitored(config, "连接尚未保存");
+        }
+        MonitoredConnection connection = register(config, false);
+        if (connection == null) {
+            return notMonitored(config, "监控的连接数已达上限 " + maxConnections);
+        }
+        connection.lastRequested = System.currentTimeMillis();
+        return forConnection(connection.status, config);
+    }
+
+    /**
+     * 立即探测（用于用户主动测试连接）；已保存的连接同时更新快照并纳入监控
+     */
+    public ClusterStatus refresh(ESConnectionConfig config) {
+        MonitoredConnection connection = isSaved(config) ? register(config, false) : null;
+        if (connection == null) {
+            return probe(new MonitoredConnection(config, false));
+        }
+        connection.lastRequested = System.currentTimeMillis();
+        return forConnection(probe(connection), config);
+    }
+
+    /**
+     * 定时探测所有连接，长时间无人查询的非预置连接不再探测
+     * 探测提交到监控线程池后立即返回，不占用调度线程；上一轮尚未结束的连接本轮跳过
+     */
+    @Scheduled(fixedDelayString = "${elasticsearch.monitor.interval-ms:15000}",
+               initialDelayString = "${elasticsearch.monitor.interval-ms:15000}")
+    public void probeAll() {
+        evictIdle();
+
+        for (MonitoredConnection connection : connections.values()) {
+            if (connection.probing.compareAndSet(false, true)) {
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        probe(connection);
+                    } finally {
+                        connection.probing.set(false);
+                    }
+                }, executorService);
+            }
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        connections.values().removeIf(connection ->
+            !connection.preconfigured && now - connection.lastRequested > idleTimeoutMillis);
+    }
+
+    /**
+     * @return 登记数量已达上限时为 null（预置连接不受限制）
+     */
+    private MonitoredConnection register(ESConnectionConfig config, boolean preconfigured) {
+        String key = ESClientFactory.connectionKey(config);
+        MonitoredConnection connection = connections.get(key);
+        if (connection != null) {
+            return connection;
+        }
+        if (!preconfigured && registeredCount() >= maxConnections) {
+            evictIdle();
+            if (registeredCount() >= maxConnections) {
+                return null;
+            }
+        }
+        MonitoredConnection created = new MonitoredConnection(config, preconfigured);
+        connection = connections.putIfAbsent(key, created);
+        if (connection != null) {
+            return connection;
+        }
+        CompletableFuture.runAsync(() -> probe(created), executorService);
+        return created;
+    }
+
+    /**
+     * 探测单个连接：GET / 失败视为不可达，健康和节点统计失败只记录错误
+     */
+    private ClusterStatus probe(MonitoredConnection connection) {
+        ESConnectionConfig config = connection.config;
+        ClusterStatus status = new ClusterStatus();
+        status.setConnectionId(config.getId());
+        status.setName(config.getName());
+        status.setUrl(config.getFullUrl());
+
+        long start = System.nanoTime();
+        try (ESClientFactory.Lease lease = clientFactory.acquire(config)) {
+            ESTransport client = lease.transport();
+
+            JsonNode info = get(client, "/", null);
+            status.setReachable(true);
+            status.setClusterName(info.path("cluster_name").asText(null));
+            status.setVersion(info.path("version").path("number").asText(null));
+
+            try {
+                JsonNode health = get(client, "/_cluster/health",
+                    "status,number_of_nodes,number_of_data_nodes,active_shards,unassigned_shards");
+                status.setHealth(health.path("status").asText(null));
+                status.setNumberOfNodes(intValue(health, "number_of_nodes"));
+                status.setNumberOfDataNodes(intValue(health, "number_of_data_nodes"));
+                status.setActiveShards(intValue(health, "active_shards"));
+                status.setUnassignedShards(intValue(health, "unassigned_shards"));
+
+                JsonNode nodes = get(client, "/_nodes/stats/jvm", "nodes.*.jvm.mem.heap_used_percent").path("nodes");
+                int maxHeap = -1;
+                for (JsonNode node : nodes) {
+                    maxHeap = Math.max(maxHeap, node.path("jvm").path("mem").path("heap_used_percent").asInt(-1));
+                }
+                status.setMaxHeapUsedPercent(maxHeap >= 0 ? maxHeap : null);
+            } catch (IOException e) {
+                // 权限不足等情况下仍保留基本信息
+                status.setError(e.getMessage());
+            }
+        } catch (Exception e) {
+            status.setReachable(false);
+            status.setError(e.getMessage());
+            logger.debug("集群探测失败: url={}, error={}", config.getFullUrl(), e.getMessage());
+        }
+        status.setProbeDurationMs((System.nanoTime() - start) / 1_000_000);
+        status.setLastUpdated(LocalDateTime.now());
+        connection.status = status;
+        return status;
+    }
+
+    private long registeredCount() {
+        return connections.values().stream().filter(connection -> !connection.preconfigured).count();
+    }
+
+    private static boolean isSaved(ESConnectionConfig config) {
+        return config.getId() != null && !config.getId().isBlank();
+    }
+
+    private static ClusterStatus notMonitored(ESConnectionConfig config, String reason) {
+        ClusterStatus status = ClusterStatus.pending(config);
+        status.setPending(false);
+        status.setError(reason);
+        return status;
+    }
+
+    /**
+     * 多个配置可能指向同一集群并共用快照，返回时换成调用方的连接标识
+     */
+    private static ClusterStatus forConnection(ClusterStatus status, ESConnectionConfig config) {
+        if (Objects.equals(status.getConnectionId(), config.getId()) && Objects.equals(status.getName(), config.getName())) {
+            return status;
+        }
+        ClusterStatus copy = new ClusterStatus();
+        copy.setConnectionId(config.getId());
+        copy.setName(config.getName());
+        copy.setUrl(status.getUrl());
+        copy.setPending(status.isPending());
+        copy.setReachable(status.isReachable());
+        copy.setClusterName(status.getClusterName());
+        copy.setVersion(status.getVersion());
+        copy.setHealth(status.getHealth());
+        copy.setNumberOfNodes(status.getNumberOfNodes());
+        copy.setNumberOfDataNodes(status.getNumberOfDataNodes());
+        copy.setActiveShards(status.getActiveShards());
+        copy.setUnassignedShards(status.getUnassignedShards());
+        copy.setMaxHeapUsedPercent(status.getMaxHeapUsedPercent());
+        copy.setError(status.getError());
+        copy.setProbeDurationMs(status.getProbeDurationMs());
+        copy.setLastUpdated(status.getLastUpdated());
+        return copy;
+    }
+
+    private JsonNode get(ESTransport client, String endpoint, String filterPath) throws IOException {
+        ESRequest request = new ESRequest("GET", endpoint);
+        if (filterPath != null) {
+            request.addParameter("filter_path", filterPath);
+        }
+        try (ESResponse response = client.perform(request);
+             InputStream in = response.getContent()) {
+            return objectMapper.readTree(in);
+        }
+    }
+
+    private static Integer intValue(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value != null && value.canConvertToInt() ? value.intValue() : null;
+    }
+
+    /**
+     * 已监控的连接
+     */
+    private static class MonitoredConnection {
+
+        final ESConnectionConfig config;
+        final boolean preconfigured;
+        volatile ClusterStatus status;
+        volatile long lastRequested = System.currentTimeMillis();
+        final AtomicBoolean probing = new AtomicBoolean();
+
+        MonitoredConnection(ESConnectionConfig config, boolean preconfigured) {
+            this.config = config;
+            this.preconfigured = preconfigured;
+            this.status = ClusterStatus.pending(config);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.config.LLMProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 多轮对话存储
+ * 每个对话保存一份滚动摘要和尚未并入摘要的轮次；轮次超出保留数量后生成摘要任务，
+ * 由调用方在后台执行，摘要完成后被并入的轮次从内存中移除。
+ * 对话按 (userId, conversationId) 区分，不同用户使用相同的 conversationId 互不可见；
+ * 摘要持续失败时未并入的轮次不超过 max-retained-turns，超出后丢弃最早的轮次
+ */
+@Component
+public class ConversationStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationStore.class);
+
+    private final LLMProperties.Conversation settings;
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+
+    public ConversationStore(LLMProperties properties) {
+        this.settings = properties.getConversation();
+    }
+
+    /**
+     * 读取对话的摘要和未并入摘要的轮次（按时间顺序）
+     */
+    public Snapshot snapshot(String userId, String conversationId) {
+        Conversation conversation = conversations.get(key(userId, conversationId));
+        if (conversation == null) {
+            return new Snapshot(null, List.of());
+        }
+        synchronized (conversation) {
+            conversation.lastAccess = System.currentTimeMillis();
+            return new Snapshot(conversation.summary, new ArrayList<>(conversation.turns));
+        }
+    }
+
+    /**
+     * 追加一轮问答
+     * @return 需要执行的摘要任务，没有时为 null
+     */
+    public SummaryTask append(String userId, String conversationId, String question, String answer) {
+        String key = key(userId, conversationId);
+        if (!conversations.containsKey(key) && conversations.size() >= settings.getMaxConversations()) {
+            evictOldest();
+        }
+        Conversation conversation = conversations.computeIfAbsent(key, k -> new Conversation());
+        synchronized (conversation) {
+            conversation.lastAccess = System.currentTimeMillis();
+            conversation.turns.addLast(new Turn(question, answer));
+            while (conversation.turns.size() > settings.getMaxRetainedTurns()) {
+                conversation.turns.removeFirst();
+                conversation.dropped++;
+                logger.warn("对话轮次超出上限，丢弃最早的未摘要轮次: id={}", conversationId);
+            }
+
+            int older = conversation.turns.size() - settings.getRecentTurns();
+            if (conversation.summarizing || older < settings.getSummarizeBatch()) {
+                return null;
+            }
+            conversation.summarizing = true;
+            List<Turn> fold = new ArrayList<>(older);
+            for (Turn turn : conversation.turns) {
+                if (fold.size() == older) {
+                    break;
+                }
+                fold.add(turn);
+            }
+            return new SummaryTask(key, userId, conversationId, conversation, conversation.summary, fold, conversation.dropped);
+        }
+    }
+
+    /**
+     * 摘要完成：替换摘要并移除已并入的轮次
+     */
+    public void completeSummary(SummaryTask task, String summary) {
+        Conversation conversation = task.conversation;
+        synchronized (conversation) {
+            conversation.summarizing = false;
+            if (conversations.get(task.key) != conversation) {
+                return; // 摘要期间对话已被删除
+            }
+            conversation.summary = summary;
+            // 摘要期间因超出上限被丢弃的轮次不再重复移除
+            int fold = task.turns.size() - (int) Math.min(task.turns.size(), conversation.dropped - task.droppedBefore);
+            for (int i = 0; i < fold && !conversation.turns.isEmpty(); i++) {
+                conversation.turns.removeFirst();
+            }
+        }
+        logger.debug("对话摘要完成: id={}, 并入轮次={}", task.conversationId, task.turns.size());
+    }
+
+    /**
+     * 摘要失败：保留轮次，下一轮追加时重试
+     */
+    public void failSummary(SummaryTask task) {
+        synchronized (task.conversation) {
+            task.conversation.summarizing = false;
+        }
+    }
+
+    public boolean remove(String userId, String conversationId) {
+        return conversations.remove(key(userId, conversationId)) != null;
+    }
+
+    /**
+     * 移除空闲的对话
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        conversations.values().removeIf(conversation -> now - conversation.lastAccess > settings.getIdleTimeoutMs());
+    }
+
+    private static String key(String userId, String conversationId) {
+        return userId + '\u0000' + conversationId;
+    }
+
+    private void evictOldest() {
+        conversations.entrySet().stream()
+            .min(Comparator.comparingLong(entry -> entry.getValue().lastAccess))
+            .ifPresent(entry -> conversations.remove(entry.getKey(), entry.getValue()));
+    }
+
+    private static class Conversation {
+
+        String summary;
+        final ArrayDeque<Turn> turns = new ArrayDeque<>();
+        boolean summarizing;
+        // 因超出上限被丢弃的轮次总数
+        long dropped;
+        volatile long lastAccess = System.currentTimeMillis();
+    }
+
+    /**
+     * 一轮问答
+     */
+    public static class Turn {
+
+        private final String question;
+        private final String answer;
+
+        Turn(String question, String answer) {
+            this.question = question;
+            this.answer = answer;
+        }
+
+        public String getQuestion() {
+            return question;
+        }
+
+        public String getAnswer() {
+            return answer;
+        }
+    }
+
+    /**
+     * 对话快照
+     */
+    public static class Snapshot {
+
+        private final String summary;
+        private final List<Turn> turns;
+
+        Snapshot(String summary, List<Turn> turns) {
+            this.summary = summary;
+            this.turns = turns;
+        }
+
+        public String getSummary() {
+            return summary;
+        }
+
+        public List<Turn> getTurns() {
+            return turns;
+        }
+    }
+
+    /**
+     * 摘要任务：把 turns 并入 previousSummary
+     */
+    public static class SummaryTask {
+
+        private final String key;
+        private final String userId;
+        private final String conversationId;
+        private final Conversation conversation;
+        private final String previousSummary;
+        private final List<Turn> turns;
+        private final long droppedBefore;
+
+        SummaryTask(String key, String userId, String conversationId, Conversation conversation,
+                    String previousSummary, List<Turn> turns, long droppedBefore) {
+            this.key = key;
+            this.userId = userId;
+            this.conversationId = conversationId;
+            this.conversation = conversation;
+            this.previousSummary = previousSummary;
+            this.turns = turns;
+            this.droppedBefore = droppedBefore;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getConversationId() {
+            return conversationId;
+        }
+
+        public String getPreviousSummary() {
+            return previousSummary;
+        }
+
+        public List<Turn> getTurns() {
+            return turns;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.model.DatasetFieldSpec;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 单个字段的取值生成器
+ * 由 DatasetFieldSpec 编译而来，生成时只使用调用方传入的随机源，保证相同种子得到相同结果
+ */
+class DatasetFieldGenerator {
+
+    private static final String[] WORDS = {
+        "elasticsearch", "search", "index", "shard", "replica", "query", "filter", "aggregation",
+        "mapping", "analyzer", "token", "cluster", "node", "document", "field", "score",
+        "搜索", "索引", "分片", "副本", "查询", "过滤", "聚合", "映射", "分词", "集群", "节点", "文档",
+        "fast", "scalable", "distributed", "realtime", "relevance", "vector", "keyword", "text"
+    };
+
+    // 日期字段的默认范围固定，不依赖当前时间，保证可复现
+    private static final double DEFAULT_DATE_FROM = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final double DEFAULT_DATE_TO = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+
+    private final String[] path; // 对象字段按点号拆分
+    private final String type;
+    private final String distribution;
+    private final String[] values;
+    private final double[] cumulativeWeights; // zipf 分布的累积权重
+    private final double min;
+    private final double max;
+    private final double mean;
+    private final double stddev;
+    private final double nullRate;
+
+    DatasetFieldGenerator(DatasetFieldSpec spec) {
+        this.path = spec.getName().split("\\.");
+        this.type = spec.getType().toLowerCase();
+        this.distribution = spec.getDistribution() == null ? "uniform" : spec.getDistribution().toLowerCase();
+        List<String> candidates = spec.getValues();
+        this.values = candidates == null || candidates.isEmpty() ? null : candidates.toArray(new String[0]);
+        this.min = spec.getMin() != null ? spec.getMin() : defaultMin(type);
+        this.max = spec.getMax() != null ? spec.getMax() : defaultMax(type);
+        this.mean = spec.getMean() != null ? spec.getMean() : (min + max) / 2;
+        this.stddev = spec.getStddev() != null ? spec.getStddev() : (max - min) / 6;
+        this.nullRate = spec.getNullRate() != null ? spec.getNullRate() : 0;
+        this.cumulativeWeights = "zipf".equals(distribution) ? zipfWeights(values != null ? values.length : 1000) : null;
+    }
+
+    String[] getPath() {
+        return path;
+    }
+
+    /**
+     * 是否跳过该字段
+     */
+    boolean isMissing(SplittableRandom random) {
+        return nullRate > 0 && random.nextDouble() < nullRate;
+    }
+
+    /**
+     * 写出字段值
+     * @param sequence 文档序号，用于 sequence 分布
+     */
+    void writeValue(JsonGenerator generator, SplittableRandom random, long sequence) throws IOException {
+        switch (type) {
+            case "keyword", "constant_keyword", "wildcard" -> generator.writeString(keyword(random));
+            case "text", "match_only_text" -> generator.writeString(text(random));
+            case "integer", "short", "byte" -> generator.writeNumber((int) number(random, sequence));
+            case "long" -> generator.writeNumber((long) number(random, sequence));
+            case "double", "float", "half_float", "scaled_float" ->
+                generator.writeNumber(Math.round(number(random, sequence) * 100) / 100.0);
+            case "boolean" -> generator.writeBoolean(random.nextBoolean());
+            case "date", "date_nanos" ->
+                generator.writeString(Instant.ofEpochMilli((long) number(random, sequence)).toString());
+            case "ip" -> generator.writeString(random.nextInt(1, 224) + "." + random.nextInt(256) + "."
+                + random.nextInt(256) + "." + random.nextInt(1, 255));
+            case "geo_point" -> {
+                generator.writeStartObject();
+                generator.writeNumberField("lat", Math.round((random.nextDouble() * 180 - 90) * 1e6) / 1e6);
+                generator.writeNumberField("lon", Math.round((random.nextDouble() * 360 - 180) * 1e6) / 1e6);
+                generator.writeEndObject();
+            }
+            default -> generator.writeString(keyword(random));
+        }
+    }
+
+    private String keyword(SplittableRandom random) {
+        if (values != null) {
+            return values[pickIndex(random, values.length)];
+        }
+        return "value-" + pickIndex(random, 1000);
+    }
+
+    private String text(SplittableRandom random) {
+        int minWords = Math.max(1, (int) min);
+        int maxWords = Math.max(minWords, (int) max);
+        int count = minWords + random.nextInt(maxWords - minWords + 1);
+        StringBuilder builder = new StringBuilder(count * 8);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(values != null ? values[random.nextInt(values.length)] : WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+
+    private double number(SplittableRandom random, long sequence) {
+        return switch (distribution) {
+            case "sequence" -> min + sequence;
+            case "normal" -> Math.max(min, Math.min(max, mean + nextGaussian(random) * stddev));
+            case "zipf" -> min + pickIndex(random, cumulativeWeights.length) * Math.max(1, (max - min) / cumulativeWeights.length);
+            default -> min + random.nextDouble() * (max - min);
+        };
+    }
+
+    private int pickIndex(SplittableRandom random, int size) {
+        if (cumulativeWeights == null || cumulativeWeights.length != size) {
+            return random.nextInt(size);
+        }
+        int index = Arrays.binarySearch(cumulativeWeights, random.nextDouble());
+        return Math.min(size - 1, index >= 0 ? index : -index - 1);
+    }
+
+    private static double nextGaussian(SplittableRandom random) {
+        // Box-Muller
+        double u1 = 1.0 - random.nextDouble();
+        double u2 = random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+    }
+
+    private static double[] zipfWeights(int size) {
+        double[] weights = new double[size];
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            total += 1.0 / (i + 1);
+            weights[i] = total;
+        }
+        for (int i = 0; i < size; i++) {
+            weights[i] /= total;
+        }
+        return weights;
+    }
+
+    private static double defaultMin(String type) {
+        return switch (type) {
+            case "date", "date_nanos" -> DEFAULT_DATE_FROM;
+            case "text", "match_only_text" -> 5;
+            default -> 0;
+        };
+    }
+
+    private static double defaultMax(String type) {
+        return switch (type) {
+            case "date", "date_nanos" -> DEFAULT_DATE_TO;
+            case "text", "match_only_text" -> 20;
+            case "byte" -> 127;
+            default -> 10000;
+        };
+    }
+}
@@ -0,0 +1,462 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.model.DatasetFieldSpec;
+import com.elasticquest.backend.model.DatasetGenerateRequest;
+import com.elasticquest.backend.model.DatasetJobStatus;
+import com.elasticquest.backend.transport.ESRequest;
+import com.elasticquest.backend.transport.ESResponse;
+import com.elasticquest.backend.transport.ESResponseException;
+import com.elasticquest.backend.transport.ESTransport;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 练习数据集生成服务
+ * 按字段模板（或 mapping 推导）生成文档，多线程并发发送 _bulk 请求；
+ * 每个批次使用由种子和批次号派生的独立随机源，结果与线程调度无关；
+ * 任务只对创建它的用户可见，同时运行的任务数有上限，结束的任务保留一段时间后移除
+ */
+@Service
+public class DatasetGeneratorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatasetGeneratorService.class);
+
+    // bulk 拒绝重试：初始退避、最大退避、最大重试次数
+    private static final long INITIAL_BACKOFF_MS = 100;
+    private static final long MAX_BACKOFF_MS = 5000;
+    private static final int MAX_RETRIES = 8;
+
+    @Autowired
+    private ESClientFactory clientFactory;
+
+    @Value("${elasticsearch.dataset.max-running-jobs:4}")
+    private int maxRunningJobs;
+
+    @Value("${elasticsearch.dataset.retention-ms:3600000}")
+    private long retentionMs;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private final Map<String, GenerationJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * 启动生成任务
+     * @throws IllegalStateException 同时运行的任务已达上限
+     */
+    public DatasetJobStatus start(DatasetGenerateRequest request, String userId) {
+        List<DatasetFieldSpec> specs = request.getFields() != null && !request.getFields().isEmpty()
+            ? request.getFields()
+            : fieldsFromMapping(request.getMapping());
+        if (specs.isEmpty()) {
+            throw new IllegalArgumentException("需要提供字段模板或 mapping");
+        }
+
+        GenerationJob job = new GenerationJob(UUID.randomUUID().toString(), userId, request, new DocumentTemplate(specs));
+        synchronized (jobs) {
+            long running = jobs.values().stream().filter(existing -> "RUNNING".equals(existing.state)).count();
+            if (running >= maxRunningJobs) {
+                throw new IllegalStateException("同时运行的数据集生成任务不能超过 " + maxRunningJobs + " 个，请稍后重试");
+            }
+            jobs.put(job.id, job);
+        }
+        executorService.execute(() -> run(job));
+
+        logger.info("启动数据集生成: jobId={}, index={}, documents={}, parallelism={}",
+            job.id, request.getIndex(), request.getDocumentCount(), request.getParallelism());
+        return job.toStatus();
+    }
+
+    /**
+     * 查询任务状态
+     * @return 任务不存在或不属于该用户时为 null
+     */
+    public DatasetJobStatus getStatus(String jobId, String userId) {
+        GenerationJob job = find(jobId, userId);
+        return job != null ? job.toStatus() : null;
+    }
+
+    /**
+     * 取消任务
+     * @return 任务不存在或不属于该用户时为 null
+     */
+    public DatasetJobStatus cancel(String jobId, String userId) {
+        GenerationJob job = find(jobId, userId);
+        if (job == null) {
+            return null;
+        }
+        job.cancelled = true;
+        return job.toStatus();
+    }
+
+    /**
+     * 移除结束超过保留时间的任务
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictFinishedJobs() {
+        long now = System.nanoTime();
+        jobs.values().removeIf(job -> job.finished && now - job.endTime > retentionMs * 1_000_000);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(job -> job.cancelled = true);
+        executorService.shutdownNow();
+    }
+
+    private GenerationJob find(String jobId, String userId) {
+        GenerationJob job = jobs.get(jobId);
+        return job != null && job.userId.equals(userId) ? job : null;
+    }
+
+    private void run(GenerationJob job) {
+        DatasetGenerateRequest request = job.request;
+        ESClientFactory.Lease lease = clientFactory.acquire(request.getConnection());
+        ESTransport client = lease.transport();
+        try {
+            if (request.isCreateIndex() && request.getMapping() != null && !request.getMapping().isBlank()) {
+                createIndex(client, request);
+            }
+
+            long totalBatches = (request.getDocumentCount() + request.getBatchSize() - 1) / request.getBatchSize();
+            AtomicLong nextBatch = new AtomicLong();
+            CountDownLatch workersDone = new CountDownLatch(request.getParallelism());
+            List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+
+            for (int w = 0; w < request.getParallelism(); w++) {
+                executorService.execute(() -> {
+                    try {
+                        long batch;
+                        while (!job.cancelled && errors.isEmpty() && (batch = nextBatch.getAndIncrement()) < totalBatches) {
+                            sendBatch(client, job, batch);
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    } finally {
+                        workersDone.countDown();
+                    }
+                });
+            }
+            workersDone.await();
+
+            if (!errors.isEmpty()) {
+                throw errors.get(0);
+            }
+            job.state = job.cancelled ? "CANCELLED" : "COMPLETED";
+            logger.info("数据集生成结束: jobId={}, state={}, indexed={}, failed={}",
+                job.id, job.state, job.indexed.get(), job.failed.get());
+
+        } catch (Throwable e) {
+            logger.error("数据集生成失败: jobId={}", job.id, e);
+            job.error = e.getMessage();
+            job.state = "FAILED";
+        } finally {
+            job.endTime = System.nanoTime();
+            job.finished = true;
+            lease.close();
+        }
+    }
+
+    /**
+     * 生成并发送一个批次，被拒绝（429）的文档退避后重发
+     */
+    private void sendBatch(ESTransport client, GenerationJob job, long batch) throws IOException, InterruptedException {
+        DatasetGenerateRequest request = job.request;
+        long first = batch * request.getBatchSize();
+        int count = (int) Math.min(request.getBatchSize(), request.getDocumentCount() - first);
+
+        // 每个批次独立的随机源
+        SplittableRandom random = new SplittableRandom(request.getSeed() ^ (batch * 0x9E3779B97F4A7C15L));
+        BulkBody body = buildBulkBody(job, first, count, random);
+
+        long backoff = INITIAL_BACKOFF_MS;
+        for (int attempt = 0; ; attempt++) {
+            List<Integer> rejected = sendBulk(client, job, body);
+            if (rejected.isEmpty()) {
+                return;
+            }
+            if (attempt >= MAX_RETRIES || job.cancelled) {
+                job.failed.addAndGet(rejected.size());
+                return;
+            }
+            job.retries.incrementAndGet();
+            Thread.sleep(backoff);
+            backoff = Math.min(MAX_BACKOFF_MS, backoff * 2);
+            body = body.subset(rejected);
+        }
+    }
+
+    /**
+     * 发送 bulk 请求
+     * @return 被拒绝、需要重试的文档下标
+     */
+    private List<Integer> sendBulk(ESTransport client, GenerationJob job, BulkBody body) throws IOException {
+        ESRequest bulk = new ESRequest("POST", "/_bulk");
+        bulk.addParameter("filter_path", "errors,items.*.status");
+        bulk.setEntity(body.bytes, ESRequest.NDJSON);
+
+        JsonNode result;
+        try (ESResponse response = client.perform(bulk)) {
+            result = objectMapper.readTree(response.toByteArray());
+        } catch (ESResponseException e) {
+            if (e.getStatusCode() == 429) {
+                // 整个请求被拒绝
+                List<Integer> all = new ArrayList<>(body.size());
+                for (int i = 0; i < body.size(); i++) {
+                    all.add(i);
+                }
+                return all;
+            }
+            throw e;
+        }
+        job.bytesSent.addAndGet(body.bytes.length);
+
+        if (!result.path("errors").asBoolean(false)) {
+            job.indexed.addAndGet(body.size());
+            return Collections.emptyList();
+        }
+
+        List<Integer> rejected = new ArrayList<>();
+        JsonNode items = result.path("items");
+        for (int i = 0; i < items.size(); i++) {
+            int status = items.get(i).elements().next().path("status").asInt();
+            if (status == 429) {
+                rejected.add(i);
+            } else if (status >= 200 && status < 300) {
+                job.indexed.incrementAndGet();
+            } else {
+                job.failed.incrementAndGet();
+            }
+        }
+        return rejected;
+    }
+
+    private BulkBody buildBulkBody(GenerationJob job, long first, int count, SplittableRandom random) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(count * 256);
+        int[] offsets = new int[count + 1];
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            for (int i = 0; i < count; i++) {
+                generator.flush();
+                offsets[i] = out.size();
+                long sequence = first + i;
+
+                generator.writeStartObject();
+                generator.writeObjectFieldStart("index");
+                generator.writeStringField("_index", job.request.getIndex());
+                generator.writeStringField("_id", Long.toString(sequence));
+                generator.writeEndObject();
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+
+                job.template.write(generator, random, sequence);
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+            offsets[count] = out.size();
+        }
+        return new BulkBody(out.toByteArray(), offsets);
+    }
+
+    private void createIndex(ESTransport client, DatasetGenerateRequest request) throws IOException {
+        JsonNode mapping = objectMapper.readTree(request.getMapping());
+        Map<String, Object> body = new HashMap<>();
+        body.put("mappings", mapping.has("mappings") ? mapping.get("mappings") : mapping);
+
+        ESRequest create = new ESRequest("PUT", "/" + ESRequest.encodePathSegment(request.getIndex()));
+        create.setJsonEntity(objectMapper.writeValueAsString(body));
+        try {
+            client.perform(create).close();
+            logger.info("已创建索引: {}", request.getIndex());
+        } catch (ESResponseException e) {
+            // 只有索引已存在时继续写入；mapping 无效、索引名非法等错误直接失败，不退回动态 mapping
+            JsonNode error = errorOf(e);
+            if (!"resource_already_exists_exception".equals(error.path("type").asText())) {
+                throw new IOException("创建索引失败: " + error.path("reason").asText(e.getMessage()), e);
+            }
+            logger.info("索引已存在，直接写入: {}", request.getIndex());
+        }
+    }
+
+    /**
+     * ES 错误响应中的 error 对象，无法解析时为空节点
+     */
+    private JsonNode errorOf(ESResponseException e) {
+        if (e.getResponseBody() == null) {
+            return objectMapper.missingNode();
+        }
+        try {
+            return objectMapper.readTree(e.getResponseBody()).path("error");
+        } catch (IOException parseError) {
+            return objectMapper.missingNode();
+        }
+    }
+
+    /**
+     * 从 mapping 推导字段定义，对象字段展开为点号路径
+     */
+    private List<DatasetFieldSpec> fieldsFromMapping(String mapping) {
+        List<DatasetFieldSpec> specs = new ArrayList<>();
+        if (mapping == null || mapping.isBlank()) {
+            return specs;
+        }
+        try {
+            JsonNode root = objectMapper.readTree(mapping);
+            JsonNode mappings = root.has("mappings") ? root.get("mappings") : root;
+            collectFields(mappings.path("properties"), "", specs);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("mapping 格式错误: " + e.getMessage(), e);
+        }
+        return specs;
+    }
+
+    private void collectFields(JsonNode properties, String prefix, List<DatasetFieldSpec> specs) {
+        for (Map.Entry<String, JsonNode> entry : properties.properties()) {
+            String name = prefix + entry.getKey();
+            JsonNode field = entry.getValue();
+            if (field.has("properties")) {
+                collectFields(field.get("properties"), name + ".", specs);
+            } else {
+                specs.add(new DatasetFieldSpec(name, field.path("type").asText("keyword")));
+            }
+        }
+    }
+
+    /**
+     * 文档模板：按字段路径组织成树，写出时生成嵌套对象
+     */
+    private static class DocumentTemplate {
+
+        private final Map<String, Object> children = new LinkedHashMap<>(); // 值为 DatasetFieldGenerator 或 DocumentTemplate
+
+        DocumentTemplate() {
+        }
+
+        DocumentTemplate(List<DatasetFieldSpec> specs) {
+            for (DatasetFieldSpec spec : specs) {
+                DatasetFieldGenerator generator = new DatasetFieldGenerator(spec);
+                DocumentTemplate node = this;
+                String[] path = generator.getPath();
+                for (int i = 0; i < path.length - 1; i++) {
+                    node = (DocumentTemplate) node.children.computeIfAbsent(path[i], k -> new DocumentTemplate());
+                }
+                node.children.put(path[path.length - 1], generator);
+            }
+        }
+
+        void write(JsonGenerator generator, SplittableRandom random, long sequence) throws IOException {
+            generator.writeStartObject();
+            for (Map.Entry<String, Object> entry : children.entrySet()) {
+                if (entry.getValue() instanceof DatasetFieldGenerator field) {
+                    if (!field.isMissing(random)) {
+                        generator.writeFieldName(entry.getKey());
+                        field.writeValue(generator, random, sequence);
+                    }
+                } else {
+                    generator.writeFieldName(entry.getKey());
+                    ((DocumentTemplate) entry.getValue()).write(generator, random, sequence);
+                }
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * bulk 请求体及每个文档（action + source 两行）的字节偏移
+     */
+    private static class BulkBody {
+
+        final byte[] bytes;
+        final int[] offsets;
+
+        BulkBody(byte[] bytes, int[] offsets) {
+            this.bytes = bytes;
+            this.offsets = offsets;
+        }
+
+        int size() {
+            return offsets.length - 1;
+        }
+
+        /**
+         * 只保留指定下标的文档
+         */
+        BulkBody subset(List<Integer> indexes) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int[] subsetOffsets = new int[indexes.size() + 1];
+            for (int i = 0; i < indexes.size(); i++) {
+                int index = indexes.get(i);
+                subsetOffsets[i] = out.size();
+                out.write(bytes, offsets[index], offsets[index + 1] - offsets[index]);
+            }
+            subsetOffsets[indexes.size()] = out.size();
+            return new BulkBody(out.toByteArray(), subsetOffsets);
+        }
+    }
+
+    /**
+     * 生成任务
+     */
+    private static class GenerationJob {
+
+        final String id;
+        final String userId;
+        final DatasetGenerateRequest request;
+        final DocumentTemplate template;
+        final long startTime = System.nanoTime();
+        final AtomicLong indexed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong retries = new AtomicLong();
+        final AtomicLong bytesSent = new AtomicLong();
+        volatile String state = "RUNNING";
+        volatile String error;
+        volatile boolean cancelled;
+        volatile long endTime;
+        // nanoTime 可能为 0 或负数，是否结束单独记录；先写 endTime 再置位
+        volatile boolean finished;
+
+        GenerationJob(String id, String userId, DatasetGenerateRequest request, DocumentTemplate template) {
+            this.id = id;
+            this.userId = userId;
+            this.request = request;
+            this.template = template;
+        }
+
+        DatasetJobStatus toStatus() {
+            long elapsedNanos = (finished ? endTime : System.nanoTime()) - startTime;
+            double seconds = Math.max(elapsedNanos / 1e9, 1e-3);
+
+            DatasetJobStatus status = new DatasetJobStatus();
+            status.setJobId(id);
+            status.setIndex(request.getIndex());
+            status.setState(state);
+            status.setRequested(request.getDocumentCount());
+            status.setIndexed(indexed.get());
+            status.setFailed(failed.get());
+            status.setRetries(retries.get());
+            status.setBytesSent(bytesSent.get());
+            status.setElapsedMs(elapsedNanos / 1_000_000);
+            status.setDocsPerSecond(Math.round(indexed.get() / seconds * 10) / 10.0);
+            status.setMbPerSecond(Math.round(bytesSent.get() / (1024.0 * 1024.0) / seconds * 100) / 100.0);
+            status.setError(error);
+            return status;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.config.ElasticsearchProperties;
+import com.elasticquest.backend.model.ESConnectionConfig;
+import com.elasticquest.backend.transport.ESTransport;
+import com.elasticquest.backend.transport.HttpClientTransport;
+import com.elasticquest.backend.transport.RestClientTransport;
+import jakarta.annotation.PreDestroy;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestClientBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ES 客户端工厂
+ * 按连接（协议、主机、端口、凭证、传输实现）缓存 ESTransport，复用连接池和 TLS 会话；
+ * 调用方通过租约使用客户端，空闲且无租约的客户端定期回收
+ */
+@Component
+public class ESClientFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(ESClientFactory.class);
+
+    private final ElasticsearchProperties properties;
+    private final Map<String, CachedClient> clients = new ConcurrentHashMap<>();
+
+    public ESClientFactory(ElasticsearchProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 获取连接对应的客户端租约，使用完毕后关闭租约（不会关闭客户端）
+     */
+    public Lease acquire(ESConnectionConfig config) {
+        String key = connectionKey(config);
+        while (true) {
+            CachedClient cached = clients.computeIfAbsent(key, k -> new CachedClient(createTransport(config)));
+            if (cached.retain()) {
+                return new Lease(cached);
+            }
+            // 客户端恰好被回收，重新创建
+            clients.remove(key, cached);
+        }
+    }
+
+    /**
+     * 连接标识：相同标识的配置共用一个客户端；
+     * 凭证只以 SHA-256 摘要出现，标识被记录或暴露时不会泄露密码
+     */
+    public static String connectionKey(ESConnectionConfig config) {
+        return transportName(config) + "+" + config.getScheme() + "://" + config.getHost() + ":" + config.getPort()
+            + "#" + credentialsDigest(config);
+    }
+
+    private static String credentialsDigest(ESConnectionConfig config) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String credentials = Objects.toString(config.getUsername(), "") + ":" + Objects.toString(config.getPassword(), "");
+            return HexFormat.of().formatHex(digest.digest(credentials.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 连接使用的传输实现，未指定时使用 RestClient
+     */
+    public static String transportName(ESConnectionConfig config) {
+        return ESTransport.HTTP_CLIENT.equals(config.getTransport()) ? ESTransport.HTTP_CLIENT : ESTransport.REST_CLIENT;
+    }
+
+    /**
+     * 回收空闲客户端
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleClients() {
+        long now = System.currentTimeMillis();
+        clients.forEach((key, cached) -> {
+            if (now - cached.lastUsed > properties.getClientIdleTimeout() && cached.retire()) {
+                clients.remove(key, cached);
+                cached.close();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        clients.values().forEach(CachedClient::close);
+        clients.clear();
+    }
+
+    /**
+     * 按连接配置创建传输实现
+     */
+    private ESTransport createTransport(ESConnectionConfig config) {
+        // 设置超时：预置连接使用各自的配置，其余使用默认连接的配置
+        ElasticsearchProperties.ConnectionProperties timeouts = timeoutsFor(config);
+
+        logger.info("创建 ES 客户端: url={}, transport={}", config.getFullUrl(), transportName(config));
+        if (ESTransport.HTTP_CLIENT.equals(transportName(config))) {
+            return new HttpClientTransport(config.getScheme(), config.getHost(), config.getPort(),
+                config.getUsername(), config.getPassword(),
+                timeouts.getConnectionTimeout(), timeouts.getSocketTimeout());
+        }
+        return new RestClientTransport(createRestClient(config, timeouts));
+    }
+
+    /**
+     * 创建 RestClient
+     */
+    private RestClient createRestClient(ESConnectionConfig config,
+                                        ElasticsearchProperties.ConnectionProperties timeouts) {
+        HttpHost host = new HttpHost(
+            config.getHost(),
+            config.getPort(),
+            config.getScheme()
+        );
+
+        RestClientBuilder builder = RestClient.builder(host);
+
+        // 如果有用户名和密码，添加认证
+        if (config.getUsername() != null && !config.getUsername().isEmpty() &&
+            config.getPassword() != null && !config.getPassword().isEmpty()) {
+
+            BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+            credentialsProvider.setCredentials(
+                AuthScope.ANY,
+                new UsernamePasswordCredentials(config.getUsername(), config.getPassword())
+            );
+
+            builder.setHttpClientConfigCallback(httpClientBuilder ->
+                httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider)
+            );
+        }
+
+        builder.setRequestConfigCallback(requestConfigBuilder ->
+            requestConfigBuilder
+                .setConnectTimeout(timeouts.getConnectionTimeout())
+                .setSocketTimeout(timeouts.getSocketTimeout())
+        );
+
+        return builder.build();
+    }
+
+    private ElasticsearchProperties.ConnectionProperties timeoutsFor(ESConnectionConfig config) {
+        for (ElasticsearchProperties.ConnectionProperties profile : properties.getProfiles().values()) {
+            if (Objects.equals(profile.getHost(), config.getHost())
+                && Objects.equals(profile.getPort(), config.getPort())
+                && Objects.equals(profile.getScheme(), config.getScheme())) {
+                return profile;
+            }
+        }
+        return properties.getDefault();
+    }
+
+    /**
+     * 缓存的客户端及其租约计数，-1 表示已回收
+     */
+    private static class CachedClient {
+
+        final ESTransport transport;
+        final AtomicInteger leases = new AtomicInteger();
+        volatile long lastUsed = System.currentTimeMillis();
+
+        CachedClient(ESTransport transport) {
+            this.transport = transport;
+        }
+
+        boolean retain() {
+            int current;
+            do {
+                current = leases.get();
+                if (current < 0) {
+                    return false;
+                }
+            } while (!leases.compareAndSet(current, current + 1));
+            lastUsed = System.currentTimeMillis();
+            return true;
+        }
+
+        void release() {
+            lastUsed = System.currentTimeMillis();
+            leases.decrementAndGet();
+        }
+
+        boolean retire() {
+            return leases.compareAndSet(0, -1);
+        }
+
+        void close() {
+            try {
+                transport.close();
+            } catch (IOException e) {
+                logger.error("关闭 ES 客户端失败", e);
+            }
+        }
+    }
+
+    /**
+     * 客户端租约
+     */
+    public static class Lease implements AutoCloseable {
+
+        private final CachedClient cached;
+        private boolean released;
+
+        Lease(CachedClient cached) {
+            this.cached = cached;
+        }
+
+        public ESTransport transport() {
+            return cached.transport;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                cached.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.config.ElasticsearchProperties;
+import com.elasticquest.backend.model.ESConnectionConfig;
+import com.elasticquest.backend.transport.ESRequest;
+import com.elasticquest.backend.transport.ESResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * ES 客户端预热
+ * 启动阶段为预置连接创建客户端并发送 GET /，完成类加载、连接建立和 TLS 握手；
+ * ApplicationRunner 在就绪探针变为 ACCEPTING_TRAFFIC 之前执行
+ */
+@Component
+public class ESClientWarmup implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ESClientWarmup.class);
+
+    private final ElasticsearchProperties properties;
+    private final ESClientFactory clientFactory;
+
+    public ESClientWarmup(ElasticsearchProperties properties, ESClientFactory clientFactory) {
+        this.properties = properties;
+        this.clientFactory = clientFactory;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isWarmupOnStartup()) {
+            return;
+        }
+        for (Map.Entry<String, ESConnectionConfig> entry : properties.preconfiguredConnections().entrySet()) {
+            warmUp(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void warmUp(String name, ESConnectionConfig config) {
+        long start = System.nanoTime();
+        try (ESClientFactory.Lease lease = clientFactory.acquire(config);
+             ESResponse response = lease.transport().perform(new ESRequest("GET", "/"))) {
+            response.toByteArray();
+            logger.info("ES 客户端预热完成: name={}, url={}, status={}, 耗时={}ms", name, config.getFullUrl(),
+                response.getStatusCode(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            // 集群不可用时不阻止启动，客户端仍保留在缓存中
+            logger.warn("ES 客户端预热失败: name={}, url={}, error={}", name, config.getFullUrl(), e.getMessage());
+        }
+    }
+}
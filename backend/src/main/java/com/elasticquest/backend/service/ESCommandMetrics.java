@@ -0,0 +1,184 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.config.ElasticsearchProperties;
+import com.elasticquest.backend.model.ESConnectionConfig;
+import com.elasticquest.backend.model.SlowCommandRecord;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ES 命令指标
+ * 记录每条控制台命令的耗时与响应大小，超过阈值的命令写入慢命令日志。
+ * 标签取值都是有限集合：方法归入固定几类，连接只区分预置连接名，其余记为 custom
+ */
+@Component
+public class ESCommandMetrics {
+
+    private static final String TIMER_NAME = "es.command.duration";
+    private static final String SIZE_NAME = "es.command.response.size";
+
+    private static final Set<String> METHODS = Set.of("GET", "POST", "PUT", "DELETE", "HEAD");
+
+    // 端点模式的种类上限，超出后新出现的模式记为 other
+    private static final int MAX_ENDPOINT_PATTERNS = 200;
+
+    // 紧跟在这些段之后的路径段视为文档 ID
+    private static final Set<String> DOC_ENDPOINTS = Set.of(
+        "_doc", "_create", "_update", "_source", "_explain", "_termvectors"
+    );
+
+    // 系统 API 下的固定子路径（如 _cat/indices），保留原样
+    private static final Set<String> API_WORDS = Set.of(
+        "indices", "health", "nodes", "shards", "count", "aliases", "allocation", "stats",
+        "settings", "state", "pending_tasks", "pipeline", "reroute", "mapping", "templates",
+        "segments", "recovery", "thread_pool", "plugins", "master", "fielddata", "hot_threads",
+        "info", "usage", "field", "tasks"
+    );
+
+    private final MeterRegistry meterRegistry;
+    private final SlowCommandLog slowCommandLog;
+    private final ElasticsearchProperties properties;
+    private final Set<String> endpointPatterns = ConcurrentHashMap.newKeySet();
+
+    public ESCommandMetrics(MeterRegistry meterRegistry, SlowCommandLog slowCommandLog,
+                            ElasticsearchProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.slowCommandLog = slowCommandLog;
+        this.properties = properties;
+    }
+
+    /**
+     * 记录一次命令执行
+     * @param statusCode HTTP 状态码，未收到响应时为 0
+     */
+    public void record(ESConnectionConfig config, String method, String endpoint,
+                       int statusCode, long durationNanos, long responseBytes) {
+        String connection = connectionTag(config);
+        method = normalizeMethod(method);
+        String pattern = endpointTag(normalizeEndpoint(endpoint));
+        String outcome = statusCode >= 200 && statusCode < 300 ? "success" : "error";
+
+        Timer.builder(TIMER_NAME)
+            .description("ES 控制台命令耗时")
+            .tag("connection", connection)
+            .tag("method", method)
+            .tag("endpoint", pattern)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry)
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+
+        if (statusCode > 0) {
+            DistributionSummary.builder(SIZE_NAME)
+                .description("ES 控制台命令响应大小")
+                .baseUnit("bytes")
+                .tag("connection", connection)
+                .tag("method", method)
+                .tag("endpoint", pattern)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(responseBytes);
+        }
+
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        if (slowCommandLog.isSlow(durationMs)) {
+            SlowCommandRecord record = new SlowCommandRecord();
+            record.setTimestamp(LocalDateTime.now().toString());
+            record.setConnection(connection);
+            record.setMethod(method);
+            // 查询参数和请求体可能含用户数据，不进入慢命令日志
+            int queryStart = endpoint != null ? endpoint.indexOf('?') : -1;
+            record.setEndpoint(queryStart >= 0 ? endpoint.substring(0, queryStart) : endpoint);
+            record.setEndpointPattern(pattern);
+            record.setStatusCode(statusCode);
+            record.setDurationMs(durationMs);
+            record.setResponseBytes(responseBytes);
+            slowCommandLog.add(record);
+        }
+    }
+
+    /**
+     * 连接标签：预置连接（default 和 elasticsearch.profiles）使用其名称，客户端传入的连接统一为 custom
+     */
+    String connectionTag(ESConnectionConfig config) {
+        if (config == null) {
+            return "unknown";
+        }
+        String name = config.getName();
+        if (name != null && ("default".equals(name) || properties.getProfiles().containsKey(name))) {
+            return name;
+        }
+        return "custom";
+    }
+
+    /**
+     * 端点标签：以 _ 开头的路径段原样保留，客户端可以构造任意多的模式，超过上限后归为 other
+     */
+    private String endpointTag(String pattern) {
+        if (endpointPatterns.contains(pattern)) {
+            return pattern;
+        }
+        // 检查上限和登记需要原子完成，否则并发时会超出上限
+        synchronized (endpointPatterns) {
+            if (endpointPatterns.contains(pattern)) {
+                return pattern;
+            }
+            if (endpointPatterns.size() >= MAX_ENDPOINT_PATTERNS) {
+                return "other";
+            }
+            endpointPatterns.add(pattern);
+            return pattern;
+        }
+    }
+
+    /**
+     * 方法标签：常用方法保留，其余记为 OTHER
+     */
+    static String normalizeMethod(String method) {
+        return method != null && METHODS.contains(method) ? method : "OTHER";
+    }
+
+    /**
+     * 将端点归一化为模式，避免索引名和文档 ID 导致标签基数膨胀
+     * 例如 /products/_search?size=10 -> /{index}/_search，/products/_doc/1 -> /{index}/_doc/{id}
+     */
+    static String normalizeEndpoint(String endpoint) {
+        if (endpoint == null || endpoint.isEmpty()) {
+            return "/";
+        }
+        int queryStart = endpoint.indexOf('?');
+        String path = queryStart >= 0 ? endpoint.substring(0, queryStart) : endpoint;
+
+        StringBuilder pattern = new StringBuilder();
+        String previous = null;
+        int position = 0;
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            pattern.append('/');
+            if (segment.startsWith("_")) {
+                pattern.append(segment);
+            } else if (previous != null && DOC_ENDPOINTS.contains(previous)) {
+                pattern.append("{id}");
+            } else if (previous != null && previous.startsWith("_") && API_WORDS.contains(segment)) {
+                pattern.append(segment);
+            } else if (position == 0) {
+                pattern.append("{index}");
+            } else {
+                pattern.append("{name}");
+            }
+            previous = segment;
+            position++;
+        }
+        return pattern.length() == 0 ? "/" : pattern.toString();
+    }
+}
@@ -0,0 +1,286 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.transport.ESRequest;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ES 控制台命令解析器
+ * 单次扫描定位方法行，请求体以原始输入的视图形式返回，不做整行拆分和重新拼接；
+ * 支持 CRLF 换行和 Kibana 的三引号字符串（"""..."""）
+ */
+public final class ESCommandParser {
+
+    private static final String TRIPLE_QUOTE = "\"\"\"";
+
+    private static final Set<String> METHODS = Set.of("GET", "POST", "PUT", "DELETE", "HEAD", "PATCH");
+
+    private ESCommandParser() {
+    }
+
+    /**
+     * 解析命令
+     */
+    public static ParsedCommand parse(String command) {
+        if (command == null) {
+            throw new IllegalArgumentException("命令不能为空");
+        }
+        int length = command.length();
+
+        // 跳过前导空白，定位方法行
+        int lineStart = skipWhitespace(command, 0, length);
+        if (lineStart == length) {
+            throw new IllegalArgumentException("命令不能为空");
+        }
+        int lineEnd = command.indexOf('\n', lineStart);
+        int bodyStart = lineEnd < 0 ? length : lineEnd + 1;
+        if (lineEnd < 0) {
+            lineEnd = length;
+        }
+
+        // 方法行：METHOD /endpoint
+        int methodEnd = lineStart;
+        while (methodEnd < lineEnd && !Character.isWhitespace(command.charAt(methodEnd))) {
+            methodEnd++;
+        }
+        int endpointStart = skipWhitespace(command, methodEnd, lineEnd);
+        int endpointEnd = trimEnd(command, endpointStart, lineEnd);
+        if (endpointStart >= endpointEnd) {
+            throw new IllegalArgumentException("命令格式错误，应为: METHOD /endpoint");
+        }
+        String method = command.substring(lineStart, methodEnd).toUpperCase();
+        String endpoint = command.substring(endpointStart, endpointEnd);
+
+        // 剩余部分是请求体，只去掉首尾空白
+        bodyStart = skipWhitespace(command, bodyStart, length);
+        int bodyEnd = trimEnd(command, bodyStart, length);
+
+        CharSequence body = null;
+        if (bodyStart < bodyEnd) {
+            int tripleQuote = command.indexOf(TRIPLE_QUOTE, bodyStart);
+            body = tripleQuote >= 0 && tripleQuote < bodyEnd
+                ? expandTripleQuotes(command, bodyStart, bodyEnd, tripleQuote)
+                : CharBuffer.wrap(command, bodyStart, bodyEnd);
+        }
+
+        return new ParsedCommand(method, endpoint, body);
+    }
+
+    /**
+     * 将包含多条命令的脚本按方法行拆分（与 Kibana 控制台一致，方法必须位于行首）；
+     * 三引号字符串内的行不作为拆分点，第一条命令之前的空行和 # 注释被忽略
+     */
+    public static List<String> splitScript(String script) {
+        if (script == null) {
+            throw new IllegalArgumentException("命令不能为空");
+        }
+        List<String> commands = new ArrayList<>();
+        int length = script.length();
+        int commandStart = -1;
+        boolean inTripleQuote = false;
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = script.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = length;
+            }
+            if (!inTripleQuote && isMethodLine(script, lineStart, lineEnd)) {
+                if (commandStart >= 0) {
+                    commands.add(script.substring(commandStart, trimEnd(script, commandStart, lineStart)));
+                }
+                commandStart = lineStart;
+            } else if (commandStart < 0) {
+                int first = skipWhitespace(script, lineStart, lineEnd);
+                if (first < lineEnd && script.charAt(first) != '#') {
+                    // 第一行不是方法行，交给 parse 报告格式错误
+                    commandStart = lineStart;
+                }
+            }
+            for (int quote = script.indexOf(TRIPLE_QUOTE, lineStart); quote >= 0 && quote < lineEnd;
+                 quote = script.indexOf(TRIPLE_QUOTE, quote + 3)) {
+                inTripleQuote = !inTripleQuote;
+            }
+            lineStart = lineEnd + 1;
+        }
+        if (commandStart >= 0) {
+            commands.add(script.substring(commandStart, trimEnd(script, commandStart, length)));
+        }
+        if (commands.isEmpty()) {
+            throw new IllegalArgumentException("命令不能为空");
+        }
+        return commands;
+    }
+
+    private static boolean isMethodLine(String script, int lineStart, int lineEnd) {
+        int methodEnd = lineStart;
+        while (methodEnd < lineEnd && Character.isLetter(script.charAt(methodEnd))) {
+            methodEnd++;
+        }
+        return methodEnd > lineStart && methodEnd < lineEnd && Character.isWhitespace(script.charAt(methodEnd))
+            && METHODS.contains(script.substring(lineStart, methodEnd).toUpperCase());
+    }
+
+    /**
+     * 将三引号字符串转换为转义后的 JSON 字符串，其余内容原样复制
+     */
+    private static CharSequence expandTripleQuotes(String command, int start, int end, int firstQuote) {
+        StringBuilder builder = new StringBuilder(end - start + 16);
+        int position = start;
+        int open = firstQuote;
+        while (open >= 0 && open < end) {
+            int close = command.indexOf(TRIPLE_QUOTE, open + 3);
+            if (close < 0 || close >= end) {
+                throw new IllegalArgumentException("三引号字符串未闭合");
+            }
+            builder.append(command, position, open).append('"');
+            for (int i = open + 3; i < close; i++) {
+                appendEscaped(builder, command.charAt(i));
+            }
+            builder.append('"');
+            position = close + 3;
+            open = command.indexOf(TRIPLE_QUOTE, position);
+        }
+        builder.append(command, position, end);
+        return builder;
+    }
+
+    private static void appendEscaped(StringBuilder builder, char c) {
+        switch (c) {
+            case '"' -> builder.append("\\\"");
+            case '\\' -> builder.append("\\\\");
+            case '\n' -> builder.append("\\n");
+            case '\r' -> builder.append("\\r");
+            case '\t' -> builder.append("\\t");
+            default -> {
+                if (c < 0x20) {
+                    builder.append(String.format("\\u%04x", (int) c));
+                } else {
+                    builder.append(c);
+                }
+            }
+        }
+    }
+
+    private static int skipWhitespace(String text, int from, int to) {
+        while (from < to && Character.isWhitespace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(String text, int from, int to) {
+        while (to > from && Character.isWhitespace(text.charAt(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    /**
+     * 解析后的命令
+     */
+    public static final class ParsedCommand {
+
+        private final String method;
+        private final String endpoint;
+        private final CharSequence body;
+
+        ParsedCommand(String method, String endpoint, CharSequence body) {
+            this.method = method;
+            this.endpoint = endpoint;
+            this.body = body;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        /**
+         * 请求体（原始输入的视图），没有请求体时为 null
+         */
+        public CharSequence getBody() {
+            return body;
+        }
+
+        public boolean hasBody() {
+            return body != null && body.length() > 0;
+        }
+
+        /**
+         * 是否为 NDJSON 端点（_bulk、_msearch 等）
+         */
+        public boolean isNdjson() {
+            int queryStart = endpoint.indexOf('?');
+            String path = "/" + (queryStart >= 0 ? endpoint.substring(0, queryStart) : endpoint);
+            return path.endsWith("/_bulk") || path.endsWith("/_msearch") || path.endsWith("/_msearch/template");
+        }
+
+        /**
+         * 构建 ES 请求，请求体直接编码为字节，NDJSON 端点补齐结尾换行
+         */
+        public ESRequest toRequest() {
+            ESRequest request = new ESRequest(method, endpoint);
+            if (!hasBody()) {
+                return request;
+            }
+            try {
+                boolean ndjson = isNdjson();
+                CharBuffer chars = ndjson
+                    ? CharBuffer.wrap(new CompositeBody(body))
+                    : body instanceof CharBuffer view ? view.duplicate() : CharBuffer.wrap(body);
+                // 与 String.getBytes 一致，孤立的代理字符替换为 ?，不拒绝整条命令
+                ByteBuffer bytes = StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .encode(chars);
+                request.setEntity(bytes.array(), bytes.arrayOffset(), bytes.remaining(),
+                    ndjson ? ESRequest.NDJSON : ESRequest.JSON);
+                return request;
+            } catch (CharacterCodingException e) {
+                throw new IllegalArgumentException("请求体编码失败: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 请求体后追加换行符的只读视图
+     */
+    private static final class CompositeBody implements CharSequence {
+
+        private final CharSequence body;
+
+        CompositeBody(CharSequence body) {
+            this.body = body;
+        }
+
+        @Override
+        public int length() {
+            return body.length() + 1;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return index == body.length() ? '\n' : body.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new StringBuilder(end - start).append(this, start, end);
+        }
+
+        @Override
+        public String toString() {
+            return body + "\n";
+        }
+    }
+}
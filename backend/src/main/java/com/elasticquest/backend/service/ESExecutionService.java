@@ -1,23 +1,32 @@
 package com.elasticquest.backend.service;
 
+import com.elasticquest.backend.config.ElasticsearchProperties;
+import com.elasticquest.backend.model.ESBatchExecutionResult;
 import com.elasticquest.backend.model.ESConnectionConfig;
 import com.elasticquest.backend.model.ESExecutionResult;
-import org.apache.http.HttpHost;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.elasticsearch.client.Request;
-import org.elasticsearch.client.Response;
-import org.elasticsearch.client.RestClient;
-import org.elasticsearch.client.RestClientBuilder;
+import com.elasticquest.backend.transport.ESRequest;
+import com.elasticquest.backend.transport.ESResponse;
+import com.elasticquest.backend.transport.ESResponseException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * ES 命令执行服务
@@ -27,141 +36,324 @@ public class ESExecutionService {
     
     private static final Logger logger = LoggerFactory.getLogger(ESExecutionService.class);
     
+    @Autowired
+    private ESClientFactory clientFactory;
+    
+    @Autowired
+    private ElasticsearchProperties elasticsearchProperties;
+    
+    @Autowired
+    private ESCommandMetrics commandMetrics;
+    
+    @Autowired
+    private ESResultSpool resultSpool;
+    
+    @Autowired
+    private ESMetadataCache metadataCache;
+    
+    // 连续搜索合并为 _msearch 的开关与上限
+    @Value("${elasticsearch.msearch.enabled:true}")
+    private boolean msearchEnabled;
+    
+    @Value("${elasticsearch.msearch.max-commands:20}")
+    private int msearchMaxCommands;
+    
+    @Value("${elasticsearch.msearch.max-bytes:1048576}")
+    private int msearchMaxBytes;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonFactory jsonFactory = objectMapper.getFactory();
+    
     /**
-     * 执行 ES 命令
+     * 执行 ES 命令，未指定连接时使用 elasticsearch.default
      */
     public ESExecutionResult executeCommand(String command, ESConnectionConfig config) {
-        RestClient client = null;
+        if (config == null) {
+            config = elasticsearchProperties.getDefault().toConnectionConfig("default");
+        }
+        ESClientFactory.Lease lease = null;
+        ESCommandParser.ParsedCommand commandInfo = null;
+        long startTime = 0;
         try {
             // 解析命令
-            CommandInfo commandInfo = parseCommand(command);
+            commandInfo = ESCommandParser.parse(command);
             
-            // 创建 RestClient
-            client = createRestClient(config);
+            // 获取客户端（按连接复用）
+            lease = clientFactory.acquire(config);
             
-            // 创建请求
-            Request request = new Request(commandInfo.method, commandInfo.endpoint);
+            // 创建请求，请求体直接编码为字节
+            ESRequest request = commandInfo.toRequest();
             
-            // 如果有请求体，设置请求体
-            if (commandInfo.body != null && !commandInfo.body.trim().isEmpty()) {
-                request.setJsonEntity(commandInfo.body);
+            // 执行请求，读取响应（超过阈值时落盘，只返回摘要）
+            startTime = System.nanoTime();
+            int statusCode;
+            ESResultSpool.Body body;
+            try (ESResponse response = lease.transport().perform(request)) {
+                statusCode = response.getStatusCode();
+                body = resultSpool.read(response);
             }
             
-            // 执行请求
-            Response response = client.performRequest(request);
-            
-            // 读取响应
-            String responseBody = new BufferedReader(
-                new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8))
-                .lines()
-                .collect(Collectors.joining("\n"));
+            commandMetrics.record(config, commandInfo.getMethod(), commandInfo.getEndpoint(),
+                statusCode, System.nanoTime() - startTime, body.getTotalBytes());
             
             logger.info("ES 命令执行成功: method={}, endpoint={}, status={}", 
-                commandInfo.method, commandInfo.endpoint, response.getStatusLine().getStatusCode());
+                commandInfo.getMethod(), commandInfo.getEndpoint(), statusCode);
+            
+            // 建索引、删索引、映射变更后更新补全用的元数据缓存
+            metadataCache.onCommandExecuted(config, commandInfo.getMethod(), commandInfo.getEndpoint());
             
-            return ESExecutionResult.success(
-                response.getStatusLine().getStatusCode(), 
-                responseBody
-            );
+            return toResult(statusCode, body);
             
+        } catch (ESResponseException e) {
+            // ES 返回了非 2xx 响应
+            commandMetrics.record(config, commandInfo.getMethod(), commandInfo.getEndpoint(),
+                e.getStatusCode(), System.nanoTime() - startTime, 0);
+            logger.error("ES 命令执行失败: {}", e.getMessage(), e);
+            return errorResult(e.getStatusCode(), e.getMessage());
         } catch (Exception e) {
+            if (startTime > 0) {
+                // 请求已发出但未收到响应（超时、连接中断等）
+                commandMetrics.record(config, commandInfo.getMethod(), commandInfo.getEndpoint(),
+                    0, System.nanoTime() - startTime, 0);
+            }
             logger.error("ES 命令执行失败: {}", e.getMessage(), e);
             return ESExecutionResult.failure(e.getMessage());
         } finally {
-            if (client != null) {
-                try {
-                    client.close();
-                } catch (Exception e) {
-                    logger.error("关闭 ES 客户端失败", e);
-                }
+            if (lease != null) {
+                lease.close();
             }
         }
     }
     
     /**
-     * 解析命令
+     * 执行包含多条命令的脚本
+     * 连续的、互不依赖的搜索命令合并为一次 _msearch，其余命令按顺序单独执行
      */
-    private CommandInfo parseCommand(String command) {
-        String[] lines = command.trim().split("\n");
-        
-        if (lines.length == 0) {
-            throw new IllegalArgumentException("命令不能为空");
+    public ESBatchExecutionResult executeBatch(String script, ESConnectionConfig config) {
+        if (config == null) {
+            config = elasticsearchProperties.getDefault().toConnectionConfig("default");
         }
+        List<String> commands = ESCommandParser.splitScript(script);
+        ESExecutionResult[] results = new ESExecutionResult[commands.size()];
+        List<PendingSearch> group = new ArrayList<>();
+        int groupBytes = 0;
+        int roundTrips = 0;
         
-        // 第一行是方法和端点
-        String firstLine = lines[0].trim();
-        String[] parts = firstLine.split("\\s+", 2);
-        
-        if (parts.length < 2) {
-            throw new IllegalArgumentException("命令格式错误，应为: METHOD /endpoint");
-        }
-        
-        String method = parts[0].toUpperCase();
-        String endpoint = parts[1];
-        
-        // 剩余行是请求体
-        String body = null;
-        if (lines.length > 1) {
-            StringBuilder bodyBuilder = new StringBuilder();
-            for (int i = 1; i < lines.length; i++) {
-                bodyBuilder.append(lines[i]).append("\n");
+        for (int i = 0; i < commands.size(); i++) {
+            PendingSearch search = msearchEnabled ? toPendingSearch(i, commands.get(i)) : null;
+            if (search != null && group.size() < msearchMaxCommands
+                    && groupBytes + search.lines.length <= msearchMaxBytes) {
+                group.add(search);
+                groupBytes += search.lines.length;
+                continue;
+            }
+            // 非搜索命令可能修改数据，之前的搜索必须先执行
+            roundTrips += flushSearches(group, commands, results, config);
+            group.clear();
+            groupBytes = 0;
+            if (search != null) {
+                group.add(search);
+                groupBytes = search.lines.length;
+            } else {
+                results[i] = executeCommand(commands.get(i), config);
+                roundTrips++;
             }
-            body = bodyBuilder.toString().trim();
         }
+        roundTrips += flushSearches(group, commands, results, config);
         
-        return new CommandInfo(method, endpoint, body);
+        logger.info("ES 脚本执行完成: commands={}, roundTrips={}", commands.size(), roundTrips);
+        return new ESBatchExecutionResult(commands, Arrays.asList(results), roundTrips);
     }
     
     /**
-     * 创建 RestClient
+     * 执行累积的搜索，返回实际请求数
      */
-    private RestClient createRestClient(ESConnectionConfig config) {
-        HttpHost host = new HttpHost(
-            config.getHost(),
-            config.getPort(),
-            config.getScheme()
-        );
+    private int flushSearches(List<PendingSearch> group, List<String> commands,
+                              ESExecutionResult[] results, ESConnectionConfig config) {
+        if (group.isEmpty()) {
+            return 0;
+        }
+        if (group.size() == 1) {
+            int index = group.get(0).index;
+            results[index] = executeCommand(commands.get(index), config);
+            return 1;
+        }
+        if (executeMsearch(group, results, config)) {
+            return 1;
+        }
+        // _msearch 整体失败时逐条执行，以便得到每条命令自己的错误信息
+        for (PendingSearch search : group) {
+            results[search.index] = executeCommand(commands.get(search.index), config);
+        }
+        return group.size() + 1;
+    }
+    
+    /**
+     * 以一次 _msearch 请求执行一组搜索，并把 responses 拆回各条命令的结果
+     * @return _msearch 请求本身是否成功
+     */
+    private boolean executeMsearch(List<PendingSearch> group, ESExecutionResult[] results, ESConnectionConfig config) {
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        for (PendingSearch search : group) {
+            ndjson.writeBytes(search.lines);
+        }
+        byte[] body = ndjson.toByteArray();
         
-        RestClientBuilder builder = RestClient.builder(host);
+        ESRequest request = new ESRequest("POST", "/_msearch");
+        request.setEntity(body, ESRequest.NDJSON);
         
-        // 如果有用户名和密码，添加认证
-        if (config.getUsername() != null && !config.getUsername().isEmpty() &&
-            config.getPassword() != null && !config.getPassword().isEmpty()) {
+        ESClientFactory.Lease lease = null;
+        long startTime = System.nanoTime();
+        try {
+            lease = clientFactory.acquire(config);
+            ESResponse response = lease.transport().perform(request);
+            int statusCode = response.getStatusCode();
             
-            BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
-            credentialsProvider.setCredentials(
-                AuthScope.ANY,
-                new UsernamePasswordCredentials(config.getUsername(), config.getPassword())
-            );
+            long responseBytes;
+            int received = 0;
+            try (response;
+                 InputStream in = response.getContent();
+                 JsonParser parser = jsonFactory.createParser(in)) {
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.currentName();
+                        parser.nextToken();
+                        if ("responses".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                            while (parser.nextToken() == JsonToken.START_OBJECT && received < group.size()) {
+                                ObjectNode item = parser.readValueAsTree();
+                                results[group.get(received++).index] = toSearchResult(item);
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+                responseBytes = parser.currentLocation().getByteOffset();
+            }
             
-            builder.setHttpClientConfigCallback(httpClientBuilder ->
-                httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider)
-            );
+            commandMetrics.record(config, "POST", "/_msearch",
+                statusCode, System.nanoTime() - startTime, responseBytes);
+            
+            if (received < group.size()) {
+                logger.warn("_msearch 返回的结果数不足: expected={}, received={}", group.size(), received);
+                for (int i = received; i < group.size(); i++) {
+                    results[group.get(i).index] = ESExecutionResult.failure("_msearch 未返回该命令的结果");
+                }
+            }
+            logger.info("ES 搜索合并执行成功: searches={}, status={}", group.size(), statusCode);
+            return true;
+            
+        } catch (Exception e) {
+            // 任何失败（包括响应格式异常）都回退为逐条执行，由单条命令给出各自的结果
+            int statusCode = e instanceof ESResponseException responseException ? responseException.getStatusCode() : 0;
+            commandMetrics.record(config, "POST", "/_msearch",
+                statusCode, System.nanoTime() - startTime, 0);
+            logger.warn("_msearch 执行失败，改为逐条执行: {}", e.getMessage());
+            return false;
+        } finally {
+            if (lease != null) {
+                lease.close();
+            }
         }
-        
-        // 设置超时
-        builder.setRequestConfigCallback(requestConfigBuilder ->
-            requestConfigBuilder
-                .setConnectTimeout(5000)
-                .setSocketTimeout(60000)
-        );
-        
-        return builder.build();
     }
     
     /**
-     * 命令信息
+     * 将 _msearch 的单条响应转换为与单独执行一致的结果：成功结果同样经过落盘缓存，错误结果使用同样的格式
+     */
+    private ESExecutionResult toSearchResult(ObjectNode item) throws IOException {
+        int status = item.path("status").asInt(200);
+        // 单独执行 _search 时响应中没有 status 字段
+        item.remove("status");
+        if (item.has("error") || status >= 300) {
+            return errorResult(status, "status [" + status + "]\n" + objectMapper.writeValueAsString(item));
+        }
+        return toResult(status, resultSpool.read(objectMapper.writeValueAsBytes(item)));
+    }
+    
+    private ESExecutionResult toResult(int statusCode, ESResultSpool.Body body) {
+        if (body.isSpooled()) {
+            return ESExecutionResult.spooled(statusCode, body.getContent(), body.getHandle(),
+                body.getTotalBytes(), body.getHitCount());
+        }
+        return ESExecutionResult.success(statusCode, body.getContent());
+    }
+    
+    private ESExecutionResult errorResult(int statusCode, String message) {
+        ESExecutionResult result = ESExecutionResult.failure(message);
+        result.setStatusCode(statusCode);
+        return result;
+    }
+    
+    /**
+     * 判断命令能否合并进 _msearch：GET/POST {index}/_search、无查询参数、请求体为 JSON 对象；
+     * 可以合并时生成对应的 header 行和压缩为单行的 body 行
      */
-    private static class CommandInfo {
-        String method;
-        String endpoint;
-        String body;
+    private PendingSearch toPendingSearch(int index, String command) {
+        try {
+            ESCommandParser.ParsedCommand parsed = ESCommandParser.parse(command);
+            if (!"GET".equals(parsed.getMethod()) && !"POST".equals(parsed.getMethod())) {
+                return null;
+            }
+            String endpoint = parsed.getEndpoint();
+            if (endpoint.indexOf('?') >= 0) {
+                return null;
+            }
+            String path = endpoint.startsWith("/") ? endpoint.substring(1) : endpoint;
+            String target;
+            if (path.equals("_search")) {
+                target = null;
+            } else if (path.endsWith("/_search") && path.indexOf('/') == path.length() - "/_search".length()) {
+                target = path.substring(0, path.length() - "/_search".length());
+                if (target.indexOf('%') >= 0) {
+                    target = URLDecoder.decode(target, StandardCharsets.UTF_8);
+                }
+            } else {
+                return null;
+            }
+            
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            try (JsonGenerator generator = jsonFactory.createGenerator(lines)) {
+                generator.writeStartObject();
+                if (target != null) {
+                    generator.writeStringField("index", target);
+                }
+                generator.writeEndObject();
+            }
+            lines.write('\n');
+            if (parsed.hasBody()) {
+                // 逐个 token 复制，去掉换行和缩进
+                try (JsonParser parser = jsonFactory.createParser(parsed.getBody().toString());
+                     JsonGenerator generator = jsonFactory.createGenerator(lines)) {
+                    if (parser.nextToken() != JsonToken.START_OBJECT) {
+                        return null;
+                    }
+                    generator.copyCurrentStructure(parser);
+                    if (parser.nextToken() != null) {
+                        return null;
+                    }
+                }
+            } else {
+                lines.write('{');
+                lines.write('}');
+            }
+            lines.write('\n');
+            return new PendingSearch(index, lines.toByteArray());
+        } catch (Exception e) {
+            // 无法解析的命令单独执行，由 ES 返回具体错误
+            return null;
+        }
+    }
+    
+    /**
+     * 等待合并的搜索命令
+     */
+    private static class PendingSearch {
+        final int index;
+        final byte[] lines;
         
-        CommandInfo(String method, String endpoint, String body) {
-            this.method = method;
-            this.endpoint = endpoint;
-            this.body = body;
+        PendingSearch(int index, byte[] lines) {
+            this.index = index;
+            this.lines = lines;
         }
     }
 }
-
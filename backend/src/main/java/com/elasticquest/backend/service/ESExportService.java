@@ -0,0 +1,284 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.model.ESExportRequest;
+import com.elasticquest.backend.transport.ESRequest;
+import com.elasticquest.backend.transport.ESResponse;
+import com.elasticquest.backend.transport.ESTransport;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 索引导出服务
+ * 基于 point-in-time + search_after 分页，多个切片并行拉取，
+ * 每页命中写出后即释放，内存占用只与 切片数 × 分页大小 有关
+ */
+@Service
+public class ESExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ESExportService.class);
+
+    @Autowired
+    private ESClientFactory clientFactory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * 将索引中的文档以 NDJSON 形式写入输出流
+     * @return 导出的文档数
+     */
+    public long export(ESExportRequest request, OutputStream out) throws IOException {
+        ESClientFactory.Lease lease = clientFactory.acquire(request.getConnection());
+        ESTransport client = lease.transport();
+        String pitId = null;
+        try {
+            pitId = openPit(client, request);
+            logger.info("打开 PIT: index={}, slices={}", request.getIndex(), request.getSlices());
+
+            AtomicReference<String> currentPit = new AtomicReference<>(pitId);
+            AtomicBoolean cancelled = new AtomicBoolean(false);
+            AtomicLong exported = new AtomicLong();
+
+            // 切片开始执行前先认领；取消时未认领的切片不再执行，由取消方代为计数
+            int slices = request.getSlices();
+            AtomicBoolean[] claimed = new AtomicBoolean[slices];
+            CountDownLatch finished = new CountDownLatch(slices);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int slice = 0; slice < slices; slice++) {
+                int sliceId = slice;
+                claimed[slice] = new AtomicBoolean();
+                futures.add(executorService.submit(() -> {
+                    if (!claimed[sliceId].compareAndSet(false, true)) {
+                        return null;
+                    }
+                    try {
+                        exportSlice(client, request, sliceId, currentPit, cancelled, exported, out);
+                    } finally {
+                        finished.countDown();
+                    }
+                    return null;
+                }));
+            }
+
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                stopSlices(futures, claimed, finished, cancelled);
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException ioException) {
+                    throw ioException;
+                }
+                throw new IOException("导出失败: " + cause.getMessage(), cause);
+            } catch (InterruptedException e) {
+                stopSlices(futures, claimed, finished, cancelled);
+                Thread.currentThread().interrupt();
+                throw new IOException("导出被中断", e);
+            }
+
+            out.flush();
+            logger.info("索引导出完成: index={}, documents={}", request.getIndex(), exported.get());
+            return exported.get();
+
+        } finally {
+            if (pitId != null) {
+                closePit(client, pitId);
+            }
+            lease.close();
+        }
+    }
+
+    /**
+     * 取消所有切片并等待正在执行的切片退出，之后才能关闭 PIT 和归还客户端
+     * （Future.cancel 后 get 立即返回，不能用来等待）
+     */
+    private static void stopSlices(List<Future<?>> futures, AtomicBoolean[] claimed, CountDownLatch finished,
+                                   AtomicBoolean cancelled) {
+        cancelled.set(true);
+        for (int i = 0; i < futures.size(); i++) {
+            if (claimed[i].compareAndSet(false, true)) {
+                finished.countDown();
+                futures.get(i).cancel(false);
+            } else {
+                futures.get(i).cancel(true);
+            }
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                finished.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 导出单个切片
+     */
+    private void exportSlice(ESTransport client, ESExportRequest request, int sliceId,
+                             AtomicReference<String> currentPit, AtomicBoolean cancelled,
+                             AtomicLong exported, OutputStream out) throws IOException {
+        JsonNode searchAfter = null;
+        ByteArrayOutputStream page = new ByteArrayOutputStream();
+
+        while (!cancelled.get()) {
+            ESRequest search = new ESRequest("POST", "/_search");
+            search.addParameter("filter_path", "pit_id,hits.hits._index,hits.hits._id,hits.hits._source,hits.hits.sort");
+            search.setJsonEntity(buildSearchBody(request, sliceId, currentPit.get(), searchAfter));
+
+            page.reset();
+            PageResult result;
+            try (ESResponse response = client.perform(search);
+                 InputStream in = response.getContent()) {
+                result = readPage(in, page, currentPit);
+            }
+
+            if (result.count > 0) {
+                try {
+                    synchronized (out) {
+                        page.writeTo(out);
+                    }
+                } catch (IOException e) {
+                    // 客户端断开连接，通知其他切片停止
+                    cancelled.set(true);
+                    throw e;
+                }
+                exported.addAndGet(result.count);
+            }
+
+            if (result.count < request.getPageSize() || result.lastSort == null) {
+                break;
+            }
+            searchAfter = result.lastSort;
+        }
+    }
+
+    /**
+     * 流式读取一页响应，把每条命中写成一行 JSON
+     */
+    private PageResult readPage(InputStream in, ByteArrayOutputStream page,
+                                AtomicReference<String> currentPit) throws IOException {
+        PageResult result = new PageResult();
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return result;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("pit_id".equals(field)) {
+                    currentPit.set(parser.getText());
+                } else if ("hits".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String hitsField = parser.currentName();
+                        parser.nextToken();
+                        if ("hits".equals(hitsField) && parser.currentToken() == JsonToken.START_ARRAY) {
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                ObjectNode hit = parser.readValueAsTree();
+                                result.lastSort = hit.remove("sort");
+                                objectMapper.writeValue(page, hit);
+                                page.write('\n');
+                                result.count++;
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return result;
+    }
+
+    private String buildSearchBody(ESExportRequest request, int sliceId, String pitId, JsonNode searchAfter)
+            throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("size", request.getPageSize());
+        body.put("track_total_hits", false);
+
+        ObjectNode pit = body.putObject("pit");
+        pit.put("id", pitId);
+        pit.put("keep_alive", request.getKeepAlive());
+
+        body.putArray("sort").addObject().put("_shard_doc", "asc");
+
+        if (request.getQuery() != null && !request.getQuery().isBlank()) {
+            body.set("query", objectMapper.readTree(request.getQuery()));
+        }
+        if (request.getSlices() > 1) {
+            ObjectNode slice = body.putObject("slice");
+            slice.put("id", sliceId);
+            slice.put("max", request.getSlices());
+        }
+        if (searchAfter != null) {
+            body.set("search_after", searchAfter);
+        }
+        return objectMapper.writeValueAsString(body);
+    }
+
+    private String openPit(ESTransport client, ESExportRequest request) throws IOException {
+        ESRequest open = new ESRequest("POST", "/" + ESRequest.encodePathSegment(request.getIndex()) + "/_pit");
+        open.addParameter("keep_alive", request.getKeepAlive());
+        try (ESResponse response = client.perform(open)) {
+            JsonNode body = objectMapper.readTree(response.toByteArray());
+            return body.get("id").asText();
+        }
+    }
+
+    private void closePit(ESTransport client, String pitId) {
+        try {
+            ESRequest close = new ESRequest("DELETE", "/_pit");
+            ObjectNode body = objectMapper.createObjectNode();
+            body.put("id", pitId);
+            close.setJsonEntity(objectMapper.writeValueAsString(body));
+            client.perform(close).close();
+            logger.info("已关闭 PIT");
+        } catch (Exception e) {
+            logger.warn("关闭 PIT 失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 单页读取结果
+     */
+    private static class PageResult {
+        int count;
+        JsonNode lastSort;
+    }
+}
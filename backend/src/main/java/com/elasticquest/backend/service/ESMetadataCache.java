@@ -0,0 +1,338 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.config.ElasticsearchProperties;
+import com.elasticquest.backend.model.ESConnectionConfig;
+import com.elasticquest.backend.model.FieldSuggestion;
+import com.elasticquest.backend.transport.ESRequest;
+import com.elasticquest.backend.transport.ESResponse;
+import com.elasticquest.backend.transport.ESTransport;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 索引与字段元数据缓存（控制台自动补全）
+ * 每个连接缓存一份有序索引名集合和按索引表达式划分的字段前缀树，映射只在首次使用时拉取；
+ * 通过控制台执行的写命令涉及 _mapping、建索引、删索引时按索引增量失效；
+ * 缓存的连接数和每个连接的索引表达式数有上限，超出时淘汰最久未使用的
+ */
+@Service
+public class ESMetadataCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ESMetadataCache.class);
+
+    // 可能触发动态映射或自动建索引的写入
+    private static final Set<String> DOCUMENT_WRITES = Set.of(
+        "_doc", "_create", "_update", "_bulk", "_update_by_query"
+    );
+
+    // 会改变索引或别名集合的 API，涉及范围不易判断，整体失效
+    private static final Set<String> STRUCTURE_CHANGES = Set.of(
+        "_reindex", "_aliases", "_alias", "_rollover", "_clone", "_split", "_shrink",
+        "_open", "_close", "_data_stream", "_bulk"
+    );
+
+    private final ESClientFactory clientFactory;
+    private final ElasticsearchProperties properties;
+    private final long ttlMillis;
+    private final int maxConnections;
+    private final int maxCatalogs;
+
+    private final Map<String, ConnectionMetadata> connections = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public ESMetadataCache(ESClientFactory clientFactory, ElasticsearchProperties properties,
+                           @Value("${elasticsearch.metadata.ttl-ms:300000}") long ttlMillis,
+                           @Value("${elasticsearch.metadata.max-connections:100}") int maxConnections,
+                           @Value("${elasticsearch.metadata.max-catalogs:200}") int maxCatalogs) {
+        this.clientFactory = clientFactory;
+        this.properties = properties;
+        this.ttlMillis = ttlMillis;
+        this.maxConnections = maxConnections;
+        this.maxCatalogs = maxCatalogs;
+    }
+
+    /**
+     * 按前缀查找索引名和别名
+     */
+    public List<String> findIndices(ESConnectionConfig config, String prefix, int limit) throws IOException {
+        config = resolve(config);
+        ConnectionMetadata metadata = metadata(config);
+        loadIndexNames(config, metadata);
+
+        String start = prefix == null ? "" : prefix;
+        List<String> names = new ArrayList<>();
+        for (String name : metadata.indexNames.tailSet(start, true)) {
+            if (!name.startsWith(start) || names.size() >= limit) {
+                break;
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    /**
+     * 按前缀查找索引（支持通配符、逗号分隔和别名）中的字段
+     */
+    public List<FieldSuggestion> findFields(ESConnectionConfig config, String index, String prefix, int limit)
+            throws IOException {
+        if (index == null || index.isBlank()) {
+            throw new IllegalArgumentException("索引不能为空");
+        }
+        config = resolve(config);
+        ConnectionMetadata metadata = metadata(config);
+
+        FieldCatalog catalog = metadata.catalogs.get(index);
+        if (catalog == null || System.currentTimeMillis() - catalog.loadedAt > ttlMillis) {
+            catalog = loadCatalog(config, index);
+            if (!metadata.catalogs.containsKey(index) && metadata.catalogs.size() >= maxCatalogs) {
+                evictOldest(metadata.catalogs);
+            }
+            metadata.catalogs.put(index, catalog);
+        }
+        catalog.lastAccess = System.nanoTime();
+
+        List<FieldSuggestion> fields = new ArrayList<>();
+        catalog.fields.find(prefix == null ? "" : prefix, limit, fields);
+        return fields;
+    }
+
+    /**
+     * 控制台命令执行成功后调用，根据命令失效受影响的元数据
+     */
+    public void onCommandExecuted(ESConnectionConfig config, String method, String endpoint) {
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            return;
+        }
+        ConnectionMetadata metadata = connections.get(ESClientFactory.connectionKey(config));
+        if (metadata == null) {
+            return;
+        }
+
+        int queryStart = endpoint.indexOf('?');
+        String path = queryStart >= 0 ? endpoint.substring(0, queryStart) : endpoint;
+        String[] segments = path.startsWith("/") ? path.substring(1).split("/") : path.split("/");
+        if (segments.length == 0 || segments[0].isEmpty()) {
+            return;
+        }
+
+        String target = segments[0];
+        if (target.startsWith("_")) {
+            if (STRUCTURE_CHANGES.contains(target)) {
+                metadata.reset();
+            }
+            return;
+        }
+
+        if (segments.length == 1) {
+            if ("PUT".equals(method)) {
+                indexCreated(metadata, target);
+            } else if ("DELETE".equals(method)) {
+                indexDeleted(metadata, target);
+            }
+        } else if ("_mapping".equals(segments[1])) {
+            fieldsChanged(metadata, target);
+        } else if (DOCUMENT_WRITES.contains(segments[1])) {
+            // 写入不存在的索引会自动建索引，新字段会触发动态映射
+            if (metadata.indexNamesLoadedAt != 0 && !isExpression(target) && !metadata.indexNames.contains(target)) {
+                indexCreated(metadata, target);
+            }
+            fieldsChanged(metadata, target);
+        } else if (STRUCTURE_CHANGES.contains(segments[1])) {
+            metadata.reset();
+        }
+    }
+
+    /**
+     * 清空连接的元数据缓存
+     */
+    public void invalidate(ESConnectionConfig config) {
+        connections.remove(ESClientFactory.connectionKey(resolve(config)));
+    }
+
+    private void indexCreated(ConnectionMetadata metadata, String index) {
+        if (metadata.indexNamesLoadedAt != 0) {
+            metadata.indexNames.add(index);
+        }
+        // 新索引可能匹配已缓存的通配符表达式
+        metadata.catalogs.keySet().removeIf(expression -> expression.equals(index) || isExpression(expression));
+        logger.debug("元数据缓存: 新建索引 {}", index);
+    }
+
+    private void indexDeleted(ConnectionMetadata metadata, String index) {
+        if (isExpression(index)) {
+            metadata.indexNamesLoadedAt = 0;
+        } else {
+            metadata.indexNames.remove(index);
+        }
+        metadata.catalogs.entrySet().removeIf(entry -> entry.getKey().equals(index)
+            || isExpression(entry.getKey()) || isExpression(index) || entry.getValue().indices.contains(index));
+        logger.debug("元数据缓存: 删除索引 {}", index);
+    }
+
+    private void fieldsChanged(ConnectionMetadata metadata, String index) {
+        metadata.catalogs.entrySet().removeIf(entry -> entry.getKey().equals(index)
+            || isExpression(index) || entry.getValue().indices.contains(index));
+        logger.debug("元数据缓存: 映射变更 {}", index);
+    }
+
+    private static boolean isExpression(String index) {
+        return index.indexOf('*') >= 0 || index.indexOf(',') >= 0 || "_all".equals(index);
+    }
+
+    private ESConnectionConfig resolve(ESConnectionConfig config) {
+        return config != null ? config : properties.getDefault().toConnectionConfig("default");
+    }
+
+    private ConnectionMetadata metadata(ESConnectionConfig config) {
+        String key = ESClientFactory.connectionKey(config);
+        if (!connections.containsKey(key) && connections.size() >= maxConnections) {
+            connections.entrySet().stream()
+                .min(Comparator.comparingLong(entry -> entry.getValue().lastAccess))
+                .ifPresent(entry -> connections.remove(entry.getKey(), entry.getValue()));
+        }
+        ConnectionMetadata metadata = connections.computeIfAbsent(key, k -> new ConnectionMetadata());
+        metadata.lastAccess = System.nanoTime();
+        return metadata;
+    }
+
+    private static void evictOldest(Map<String, FieldCatalog> catalogs) {
+        catalogs.entrySet().stream()
+            .min(Comparator.comparingLong(entry -> entry.getValue().lastAccess))
+            .ifPresent(entry -> catalogs.remove(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * 拉取索引名和别名（_cat 纯文本输出，只取名称列）
+     */
+    private void loadIndexNames(ESConnectionConfig config, ConnectionMetadata metadata) throws IOException {
+        if (metadata.indexNamesLoadedAt != 0 && System.currentTimeMillis() - metadata.indexNamesLoadedAt <= ttlMillis) {
+            return;
+        }
+        synchronized (metadata) {
+            if (metadata.indexNamesLoadedAt != 0
+                    && System.currentTimeMillis() - metadata.indexNamesLoadedAt <= ttlMillis) {
+                return;
+            }
+            Set<String> names = new HashSet<>();
+            try (ESClientFactory.Lease lease = clientFactory.acquire(config)) {
+                readLines(lease.transport(), "/_cat/indices", "index", names);
+                readLines(lease.transport(), "/_cat/aliases", "alias", names);
+            }
+            metadata.indexNames.retainAll(names);
+            metadata.indexNames.addAll(names);
+            metadata.indexNamesLoadedAt = System.currentTimeMillis();
+            logger.info("元数据缓存: 加载索引名 {} 个, url={}", names.size(), config.getFullUrl());
+        }
+    }
+
+    private void readLines(ESTransport client, String endpoint, String column, Set<String> names) throws IOException {
+        ESRequest request = new ESRequest("GET", endpoint);
+        request.addParameter("h", column);
+        try (ESResponse response = client.perform(request);
+             BufferedReader reader = new BufferedReader(
+                 new InputStreamReader(response.getContent(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String name = line.trim();
+                if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+        }
+    }
+
+    /**
+     * 拉取映射并构建字段前缀树；响应按索引逐个读取，不整体解析
+     */
+    private FieldCatalog loadCatalog(ESConnectionConfig config, String index) throws IOException {
+        FieldTrie fields = new FieldTrie();
+        Set<String> indices = new HashSet<>();
+        try (ESClientFactory.Lease lease = clientFactory.acquire(config)) {
+            ESRequest request = new ESRequest("GET", "/" + ESRequest.encodePathSegment(index) + "/_mapping");
+            request.addParameter("filter_path", "*.mappings.properties");
+            try (ESResponse response = lease.transport().perform(request);
+                 InputStream in = response.getContent();
+                 JsonParser parser = objectMapper.getFactory().createParser(in)) {
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        indices.add(parser.currentName());
+                        parser.nextToken();
+                        JsonNode mapping = parser.readValueAsTree();
+                        addProperties(fields, "", mapping.path("mappings").path("properties"));
+                    }
+                }
+            }
+        }
+        logger.info("元数据缓存: 加载映射 index={}, indices={}, fields={}", index, indices.size(), fields.size());
+        return new FieldCatalog(fields, indices);
+    }
+
+    private void addProperties(FieldTrie fields, String parent, JsonNode properties) {
+        for (Map.Entry<String, JsonNode> entry : properties.properties()) {
+            String path = parent + entry.getKey();
+            JsonNode field = entry.getValue();
+            fields.add(path, field.path("type").asText(field.has("properties") ? "object" : "unknown"));
+            if (field.has("properties")) {
+                addProperties(fields, path + ".", field.get("properties"));
+            }
+            // 多字段，如 title.keyword
+            for (Map.Entry<String, JsonNode> multiField : field.path("fields").properties()) {
+                fields.add(path + "." + multiField.getKey(), multiField.getValue().path("type").asText("unknown"));
+            }
+        }
+    }
+
+    /**
+     * 单个连接的元数据
+     */
+    private static class ConnectionMetadata {
+
+        final NavigableSet<String> indexNames = new ConcurrentSkipListSet<>();
+        volatile long indexNamesLoadedAt; // 0 表示需要重新加载
+        volatile long lastAccess = System.nanoTime(); // 只用于比较先后
+        // key 为请求时的索引表达式
+        final Map<String, FieldCatalog> catalogs = new ConcurrentHashMap<>();
+
+        void reset() {
+            indexNamesLoadedAt = 0;
+            catalogs.clear();
+        }
+    }
+
+    /**
+     * 索引表达式对应的字段集合
+     */
+    private static class FieldCatalog {
+
+        final FieldTrie fields;
+        final Set<String> indices; // 表达式解析出的具体索引
+        final long loadedAt = System.currentTimeMillis();
+        volatile long lastAccess = System.nanoTime(); // 只用于比较先后
+
+        FieldCatalog(FieldTrie fields, Set<String> indices) {
+            this.fields = fields;
+            this.indices = indices;
+        }
+    }
+}
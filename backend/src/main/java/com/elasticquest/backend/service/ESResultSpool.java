@@ -0,0 +1,680 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.transport.ESResponse;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 大结果落盘缓存
+ * 超过阈值的响应在读取的同时写入临时文件并记录顶层字段和每条命中的字节偏移，
+ * 控制台只拿到摘要和第一页命中，其余内容按命中区间或 JSON Pointer 从文件中定位读取
+ */
+@Component
+public class ESResultSpool {
+
+    private static final Logger logger = LoggerFactory.getLogger(ESResultSpool.class);
+
+    // 单次区间读取的最大命中数
+    private static final int MAX_HITS_PER_PAGE = 500;
+
+    private final Path directory;
+    private final Path lockFile;
+    private final FileChannel lockChannel;
+    private final int thresholdBytes;
+    private final int firstPageHits;
+    private final long ttlMillis;
+    private final long maxDiskBytes;
+
+    private final Map<String, SpooledResult> results = new ConcurrentHashMap<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final JsonFactory jsonFactory = new JsonFactory()
+        .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    public ESResultSpool(@Value("${elasticsearch.spool.directory:}") String directory,
+                         @Value("${elasticsearch.spool.threshold-bytes:1048576}") int thresholdBytes,
+                         @Value("${elasticsearch.spool.first-page-hits:20}") int firstPageHits,
+                         @Value("${elasticsearch.spool.ttl-ms:600000}") long ttlMillis,
+                         @Value("${elasticsearch.spool.max-disk-bytes:536870912}") long maxDiskBytes) throws IOException {
+        Path base = directory == null || directory.isBlank()
+            ? Paths.get(System.getProperty("java.io.tmpdir"), "elasticquest-results")
+            : Paths.get(directory);
+        this.thresholdBytes = thresholdBytes;
+        this.firstPageHits = firstPageHits;
+        this.ttlMillis = ttlMillis;
+        this.maxDiskBytes = maxDiskBytes;
+
+        // 目录可能被多个进程共用：每个进程使用独立子目录并在运行期间锁住同名 .lock 文件，
+        // 只清理锁已释放（进程已退出）的子目录
+        Files.createDirectories(base);
+        removeAbandoned(base);
+        String name = UUID.randomUUID().toString().replace("-", "");
+        this.lockFile = base.resolve(name + ".lock");
+        this.lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        lockChannel.lock();
+        this.directory = Files.createDirectories(base.resolve(name));
+    }
+
+    /**
+     * 删除已退出进程遗留的子目录
+     */
+    private static void removeAbandoned(Path base) throws IOException {
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(base, Files::isDirectory)) {
+            for (Path child : children) {
+                Path lock = base.resolve(child.getFileName() + ".lock");
+                try (FileChannel channel = FileChannel.open(lock, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                     FileLock held = channel.tryLock()) {
+                    if (held == null) {
+                        continue;
+                    }
+                    deleteTree(child);
+                    Files.deleteIfExists(lock);
+                } catch (OverlappingFileLockException e) {
+                    // 本进程内的其他实例正在使用
+                } catch (IOException e) {
+                    logger.warn("清理遗留结果目录失败: {}", child, e);
+                }
+            }
+        }
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * 读取响应体：不超过阈值时原样返回，否则落盘并返回摘要
+     */
+    public Body read(ESResponse response) throws IOException {
+        try (InputStream in = response.getContent()) {
+            byte[] prefix = in.readNBytes(thresholdBytes + 1);
+            if (prefix.length <= thresholdBytes) {
+                return Body.inline(new String(prefix, StandardCharsets.UTF_8), prefix.length);
+            }
+            return spool(new SequenceInputStream(new ByteArrayInputStream(prefix), in));
+        }
+    }
+
+    /**
+     * 读取已在内存中的响应体（如 _msearch 拆出的单条结果），规则与 read(ESResponse) 相同
+     */
+    public Body read(byte[] content) throws IOException {
+        if (content.length <= thresholdBytes) {
+            return Body.inline(new String(content, StandardCharsets.UTF_8), content.length);
+        }
+        return spool(new ByteArrayInputStream(content));
+    }
+
+    /**
+     * 读取命中区间，返回 JSON 数组（直接拷贝原始字节）
+     */
+    public String readHits(String handle, int from, int size) throws IOException {
+        SpooledResult result = get(handle);
+        if (!result.indexed) {
+            throw new IllegalArgumentException("结果不是 JSON，只能按字节区间读取");
+        }
+        if (from < 0 || from >= result.hitCount) {
+            return "[]";
+        }
+        int to = Math.min(result.hitCount, from + Math.max(1, Math.min(size, MAX_HITS_PER_PAGE)));
+        // 超过单次读取上限时减少命中数，至少返回一条
+        while (to - from > 1 && result.hitEnds[to - 1] - result.hitStarts[from] > thresholdBytes) {
+            to = from + (to - from) / 2;
+        }
+        // 相邻命中之间只有逗号和空白，整段拷贝即为合法的数组内容
+        return "[" + readString(result, result.hitStarts[from], result.hitEnds[to - 1]) + "]";
+    }
+
+    /**
+     * 按 JSON Pointer（如 /aggregations/by_tag/buckets/0）读取结果中的片段
+     */
+    public String readPath(String handle, String pointer) throws IOException {
+        SpooledResult result = get(handle);
+        if (!result.indexed) {
+            throw new IllegalArgumentException("结果不是 JSON，只能按字节区间读取");
+        }
+        JsonPointer path = JsonPointer.compile(pointer);
+
+        // 从最近的已记录偏移开始解析：命中 > hits 子字段 > 顶层字段
+        long anchor;
+        long anchorEnd;
+        if (path.matchesProperty("hits") && path.tail().matchesProperty("hits")
+                && path.tail().tail().getMatchingIndex() >= 0) {
+            int index = path.tail().tail().getMatchingIndex();
+            if (index >= result.hitCount) {
+                throw new IllegalArgumentException("路径不存在: " + pointer);
+            }
+            anchor = result.hitStarts[index];
+            anchorEnd = result.hitEnds[index];
+            path = path.tail().tail().tail();
+        } else if (path.matchesProperty("hits") && result.hitsFields.containsKey(path.tail().getMatchingProperty())) {
+            Span span = result.hitsFields.get(path.tail().getMatchingProperty());
+            anchor = span.start;
+            anchorEnd = span.end;
+            path = path.tail().tail();
+        } else if (!path.matches() && result.fields.containsKey(path.getMatchingProperty())) {
+            Span span = result.fields.get(path.getMatchingProperty());
+            anchor = span.start;
+            anchorEnd = span.end;
+            path = path.tail();
+        } else if (path.matches()) {
+            anchor = 0;
+            anchorEnd = result.size;
+        } else {
+            throw new IllegalArgumentException("路径不存在: " + pointer);
+        }
+
+        Span target = locate(result, anchor, anchorEnd, path);
+        if (target == null) {
+            throw new IllegalArgumentException("路径不存在: " + pointer);
+        }
+        if (target.length() > thresholdBytes) {
+            throw new IllegalArgumentException("片段过大（" + target.length() + " 字节），请指定更深的路径或按命中区间读取");
+        }
+        return readString(result, target.start, target.end);
+    }
+
+    /**
+     * 按字节区间读取原始内容（用于非 JSON 响应）
+     */
+    public String readRaw(String handle, long offset, int length) throws IOException {
+        SpooledResult result = get(handle);
+        long start = Math.max(0, Math.min(offset, result.size));
+        long end = Math.min(result.size, start + Math.max(0, Math.min(length, thresholdBytes)));
+        return readString(result, start, end);
+    }
+
+    /**
+     * 删除缓存的结果
+     */
+    public boolean remove(String handle) {
+        SpooledResult result = results.remove(handle);
+        if (result == null) {
+            return false;
+        }
+        delete(result.file, result.size);
+        return true;
+    }
+
+    /**
+     * 清理过期结果
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        results.values().removeIf(result -> {
+            if (now - result.lastAccess > ttlMillis) {
+                delete(result.file, result.size);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @PreDestroy
+    public void clear() {
+        results.values().forEach(result -> delete(result.file, result.size));
+        results.clear();
+        try {
+            deleteTree(directory);
+            lockChannel.close();
+            Files.deleteIfExists(lockFile);
+        } catch (IOException e) {
+            logger.warn("删除结果目录失败: {}", directory, e);
+        }
+    }
+
+    /**
+     * 边读边写入临时文件，同时在同一字节流上解析并记录偏移
+     */
+    private Body spool(InputStream in) throws IOException {
+        String handle = UUID.randomUUID().toString().replace("-", "");
+        Path file = directory.resolve(handle + ".spool");
+        SpooledResult result = new SpooledResult(handle, file);
+        QuotaOutputStream fileOut = new QuotaOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+        try {
+            try (fileOut; InputStream tee = new TeeInputStream(in, fileOut)) {
+                index(tee, result);
+                // 解析器未读取的剩余内容（或解析失败后的部分）继续写入文件
+                tee.transferTo(OutputStream.nullOutputStream());
+            }
+        } catch (IOException | RuntimeException e) {
+            delete(file, fileOut.written);
+            throw e;
+        }
+
+        result.size = fileOut.written;
+        results.put(handle, result);
+        logger.info("响应已落盘: handle={}, bytes={}, hits={}", handle, result.size, result.hitCount);
+
+        return Body.spooled(buildSummary(result), handle, result.size, result.indexed ? result.hitCount : null);
+    }
+
+    /**
+     * 流式解析，只记录顶层字段、hits 子字段和每条命中的字节区间
+     */
+    private void index(InputStream in, SpooledResult result) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                long start = tokenStart(parser);
+                if ("hits".equals(field) && token == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String hitsField = parser.currentName();
+                        if (parser.nextToken() == JsonToken.START_ARRAY && "hits".equals(hitsField)) {
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                long hitStart = tokenStart(parser);
+                                parser.skipChildren();
+                                result.addHit(hitStart, valueEnd(parser));
+                            }
+                        } else {
+                            long fieldStart = tokenStart(parser);
+                            parser.skipChildren();
+                            result.hitsFields.put(hitsField, new Span(fieldStart, valueEnd(parser)));
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+                result.fields.put(field, new Span(start, valueEnd(parser)));
+            }
+            result.indexed = true;
+        } catch (JsonProcessingException e) {
+            // 非 JSON 响应（如 _cat），只保留原始字节
+            logger.debug("落盘结果不是 JSON: {}", e.getOriginalMessage());
+            result.fields.clear();
+            result.hitsFields.clear();
+            result.hitCount = 0;
+        }
+    }
+
+    /**
+     * 构建摘要：小字段原样保留，大字段替换为占位信息，hits.hits 只保留第一页
+     */
+    private String buildSummary(SpooledResult result) throws IOException {
+        if (!result.indexed) {
+            return readString(result, 0, Math.min(result.size, firstPageBytes()));
+        }
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+            generator.writeStartObject();
+            for (Map.Entry<String, Span> field : result.fields.entrySet()) {
+                generator.writeFieldName(field.getKey());
+                if ("hits".equals(field.getKey()) && (result.hitCount > 0 || !result.hitsFields.isEmpty())) {
+                    generator.writeStartObject();
+                    for (Map.Entry<String, Span> hitsField : result.hitsFields.entrySet()) {
+                        generator.writeFieldName(hitsField.getKey());
+                        writeFieldValue(generator, result, hitsField.getValue());
+                    }
+                    generator.writeFieldName("hits");
+                    generator.writeRawValue(result.hitCount == 0 ? "[]" : readHits(result.handle, 0, firstPageHits));
+                    generator.writeEndObject();
+                } else {
+                    writeFieldValue(generator, result, field.getValue());
+                }
+            }
+            generator.writeEndObject();
+        }
+        return writer.toString();
+    }
+
+    private void writeFieldValue(JsonGenerator generator, SpooledResult result, Span span) throws IOException {
+        if (span.length() <= firstPageBytes()) {
+            generator.writeRawValue(readString(result, span.start, span.end));
+        } else {
+            // 过大的字段需通过 JSON Pointer 单独读取
+            generator.writeStartObject();
+            generator.writeBooleanField("_spooled", true);
+            generator.writeNumberField("bytes", span.length());
+            generator.writeEndObject();
+        }
+    }
+
+    private int firstPageBytes() {
+        return Math.max(1024, thresholdBytes / 16);
+    }
+
+    /**
+     * 从锚点开始流式解析，跳过无关子树直到定位到目标值
+     */
+    private Span locate(SpooledResult result, long anchor, long anchorEnd, JsonPointer path) throws IOException {
+        try (FileChannel channel = FileChannel.open(result.file, StandardOpenOption.READ);
+             InputStream in = Channels.newInputStream(channel.position(anchor));
+             JsonParser parser = jsonFactory.createParser(new BoundedInputStream(in, anchorEnd - anchor))) {
+            JsonToken token = parser.nextToken();
+            while (!path.matches()) {
+                if (token == JsonToken.START_OBJECT) {
+                    String property = path.getMatchingProperty();
+                    token = null;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        boolean match = parser.currentName().equals(property);
+                        JsonToken value = parser.nextToken();
+                        if (match) {
+                            token = value;
+                            break;
+                        }
+                        parser.skipChildren();
+                    }
+                } else if (token == JsonToken.START_ARRAY && path.getMatchingIndex() >= 0) {
+                    int index = path.getMatchingIndex();
+                    int current = 0;
+                    token = null;
+                    JsonToken value;
+                    while ((value = parser.nextToken()) != JsonToken.END_ARRAY && value != null) {
+                        if (current++ == index) {
+                            token = value;
+                            break;
+                        }
+                        parser.skipChildren();
+                    }
+                } else {
+                    return null;
+                }
+                if (token == null) {
+                    return null;
+                }
+                path = path.tail();
+            }
+            long start = anchor + tokenStart(parser);
+            parser.skipChildren();
+            return new Span(start, anchor + valueEnd(parser));
+        }
+    }
+
+    private SpooledResult get(String handle) {
+        SpooledResult result = results.get(handle);
+        if (result == null) {
+            throw new IllegalArgumentException("结果不存在或已过期: " + handle);
+        }
+        result.lastAccess = System.currentTimeMillis();
+        return result;
+    }
+
+    private String readString(SpooledResult result, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        try (FileChannel channel = FileChannel.open(result.file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        }
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    private static long tokenStart(JsonParser parser) {
+        return parser.currentTokenLocation().getByteOffset();
+    }
+
+    /**
+     * 当前值结束后的字节偏移：容器取结束符之后，标量取读完之后的位置
+     */
+    private static long valueEnd(JsonParser parser) throws IOException {
+        if (parser.currentToken().isStructEnd()) {
+            return parser.currentTokenLocation().getByteOffset() + 1;
+        }
+        parser.finishToken();
+        return parser.currentLocation().getByteOffset();
+    }
+
+    /**
+     * 占用磁盘配额，超出时按最久未访问淘汰其他结果
+     */
+    private void reserve(long bytes) throws IOException {
+        while (usedBytes.addAndGet(bytes) > maxDiskBytes) {
+            usedBytes.addAndGet(-bytes);
+            SpooledResult oldest = results.values().stream()
+                .min(Comparator.comparingLong(r -> r.lastAccess))
+                .orElse(null);
+            if (oldest == null) {
+                throw new IOException("响应超过结果缓存的磁盘配额（" + maxDiskBytes + " 字节）");
+            }
+            if (results.remove(oldest.handle, oldest)) {
+                logger.info("磁盘配额不足，淘汰落盘结果: handle={}, bytes={}", oldest.handle, oldest.size);
+                delete(oldest.file, oldest.size);
+            }
+        }
+    }
+
+    private void delete(Path file, long size) {
+        usedBytes.addAndGet(-size);
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("删除落盘结果失败: {}", file, e);
+        }
+    }
+
+    /**
+     * 读取结果
+     */
+    public static class Body {
+
+        private String content;
+        private String handle;
+        private long totalBytes;
+        private Integer hitCount;
+
+        static Body inline(String content, long totalBytes) {
+            Body body = new Body();
+            body.content = content;
+            body.totalBytes = totalBytes;
+            return body;
+        }
+
+        static Body spooled(String summary, String handle, long totalBytes, Integer hitCount) {
+            Body body = inline(summary, totalBytes);
+            body.handle = handle;
+            body.hitCount = hitCount;
+            return body;
+        }
+
+        public boolean isSpooled() {
+            return handle != null;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public String getHandle() {
+            return handle;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public Integer getHitCount() {
+            return hitCount;
+        }
+    }
+
+    /**
+     * 落盘结果及其偏移索引
+     */
+    private static class SpooledResult {
+
+        final String handle;
+        final Path file;
+        final Map<String, Span> fields = new LinkedHashMap<>();
+        final Map<String, Span> hitsFields = new LinkedHashMap<>();
+        long[] hitStarts = new long[64];
+        long[] hitEnds = new long[64];
+        int hitCount;
+        boolean indexed;
+        long size;
+        volatile long lastAccess = System.currentTimeMillis();
+
+        SpooledResult(String handle, Path file) {
+            this.handle = handle;
+            this.file = file;
+        }
+
+        void addHit(long start, long end) {
+            if (hitCount == hitStarts.length) {
+                hitStarts = Arrays.copyOf(hitStarts, hitCount * 2);
+                hitEnds = Arrays.copyOf(hitEnds, hitCount * 2);
+            }
+            hitStarts[hitCount] = start;
+            hitEnds[hitCount] = end;
+            hitCount++;
+        }
+    }
+
+    /**
+     * 字节区间 [start, end)
+     */
+    private static class Span {
+
+        final long start;
+        final long end;
+
+        Span(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        long length() {
+            return end - start;
+        }
+    }
+
+    /**
+     * 读取时把读到的字节同步写入输出流
+     */
+    private static class TeeInputStream extends FilterInputStream {
+
+        private final OutputStream out;
+
+        TeeInputStream(InputStream in, OutputStream out) {
+            super(in);
+            this.out = out;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                out.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                out.write(b, off, n);
+            }
+            return n;
+        }
+    }
+
+    /**
+     * 限制读取长度
+     */
+    private static class BoundedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            remaining--;
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+    }
+
+    /**
+     * 写入时占用磁盘配额
+     */
+    private class QuotaOutputStream extends FilterOutputStream {
+
+        long written;
+
+        QuotaOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            reserve(1);
+            written++;
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            reserve(len);
+            written += len;
+            out.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.model.ExamProgress;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 考试进度存储
+ * ExamService 在内存中维护进度并在每次变更后调用 save/delete，
+ * 实现可以异步落盘，但需保证同一用户的变更按调用顺序生效
+ */
+public interface ExamProgressStore {
+
+    /**
+     * exam.store.type 的取值
+     */
+    String MEMORY = "memory";
+    String LOCAL = "local";
+
+    /**
+     * 启动时加载全部进度，key 为 userId
+     */
+    Map<String, ExamProgress> loadAll() throws IOException;
+
+    /**
+     * 保存用户进度（整体覆盖）；progress 是只读快照，实现可以在之后异步序列化
+     */
+    void save(ExamProgress progress);
+
+    /**
+     * 删除用户进度
+     */
+    void delete(String userId);
+
+    /**
+     * 等待此前的 save/delete 全部持久化
+     */
+    void flush() throws IOException;
+
+    /**
+     * 实现名称
+     */
+    String name();
+}
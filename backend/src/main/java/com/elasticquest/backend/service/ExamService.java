@@ -3,26 +3,136 @@ package com.elasticquest.backend.service;
 import com.elasticquest.backend.model.ChallengeSubmission;
 import com.elasticquest.backend.model.ChallengeValidationResult;
 import com.elasticquest.backend.model.ExamProgress;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 /**
  * ES认证考试学习服务
+ * 进度在内存中读写，每次变更后交给 ExamProgressStore 异步持久化，启动时从存储恢复。
+ * map 中的进度是只读快照：变更在按 userId 分段的锁内复制当前快照、修改副本后整体替换，
+ * 读取方直接拿到快照，不加锁也不会看到改了一半的进度
  */
 @Service
 public class ExamService {
 
-    // 简单的内存存储，实际应该使用数据库
+    private static final Logger logger = LoggerFactory.getLogger(ExamService.class);
+
+    private static final int LOCK_STRIPES = 256;
+
+    // 最高分达到该分数的挑战计为通过
+    private static final int PASSING_SCORE = 60;
+    // 类别至少有这么多挑战才参与擅长/薄弱判断
+    private static final int MIN_CATEGORY_CHALLENGES = 3;
+    private static final int STRONG_SUCCESS_RATE = 80;
+    private static final int WEAK_SUCCESS_RATE = 50;
+
     private final Map<String, ExamProgress> userProgressMap = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final ExamProgressStore progressStore;
+
+    public ExamService(ExamProgressStore progressStore) {
+        this.progressStore = progressStore;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * 从存储加载已有进度
+     */
+    @PostConstruct
+    public void loadProgress() throws IOException {
+        progressStore.loadAll().forEach((userId, progress) -> {
+            if (progress.getStats().getCategories() == null) {
+                // 早于增量统计保存的进度，汇总值只在加载时重算一次
+                rebuildStats(progress);
+            }
+            userProgressMap.put(userId, freeze(progress));
+        });
+        logger.info("已加载考试进度 {} 个用户, store={}", userProgressMap.size(), progressStore.name());
+    }
 
     /**
-     * 获取用户进度
+     * 获取用户进度（只读快照）
      */
     public ExamProgress getUserProgress(String userId) {
-        return userProgressMap.computeIfAbsent(userId, k -> createInitialProgress(userId));
+        return userProgressMap.computeIfAbsent(userId, k -> freeze(createInitialProgress(userId)));
+    }
+
+    /**
+     * 在用户的锁内修改进度副本，mutation 返回 true 时发布新快照并持久化
+     * @return 更新后的快照，未变更时为当前快照
+     */
+    private ExamProgress update(String userId, Predicate<ExamProgress> mutation) {
+        synchronized (lockFor(userId)) {
+            ExamProgress current = getUserProgress(userId);
+            ExamProgress next = copy(current);
+            if (!mutation.test(next)) {
+                return current;
+            }
+            freeze(next);
+            userProgressMap.put(userId, next);
+            // 在锁内提交，同一用户的快照按发布顺序落盘
+            progressStore.save(next);
+            return next;
+        }
+    }
+
+    private Object lockFor(String userId) {
+        int hash = userId.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * 复制快照得到可修改的进度；挑战结果和类别汇总是持久化映射，修改时替换为新映射，这里只共享引用
+     */
+    private static ExamProgress copy(ExamProgress source) {
+        ExamProgress progress = new ExamProgress();
+        progress.setUserId(source.getUserId());
+        progress.setCompletedTopics(new ArrayList<>(source.getCompletedTopics()));
+        progress.setCompletedChallenges(source.getCompletedChallenges());
+        progress.setCompletedLevels(new ArrayList<>(source.getCompletedLevels()));
+        progress.setAchievements(new ArrayList<>(source.getAchievements()));
+        progress.setLevel(source.getLevel());
+        progress.setTotalExperience(source.getTotalExperience());
+        progress.setCurrentTitle(source.getCurrentTitle());
+
+        ExamProgress.ExamStats sourceStats = source.getStats();
+        ExamProgress.ExamStats stats = new ExamProgress.ExamStats();
+        stats.setTotalStudyTime(sourceStats.getTotalStudyTime());
+        stats.setTotalChallenges(sourceStats.getTotalChallenges());
+        stats.setSuccessRate(sourceStats.getSuccessRate());
+        stats.setStrongCategories(new ArrayList<>(sourceStats.getStrongCategories()));
+        stats.setWeakCategories(new ArrayList<>(sourceStats.getWeakCategories()));
+        stats.setSuccessfulChallenges(sourceStats.getSuccessfulChallenges());
+        stats.setTotalTimeSpent(sourceStats.getTotalTimeSpent());
+        // CategoryStats 发布后不再修改，变更时整体替换
+        stats.setCategories(sourceStats.getCategories());
+        progress.setStats(stats);
+        return progress;
+    }
+
+    /**
+     * 把进度中的集合换成只读视图或持久化映射，发布后的快照不能再被修改
+     */
+    private static ExamProgress freeze(ExamProgress progress) {
+        progress.setCompletedTopics(Collections.unmodifiableList(progress.getCompletedTopics()));
+        progress.setCompletedChallenges(PersistentHashMap.from(progress.getCompletedChallenges()));
+        progress.setCompletedLevels(Collections.unmodifiableList(progress.getCompletedLevels()));
+        progress.setAchievements(Collections.unmodifiableList(progress.getAchievements()));
+        ExamProgress.ExamStats stats = progress.getStats();
+        stats.setStrongCategories(Collections.unmodifiableList(stats.getStrongCategories()));
+        stats.setWeakCategories(Collections.unmodifiableList(stats.getWeakCategories()));
+        stats.setCategories(PersistentHashMap.from(stats.getCategories()));
+        return progress;
     }
 
     /**
@@ -32,7 +142,7 @@ public class ExamService {
         ExamProgress progress = new ExamProgress();
         progress.setUserId(userId);
         progress.setCompletedTopics(new ArrayList<>());
-        progress.setCompletedChallenges(new HashMap<>());
+        progress.setCompletedChallenges(PersistentHashMap.empty());
         progress.setCompletedLevels(new ArrayList<>());
         progress.setAchievements(new ArrayList<>());
         progress.setLevel(1);
@@ -44,6 +154,7 @@ public class ExamService {
         stats.setSuccessRate(0);
         stats.setStrongCategories(new ArrayList<>());
         stats.setWeakCategories(new ArrayList<>());
+        stats.setCategories(PersistentHashMap.empty());
         progress.setStats(stats);
         
         return progress;
@@ -53,33 +164,38 @@ public class ExamService {
      * 验证挑战答案
      */
     public ChallengeValidationResult validateChallenge(ChallengeSubmission submission, String userId) {
-        ExamProgress progress = getUserProgress(userId);
-        
         // 这里简化处理，实际应该根据挑战类型进行不同的验证
         // 对于实践题，需要实际执行ES查询
         boolean correct = validateAnswer(submission);
         int score = correct ? 100 : 50; // 简化评分
         
         // 更新进度
-        ExamProgress.ChallengeResult result = new ExamProgress.ChallengeResult();
-        result.setScore(score);
-        result.setTimeSpent(submission.getTimeSpent());
-        result.setLastAttempt(LocalDateTime.now().toString());
-        
-        ExamProgress.ChallengeResult existing = progress.getCompletedChallenges()
-                .get(submission.getChallengeId());
-        if (existing != null) {
-            result.setAttempts(existing.getAttempts() + 1);
-            result.setBestScore(Math.max(existing.getBestScore(), score));
-        } else {
-            result.setAttempts(1);
-            result.setBestScore(score);
-        }
-        
-        progress.getCompletedChallenges().put(submission.getChallengeId(), result);
-        
-        // 更新统计
-        updateStats(progress);
+        String lastAttempt = LocalDateTime.now().toString();
+        update(userId, progress -> {
+            ExamProgress.ChallengeResult result = new ExamProgress.ChallengeResult();
+            result.setScore(score);
+            result.setTimeSpent(submission.getTimeSpent());
+            result.setLastAttempt(lastAttempt);
+
+            ExamProgress.ChallengeResult existing = progress.getCompletedChallenges()
+                    .get(submission.getChallengeId());
+            result.setCategory(submission.getCategory() != null ? submission.getCategory()
+                    : existing != null ? existing.getCategory() : null);
+            if (existing != null) {
+                result.setAttempts(existing.getAttempts() + 1);
+                result.setBestScore(Math.max(existing.getBestScore(), score));
+            } else {
+                result.setAttempts(1);
+                result.setBestScore(score);
+            }
+
+            progress.setCompletedChallenges(PersistentHashMap.from(progress.getCompletedChallenges())
+                    .plus(submission.getChallengeId(), result));
+
+            // 更新统计
+            updateStats(progress.getStats(), existing, result);
+            return true;
+        });
         
         ChallengeValidationResult validationResult = new ChallengeValidationResult();
         validationResult.setCorrect(correct);
@@ -105,41 +221,45 @@ public class ExamService {
      * 完成知识点
      */
     public ExamProgress completeTopic(String userId, String topicId) {
-        ExamProgress progress = getUserProgress(userId);
-        if (!progress.getCompletedTopics().contains(topicId)) {
+        return update(userId, progress -> {
+            if (progress.getCompletedTopics().contains(topicId)) {
+                return false;
+            }
             progress.getCompletedTopics().add(topicId);
             // 奖励经验值
             progress.setTotalExperience(progress.getTotalExperience() + 50);
             updateLevel(progress);
-        }
-        return progress;
+            return true;
+        });
     }
 
     /**
      * 完成关卡
      */
     public ExamProgress completeLevel(String userId, String levelId) {
-        ExamProgress progress = getUserProgress(userId);
-        if (!progress.getCompletedLevels().contains(levelId)) {
+        return update(userId, progress -> {
+            if (progress.getCompletedLevels().contains(levelId)) {
+                return false;
+            }
             progress.getCompletedLevels().add(levelId);
-            
+
             // 根据关卡奖励经验值和成就
             int experienceReward = getLevelExperienceReward(levelId);
             progress.setTotalExperience(progress.getTotalExperience() + experienceReward);
-            
+
             String badge = getLevelBadge(levelId);
             if (badge != null && !progress.getAchievements().contains(badge)) {
                 progress.getAchievements().add(badge);
             }
-            
+
             String title = getLevelTitle(levelId);
             if (title != null) {
                 progress.setCurrentTitle(title);
             }
-            
+
             updateLevel(progress);
-        }
-        return progress;
+            return true;
+        });
     }
 
     /**
@@ -151,26 +271,91 @@ public class ExamService {
     }
 
     /**
-     * 更新统计信息
+     * 挑战结果由 previous 变为 current 后增量更新统计，与已有的挑战数量无关
      */
-    private void updateStats(ExamProgress progress) {
+    private void updateStats(ExamProgress.ExamStats stats, ExamProgress.ChallengeResult previous,
+                             ExamProgress.ChallengeResult current) {
+        boolean wasSuccessful = previous != null && previous.getBestScore() >= PASSING_SCORE;
+        boolean successful = current.getBestScore() >= PASSING_SCORE;
+
+        if (previous == null) {
+            stats.setTotalChallenges(stats.getTotalChallenges() + 1);
+        }
+        stats.setSuccessfulChallenges(stats.getSuccessfulChallenges() + (successful ? 1 : 0) - (wasSuccessful ? 1 : 0));
+        // 学习时长按每个挑战最近一次的用时累计
+        stats.setTotalTimeSpent(stats.getTotalTimeSpent() + current.getTimeSpent()
+                - (previous != null ? previous.getTimeSpent() : 0));
+
+        if (previous != null && previous.getCategory() != null) {
+            addCategory(stats, previous.getCategory(), -1, wasSuccessful ? -1 : 0);
+        }
+        if (current.getCategory() != null) {
+            addCategory(stats, current.getCategory(), 1, successful ? 1 : 0);
+        }
+
+        if (stats.getTotalChallenges() > 0) {
+            stats.setSuccessRate(stats.getSuccessfulChallenges() * 100 / stats.getTotalChallenges());
+        }
+        stats.setTotalStudyTime(stats.getTotalTimeSpent() / 60); // 转换为分钟
+        updateCategoryRanking(stats);
+    }
+
+    private void addCategory(ExamProgress.ExamStats stats, String category, int challenges, int successful) {
+        PersistentHashMap<String, ExamProgress.CategoryStats> categories = PersistentHashMap.from(stats.getCategories());
+        ExamProgress.CategoryStats existing = categories.get(category);
+        int total = (existing != null ? existing.getChallenges() : 0) + challenges;
+        if (total <= 0) {
+            stats.setCategories(categories.minus(category));
+            return;
+        }
+        stats.setCategories(categories.plus(category, new ExamProgress.CategoryStats(total,
+                (existing != null ? existing.getSuccessfulChallenges() : 0) + successful)));
+    }
+
+    /**
+     * 按类别通过率划分擅长和薄弱类别（只遍历类别汇总）
+     */
+    private void updateCategoryRanking(ExamProgress.ExamStats stats) {
+        List<Map.Entry<String, ExamProgress.CategoryStats>> ranked = new ArrayList<>();
+        for (Map.Entry<String, ExamProgress.CategoryStats> entry : stats.getCategories().entrySet()) {
+            if (entry.getValue().getChallenges() >= MIN_CATEGORY_CHALLENGES) {
+                ranked.add(entry);
+            }
+        }
+        ranked.sort(Comparator.comparingInt((Map.Entry<String, ExamProgress.CategoryStats> entry) ->
+                successRate(entry.getValue())).reversed().thenComparing(Map.Entry::getKey));
+
+        List<String> strong = new ArrayList<>();
+        List<String> weak = new ArrayList<>();
+        for (Map.Entry<String, ExamProgress.CategoryStats> entry : ranked) {
+            int rate = successRate(entry.getValue());
+            if (rate >= STRONG_SUCCESS_RATE) {
+                strong.add(entry.getKey());
+            } else if (rate < WEAK_SUCCESS_RATE) {
+                weak.add(0, entry.getKey()); // 最薄弱的在前
+            }
+        }
+        stats.setStrongCategories(strong);
+        stats.setWeakCategories(weak);
+    }
+
+    private static int successRate(ExamProgress.CategoryStats category) {
+        return category.getSuccessfulChallenges() * 100 / category.getChallenges();
+    }
+
+    /**
+     * 从挑战结果重算全部汇总值
+     */
+    void rebuildStats(ExamProgress progress) {
         ExamProgress.ExamStats stats = progress.getStats();
-        
-        int totalChallenges = progress.getCompletedChallenges().size();
-        stats.setTotalChallenges(totalChallenges);
-        
-        if (totalChallenges > 0) {
-            long successfulChallenges = progress.getCompletedChallenges().values().stream()
-                    .filter(r -> r.getBestScore() >= 60)
-                    .count();
-            int successRate = (int) ((successfulChallenges * 100) / totalChallenges);
-            stats.setSuccessRate(successRate);
+        stats.setTotalChallenges(0);
+        stats.setSuccessfulChallenges(0);
+        stats.setTotalTimeSpent(0);
+        stats.setCategories(PersistentHashMap.empty());
+        for (ExamProgress.ChallengeResult result : progress.getCompletedChallenges().values()) {
+            updateStats(stats, null, result);
         }
-        
-        int totalTime = progress.getCompletedChallenges().values().stream()
-                .mapToInt(ExamProgress.ChallengeResult::getTimeSpent)
-                .sum();
-        stats.setTotalStudyTime(totalTime / 60); // 转换为分钟
+        updateCategoryRanking(stats);
     }
 
     /**
@@ -185,7 +370,10 @@ public class ExamService {
      * 重置进度
      */
     public void resetProgress(String userId) {
-        userProgressMap.remove(userId);
+        synchronized (lockFor(userId)) {
+            userProgressMap.remove(userId);
+            progressStore.delete(userId);
+        }
     }
 
     /**
@@ -0,0 +1,96 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.model.FieldSuggestion;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 字段路径前缀树
+ * 子节点以有序字符数组 + 节点数组保存，构建完成后只读，可在多个线程间共享
+ */
+final class FieldTrie {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node root = new Node();
+    private int size;
+
+    /**
+     * 插入字段路径及其类型
+     */
+    void add(String path, String type) {
+        Node node = root;
+        for (int i = 0; i < path.length(); i++) {
+            node = node.childOrCreate(path.charAt(i));
+        }
+        if (node.type == null) {
+            size++;
+        }
+        node.type = type;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 按前缀查找字段，结果按字典序，最多 limit 条
+     */
+    void find(String prefix, int limit, List<FieldSuggestion> out) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        if (node != null) {
+            collect(node, new StringBuilder(prefix), limit, out);
+        }
+    }
+
+    private static void collect(Node node, StringBuilder path, int limit, List<FieldSuggestion> out) {
+        if (out.size() >= limit) {
+            return;
+        }
+        if (node.type != null) {
+            out.add(new FieldSuggestion(path.toString(), node.type));
+        }
+        for (int i = 0; i < node.keys.length && out.size() < limit; i++) {
+            path.append(node.keys[i]);
+            collect(node.children[i], path, limit, out);
+            path.setLength(path.length() - 1);
+        }
+    }
+
+    private static final class Node {
+
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        String type;
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insert = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insert);
+            System.arraycopy(children, 0, newChildren, 0, insert);
+            System.arraycopy(keys, insert, newKeys, insert + 1, keys.length - insert);
+            System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+            Node node = new Node();
+            newKeys[insert] = c;
+            newChildren[insert] = node;
+            keys = newKeys;
+            children = newChildren;
+            return node;
+        }
+    }
+}
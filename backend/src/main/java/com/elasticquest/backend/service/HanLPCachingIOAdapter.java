@@ -0,0 +1,228 @@
+package com.elasticquest.backend.service;
+
+import com.hankcs.hanlp.corpus.io.IIOAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HanLP 词典的本地磁盘缓存
+ * portable 版的词典（含编译好的 .bin）打包在 jar 中，每次启动都要解压读取；
+ * 首次读取时把文件解压到缓存目录，之后直接内存映射本地文件。
+ * HanLP 写出的编译缓存（jar 内无法写入）也落到缓存目录，下次启动直接使用
+ */
+public class HanLPCachingIOAdapter implements IIOAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(HanLPCachingIOAdapter.class);
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final IIOAdapter delegate;
+    private final Path cacheDir;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    public HanLPCachingIOAdapter(IIOAdapter delegate, Path cacheDir) {
+        this.delegate = delegate;
+        this.cacheDir = cacheDir.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public InputStream open(String path) throws IOException {
+        Path cached = cachedPath(path);
+        if (cached == null) {
+            return delegate.open(path);
+        }
+        if (Files.exists(cached)) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            Path temp = null;
+            try (InputStream in = delegate.open(path)) {
+                Files.createDirectories(cached.getParent());
+                temp = tempFile(cached);
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temp, cached, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                deleteQuietly(temp);
+                // 缓存目录不可写时退回原始读取
+                logger.debug("HanLP 词典缓存失败: {}, {}", path, e.getMessage());
+                return delegate.open(path);
+            }
+        }
+        return map(cached);
+    }
+
+    /**
+     * 写入同目录下的唯一临时文件，关闭时才移动到最终位置，避免下次启动读到写了一半的文件；
+     * 写入或关闭失败时删除临时文件，保留原有缓存
+     */
+    @Override
+    public OutputStream create(String path) throws IOException {
+        Path cached = cachedPath(path);
+        if (cached == null) {
+            return delegate.create(path);
+        }
+        Files.createDirectories(cached.getParent());
+        Path temp = tempFile(cached);
+        return new FilterOutputStream(Files.newOutputStream(temp)) {
+
+            private boolean failed;
+            private boolean closed;
+
+            @Override
+            public void write(int b) throws IOException {
+                try {
+                    out.write(b);
+                } catch (IOException | RuntimeException e) {
+                    failed = true;
+                    throw e;
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                try {
+                    out.write(b, off, len);
+                } catch (IOException | RuntimeException e) {
+                    failed = true;
+                    throw e;
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                try {
+                    out.flush();
+                } catch (IOException | RuntimeException e) {
+                    failed = true;
+                    throw e;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    super.close();
+                } catch (IOException | RuntimeException e) {
+                    failed = true;
+                    throw e;
+                } finally {
+                    if (failed) {
+                        deleteQuietly(temp);
+                    }
+                }
+                if (failed) {
+                    // 写入时已抛出异常，不覆盖原有缓存
+                    logger.debug("HanLP 缓存写入失败，已丢弃: {}", cached);
+                    return;
+                }
+                try {
+                    Files.move(temp, cached, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    deleteQuietly(temp);
+                    throw e;
+                }
+            }
+        };
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * 缓存中的位置；绝对路径（用户配置的外部词典）不缓存
+     */
+    private Path cachedPath(String path) {
+        if (path.startsWith("/") || path.matches("^[A-Za-z]:.*")) {
+            return null;
+        }
+        Path cached = cacheDir.resolve(path).normalize();
+        return cached.startsWith(cacheDir) ? cached : null;
+    }
+
+    /**
+     * 与目标同目录的唯一临时文件，保证 ATOMIC_MOVE 在同一文件系统内，并发写入同一文件时互不覆盖
+     */
+    private static Path tempFile(Path target) throws IOException {
+        return Files.createTempFile(target.getParent(), target.getFileName() + ".", TEMP_SUFFIX);
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("删除 HanLP 缓存临时文件失败: {}, {}", file, e.getMessage());
+        }
+    }
+
+    private static InputStream map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            return new MappedInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * 内存映射文件上的输入流
+     */
+    private static class MappedInputStream extends InputStream {
+
+        private final MappedByteBuffer buffer;
+
+        MappedInputStream(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
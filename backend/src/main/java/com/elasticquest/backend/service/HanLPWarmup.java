@@ -0,0 +1,127 @@
+package com.elasticquest.backend.service;
+
+import com.hankcs.hanlp.HanLP;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HanLP 预热
+ * 启动时在后台线程加载分词词典，避免部署或扩容后的第一次 RAG 聊天等待词典加载；
+ * 作为健康检查项 hanlp 加入 readiness 探针，预热完成前实例不接收流量
+ */
+@Component("hanlp")
+public class HanLPWarmup implements HealthIndicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(HanLPWarmup.class);
+
+    // 覆盖核心词典、二元文法和人名识别
+    private static final String SAMPLE = "Elasticsearch 是一个分布式的搜索和分析引擎，张三在北京大学研究倒排索引。";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${hanlp.cache-dir:${java.io.tmpdir}/elasticquest-hanlp}")
+    private String cacheDir;
+
+    @Value("${hanlp.warmup.enabled:true}")
+    private boolean enabled;
+
+    private HanLPCachingIOAdapter adapter;
+    private volatile boolean ready;
+    private volatile long warmupMillis;
+    private volatile String error;
+
+    public HanLPWarmup(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 在首次使用 HanLP 之前安装词典缓存，并启动预热线程
+     */
+    @PostConstruct
+    public void start() {
+        if (cacheDir != null && !cacheDir.isEmpty()) {
+            // 按 HanLP 版本分目录，升级后不会读到旧词典
+            adapter = new HanLPCachingIOAdapter(HanLP.Config.IOAdapter, Path.of(cacheDir, version()));
+            HanLP.Config.IOAdapter = adapter;
+        }
+        if (!enabled) {
+            ready = true;
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "hanlp-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public Health health() {
+        if (error != null) {
+            // 预热失败不阻止接收流量，首次分词时会再次加载
+            return Health.up().withDetail("warmup", "failed").withDetail("error", error).build();
+        }
+        if (!ready) {
+            return Health.outOfService().withDetail("warmup", "loading").build();
+        }
+        Health.Builder builder = Health.up().withDetail("warmup", enabled ? "done" : "disabled");
+        if (enabled) {
+            builder.withDetail("warmupMs", warmupMillis);
+        }
+        if (adapter != null) {
+            builder.withDetail("cacheHits", adapter.getHits()).withDetail("cacheMisses", adapter.getMisses());
+        }
+        return builder.build();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+        try {
+            HanLP.segment(SAMPLE);
+            warmupMillis = (System.nanoTime() - start) / 1_000_000;
+            String cache = adapter == null ? "none" : adapter.getMisses() == 0 ? "hit" : "miss";
+            Timer.builder("hanlp.warmup.duration")
+                .description("HanLP 词典预热耗时")
+                .tag("cache", cache)
+                .register(meterRegistry)
+                .record(warmupMillis, TimeUnit.MILLISECONDS);
+            logger.info("HanLP 预热完成: 耗时 {}ms, 词典缓存 {}（命中 {}，写入 {}），进程启动后 {}ms",
+                warmupMillis, cache, adapter != null ? adapter.getHits() : 0, adapter != null ? adapter.getMisses() : 0,
+                ManagementFactory.getRuntimeMXBean().getUptime());
+        } catch (Throwable e) {
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            logger.warn("HanLP 预热失败: {}", error);
+        } finally {
+            ready = true;
+        }
+    }
+
+    private static String version() {
+        try (InputStream in = HanLP.class.getResourceAsStream("/META-INF/maven/com.hankcs/hanlp/pom.properties")) {
+            if (in != null) {
+                Properties properties = new Properties();
+                properties.load(in);
+                return properties.getProperty("version", "unknown");
+            }
+        } catch (IOException e) {
+            logger.debug("读取 HanLP 版本失败: {}", e.getMessage());
+        }
+        return "unknown";
+    }
+}
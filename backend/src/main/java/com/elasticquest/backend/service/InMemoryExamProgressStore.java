@@ -0,0 +1,37 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.model.ExamProgress;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 不持久化的进度存储，进程重启后进度清空
+ */
+@Component
+@ConditionalOnProperty(name = "exam.store.type", havingValue = ExamProgressStore.MEMORY)
+public class InMemoryExamProgressStore implements ExamProgressStore {
+
+    @Override
+    public Map<String, ExamProgress> loadAll() {
+        return Map.of();
+    }
+
+    @Override
+    public void save(ExamProgress progress) {
+    }
+
+    @Override
+    public void delete(String userId) {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public String name() {
+        return MEMORY;
+    }
+}
@@ -1,42 +1,66 @@
 package com.elasticquest.backend.service;
 
+import com.elasticquest.backend.config.LLMProperties;
 import com.elasticquest.backend.model.ChatMessage;
 import com.elasticquest.backend.model.RAGChatRequest;
+import com.elasticquest.backend.retrieval.LibraryMaterial;
+import com.elasticquest.backend.retrieval.MaterialLibrary;
+import com.elasticquest.backend.retrieval.MaterialRetriever;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
  * LLM 聊天服务
- * 调用模力方舟 API 进行流式对话
+ * 调用模力方舟（或其他 OpenAI 兼容）API 进行流式对话
  */
 @Service
 public class LLMChatService {
     
     private static final Logger logger = LoggerFactory.getLogger(LLMChatService.class);
     
-    @Value("${llm.molizk.api-url}")
-    private String apiUrl;
+    @Autowired
+    private LLMEndpointRouter endpointRouter;
     
-    @Value("${llm.molizk.api-key}")
-    private String apiKey;
+    @Autowired
+    private LLMStreamMetrics metrics;
     
-    @Value("${llm.molizk.model}")
-    private String model;
+    @Autowired
+    private ConversationStore conversationStore;
+    
+    @Autowired
+    private LLMRateLimiter rateLimiter;
+    
+    @Autowired
+    private LLMFairScheduler scheduler;
+    
+    @Autowired
+    private LLMProperties properties;
+    
+    @Autowired
+    private MaterialRetriever materialRetriever;
+    
+    @Autowired
+    private MaterialLibrary materialLibrary;
     
     @Value("${llm.molizk.timeout:60000}")
     private long timeout;
@@ -46,6 +70,7 @@ public class LLMChatService {
     
     private final OkHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
     
     public LLMChatService() {
         this.httpClient = new OkHttpClient.Builder()
@@ -56,63 +81,511 @@ public class LLMChatService {
         this.objectMapper = new ObjectMapper();
     }
     
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+        httpClient.connectionPool().evictAll();
+    }
+    
     /**
      * 流式聊天
+     * onChunk 抛出 CancellationException 表示客户端已断开，此时停止读取上游且不再回调 onError；
+     * 配置了多个端点时，主端点超过对冲等待时间仍未返回首 token 则向下一个端点发起对冲请求，
+     * 先返回首 token 的请求胜出并继续输出，另一个请求被取消；主端点在首 token 前失败时立即切换
+     * @param userId 调用方用户，多轮对话历史按用户区分
      * @param request RAG 聊天请求
      * @param onChunk 接收每个流式块的回调
      * @param onComplete 完成时的回调，返回完整答案
      * @param onError 错误回调
      */
-    public void streamChat(RAGChatRequest request, 
+    public void streamChat(String userId,
+                          RAGChatRequest request, 
+                          Consumer<String> onChunk,
+                          Consumer<String> onComplete,
+                          Consumer<String> onError) {
+        List<ChatMessage> messages;
+        try {
+            List<LibraryMaterial> materials = materialLibrary.acquireAll(request.referencedMaterialIds(), userId);
+            try {
+                messages = buildMessages(userId, request, materials).getMessages();
+            } finally {
+                LibraryMaterial.closeAll(materials);
+            }
+        } catch (Exception e) {
+            logger.error("LLM 消息构建失败", e);
+            onError.accept("调用失败: " + e.getMessage());
+            return;
+        }
+        streamChat(userId, request, messages, onChunk, onComplete, onError);
+    }
+    
+    /**
+     * 使用已构建好的消息列表进行流式聊天（调用方需要先按实际提示词估算用量时使用）
+     * @param messages buildMessages 的结果
+     */
+    public void streamChat(String userId,
+                          RAGChatRequest request,
+                          List<ChatMessage> messages,
                           Consumer<String> onChunk,
                           Consumer<String> onComplete,
                           Consumer<String> onError) {
         
+        long start = System.nanoTime();
+        StreamRace race = new StreamRace(onChunk);
+        String model = "unknown";
         try {
-            // 构建消息列表
-            List<ChatMessage> messages = buildMessages(request);
+            List<LLMProperties.Endpoint> ranked = endpointRouter.rank();
+            model = ranked.get(0).getModel();
             
-            // 构建请求体
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", model);
-            requestBody.put("messages", messages);
-            requestBody.put("stream", true);
-            requestBody.put("temperature", request.getTemperature() != null ? request.getTemperature() : 1.0);
+            int next = 0;
+            String requestBody = buildRequestBody(ranked.get(0), request, messages);
+            metrics.recordBuild(model, System.nanoTime() - start,
+                messages.stream().mapToLong(message -> message.getContent().length()).sum());
+            race.start(ranked.get(next++), requestBody);
+            boolean hedgeConsidered = !endpointRouter.isHedgingEnabled();
+            long deadline = System.currentTimeMillis() + timeout;
             
-            if (request.getMaxTokens() != null && request.getMaxTokens() > 0) {
-                requestBody.put("max_tokens", request.getMaxTokens());
+            // 等待首 token
+            while (!race.hasWinner()) {
+                long now = System.currentTimeMillis();
+                long wait = deadline - now;
+                if (!hedgeConsidered && next < ranked.size()) {
+                    Attempt primary = race.lastStarted();
+                    wait = Math.min(wait, primary.startedAt + endpointRouter.hedgeDelayMillis(primary.endpoint) - now);
+                }
+                race.awaitFirstToken(wait);
+                if (race.hasWinner()) {
+                    break;
+                }
+                
+                if (race.allFailed()) {
+                    if (next >= ranked.size()) {
+                        break;
+                    }
+                    LLMProperties.Endpoint fallback = ranked.get(next++);
+                    logger.warn("LLM 端点失败，切换到: {}", fallback.getName());
+                    race.start(fallback, buildRequestBody(fallback, request, messages));
+                } else if (System.currentTimeMillis() >= deadline) {
+                    race.timeout();
+                    break;
+                } else if (!hedgeConsidered) {
+                    hedgeConsidered = true;
+                    if (next < ranked.size() && endpointRouter.tryAcquireHedge()) {
+                        LLMProperties.Endpoint hedge = ranked.get(next++);
+                        logger.info("LLM 首 token 超过等待时间，对冲请求: {}", hedge.getName());
+                        race.start(hedge, buildRequestBody(hedge, request, messages));
+                    }
+                }
+            }
+            
+            Attempt winner = race.awaitCompletion();
+            if (winner != null) {
+                model = winner.endpoint.getModel();
+            }
+            if (winner == null || winner.error != null) {
+                boolean cancelled = winner != null && winner.clientCancelled;
+                recordStream(model, cancelled ? LLMStreamMetrics.OUTCOME_CANCELLED : LLMStreamMetrics.OUTCOME_ERROR,
+                    start, winner);
+                if (!cancelled) {
+                    onError.accept(winner != null ? winner.error : race.lastError());
+                }
+                return;
+            }
+            
+            // 完成
+            recordStream(model, LLMStreamMetrics.OUTCOME_COMPLETE, start, winner);
+            String answer = winner.answer.toString();
+            if (request.getConversationId() != null && !request.getConversationId().isEmpty()) {
+                appendTurn(userId, request.getConversationId(), request.getQuestion(), answer);
+            }
+            onComplete.accept(answer);
+            logger.info("LLM 流式响应完成 [{}]，总长度: {}", winner.endpoint.getName(), winner.answer.length());
+            
+        } catch (InterruptedException e) {
+            race.cancelAll();
+            recordStream(model, LLMStreamMetrics.OUTCOME_CANCELLED, start, null);
+            Thread.currentThread().interrupt();
+            onError.accept("调用被中断");
+        } catch (Exception e) {
+            race.cancelAll();
+            recordStream(model, LLMStreamMetrics.OUTCOME_ERROR, start, null);
+            logger.error("LLM 调用异常", e);
+            onError.accept("调用失败: " + e.getMessage());
+        }
+    }
+    
+    private void recordStream(String model, String outcome, long start, Attempt winner) {
+        metrics.recordStream(model, outcome, System.nanoTime() - start,
+            winner != null ? winner.bytes : 0, winner != null ? winner.tokens : 0);
+    }
+    
+    /**
+     * 构建请求体（不同端点的模型可能不同）
+     */
+    private String buildRequestBody(LLMProperties.Endpoint endpoint, RAGChatRequest request,
+                                    List<ChatMessage> messages) throws IOException {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", endpoint.getModel());
+        requestBody.put("messages", messages);
+        requestBody.put("stream", true);
+        requestBody.put("temperature", request.getTemperature() != null ? request.getTemperature() : 1.0);
+        
+        if (request.getMaxTokens() != null && request.getMaxTokens() > 0) {
+            requestBody.put("max_tokens", request.getMaxTokens());
+        }
+        
+        return objectMapper.writeValueAsString(requestBody);
+    }
+    
+    /**
+     * 构建消息列表
+     * 多轮对话时依次加入滚动摘要和最近的轮次原文，整体不超过估算的 token 上限；
+     * 放不下的轮次从最早的开始省略（它们稍后会被并入摘要）
+     * @param materials 请求引用的资料库材料（已按 materialIds 解析）
+     */
+    public Prompt buildMessages(String userId, RAGChatRequest request, List<LibraryMaterial> materials)
+            throws IOException {
+        List<ChatMessage> messages = new ArrayList<>();
+        List<String> notices = new ArrayList<>();
+        
+        // 系统提示词
+        String systemPrompt = request.getSystemPrompt() != null && !request.getSystemPrompt().isEmpty()
+                ? request.getSystemPrompt()
+                : defaultSystemPrompt;
+        messages.add(new ChatMessage("system", systemPrompt));
+        
+        // 用户问题（包含参考材料）
+        StringBuilder userContent = new StringBuilder();
+        
+        if (!materials.isEmpty()) {
+            userContent.append("参考资料：\n");
+            for (LibraryMaterial material : materials) {
+                String title = material.getInfo().getTitle();
+                String label = title != null && !title.isEmpty() ? title : material.getId();
+                // 多份材料时标明出处
+                if (materials.size() > 1) {
+                    userContent.append("【").append(label).append("】\n");
+                }
+                MaterialRetriever.Selection selection = materialRetriever.select(material, request.getQuestion());
+                if (selection.isTruncated()) {
+                    notices.add(truncationNotice(label, selection));
+                }
+                userContent.append(selection.getText());
+                userContent.append("\n\n");
+            }
+        } else if (request.getContextMaterial() != null && !request.getContextMaterial().isEmpty()) {
+            // 较长的材料只放入与问题最相关的片段
+            userContent.append("参考资料：\n");
+            MaterialRetriever.Selection selection = materialRetriever.select(request.getContextMaterial(), request.getQuestion());
+            if (selection.isTruncated()) {
+                notices.add(truncationNotice("参考材料", selection));
             }
+            userContent.append(selection.getText());
+            userContent.append("\n\n");
+        }
+        
+        userContent.append("问题：\n");
+        userContent.append(request.getQuestion());
+        
+        if (request.getConversationId() != null && !request.getConversationId().isEmpty()) {
+            ConversationStore.Snapshot snapshot = conversationStore.snapshot(userId, request.getConversationId());
+            long budget = properties.getConversation().getMaxPromptTokens()
+                    - estimateTokens(systemPrompt) - estimateTokens(userContent);
             
-            String jsonBody = objectMapper.writeValueAsString(requestBody);
+            if (snapshot.getSummary() != null) {
+                String summary = "此前对话的摘要：\n" + snapshot.getSummary();
+                if (estimateTokens(summary) <= budget) {
+                    messages.add(new ChatMessage("system", summary));
+                    budget -= estimateTokens(summary);
+                }
+            }
             
-            logger.info("调用 LLM API: {}", apiUrl);
+            // 从最近的轮次往前加入，直到超出预算
+            List<ConversationStore.Turn> turns = snapshot.getTurns();
+            int first = turns.size();
+            while (first > 0) {
+                ConversationStore.Turn turn = turns.get(first - 1);
+                long cost = estimateTokens(turn.getQuestion()) + estimateTokens(turn.getAnswer());
+                if (cost > budget) {
+                    break;
+                }
+                budget -= cost;
+                first--;
+            }
+            for (ConversationStore.Turn turn : turns.subList(first, turns.size())) {
+                messages.add(new ChatMessage("user", turn.getQuestion()));
+                messages.add(new ChatMessage("assistant", turn.getAnswer()));
+            }
+        }
+        
+        messages.add(new ChatMessage("user", userContent.toString()));
+        
+        return new Prompt(messages, notices.isEmpty() ? null : String.join("；", notices));
+    }
+    
+    private static String truncationNotice(String label, MaterialRetriever.Selection selection) {
+        return label + "较长，只使用了与问题最相关的 " + selection.getSelectedChunks() + "/"
+                + selection.getTotalChunks() + " 个片段";
+    }
+    
+    /**
+     * 按字符数估算 token 数（中文约 1.5 字符/token，英文约 4 字符/token，取偏保守的 2）
+     */
+    private static long estimateTokens(CharSequence text) {
+        return text == null ? 0 : (text.length() + 1) / 2;
+    }
+    
+    /**
+     * 记录一轮对话，需要时在后台把较早的轮次并入摘要
+     */
+    private void appendTurn(String userId, String conversationId, String question, String answer) {
+        ConversationStore.SummaryTask task = conversationStore.append(userId, conversationId, question, answer);
+        if (task != null) {
+            executorService.execute(() -> summarize(task));
+        }
+    }
+    
+    /**
+     * 生成摘要；与聊天请求一样计入用户限额并经公平调度，被拒绝时保留轮次，下一轮追加时重试
+     */
+    private void summarize(ConversationStore.SummaryTask task) {
+        StringBuilder content = new StringBuilder();
+        if (task.getPreviousSummary() != null) {
+            content.append("已有摘要：\n").append(task.getPreviousSummary()).append("\n\n");
+        }
+        content.append("需要并入摘要的对话：\n");
+        for (ConversationStore.Turn turn : task.getTurns()) {
+            content.append("用户：").append(turn.getQuestion()).append("\n");
+            content.append("助手：").append(turn.getAnswer()).append("\n");
+        }
+        content.append("\n请输出更新后的摘要。");
+        
+        List<ChatMessage> messages = List.of(
+                new ChatMessage("system", "你是对话摘要助手。请把对话历史压缩为简洁的摘要，保留用户关心的问题、"
+                        + "已经给出的关键结论和尚未解决的问题，不要添加对话中没有的内容。"),
+                new ChatMessage("user", content.toString()));
+        int maxTokens = properties.getConversation().getSummaryMaxTokens();
+        LLMRateLimiter.Charge charge;
+        LLMFairScheduler.Permit permit;
+        try {
+            charge = rateLimiter.acquire(task.getUserId(),
+                    messages.stream().mapToLong(message -> estimateTokens(message.getContent())).sum() + maxTokens);
+        } catch (LLMRejectedException e) {
+            logger.debug("对话摘要被限流: id={}, reason={}", task.getConversationId(), e.getReason());
+            conversationStore.failSummary(task);
+            return;
+        }
+        try {
+            permit = scheduler.acquire(task.getUserId());
+        } catch (LLMRejectedException e) {
+            charge.refund();
+            logger.debug("对话摘要排队被拒绝: id={}, reason={}", task.getConversationId(), e.getReason());
+            conversationStore.failSummary(task);
+            return;
+        } catch (InterruptedException e) {
+            charge.refund();
+            conversationStore.failSummary(task);
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            String summary = complete(messages, maxTokens);
+            conversationStore.completeSummary(task, summary);
+        } catch (Exception e) {
+            logger.warn("对话摘要失败: id={}, {}", task.getConversationId(), e.getMessage());
+            conversationStore.failSummary(task);
+        } finally {
+            permit.close();
+        }
+    }
+    
+    /**
+     * 非流式调用（用于后台任务），使用当前优先级最高的端点
+     */
+    private String complete(List<ChatMessage> messages, int maxTokens) throws IOException {
+        LLMProperties.Endpoint endpoint = endpointRouter.preferred();
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", endpoint.getModel());
+        requestBody.put("messages", messages);
+        requestBody.put("stream", false);
+        requestBody.put("temperature", 0.3);
+        requestBody.put("max_tokens", maxTokens);
+        
+        Request httpRequest = new Request.Builder()
+                .url(endpoint.getApiUrl())
+                .post(RequestBody.create(objectMapper.writeValueAsString(requestBody), MediaType.parse("application/json")))
+                .addHeader("Content-Type", "application/json")
+                .addHeader("Authorization", "Bearer " + endpoint.getApiKey())
+                .build();
+        
+        try (Response response = httpClient.newCall(httpRequest).execute()) {
+            ResponseBody responseBody = response.body();
+            if (!response.isSuccessful() || responseBody == null) {
+                throw new IOException("LLM API 调用失败: " + response.code());
+            }
+            JsonNode content = objectMapper.readTree(responseBody.byteStream())
+                    .path("choices").path(0).path("message").path("content");
+            if (!content.isTextual() || content.asText().isBlank()) {
+                throw new IOException("响应中没有内容");
+            }
+            return content.asText().trim();
+        }
+    }
+    
+    /**
+     * 一次聊天中并发的请求，第一个返回内容的请求胜出
+     */
+    private class StreamRace {
+        
+        private final Consumer<String> onChunk;
+        private final List<Attempt> attempts = new ArrayList<>();
+        private Attempt winner;
+        private boolean finished;
+        private String lastError = "调用失败";
+        
+        StreamRace(Consumer<String> onChunk) {
+            this.onChunk = onChunk;
+        }
+        
+        synchronized void start(LLMProperties.Endpoint endpoint, String jsonBody) {
+            Attempt attempt = new Attempt(this, endpoint, jsonBody);
+            attempts.add(attempt);
+            executorService.execute(attempt);
+        }
+        
+        synchronized Attempt lastStarted() {
+            return attempts.get(attempts.size() - 1);
+        }
+        
+        synchronized boolean hasWinner() {
+            return winner != null;
+        }
+        
+        synchronized boolean allFailed() {
+            return attempts.stream().allMatch(attempt -> attempt.error != null);
+        }
+        
+        synchronized String lastError() {
+            return lastError;
+        }
+        
+        /**
+         * 收到首个内容块时调用，胜出后取消其他请求
+         */
+        synchronized boolean claim(Attempt attempt) {
+            if (winner == null) {
+                winner = attempt;
+                for (Attempt other : attempts) {
+                    if (other != attempt) {
+                        other.cancel(true);
+                    }
+                }
+                notifyAll();
+            }
+            return winner == attempt;
+        }
+        
+        synchronized void completed(Attempt attempt) {
+            if (winner == attempt) {
+                finished = true;
+                notifyAll();
+            }
+        }
+        
+        synchronized void failed(Attempt attempt, String error) {
+            attempt.error = error;
+            lastError = error;
+            if (winner == attempt) {
+                finished = true;
+            }
+            notifyAll();
+        }
+        
+        synchronized void timeout() {
+            cancelAll();
+            lastError = "调用失败: 等待响应超时";
+        }
+        
+        /**
+         * 整体取消（超时、客户端断开或异常），不记录首 token 耗时
+         */
+        synchronized void cancelAll() {
+            attempts.forEach(attempt -> attempt.cancel(false));
+        }
+        
+        synchronized void awaitFirstToken(long millis) throws InterruptedException {
+            long end = System.currentTimeMillis() + millis;
+            long remaining;
+            while (winner == null && !allFailed() && (remaining = end - System.currentTimeMillis()) > 0) {
+                wait(remaining);
+            }
+        }
+        
+        synchronized Attempt awaitCompletion() throws InterruptedException {
+            while (winner != null && !finished) {
+                wait();
+            }
+            return winner;
+        }
+    }
+    
+    /**
+     * 对单个端点的一次流式请求
+     */
+    private class Attempt implements Runnable {
+        
+        private final StreamRace race;
+        private final LLMProperties.Endpoint endpoint;
+        private final String jsonBody;
+        private final long startedAt = System.currentTimeMillis();
+        private final long startedNanos = System.nanoTime();
+        private final StringBuilder answer = new StringBuilder();
+        private long lastChunkNanos;
+        private long bytes;
+        private long tokens;
+        private volatile boolean clientCancelled;
+        private volatile Call call;
+        private volatile boolean cancelled;
+        private volatile String error;
+        
+        Attempt(StreamRace race, LLMProperties.Endpoint endpoint, String jsonBody) {
+            this.race = race;
+            this.endpoint = endpoint;
+            this.jsonBody = jsonBody;
+        }
+        
+        @Override
+        public void run() {
+            logger.info("调用 LLM API [{}]: {}", endpoint.getName(), endpoint.getApiUrl());
             logger.debug("请求体: {}", jsonBody);
             
             // 构建 HTTP 请求
             Request httpRequest = new Request.Builder()
-                    .url(apiUrl)
+                    .url(endpoint.getApiUrl())
                     .post(RequestBody.create(jsonBody, MediaType.parse("application/json")))
                     .addHeader("Content-Type", "application/json")
-                    .addHeader("Authorization", "Bearer " + apiKey)
+                    .addHeader("Authorization", "Bearer " + endpoint.getApiKey())
                     .build();
+            call = httpClient.newCall(httpRequest);
+            if (cancelled) {
+                call.cancel();
+                return;
+            }
             
             // 发送请求并处理流式响应
-            try (Response response = httpClient.newCall(httpRequest).execute()) {
+            try (Response response = call.execute()) {
                 if (!response.isSuccessful()) {
-                    String errorMsg = "LLM API 调用失败: " + response.code();
-                    logger.error(errorMsg);
-                    onError.accept(errorMsg);
+                    fail("LLM API 调用失败: " + response.code());
                     return;
                 }
                 
                 ResponseBody responseBody = response.body();
                 if (responseBody == null) {
-                    onError.accept("响应体为空");
+                    fail("响应体为空");
                     return;
                 }
                 
-                // 处理流式响应
-                StringBuilder fullAnswer = new StringBuilder();
+                boolean claimed = false;
                 BufferedReader reader = new BufferedReader(responseBody.charStream());
                 String line;
                 
@@ -124,65 +597,113 @@ public class LLMChatService {
                             break;
                         }
                         
-                        try {
-                            JsonNode jsonNode = objectMapper.readTree(data);
-                            JsonNode choices = jsonNode.get("choices");
-                            
-                            if (choices != null && choices.isArray() && choices.size() > 0) {
-                                JsonNode delta = choices.get(0).get("delta");
-                                if (delta != null && delta.has("content")) {
-                                    String content = delta.get("content").asText();
-                                    if (content != null && !content.isEmpty()) {
-                                        fullAnswer.append(content);
-                                        onChunk.accept(content);
-                                    }
+                        String content = parseContent(data);
+                        if (content != null && !content.isEmpty()) {
+                            if (!claimed) {
+                                if (!race.claim(this)) {
+                                    return;
                                 }
+                                claimed = true;
+                                long ttft = System.currentTimeMillis() - startedAt;
+                                endpointRouter.recordFirstToken(endpoint, ttft);
+                                metrics.recordFirstToken(endpoint.getModel(), endpoint.getName(),
+                                    System.nanoTime() - startedNanos);
+                                logger.info("LLM 首 token [{}]: {}ms", endpoint.getName(), ttft);
+                            } else {
+                                metrics.recordTokenGap(endpoint.getModel(), System.nanoTime() - lastChunkNanos);
                             }
-                        } catch (Exception e) {
-                            logger.warn("解析流式响应失败: {}", data, e);
+                            lastChunkNanos = System.nanoTime();
+                            tokens++;
+                            bytes += content.getBytes(StandardCharsets.UTF_8).length;
+                            answer.append(content);
+                            race.onChunk.accept(content);
                         }
                     }
                 }
                 
-                // 完成
-                onComplete.accept(fullAnswer.toString());
-                logger.info("LLM 流式响应完成，总长度: {}", fullAnswer.length());
+                // 没有任何内容块的空回答
+                if (!claimed && !race.claim(this)) {
+                    return;
+                }
+                race.completed(this);
                 
+            } catch (CancellationException e) {
+                // 客户端断开，关闭响应即停止读取上游
+                clientCancelled = true;
+                logger.info("LLM 流式响应被客户端取消 [{}]", endpoint.getName());
+                race.failed(this, "客户端已断开");
+            } catch (Exception e) {
+                if (!cancelled) {
+                    // 连接中途断开等异常可能没有消息
+                    fail("调用失败: " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+                }
+            }
+        }
+        
+        /**
+         * 取消请求；在对冲中落败（另一个请求先返回首 token）时，以已等待时间作为首 token 耗时的下限记录，
+         * 整体取消时已等待时间与端点快慢无关，不记录
+         */
+        void cancel(boolean lostRace) {
+            if (cancelled || error != null || race.winner == this) {
+                return;
+            }
+            cancelled = true;
+            Call current = call;
+            if (current != null) {
+                current.cancel();
+            }
+            if (lostRace) {
+                endpointRouter.recordFirstToken(endpoint, System.currentTimeMillis() - startedAt);
             }
+        }
+        
+        private void fail(String message) {
+            logger.error("LLM 调用失败 [{}]: {}", endpoint.getName(), message);
+            endpointRouter.recordFailure(endpoint);
+            race.failed(this, message);
+        }
+    }
+    
+    /**
+     * 解析 SSE 数据行中的内容增量
+     */
+    private String parseContent(String data) {
+        try {
+            JsonNode jsonNode = objectMapper.readTree(data);
+            JsonNode choices = jsonNode.get("choices");
             
+            if (choices != null && choices.isArray() && choices.size() > 0) {
+                JsonNode delta = choices.get(0).get("delta");
+                if (delta != null && delta.has("content")) {
+                    return delta.get("content").asText();
+                }
+            }
         } catch (Exception e) {
-            logger.error("LLM 调用异常", e);
-            onError.accept("调用失败: " + e.getMessage());
+            logger.warn("解析流式响应失败: {}", data, e);
         }
+        return null;
     }
     
     /**
-     * 构建消息列表
+     * 构建好的提示词；notice 为需要告知用户的信息（如参考材料只放入了部分片段），没有时为 null
      */
-    private List<ChatMessage> buildMessages(RAGChatRequest request) {
-        List<ChatMessage> messages = new ArrayList<>();
+    public static class Prompt {
         
-        // 系统提示词
-        String systemPrompt = request.getSystemPrompt() != null && !request.getSystemPrompt().isEmpty()
-                ? request.getSystemPrompt()
-                : defaultSystemPrompt;
-        messages.add(new ChatMessage("system", systemPrompt));
+        private final List<ChatMessage> messages;
+        private final String notice;
         
-        // 用户问题（包含参考材料）
-        StringBuilder userContent = new StringBuilder();
-        
-        if (request.getContextMaterial() != null && !request.getContextMaterial().isEmpty()) {
-            userContent.append("参考资料：\n");
-            userContent.append(request.getContextMaterial());
-            userContent.append("\n\n");
+        Prompt(List<ChatMessage> messages, String notice) {
+            this.messages = messages;
+            this.notice = notice;
         }
         
-        userContent.append("问题：\n");
-        userContent.append(request.getQuestion());
-        
-        messages.add(new ChatMessage("user", userContent.toString()));
+        public List<ChatMessage> getMessages() {
+            return messages;
+        }
         
-        return messages;
+        public String getNotice() {
+            return notice;
+        }
     }
 }
-
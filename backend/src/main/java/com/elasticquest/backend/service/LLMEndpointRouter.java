@@ -0,0 +1,187 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.config.LLMProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LLM 端点路由
+ * 记录每个端点最近的首 token 耗时（TTFT），按中位数由快到慢排序；
+ * 主端点在其 TTFT 分位数对应的时间内没有返回首 token 时，允许在预算内向下一个端点发起对冲请求
+ */
+@Component
+public class LLMEndpointRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LLMEndpointRouter.class);
+
+    // 每个端点保留的 TTFT 样本数
+    private static final int WINDOW = 256;
+    // 样本少于该数量时不参与排序（优先尝试），对冲等待使用默认值
+    private static final int MIN_SAMPLES = 5;
+
+    private final List<EndpointState> endpoints = new ArrayList<>();
+    private final LLMProperties.Hedging hedging;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+
+    public LLMEndpointRouter(LLMProperties properties,
+                             @Value("${llm.molizk.api-url}") String apiUrl,
+                             @Value("${llm.molizk.api-key}") String apiKey,
+                             @Value("${llm.molizk.model}") String model) {
+        this.hedging = properties.getHedging();
+        List<LLMProperties.Endpoint> configured = properties.getEndpoints();
+        if (configured.isEmpty()) {
+            configured = List.of(new LLMProperties.Endpoint("molizk", apiUrl, apiKey, model));
+        }
+        for (LLMProperties.Endpoint endpoint : configured) {
+            endpoints.add(new EndpointState(endpoint));
+        }
+        logger.info("LLM 端点: {}, 对冲: {}", endpoints.size(), hedging.isEnabled() && endpoints.size() > 1);
+    }
+
+    /**
+     * 按优先级排序的端点：冷却中的端点排在最后，其余按 TTFT 中位数升序
+     */
+    public List<LLMProperties.Endpoint> rank() {
+        requests.incrementAndGet();
+        return ranked();
+    }
+
+    /**
+     * 当前优先级最高的端点，用于后台调用（不计入对冲预算的请求数）
+     */
+    public LLMProperties.Endpoint preferred() {
+        return ranked().get(0);
+    }
+
+    private List<LLMProperties.Endpoint> ranked() {
+        long now = System.currentTimeMillis();
+        // 先为每个端点算一次中位数和冷却状态，排序比较时不再重复计算，也不会读到排序中途变化的值
+        List<Ranking> ranked = new ArrayList<>(endpoints.size());
+        for (EndpointState state : endpoints) {
+            ranked.add(new Ranking(state.endpoint, state.coolingDownUntil > now, state.percentile(0.5)));
+        }
+        ranked.sort(Comparator
+            .comparing((Ranking ranking) -> ranking.coolingDown)
+            .thenComparingLong(ranking -> ranking.median));
+        List<LLMProperties.Endpoint> result = new ArrayList<>(ranked.size());
+        ranked.forEach(ranking -> result.add(ranking.endpoint));
+        return result;
+    }
+
+    /**
+     * 是否启用对冲（至少两个端点）
+     */
+    public boolean isHedgingEnabled() {
+        return hedging.isEnabled() && endpoints.size() > 1;
+    }
+
+    /**
+     * 主端点的对冲等待时间
+     */
+    public long hedgeDelayMillis(LLMProperties.Endpoint endpoint) {
+        EndpointState state = stateOf(endpoint);
+        if (state.sampleCount() < MIN_SAMPLES) {
+            return hedging.getDefaultDelayMs();
+        }
+        long delay = state.percentile(hedging.getPercentile());
+        return Math.max(hedging.getMinDelayMs(), Math.min(hedging.getMaxDelayMs(), delay));
+    }
+
+    /**
+     * 申请一次对冲，超过预算比例时拒绝
+     */
+    public boolean tryAcquireHedge() {
+        while (true) {
+            long current = hedges.get();
+            if (current + 1 > Math.max(1, requests.get() * hedging.getMaxRatio())) {
+                return false;
+            }
+            if (hedges.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 记录首 token 耗时；对冲中落败的请求以取消时已等待的时间记录（实际耗时的下限）
+     */
+    public void recordFirstToken(LLMProperties.Endpoint endpoint, long millis) {
+        stateOf(endpoint).add(millis);
+    }
+
+    /**
+     * 记录失败，端点在冷却期内排到最后
+     */
+    public void recordFailure(LLMProperties.Endpoint endpoint) {
+        stateOf(endpoint).coolingDownUntil = System.currentTimeMillis() + hedging.getFailureCooldownMs();
+    }
+
+    private EndpointState stateOf(LLMProperties.Endpoint endpoint) {
+        for (EndpointState state : endpoints) {
+            if (state.endpoint == endpoint) {
+                return state;
+            }
+        }
+        throw new IllegalArgumentException("未知的 LLM 端点: " + endpoint.getName());
+    }
+
+    /**
+     * 排序时端点的快照
+     */
+    private static class Ranking {
+
+        final LLMProperties.Endpoint endpoint;
+        final boolean coolingDown;
+        final long median;
+
+        Ranking(LLMProperties.Endpoint endpoint, boolean coolingDown, long median) {
+            this.endpoint = endpoint;
+            this.coolingDown = coolingDown;
+            this.median = median;
+        }
+    }
+
+    /**
+     * 端点的 TTFT 滑动窗口
+     */
+    private static class EndpointState {
+
+        final LLMProperties.Endpoint endpoint;
+        final long[] samples = new long[WINDOW];
+        int count;
+        int next;
+        volatile long coolingDownUntil;
+
+        EndpointState(LLMProperties.Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        synchronized void add(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+        }
+
+        synchronized int sampleCount() {
+            return count;
+        }
+
+        synchronized long percentile(double quantile) {
+            if (count < MIN_SAMPLES) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[Math.min(count - 1, (int) Math.ceil(quantile * count) - 1)];
+        }
+    }
+}
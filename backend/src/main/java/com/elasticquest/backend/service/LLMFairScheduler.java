@@ -0,0 +1,197 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.config.LLMProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * LLM 调用公平调度
+ * 限制同时进行的 LLM 调用数，达到上限后请求按用户分队列等待，
+ * 空出的名额在有等待请求的用户之间轮转分配，单个用户的大量请求不会挤占其他用户
+ */
+@Component
+public class LLMFairScheduler {
+
+    private static final String QUEUE_WAIT_NAME = "llm.queue.wait";
+
+    private final LLMProperties.Limits limits;
+    private final LLMRateLimiter rateLimiter;
+    private final MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, ArrayDeque<Waiter>> queues = new HashMap<>();
+    // 有等待请求的用户，按轮转顺序排列
+    private final ArrayDeque<String> rotation = new ArrayDeque<>();
+    private int active;
+    private int queued;
+
+    public LLMFairScheduler(LLMProperties properties, LLMRateLimiter rateLimiter, MeterRegistry meterRegistry) {
+        this.limits = properties.getLimits();
+        this.rateLimiter = rateLimiter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 注册并发和排队数指标（构造完成后注册，gauge 持有的 this 已完全初始化）
+     */
+    @PostConstruct
+    public void registerGauges() {
+        Gauge.builder("llm.active", this, scheduler -> scheduler.active)
+            .description("进行中的 LLM 调用数")
+            .register(meterRegistry);
+        Gauge.builder("llm.queue.size", this, scheduler -> scheduler.queued)
+            .description("等待中的 LLM 调用数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 获取调用名额，名额已满时排队等待
+     * @throws LLMRejectedException 队列已满或等待超时
+     */
+    public Permit acquire(String userId) throws InterruptedException {
+        if (!limits.isEnabled()) {
+            return new Permit(false);
+        }
+        long start = System.nanoTime();
+        Waiter waiter;
+        lock.lock();
+        try {
+            if (active < limits.getMaxConcurrent() && queued == 0) {
+                active++;
+                recordWait(start, "immediate");
+                return new Permit(true);
+            }
+            ArrayDeque<Waiter> queue = queues.get(userId);
+            if (queued >= limits.getMaxQueued()
+                    || (queue != null && queue.size() >= limits.getMaxQueuedPerUser())) {
+                rateLimiter.countRejection("queue_full");
+                throw new LLMRejectedException("queue_full", "排队请求过多，请稍后重试", 0);
+            }
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                queues.put(userId, queue);
+                rotation.addLast(userId);
+            }
+            waiter = new Waiter(userId);
+            queue.addLast(waiter);
+            queued++;
+        } finally {
+            lock.unlock();
+        }
+
+        boolean granted = false;
+        try {
+            granted = waiter.latch.await(limits.getQueueTimeoutMs(), TimeUnit.MILLISECONDS);
+        } finally {
+            if (!granted && !withdraw(waiter)) {
+                // 超时或中断的同时已被分配名额
+                granted = true;
+            }
+        }
+        if (!granted) {
+            recordWait(start, "timeout");
+            rateLimiter.countRejection("queue_timeout");
+            throw new LLMRejectedException("queue_timeout", "排队超时，请稍后重试", 0);
+        }
+        recordWait(start, "queued");
+        return new Permit(true);
+    }
+
+    /**
+     * 撤回尚未分配名额的等待请求
+     * @return false 表示已被分配名额
+     */
+    private boolean withdraw(Waiter waiter) {
+        lock.lock();
+        try {
+            if (waiter.granted) {
+                return false;
+            }
+            ArrayDeque<Waiter> queue = queues.get(waiter.userId);
+            queue.remove(waiter);
+            queued--;
+            if (queue.isEmpty()) {
+                queues.remove(waiter.userId);
+                rotation.remove(waiter.userId);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            active--;
+            // 轮转：取队首用户的第一个请求，该用户仍有请求时移到队尾
+            while (active < limits.getMaxConcurrent() && !rotation.isEmpty()) {
+                String userId = rotation.pollFirst();
+                ArrayDeque<Waiter> queue = queues.get(userId);
+                Waiter waiter = queue.pollFirst();
+                if (queue.isEmpty()) {
+                    queues.remove(userId);
+                } else {
+                    rotation.addLast(userId);
+                }
+                queued--;
+                active++;
+                waiter.granted = true;
+                waiter.latch.countDown();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordWait(long start, String outcome) {
+        Timer.builder(QUEUE_WAIT_NAME)
+            .description("LLM 调用排队等待时间")
+            .tag("outcome", outcome)
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 调用名额，调用结束后关闭
+     */
+    public class Permit implements AutoCloseable {
+
+        private final boolean counted;
+        private boolean closed;
+
+        private Permit(boolean counted) {
+            this.counted = counted;
+        }
+
+        @Override
+        public void close() {
+            if (counted && !closed) {
+                closed = true;
+                release();
+            }
+        }
+    }
+
+    private static class Waiter {
+
+        final String userId;
+        final CountDownLatch latch = new CountDownLatch(1);
+        boolean granted; // 持有 lock 时读写
+
+        Waiter(String userId) {
+            this.userId = userId;
+        }
+    }
+}
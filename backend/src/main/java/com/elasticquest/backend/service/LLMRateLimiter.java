@@ -0,0 +1,233 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.config.LLMProperties;
+import com.elasticquest.backend.model.ChatMessage;
+import com.elasticquest.backend.model.RAGChatRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LLM 请求限流
+ * 每个用户和全局各有两个令牌桶：请求数和估算 token 数（输入按最终发送的消息字符数估算，包括资料库材料和多轮历史，
+ * 输出按 maxTokens 估算），
+ * 任一桶不足时拒绝请求，避免少数调用方耗尽共享的 API 配额
+ */
+@Component
+public class LLMRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LLMRateLimiter.class);
+
+    static final String REJECTED_NAME = "llm.requests.rejected";
+
+    // 中文约 1.5 字符/token，英文约 4 字符/token，取偏保守的估算
+    private static final double CHARS_PER_TOKEN = 2.0;
+    // 空闲超过该时间的用户令牌桶会被移除（移除时桶已回满，不影响限流结果）
+    private static final long IDLE_BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final LLMProperties.Limits limits;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, UserBuckets> users = new ConcurrentHashMap<>();
+    private final TokenBucket globalRequests;
+    private final TokenBucket globalTokens;
+
+    public LLMRateLimiter(LLMProperties properties, MeterRegistry meterRegistry) {
+        this.limits = properties.getLimits();
+        this.meterRegistry = meterRegistry;
+        this.globalRequests = new TokenBucket(limits.getGlobalRequestsPerMinute());
+        this.globalTokens = new TokenBucket(limits.getGlobalTokensPerMinute());
+    }
+
+    /**
+     * 为一次聊天请求扣减令牌
+     * @return 本次扣减的令牌，请求最终没有发出（如排队被拒绝）时由调用方退回
+     * @throws LLMRejectedException 超出用户或全局限额
+     */
+    public Charge acquire(String userId, RAGChatRequest request, List<ChatMessage> messages) {
+        if (!limits.isEnabled()) {
+            return new Charge(null, 0);
+        }
+        return acquire(userId, estimateTokens(request, messages));
+    }
+
+    /**
+     * 按已估算的 token 数扣减令牌（后台调用，如对话摘要）
+     * @throws LLMRejectedException 超出用户或全局限额
+     */
+    public Charge acquire(String userId, long estimatedTokens) {
+        if (!limits.isEnabled()) {
+            return new Charge(null, 0);
+        }
+        long tokens = Math.min(estimatedTokens, Math.min(limits.getUserTokensPerMinute(),
+            limits.getGlobalTokensPerMinute()));
+        UserBuckets buckets = users.computeIfAbsent(userId, key -> new UserBuckets());
+
+        // 依次扣减，后面的桶不足时退回前面已扣减的令牌
+        long waitMs = buckets.requests.tryConsume(1);
+        if (waitMs > 0) {
+            throw reject("user_requests", "请求过于频繁", waitMs);
+        }
+        waitMs = buckets.tokens.tryConsume(tokens);
+        if (waitMs > 0) {
+            buckets.requests.refund(1);
+            throw reject("user_tokens", "token 用量超出限额", waitMs);
+        }
+        waitMs = globalRequests.tryConsume(1);
+        if (waitMs > 0) {
+            buckets.requests.refund(1);
+            buckets.tokens.refund(tokens);
+            throw reject("global_requests", "服务繁忙", waitMs);
+        }
+        waitMs = globalTokens.tryConsume(tokens);
+        if (waitMs > 0) {
+            buckets.requests.refund(1);
+            buckets.tokens.refund(tokens);
+            globalRequests.refund(1);
+            throw reject("global_tokens", "服务繁忙", waitMs);
+        }
+        return new Charge(buckets, tokens);
+    }
+
+    /**
+     * 估算一次请求消耗的 token 数
+     * @param messages 实际发送的消息列表
+     */
+    long estimateTokens(RAGChatRequest request, List<ChatMessage> messages) {
+        long chars = 0;
+        for (ChatMessage message : messages) {
+            chars += length(message.getContent());
+        }
+        long completion = request.getMaxTokens() != null && request.getMaxTokens() > 0
+            ? request.getMaxTokens()
+            : limits.getDefaultCompletionTokens();
+        return (long) Math.ceil(chars / CHARS_PER_TOKEN) + completion;
+    }
+
+    /**
+     * 记录被拒绝的请求（排队阶段的拒绝也经由这里计数）
+     */
+    void countRejection(String reason) {
+        Counter.builder(REJECTED_NAME)
+            .description("被限流或排队超时拒绝的 LLM 请求")
+            .tag("reason", reason)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    /**
+     * 移除空闲的用户令牌桶
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleBuckets() {
+        long now = System.currentTimeMillis();
+        users.values().removeIf(buckets -> now - buckets.lastUsed() > IDLE_BUCKET_MILLIS);
+    }
+
+    private LLMRejectedException reject(String reason, String message, long waitMs) {
+        countRejection(reason);
+        long seconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitMs + 999));
+        logger.info("LLM 请求被限流: reason={}, retryAfter={}s", reason, seconds);
+        return new LLMRejectedException(reason, message + "，请 " + seconds + " 秒后重试", waitMs);
+    }
+
+    private static long length(String text) {
+        return text != null ? text.length() : 0;
+    }
+
+    /**
+     * 一次请求扣减的令牌
+     */
+    public class Charge {
+
+        private final UserBuckets buckets; // 未启用限流时为 null
+        private final long tokens;
+        private boolean refunded;
+
+        private Charge(UserBuckets buckets, long tokens) {
+            this.buckets = buckets;
+            this.tokens = tokens;
+        }
+
+        /**
+         * 退回令牌，重复调用无效
+         */
+        public synchronized void refund() {
+            if (buckets == null || refunded) {
+                return;
+            }
+            refunded = true;
+            buckets.requests.refund(1);
+            buckets.tokens.refund(tokens);
+            globalRequests.refund(1);
+            globalTokens.refund(tokens);
+        }
+    }
+
+    /**
+     * 单个用户的令牌桶
+     */
+    private class UserBuckets {
+
+        final TokenBucket requests = new TokenBucket(limits.getUserRequestsPerMinute());
+        final TokenBucket tokens = new TokenBucket(limits.getUserTokensPerMinute());
+
+        long lastUsed() {
+            return Math.max(requests.lastUsed(), tokens.lastUsed());
+        }
+    }
+
+    /**
+     * 令牌桶：容量为每分钟配额，按时间连续补充
+     */
+    static class TokenBucket {
+
+        private final double capacity;
+        private final double refillPerMilli;
+        private double available;
+        private long updatedAt = System.currentTimeMillis();
+        private volatile long lastUsed = updatedAt;
+
+        TokenBucket(long perMinute) {
+            this.capacity = perMinute;
+            this.refillPerMilli = perMinute / 60000.0;
+            this.available = perMinute;
+        }
+
+        /**
+         * 扣减令牌
+         * @return 0 表示成功，否则为令牌补足所需的毫秒数
+         */
+        synchronized long tryConsume(long amount) {
+            refill();
+            lastUsed = updatedAt;
+            if (available >= amount) {
+                available -= amount;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((amount - available) / refillPerMilli));
+        }
+
+        synchronized void refund(long amount) {
+            available = Math.min(capacity, available + amount);
+        }
+
+        long lastUsed() {
+            return lastUsed;
+        }
+
+        private void refill() {
+            long now = System.currentTimeMillis();
+            available = Math.min(capacity, available + (now - updatedAt) * refillPerMilli);
+            updatedAt = now;
+        }
+    }
+}
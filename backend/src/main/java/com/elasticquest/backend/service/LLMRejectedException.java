@@ -0,0 +1,32 @@
+package com.elasticquest.backend.service;
+
+/**
+ * LLM 请求被限流或排队超时
+ */
+public class LLMRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String reason;
+    private final long retryAfterMs;
+
+    public LLMRejectedException(String reason, String message, long retryAfterMs) {
+        super(message);
+        this.reason = reason;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    /**
+     * 拒绝原因，用作指标标签
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * 建议的重试等待时间，0 表示未知
+     */
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+}
@@ -0,0 +1,115 @@
+package com.elasticquest.backend.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LLM 流式对话指标
+ * 分段记录请求构建、上游首 token、token 间隔、整体流耗时和高亮计算耗时，
+ * 用于区分慢对话来自上游模型、提示词大小还是本地 SSE 链路
+ */
+@Component
+public class LLMStreamMetrics {
+
+    public static final String OUTCOME_COMPLETE = "complete";
+    public static final String OUTCOME_ERROR = "error";
+    public static final String OUTCOME_CANCELLED = "cancelled";
+
+    private final MeterRegistry meterRegistry;
+
+    public LLMStreamMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 构建提示词和请求体的耗时
+     */
+    public void recordBuild(String model, long nanos, long promptChars) {
+        Timer.builder("llm.request.build")
+            .description("LLM 请求构建耗时")
+            .tag("model", model)
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+
+        DistributionSummary.builder("llm.request.prompt.size")
+            .description("LLM 请求提示词长度")
+            .baseUnit("chars")
+            .tag("model", model)
+            .register(meterRegistry)
+            .record(promptChars);
+    }
+
+    /**
+     * 从发出上游请求到收到首个内容块的耗时（只记录胜出的请求）
+     */
+    public void recordFirstToken(String model, String endpoint, long nanos) {
+        Timer.builder("llm.stream.ttft")
+            .description("LLM 上游首 token 耗时")
+            .tag("model", model)
+            .tag("endpoint", endpoint)
+            .publishPercentileHistogram()
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 相邻内容块之间的间隔
+     */
+    public void recordTokenGap(String model, long nanos) {
+        Timer.builder("llm.stream.token.gap")
+            .description("LLM 内容块间隔")
+            .tag("model", model)
+            .publishPercentileHistogram()
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 一次流式对话结束（不含高亮计算）
+     * @param tokens 收到的内容块数
+     */
+    public void recordStream(String model, String outcome, long nanos, long bytes, long tokens) {
+        Timer.builder("llm.stream.duration")
+            .description("LLM 流式对话总耗时")
+            .tag("model", model)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+
+        DistributionSummary.builder("llm.stream.bytes")
+            .description("LLM 流式输出字节数")
+            .baseUnit("bytes")
+            .tag("model", model)
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .record(bytes);
+
+        DistributionSummary.builder("llm.stream.tokens")
+            .description("LLM 流式输出内容块数")
+            .baseUnit("tokens")
+            .tag("model", model)
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .record(tokens);
+    }
+
+    /**
+     * 回答高亮计算耗时
+     */
+    public void recordHighlight(long nanos) {
+        Timer.builder("llm.highlight.duration")
+            .description("回答高亮计算耗时")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
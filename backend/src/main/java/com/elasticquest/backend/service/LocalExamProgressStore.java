@@ -0,0 +1,454 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.model.ExamProgress;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地文件进度存储
+ * 进度以 NDJSON 追加写入 progress.log，每行是一个用户的完整进度或删除标记，重放时后写的覆盖先写的；
+ * save/delete 只把快照放入待写队列，由后台线程攒批序列化、写入并只 fsync 一次，
+ * 首个待写变更最多等待 flush-delay-ms；同一用户在一批内的多次变更只写最后一次。
+ * 日志超过存活数据两倍时重写为只含最新记录的文件（临时文件 + 原子替换）
+ */
+@Component
+@ConditionalOnProperty(name = "exam.store.type", havingValue = ExamProgressStore.LOCAL, matchIfMissing = true)
+public class LocalExamProgressStore implements ExamProgressStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalExamProgressStore.class);
+
+    private static final String LOG_FILE = "progress.log";
+    private static final String COMPACT_FILE = "progress.log.tmp";
+
+    private final Path directory;
+    private final long flushDelayMs;
+    private final int maxBatchRecords;
+    private final long compactMinBytes;
+    private final MeterRegistry meterRegistry;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    // 以下字段由 lock 保护
+    private final Object lock = new Object();
+    private Map<String, ExamProgress> pending = new LinkedHashMap<>(); // 值为 null 表示删除
+    private long pendingSince;
+    private long requested; // 已提交的变更序号
+    private long durable;   // 已持久化的变更序号
+    private boolean flushRequested;
+    private boolean closed;
+    private IOException failure;
+
+    // 以下字段只由写线程（启动后）访问
+    private FileChannel channel;
+    private long logBytes;
+    private long liveBytes;
+    private final Map<String, Integer> liveSizes = new HashMap<>();
+
+    private Map<String, ExamProgress> recovered;
+    private Thread writer;
+
+    public LocalExamProgressStore(@Value("${exam.store.dir:./data/exam}") String directory,
+                                  @Value("${exam.store.flush-delay-ms:200}") long flushDelayMs,
+                                  @Value("${exam.store.max-batch-records:1000}") int maxBatchRecords,
+                                  @Value("${exam.store.compact-min-bytes:8388608}") long compactMinBytes,
+                                  MeterRegistry meterRegistry) {
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+        this.flushDelayMs = flushDelayMs;
+        this.maxBatchRecords = maxBatchRecords;
+        this.compactMinBytes = compactMinBytes;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 重放日志恢复进度；崩溃时写了一半的末尾被截掉，损坏的记录被跳过，未完成的压缩文件被删除
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(COMPACT_FILE));
+
+        long start = System.nanoTime();
+        Path file = directory.resolve(LOG_FILE);
+        Map<String, byte[]> records = replay(file);
+        recovered = new HashMap<>();
+        for (Map.Entry<String, byte[]> record : records.entrySet()) {
+            JsonNode node = objectMapper.readTree(record.getValue());
+            recovered.put(record.getKey(), objectMapper.treeToValue(node.get("progress"), ExamProgress.class));
+            liveSizes.put(record.getKey(), record.getValue().length);
+            liveBytes += record.getValue().length;
+        }
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        logBytes = channel.size();
+        channel.position(logBytes);
+        if (logBytes > compactMinBytes && logBytes > 2 * liveBytes) {
+            compact();
+        }
+
+        writer = new Thread(this::writeLoop, "exam-progress-writer");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("考试进度已恢复: dir={}, users={}, logBytes={}, 耗时 {}ms",
+            directory, recovered.size(), logBytes, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public Map<String, ExamProgress> loadAll() {
+        synchronized (lock) {
+            if (recovered == null) {
+                throw new IllegalStateException("考试进度只能在启动时加载一次");
+            }
+            Map<String, ExamProgress> progress = recovered;
+            recovered = null;
+            return progress;
+        }
+    }
+
+    @Override
+    public void save(ExamProgress progress) {
+        enqueue(progress.getUserId(), progress);
+    }
+
+    @Override
+    public void delete(String userId) {
+        enqueue(userId, null);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        synchronized (lock) {
+            long target = requested;
+            flushRequested = true;
+            lock.notifyAll();
+            while (durable < target) {
+                if (failure != null) {
+                    throw new IOException("考试进度落盘失败: " + failure.getMessage(), failure);
+                }
+                if (!writer.isAlive()) {
+                    throw new IOException("考试进度写线程已停止");
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("等待考试进度落盘被中断", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String name() {
+        return LOCAL;
+    }
+
+    /**
+     * 写出剩余变更后关闭日志；写线程未在等待时间内退出时不关闭文件，由它写完当前批次
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join(10000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            if (!pending.isEmpty()) {
+                logger.warn("考试进度未全部落盘: users={}", pending.size());
+            }
+        }
+        if (writer.isAlive()) {
+            // 关闭通道会让正在进行的写入失败并截断日志，交给进程退出时释放
+            logger.warn("考试进度写线程未及时退出，保留日志文件打开");
+            return;
+        }
+        channel.close();
+    }
+
+    private void enqueue(String userId, ExamProgress progress) {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("考试进度存储已关闭");
+            }
+            if (pending.isEmpty()) {
+                pendingSince = System.currentTimeMillis();
+            }
+            pending.remove(userId);
+            pending.put(userId, progress);
+            requested++;
+            if (pending.size() == 1 || pending.size() >= maxBatchRecords) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 写线程：攒批、写入、fsync；写入失败时把这一批放回队列稍后重试
+     */
+    private void writeLoop() {
+        while (true) {
+            Map<String, ExamProgress> batch;
+            long sequence;
+            synchronized (lock) {
+                try {
+                    while (pending.isEmpty() && !closed) {
+                        lock.wait();
+                    }
+                    if (pending.isEmpty()) {
+                        return;
+                    }
+                    long remaining;
+                    while (!closed && !flushRequested && pending.size() < maxBatchRecords
+                            && (remaining = pendingSince + flushDelayMs - System.currentTimeMillis()) > 0) {
+                        lock.wait(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                batch = pending;
+                sequence = requested;
+                pending = new LinkedHashMap<>();
+                flushRequested = false;
+            }
+
+            IOException error = null;
+            try {
+                write(batch);
+                if (logBytes > compactMinBytes && logBytes > 2 * liveBytes) {
+                    compact();
+                }
+            } catch (IOException e) {
+                error = e;
+            } catch (RuntimeException e) {
+                // 序列化失败等，同样保留这一批，避免写线程退出后 flush 一直等待
+                error = new IOException(e.toString(), e);
+            }
+
+            synchronized (lock) {
+                if (error == null) {
+                    durable = sequence;
+                    failure = null;
+                } else {
+                    logger.error("考试进度落盘失败，稍后重试: records={}, {}", batch.size(), error.getMessage());
+                    failure = error;
+                    // 批次期间的新变更更新，保留新的
+                    batch.putAll(pending);
+                    pending = batch;
+                    pendingSince = System.currentTimeMillis();
+                    if (closed) {
+                        lock.notifyAll();
+                        return;
+                    }
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 追加一批记录并 fsync；失败时截回写入前的长度，避免日志中间留下半行
+     */
+    private void write(Map<String, ExamProgress> batch) throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer[] buffers = new ByteBuffer[batch.size() * 2];
+        int[] sizes = new int[batch.size()];
+        ByteBuffer newline = ByteBuffer.wrap(new byte[] {'\n'});
+        long bytes = 0;
+        int i = 0;
+        for (Map.Entry<String, ExamProgress> record : batch.entrySet()) {
+            byte[] line = serialize(record.getKey(), record.getValue());
+            sizes[i / 2] = line.length;
+            buffers[i++] = ByteBuffer.wrap(line);
+            buffers[i++] = newline.duplicate();
+            bytes += line.length + 1;
+        }
+
+        try {
+            long written = 0;
+            while (written < bytes) {
+                written += channel.write(buffers);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            try {
+                channel.truncate(logBytes);
+                channel.position(logBytes);
+            } catch (IOException ignored) {
+                // 截断失败时重放会在损坏处停止
+            }
+            throw e;
+        }
+        logBytes += bytes;
+
+        i = 0;
+        for (Map.Entry<String, ExamProgress> record : batch.entrySet()) {
+            int size = record.getValue() != null ? sizes[i] : 0;
+            Integer previous = size == 0 ? liveSizes.remove(record.getKey()) : liveSizes.put(record.getKey(), size);
+            liveBytes += size - (previous != null ? previous : 0);
+            i++;
+        }
+
+        Timer.builder("exam.store.flush")
+            .description("考试进度批量写入和 fsync 耗时")
+            .register(meterRegistry)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("exam.store.flush.records")
+            .description("每次 fsync 写入的进度记录数")
+            .register(meterRegistry)
+            .record(batch.size());
+    }
+
+    /**
+     * 把日志重写为每个用户一条最新记录
+     */
+    private void compact() throws IOException {
+        long start = System.nanoTime();
+        long before = logBytes;
+        Path file = directory.resolve(LOG_FILE);
+        Path temp = directory.resolve(COMPACT_FILE);
+        Map<String, byte[]> records = replay(file);
+
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer newline = ByteBuffer.wrap(new byte[] {'\n'});
+            for (byte[] line : records.values()) {
+                ByteBuffer buffer = ByteBuffer.wrap(line);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                newline.rewind();
+                while (newline.hasRemaining()) {
+                    out.write(newline);
+                }
+            }
+            out.force(false);
+        }
+
+        channel.close();
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory();
+        channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        logBytes = channel.size();
+        channel.position(logBytes);
+        logger.info("考试进度日志已压缩: users={}, {} -> {} bytes, 耗时 {}ms",
+            records.size(), before, logBytes, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 重放日志，返回每个存活用户的最新 put 记录；
+     * 崩溃时写了一半的末尾（没有换行结尾）被截掉，中间无法解析的完整记录跳过并记录错误日志
+     */
+    private Map<String, byte[]> replay(Path file) throws IOException {
+        Map<String, byte[]> records = new LinkedHashMap<>();
+        if (!Files.exists(file)) {
+            return records;
+        }
+        byte[] content = Files.readAllBytes(file);
+        int valid = 0;
+        int skipped = 0;
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] != '\n') {
+                continue;
+            }
+            if (i > valid) {
+                byte[] line = Arrays.copyOfRange(content, valid, i);
+                if (!apply(records, line)) {
+                    skipped++;
+                    logger.error("考试进度日志记录已损坏，已跳过: offset={}, bytes={}", valid, line.length);
+                }
+            }
+            valid = i + 1;
+        }
+
+        if (valid < content.length) {
+            try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                out.truncate(valid);
+                out.force(false);
+            }
+            logger.warn("考试进度日志末尾不完整，已截断: bytes={}", content.length - valid);
+        }
+        if (skipped > 0) {
+            logger.error("考试进度日志中有 {} 条损坏的记录被跳过，相关用户可能恢复为更早的进度", skipped);
+        }
+        return records;
+    }
+
+    /**
+     * 按记录的 op 更新存活记录
+     * @return 记录无法解析或缺少必要字段时为 false
+     */
+    private boolean apply(Map<String, byte[]> records, byte[] line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (IOException e) {
+            return false;
+        }
+        String userId = node.path("userId").asText(null);
+        if (userId == null) {
+            return false;
+        }
+        switch (node.path("op").asText()) {
+            case "delete" -> records.remove(userId);
+            case "put" -> {
+                if (!node.path("progress").isObject()) {
+                    return false;
+                }
+                records.remove(userId);
+                records.put(userId, line);
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] serialize(String userId, ExamProgress progress) throws IOException {
+        ObjectNode record = objectMapper.createObjectNode();
+        record.put("op", progress != null ? "put" : "delete");
+        record.put("userId", userId);
+        if (progress != null) {
+            record.set("progress", objectMapper.valueToTree(progress));
+        }
+        return objectMapper.writeValueAsBytes(record);
+    }
+
+    private void forceDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // 部分平台不支持对目录 fsync
+        }
+    }
+}
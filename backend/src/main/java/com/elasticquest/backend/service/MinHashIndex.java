@@ -0,0 +1,169 @@
+package com.elasticquest.backend.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 近似重复片段索引（MinHash + LSH）
+ * 参考材料按分句切成片段（单句及相邻两句），每个片段取字符二元组集合的 MinHash 签名，
+ * 签名分段后放入 LSH 桶；查询时只比较至少有一段完全相同的候选片段，用签名估计 Jaccard 相似度。
+ * 构建一次后只读，可在线程间共享
+ */
+public class MinHashIndex {
+
+    private static final int NUM_HASHES = 96;
+    // 32 段 × 3 行：相似度 0.4 的片段约 88% 能成为候选，0.5 时约 99%，0.1 时约 3%
+    private static final int BANDS = 32;
+    private static final int ROWS = NUM_HASHES / BANDS;
+    // 二元组少于该数的片段太短，相似度估计不可靠
+    private static final int MIN_SHINGLES = 5;
+
+    private static final String CLAUSE_ENDS = "。！？；，、,.!?;\n";
+
+    private static final long[] SEEDS = new long[NUM_HASHES];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            seed = mix(seed + i);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final List<int[]> signatures = new ArrayList<>();
+    private final List<Map<Long, List<Integer>>> buckets = new ArrayList<>(BANDS);
+
+    private MinHashIndex() {
+        for (int b = 0; b < BANDS; b++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    public static MinHashIndex build(String text) {
+        MinHashIndex index = new MinHashIndex();
+        List<int[]> clauses = clauses(text);
+        for (int i = 0; i < clauses.size(); i++) {
+            index.add(signature(text, clauses.get(i)[0], clauses.get(i)[1]));
+            // 相邻两句合并，匹配回答中把两句改写成一句的情况
+            if (i + 1 < clauses.size()) {
+                index.add(signature(text, clauses.get(i)[0], clauses.get(i + 1)[1]));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 与片段最相似的材料片段的估计 Jaccard 相似度，没有候选时为 0
+     */
+    public double bestSimilarity(String text, int start, int end) {
+        int[] query = signature(text, start, end);
+        if (query == null) {
+            return 0;
+        }
+        double best = 0;
+        Set<Integer> compared = new HashSet<>();
+        for (int b = 0; b < BANDS; b++) {
+            List<Integer> candidates = buckets.get(b).get(bandKey(query, b));
+            if (candidates == null) {
+                continue;
+            }
+            for (int candidate : candidates) {
+                if (compared.add(candidate)) {
+                    best = Math.max(best, estimate(query, signatures.get(candidate)));
+                }
+            }
+        }
+        return best;
+    }
+
+    public int size() {
+        return signatures.size();
+    }
+
+    /**
+     * 按句末和分句标点切分，返回 [起点, 终点) 列表，标点归入前一句
+     */
+    public static List<int[]> clauses(String text) {
+        List<int[]> clauses = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (CLAUSE_ENDS.indexOf(text.charAt(i)) >= 0) {
+                clauses.add(new int[] {start, i + 1});
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            clauses.add(new int[] {start, text.length()});
+        }
+        return clauses;
+    }
+
+    private void add(int[] signature) {
+        if (signature == null) {
+            return;
+        }
+        int id = signatures.size();
+        signatures.add(signature);
+        for (int b = 0; b < BANDS; b++) {
+            buckets.get(b).computeIfAbsent(bandKey(signature, b), key -> new ArrayList<>(1)).add(id);
+        }
+    }
+
+    /**
+     * 字符二元组集合的 MinHash 签名；忽略空白和标点，英文不区分大小写
+     */
+    private static int[] signature(String text, int start, int end) {
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int shingles = 0;
+        char previous = 0;
+        for (int i = start; i < end; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (!Character.isLetterOrDigit(c)) {
+                continue;
+            }
+            if (previous != 0) {
+                long shingle = ((long) previous << 16) | c;
+                for (int h = 0; h < NUM_HASHES; h++) {
+                    int value = (int) (mix(shingle ^ SEEDS[h]) >>> 33);
+                    if (value < signature[h]) {
+                        signature[h] = value;
+                    }
+                }
+                shingles++;
+            }
+            previous = c;
+        }
+        return shingles >= MIN_SHINGLES ? signature : null;
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int r = band * ROWS; r < (band + 1) * ROWS; r++) {
+            key = mix(key * 31 + signature[r]);
+        }
+        return key;
+    }
+
+    private static double estimate(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return equal / (double) NUM_HASHES;
+    }
+
+    private static long mix(long value) {
+        // SplitMix64 终结函数
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
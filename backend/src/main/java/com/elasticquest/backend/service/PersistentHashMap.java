@@ -0,0 +1,415 @@
+package com.elasticquest.backend.service;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 不可变的哈希映射（HAMT，哈希数组映射前缀树）
+ * plus/minus 返回新映射，只复制从根到被修改位置的一条路径（每层最多 32 个槽位），其余节点与原映射共享，
+ * 单次修改为 O(log32 n)；实现 Map 接口但所有修改方法都抛出 UnsupportedOperationException，可在线程间共享
+ */
+final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+    private Set<Map.Entry<K, V>> entrySet;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * 转换为持久化映射；已经是持久化映射时直接返回，不复制
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentHashMap<K, V> from(Map<K, V> map) {
+        if (map instanceof PersistentHashMap) {
+            return (PersistentHashMap<K, V>) map;
+        }
+        PersistentHashMap<K, V> result = empty();
+        if (map != null) {
+            for (Map.Entry<K, V> entry : map.entrySet()) {
+                result = result.plus(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 加入或替换一个映射
+     */
+    PersistentHashMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(key, "key");
+        int hash = hash(key);
+        if (root == null) {
+            return new PersistentHashMap<>(BitmapNode.single(hash, 0, new Leaf(key, value, hash)), 1);
+        }
+        boolean[] added = new boolean[1];
+        Node updated = root.plus(0, new Leaf(key, value, hash), added);
+        return updated == root ? this : new PersistentHashMap<>(updated, size + (added[0] ? 1 : 0));
+    }
+
+    /**
+     * 移除一个映射，不存在时返回自身
+     */
+    PersistentHashMap<K, V> minus(Object key) {
+        if (root == null || key == null) {
+            return this;
+        }
+        Node updated = root.minus(0, hash(key), key);
+        if (updated == root) {
+            return this;
+        }
+        return size == 1 ? empty() : new PersistentHashMap<>(updated, size - 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Leaf leaf = key != null && root != null ? root.find(0, hash(key), key) : null;
+        return leaf != null ? (V) leaf.value : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && root != null && root.find(0, hash(key), key) != null;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        Set<Map.Entry<K, V>> entries = entrySet;
+        if (entries == null) {
+            entries = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new LeafIterator<>(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+            entrySet = entries;
+        }
+        return entries;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 前缀树节点；修改时返回新节点，未变化时返回自身
+     */
+    private abstract static class Node {
+
+        abstract Leaf find(int shift, int hash, Object key);
+
+        abstract Node plus(int shift, Leaf leaf, boolean[] added);
+
+        /**
+         * @return 移除后的节点，节点变空时为 null
+         */
+        abstract Node minus(int shift, int hash, Object key);
+    }
+
+    /**
+     * 键值对，同时作为 Map.Entry 返回
+     */
+    private static final class Leaf extends Node implements Map.Entry<Object, Object> {
+
+        final Object key;
+        final Object value;
+        final int hash;
+
+        Leaf(Object key, Object value, int hash) {
+            this.key = key;
+            this.value = value;
+            this.hash = hash;
+        }
+
+        @Override
+        Leaf find(int shift, int hash, Object key) {
+            return this.hash == hash && this.key.equals(key) ? this : null;
+        }
+
+        @Override
+        Node plus(int shift, Leaf leaf, boolean[] added) {
+            if (hash == leaf.hash && key.equals(leaf.key)) {
+                return value == leaf.value ? this : leaf;
+            }
+            added[0] = true;
+            if (hash == leaf.hash) {
+                return new CollisionNode(hash, new Leaf[] {this, leaf});
+            }
+            return BitmapNode.pair(shift, this, leaf);
+        }
+
+        @Override
+        Node minus(int shift, int hash, Object key) {
+            return this.hash == hash && this.key.equals(key) ? null : this;
+        }
+
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> entry
+                && key.equals(entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * 按哈希的 5 位分支，bitmap 记录存在的分支，children 只保存存在的分支
+     */
+    private static final class BitmapNode extends Node {
+
+        final int bitmap;
+        final Node[] children;
+
+        BitmapNode(int bitmap, Node[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        static BitmapNode single(int hash, int shift, Node child) {
+            return new BitmapNode(bit(hash, shift), new Node[] {child});
+        }
+
+        /**
+         * 两个哈希不同的叶子，按第一个不同的分支拆开
+         */
+        static Node pair(int shift, Leaf a, Leaf b) {
+            int bitA = bit(a.hash, shift);
+            int bitB = bit(b.hash, shift);
+            if (bitA == bitB) {
+                return new BitmapNode(bitA, new Node[] {pair(shift + BITS, a, b)});
+            }
+            return new BitmapNode(bitA | bitB, bitA < bitB ? new Node[] {a, b} : new Node[] {b, a});
+        }
+
+        @Override
+        Leaf find(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            return (bitmap & bit) == 0 ? null : children[index(bit)].find(shift + BITS, hash, key);
+        }
+
+        @Override
+        Node plus(int shift, Leaf leaf, boolean[] added) {
+            int bit = bit(leaf.hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                Node[] copy = new Node[children.length + 1];
+                System.arraycopy(children, 0, copy, 0, index);
+                copy[index] = leaf;
+                System.arraycopy(children, index, copy, index + 1, children.length - index);
+                return new BitmapNode(bitmap | bit, copy);
+            }
+            Node child = children[index];
+            Node updated = child.plus(shift + BITS, leaf, added);
+            if (updated == child) {
+                return this;
+            }
+            Node[] copy = children.clone();
+            copy[index] = updated;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        @Override
+        Node minus(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Node child = children[index];
+            Node updated = child.minus(shift + BITS, hash, key);
+            if (updated == child) {
+                return this;
+            }
+            if (updated != null) {
+                // 只剩一个叶子的分支提升到本层，保持与直接插入得到的结构一致
+                if (children.length == 1 && updated instanceof Leaf) {
+                    return updated;
+                }
+                Node[] copy = children.clone();
+                copy[index] = updated;
+                return new BitmapNode(bitmap, copy);
+            }
+            if (children.length == 1) {
+                return null;
+            }
+            Node[] copy = new Node[children.length - 1];
+            System.arraycopy(children, 0, copy, 0, index);
+            System.arraycopy(children, index + 1, copy, index, copy.length - index);
+            if (copy.length == 1 && copy[0] instanceof Leaf) {
+                return copy[0];
+            }
+            return new BitmapNode(bitmap & ~bit, copy);
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+    }
+
+    /**
+     * 32 位哈希完全相同的键，线性查找
+     */
+    private static final class CollisionNode extends Node {
+
+        final int hash;
+        final Leaf[] leaves;
+
+        CollisionNode(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        @Override
+        Leaf find(int shift, int hash, Object key) {
+            if (this.hash != hash) {
+                return null;
+            }
+            for (Leaf leaf : leaves) {
+                if (leaf.key.equals(key)) {
+                    return leaf;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        Node plus(int shift, Leaf leaf, boolean[] added) {
+            if (leaf.hash != hash) {
+                // 不同哈希的新键：把冲突节点整体作为一个分支，与新叶子在更深层拆开
+                added[0] = true;
+                BitmapNode node = BitmapNode.single(hash, shift, this);
+                return node.plus(shift, leaf, added);
+            }
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(leaf.key)) {
+                    if (leaves[i].value == leaf.value) {
+                        return this;
+                    }
+                    Leaf[] copy = leaves.clone();
+                    copy[i] = leaf;
+                    return new CollisionNode(hash, copy);
+                }
+            }
+            added[0] = true;
+            Leaf[] copy = Arrays.copyOf(leaves, leaves.length + 1);
+            copy[leaves.length] = leaf;
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        Node minus(int shift, int hash, Object key) {
+            if (this.hash != hash) {
+                return this;
+            }
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(key)) {
+                    if (leaves.length == 2) {
+                        return leaves[1 - i];
+                    }
+                    Leaf[] copy = new Leaf[leaves.length - 1];
+                    System.arraycopy(leaves, 0, copy, 0, i);
+                    System.arraycopy(leaves, i + 1, copy, i, copy.length - i);
+                    return new CollisionNode(hash, copy);
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * 深度优先遍历全部叶子
+     */
+    private static final class LeafIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+
+        private final ArrayDeque<Node> stack = new ArrayDeque<>();
+
+        LeafIterator(Node root) {
+            if (root != null) {
+                stack.push(root);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                if (node instanceof Leaf leaf) {
+                    return (Map.Entry<K, V>) (Map.Entry<?, ?>) leaf;
+                }
+                Node[] children = node instanceof BitmapNode bitmapNode
+                    ? bitmapNode.children
+                    : ((CollisionNode) node).leaves;
+                for (int i = children.length - 1; i >= 0; i--) {
+                    stack.push(children[i]);
+                }
+            }
+            throw new NoSuchElementException();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.model.SlowCommandRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 慢命令日志
+ * 固定容量的环形缓冲区，写满后覆盖最旧的记录
+ */
+@Component
+public class SlowCommandLog {
+    
+    private final SlowCommandRecord[] buffer;
+    private final long thresholdMs;
+    private int next;
+    private int size;
+    
+    public SlowCommandLog(@Value("${elasticsearch.metrics.slow-command-capacity:100}") int capacity,
+                          @Value("${elasticsearch.metrics.slow-command-threshold-ms:1000}") long thresholdMs) {
+        this.buffer = new SlowCommandRecord[Math.max(1, capacity)];
+        this.thresholdMs = thresholdMs;
+    }
+    
+    /**
+     * 是否达到慢命令阈值
+     */
+    public boolean isSlow(long durationMs) {
+        return durationMs >= thresholdMs;
+    }
+    
+    /**
+     * 记录一条慢命令
+     */
+    public synchronized void add(SlowCommandRecord record) {
+        buffer[next] = record;
+        next = (next + 1) % buffer.length;
+        if (size < buffer.length) {
+            size++;
+        }
+    }
+    
+    /**
+     * 按耗时降序返回当前保留的慢命令
+     */
+    public List<SlowCommandRecord> worstFirst() {
+        List<SlowCommandRecord> records = snapshot();
+        records.sort(Comparator.comparingLong(SlowCommandRecord::getDurationMs).reversed());
+        return records;
+    }
+    
+    /**
+     * 按时间顺序返回当前保留的慢命令
+     */
+    public synchronized List<SlowCommandRecord> snapshot() {
+        List<SlowCommandRecord> records = new ArrayList<>(size);
+        int start = (next - size + buffer.length) % buffer.length;
+        for (int i = 0; i < size; i++) {
+            records.add(buffer[(start + i) % buffer.length]);
+        }
+        return records;
+    }
+    
+    /**
+     * 清空
+     */
+    public synchronized void clear() {
+        Arrays.fill(buffer, null);
+        next = 0;
+        size = 0;
+    }
+    
+    public long getThresholdMs() {
+        return thresholdMs;
+    }
+    
+    public int getCapacity() {
+        return buffer.length;
+    }
+}
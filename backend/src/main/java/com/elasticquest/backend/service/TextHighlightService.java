@@ -5,9 +5,15 @@ import com.hankcs.hanlp.HanLP;
 import com.hankcs.hanlp.seg.common.Term;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
@@ -22,6 +28,22 @@ public class TextHighlightService {
     // 最小匹配长度（字符数）
     private static final int MIN_MATCH_LENGTH = 4;
     
+    // 最大匹配长度（字符数）
+    private static final int MAX_MATCH_LENGTH = 50;
+    
+    // 改写匹配：分句至少包含的字母数字个数，以及估计的 Jaccard 相似度下限
+    private static final int PARAPHRASE_MIN_LENGTH = 8;
+    private static final double PARAPHRASE_THRESHOLD = 0.4;
+    // 分句几乎全部是原文匹配时保留原文匹配，不再按改写处理
+    private static final double PARAPHRASE_MAX_EXACT_RATIO = 0.9;
+    
+    // 单次请求内联的参考材料是否也建立改写匹配索引（构建开销与材料长度成正比，只用一次）
+    @Value("${highlight.paraphrase.inline:false}")
+    private boolean inlineParaphrases;
+    
+    // 多文档的预处理和匹配按文档并行
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    
     /**
      * 对回答文本进行高亮处理
      * @param answer 大模型的回答
@@ -32,25 +54,68 @@ public class TextHighlightService {
         if (answer == null || answer.isEmpty()) {
             return Collections.emptyList();
         }
-        
+        return highlightAnswer(answer, prepare(contextMaterial));
+    }
+    
+    /**
+     * 预处理单次请求内联的参考材料（分词并提取关键短语）；
+     * 改写匹配索引只在 highlight.paraphrase.inline 开启时建立
+     */
+    public HighlightContext prepare(String contextMaterial) {
+        return prepare(contextMaterial, inlineParaphrases);
+    }
+    
+    /**
+     * 预处理参考材料，同一份材料高亮多个回答时复用
+     * @param paraphrases 是否建立改写匹配索引（多次复用时才值得构建）
+     */
+    public HighlightContext prepare(String contextMaterial, boolean paraphrases) {
         if (contextMaterial == null || contextMaterial.isEmpty()) {
+            return new HighlightContext(null, null);
+        }
+        Set<String> keyPhrases = extractKeyPhrases(contextMaterial);
+        return new HighlightContext((text, start, maxLength) -> findLongestMatch(text, start, maxLength, keyPhrases),
+            paraphrases ? MinHashIndex.build(contextMaterial) : null);
+    }
+    
+    /**
+     * 使用外部的短语匹配器（如资料库中预先构建的后缀数组），准备开销与材料长度无关
+     */
+    public HighlightContext prepare(PhraseMatcher matcher) {
+        return new HighlightContext(matcher, null);
+    }
+    
+    /**
+     * 使用外部的短语匹配器和改写匹配索引
+     */
+    public HighlightContext prepare(PhraseMatcher matcher, MinHashIndex paraphrases) {
+        return new HighlightContext(matcher, paraphrases);
+    }
+    
+    /**
+     * 使用预处理过的参考材料对回答进行高亮
+     */
+    public List<HighlightSegment> highlightAnswer(String answer, HighlightContext context) {
+        if (answer == null || answer.isEmpty()) {
+            return Collections.emptyList();
+        }
+        
+        if (context.matcher == null) {
             // 没有参考材料，返回整个答案作为非高亮文本
             return Collections.singletonList(new HighlightSegment(answer, false));
         }
         
         try {
-            // 提取参考材料中的关键短语
-            Set<String> keyPhrases = extractKeyPhrases(contextMaterial);
-            
             // 在回答中查找匹配的短语
             List<HighlightSegment> segments = new ArrayList<>();
             int lastIndex = 0;
             
             // 使用滑动窗口查找匹配
             for (int i = 0; i < answer.length(); i++) {
-                String matchedPhrase = findLongestMatch(answer, i, keyPhrases);
+                int matchLength = context.matcher.longestMatch(answer, i, MAX_MATCH_LENGTH);
                 
-                if (matchedPhrase != null && matchedPhrase.length() >= MIN_MATCH_LENGTH) {
+                if (matchLength >= MIN_MATCH_LENGTH) {
+                    String matchedPhrase = answer.substring(i, i + matchLength);
                     // 添加非高亮部分
                     if (i > lastIndex) {
                         String normalText = answer.substring(lastIndex, i);
@@ -60,7 +125,7 @@ public class TextHighlightService {
                     }
                     
                     // 添加高亮部分
-                    segments.add(new HighlightSegment(matchedPhrase, true));
+                    segments.add(new HighlightSegment(matchedPhrase, null, 1.0));
                     
                     lastIndex = i + matchedPhrase.length();
                     i = lastIndex - 1; // 跳过已匹配的部分
@@ -77,6 +142,10 @@ public class TextHighlightService {
                 segments.add(new HighlightSegment(answer, false));
             }
             
+            if (context.paraphrases != null) {
+                segments = matchParaphrases(answer, segments,
+                    Collections.singletonList(null), Collections.singletonList(context.paraphrases));
+            }
             return segments;
             
         } catch (Exception e) {
@@ -86,6 +155,228 @@ public class TextHighlightService {
         }
     }
     
+    /**
+     * 并行预处理多份参考材料
+     * @param materials 文档 ID 到材料文本，迭代顺序即匹配长度相同时的优先顺序
+     */
+    public Map<String, HighlightContext> prepareAll(Map<String, String> materials) {
+        List<String> ids = new ArrayList<>(materials.keySet());
+        List<Callable<HighlightContext>> tasks = new ArrayList<>();
+        for (String id : ids) {
+            tasks.add(() -> prepare(materials.get(id)));
+        }
+        List<HighlightContext> contexts = invokeAll(tasks);
+        Map<String, HighlightContext> prepared = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            prepared.put(ids.get(i), contexts.get(i));
+        }
+        return prepared;
+    }
+    
+    /**
+     * 多文档高亮
+     * 各文档在 fork-join 池上并行计算回答每个位置的最长匹配，再合并为互不重叠的片段：
+     * 候选匹配按长度从长到短依次放入，与已放入片段重叠的部分截去，剩余仍足够长的才保留；
+     * 高亮片段标注来源文档 ID
+     * @param sources 文档 ID 到预处理结果，迭代顺序即匹配长度相同时的优先顺序
+     */
+    public List<HighlightSegment> highlightAnswer(String answer, Map<String, HighlightContext> sources) {
+        if (answer == null || answer.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> ids = new ArrayList<>();
+        List<Callable<int[]>> tasks = new ArrayList<>();
+        for (Map.Entry<String, HighlightContext> source : sources.entrySet()) {
+            PhraseMatcher matcher = source.getValue().matcher;
+            if (matcher != null) {
+                ids.add(source.getKey());
+                tasks.add(() -> matchLengths(answer, matcher));
+            }
+        }
+        if (ids.isEmpty()) {
+            return Collections.singletonList(new HighlightSegment(answer, false));
+        }
+        
+        try {
+            List<int[]> lengths = invokeAll(tasks);
+            
+            // 每个位置取最长的文档匹配作为候选
+            List<int[]> candidates = new ArrayList<>(); // {起点, 长度, 文档序号}
+            for (int i = 0; i < answer.length(); i++) {
+                int best = -1;
+                for (int d = 0; d < lengths.size(); d++) {
+                    if (lengths.get(d)[i] >= MIN_MATCH_LENGTH && (best < 0 || lengths.get(d)[i] > lengths.get(best)[i])) {
+                        best = d;
+                    }
+                }
+                if (best >= 0) {
+                    candidates.add(new int[] {i, lengths.get(best)[i], best});
+                }
+            }
+            candidates.sort((a, b) -> a[1] != b[1] ? Integer.compare(b[1], a[1]) : Integer.compare(a[0], b[0]));
+            
+            // 长的先放；匹配的前缀同样是匹配，与已放入片段重叠时截取未覆盖的前缀
+            int[] owner = new int[answer.length()]; // 覆盖该位置的文档序号
+            boolean[] starts = new boolean[answer.length()]; // 片段起点，相邻片段来自同一文档时据此分开
+            Arrays.fill(owner, -1);
+            for (int[] candidate : candidates) {
+                int start = candidate[0];
+                int end = start;
+                while (end < start + candidate[1] && owner[end] < 0) {
+                    end++;
+                }
+                if (end - start >= MIN_MATCH_LENGTH) {
+                    Arrays.fill(owner, start, end, candidate[2]);
+                    starts[start] = true;
+                }
+            }
+            
+            List<HighlightSegment> segments = new ArrayList<>();
+            int i = 0;
+            while (i < answer.length()) {
+                int j = i + 1;
+                if (owner[i] < 0) {
+                    while (j < answer.length() && owner[j] < 0) {
+                        j++;
+                    }
+                    segments.add(new HighlightSegment(answer.substring(i, j), false));
+                } else {
+                    while (j < answer.length() && !starts[j] && owner[j] == owner[i]) {
+                        j++;
+                    }
+                    segments.add(new HighlightSegment(answer.substring(i, j), ids.get(owner[i]), 1.0));
+                }
+                i = j;
+            }
+            
+            List<String> paraphraseIds = new ArrayList<>();
+            List<MinHashIndex> paraphraseIndexes = new ArrayList<>();
+            for (Map.Entry<String, HighlightContext> source : sources.entrySet()) {
+                if (source.getValue().paraphrases != null) {
+                    paraphraseIds.add(source.getKey());
+                    paraphraseIndexes.add(source.getValue().paraphrases);
+                }
+            }
+            if (!paraphraseIndexes.isEmpty()) {
+                segments = matchParaphrases(answer, segments, paraphraseIds, paraphraseIndexes);
+            }
+            return segments;
+            
+        } catch (Exception e) {
+            logger.error("多文档高亮处理失败", e);
+            return Collections.singletonList(new HighlightSegment(answer, false));
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+    
+    /**
+     * 改写匹配
+     * 原文匹配覆盖不多的分句，若与某份材料中的片段估计相似度达到阈值，整句作为改写高亮，
+     * 标注相似度和来源；分句内零散的短原文匹配并入整句
+     */
+    private List<HighlightSegment> matchParaphrases(String answer, List<HighlightSegment> segments,
+                                                    List<String> ids, List<MinHashIndex> indexes) {
+        int length = answer.length();
+        String[] sourceIds = new String[length];
+        double[] similarity = new double[length]; // 0 表示未高亮
+        boolean[] starts = new boolean[length];
+        int offset = 0;
+        for (HighlightSegment segment : segments) {
+            int end = offset + segment.getText().length();
+            if (segment.isHighlighted()) {
+                Arrays.fill(sourceIds, offset, end, segment.getSourceId());
+                Arrays.fill(similarity, offset, end, segment.getSimilarity() != null ? segment.getSimilarity() : 1.0);
+                starts[offset] = true;
+            }
+            offset = end;
+        }
+        
+        boolean changed = false;
+        for (int[] clause : MinHashIndex.clauses(answer)) {
+            int letters = 0;
+            int exact = 0;
+            for (int i = clause[0]; i < clause[1]; i++) {
+                if (Character.isLetterOrDigit(answer.charAt(i))) {
+                    letters++;
+                    if (similarity[i] > 0) {
+                        exact++;
+                    }
+                }
+            }
+            if (letters < PARAPHRASE_MIN_LENGTH || exact > letters * PARAPHRASE_MAX_EXACT_RATIO) {
+                continue;
+            }
+            int best = -1;
+            double bestSimilarity = 0;
+            for (int d = 0; d < indexes.size(); d++) {
+                double value = indexes.get(d).bestSimilarity(answer, clause[0], clause[1]);
+                if (value > bestSimilarity) {
+                    best = d;
+                    bestSimilarity = value;
+                }
+            }
+            if (best >= 0 && bestSimilarity >= PARAPHRASE_THRESHOLD) {
+                Arrays.fill(sourceIds, clause[0], clause[1], ids.get(best));
+                Arrays.fill(similarity, clause[0], clause[1], Math.round(bestSimilarity * 100) / 100.0);
+                Arrays.fill(starts, clause[0], clause[1], false);
+                starts[clause[0]] = true;
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return segments;
+        }
+        
+        List<HighlightSegment> merged = new ArrayList<>();
+        int i = 0;
+        while (i < length) {
+            int j = i + 1;
+            if (similarity[i] == 0) {
+                while (j < length && similarity[j] == 0) {
+                    j++;
+                }
+                merged.add(new HighlightSegment(answer.substring(i, j), false));
+            } else {
+                while (j < length && !starts[j] && similarity[j] > 0) {
+                    j++;
+                }
+                merged.add(new HighlightSegment(answer.substring(i, j), sourceIds[i], similarity[i]));
+            }
+            i = j;
+        }
+        return merged;
+    }
+    
+    /**
+     * 回答每个位置在单个文档中的最长匹配长度
+     */
+    private static int[] matchLengths(String answer, PhraseMatcher matcher) {
+        int[] lengths = new int[answer.length()];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = matcher.longestMatch(answer, i, MAX_MATCH_LENGTH);
+        }
+        return lengths;
+    }
+    
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return results;
+    }
+    
     /**
      * 提取参考材料中的关键短语
      */
@@ -138,8 +429,8 @@ public class TextHighlightService {
      * 添加文本的连续子串
      */
     private void addSubstrings(String text, Set<String> phrases) {
-        // 提取长度在 MIN_MATCH_LENGTH 到 50 之间的子串
-        for (int len = MIN_MATCH_LENGTH; len <= Math.min(50, text.length()); len++) {
+        // 提取长度在 MIN_MATCH_LENGTH 到 MAX_MATCH_LENGTH 之间的子串
+        for (int len = MIN_MATCH_LENGTH; len <= Math.min(MAX_MATCH_LENGTH, text.length()); len++) {
             for (int i = 0; i <= text.length() - len; i++) {
                 String substring = text.substring(i, i + len);
                 phrases.add(substring);
@@ -149,21 +440,44 @@ public class TextHighlightService {
     
     /**
      * 从指定位置开始查找最长匹配
+     * @return 匹配长度，没有匹配时为 0
      */
-    private String findLongestMatch(String text, int startIndex, Set<String> keyPhrases) {
-        String longestMatch = null;
-        int maxLength = 0;
+    private static int findLongestMatch(String text, int startIndex, int maxLength, Set<String> keyPhrases) {
+        int longest = 0;
         
         // 尝试不同长度的子串
-        for (int len = MIN_MATCH_LENGTH; len <= Math.min(50, text.length() - startIndex); len++) {
-            String substring = text.substring(startIndex, startIndex + len);
-            if (keyPhrases.contains(substring) && len > maxLength) {
-                longestMatch = substring;
-                maxLength = len;
+        for (int len = MIN_MATCH_LENGTH; len <= Math.min(maxLength, text.length() - startIndex); len++) {
+            if (keyPhrases.contains(text.substring(startIndex, startIndex + len))) {
+                longest = len;
             }
         }
         
-        return longestMatch;
+        return longest;
+    }
+    
+    /**
+     * 参考材料中的短语匹配
+     */
+    @FunctionalInterface
+    public interface PhraseMatcher {
+        
+        /**
+         * 返回 text 从 start 开始、在参考材料中出现过的最长前缀长度（不超过 maxLength），没有时为 0
+         */
+        int longestMatch(String text, int start, int maxLength);
+    }
+    
+    /**
+     * 预处理后的参考材料，只读，可在线程间共享
+     */
+    public static class HighlightContext {
+        
+        private final PhraseMatcher matcher; // 为 null 表示没有参考材料
+        private final MinHashIndex paraphrases; // 为 null 时不做改写匹配
+        
+        private HighlightContext(PhraseMatcher matcher, MinHashIndex paraphrases) {
+            this.matcher = matcher;
+            this.paraphrases = paraphrases;
+        }
     }
 }
-
@@ -0,0 +1,88 @@
+package com.elasticquest.backend.transport;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ES 请求
+ * endpoint 可以带查询串（控制台命令原样传入），额外参数通过 addParameter 追加
+ */
+public class ESRequest {
+
+    public static final String JSON = "application/json";
+    public static final String NDJSON = "application/x-ndjson";
+
+    private final String method;
+    private final String endpoint;
+    private final Map<String, String> parameters = new LinkedHashMap<>();
+    private byte[] body;
+    private int bodyOffset;
+    private int bodyLength;
+    private String contentType;
+
+    public ESRequest(String method, String endpoint) {
+        this.method = method;
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * 转义路径中的一段（如用户输入的索引名），其中的 / ? # 等字符不再被当作分隔符
+     */
+    public static String encodePathSegment(String segment) {
+        return URLEncoder.encode(segment, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    public void addParameter(String name, String value) {
+        parameters.put(name, value);
+    }
+
+    public void setJsonEntity(String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        setEntity(bytes, 0, bytes.length, JSON);
+    }
+
+    public void setEntity(byte[] body, String contentType) {
+        setEntity(body, 0, body.length, contentType);
+    }
+
+    public void setEntity(byte[] body, int offset, int length, String contentType) {
+        this.body = body;
+        this.bodyOffset = offset;
+        this.bodyLength = length;
+        this.contentType = contentType;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    public boolean hasBody() {
+        return body != null;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public int getBodyOffset() {
+        return bodyOffset;
+    }
+
+    public int getBodyLength() {
+        return bodyLength;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
@@ -0,0 +1,32 @@
+package com.elasticquest.backend.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * ES 响应，响应体以流的形式读取，使用完毕后关闭以释放连接
+ */
+public interface ESResponse extends Closeable {
+
+    int getStatusCode();
+
+    /**
+     * 响应体长度，未知时为 -1
+     */
+    long getContentLength();
+
+    /**
+     * 响应体，没有响应体时为空流
+     */
+    InputStream getContent() throws IOException;
+
+    /**
+     * 读取完整响应体
+     */
+    default byte[] toByteArray() throws IOException {
+        try (InputStream in = getContent()) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.elasticquest.backend.transport;
+
+import java.io.IOException;
+
+/**
+ * ES 返回非 2xx 状态码
+ */
+public class ESResponseException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final String responseBody;
+
+    public ESResponseException(String message, int statusCode, String responseBody) {
+        super(message);
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+}
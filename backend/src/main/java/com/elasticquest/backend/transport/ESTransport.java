@@ -0,0 +1,28 @@
+package com.elasticquest.backend.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * ES 传输层
+ * 屏蔽底层 HTTP 客户端，调用方只依赖 ESRequest / ESResponse；
+ * 非 2xx 响应抛出 ESResponseException（HEAD 请求的 404 除外）
+ */
+public interface ESTransport extends Closeable {
+
+    /**
+     * 连接配置中 transport 字段的取值
+     */
+    String REST_CLIENT = "rest-client";
+    String HTTP_CLIENT = "http-client";
+
+    /**
+     * 同步执行请求，调用方负责关闭响应
+     */
+    ESResponse perform(ESRequest request) throws IOException;
+
+    /**
+     * 传输实现名称
+     */
+    String name();
+}
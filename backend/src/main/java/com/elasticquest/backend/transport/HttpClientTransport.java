@@ -0,0 +1,190 @@
+package com.elasticquest.backend.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 基于 JDK java.net.http.HttpClient 的传输实现
+ * 优先使用 HTTP/2（https 通过 ALPN 协商，http 尝试 h2c 升级，不支持时回退到 HTTP/1.1），
+ * 同一连接上多路复用并发请求；调用线程阻塞在响应上，适合在虚拟线程中使用
+ */
+public class HttpClientTransport implements ESTransport {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final String scheme;
+    private final String host;
+    private final int port;
+    private final String authorization;
+    private final Duration requestTimeout;
+
+    public HttpClientTransport(String scheme, String host, int port, String username, String password,
+                               int connectTimeoutMillis, int socketTimeoutMillis) {
+        this.scheme = scheme;
+        this.host = host;
+        this.port = port;
+        this.authorization = username != null && !username.isEmpty() && password != null && !password.isEmpty()
+            ? "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8))
+            : null;
+        this.requestTimeout = Duration.ofMillis(socketTimeoutMillis);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+            .executor(executor)
+            .build();
+    }
+
+    @Override
+    public ESResponse perform(ESRequest request) throws IOException {
+        HttpRequest.BodyPublisher body = request.hasBody()
+            ? HttpRequest.BodyPublishers.ofByteArray(request.getBody(), request.getBodyOffset(), request.getBodyLength())
+            : HttpRequest.BodyPublishers.noBody();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(buildUri(request))
+            .timeout(requestTimeout)
+            .method(request.getMethod(), body);
+        if (request.hasBody()) {
+            builder.header("Content-Type", request.getContentType());
+        }
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("请求被中断", e);
+        }
+
+        int status = response.statusCode();
+        if (status >= 300 && !("HEAD".equals(request.getMethod()) && status == 404)) {
+            String responseBody;
+            try (InputStream in = response.body()) {
+                responseBody = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            // 与 RestClient 的 ResponseException 保持相同的消息格式
+            throw new ESResponseException("method [" + request.getMethod() + "], host [" + scheme + "://" + host + ":"
+                + port + "], URI [" + response.uri().getRawPath() + "], status line ["
+                + (response.version() == HttpClient.Version.HTTP_2 ? "HTTP/2" : "HTTP/1.1") + " " + status + "]\n"
+                + responseBody, status, responseBody);
+        }
+        return new HttpClientResponse(response);
+    }
+
+    /**
+     * 拼接 URI，与 RestClient 发出的地址保持一致：endpoint 按原样使用，已转义的 %XX 不再转义，
+     * 只转义 URI 中不合法的字符（如中文索引名、日期数学表达式中的 <>{}）；追加的参数按表单编码
+     */
+    private URI buildUri(ESRequest request) throws IOException {
+        String endpoint = request.getEndpoint();
+        StringBuilder uri = new StringBuilder(scheme).append("://").append(host).append(':').append(port);
+        if (!endpoint.startsWith("/")) {
+            uri.append('/');
+        }
+        appendEscaped(uri, endpoint);
+        boolean hasQuery = endpoint.indexOf('?') >= 0;
+        for (Map.Entry<String, String> parameter : request.getParameters().entrySet()) {
+            uri.append(hasQuery ? '&' : '?')
+                .append(URLEncoder.encode(parameter.getKey(), StandardCharsets.UTF_8)).append('=')
+                .append(URLEncoder.encode(parameter.getValue(), StandardCharsets.UTF_8));
+            hasQuery = true;
+        }
+        try {
+            return URI.create(uri.toString());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("无效的请求地址: " + endpoint, e);
+        }
+    }
+
+    /**
+     * 按 UTF-8 百分号转义 URI 中不合法的字符，合法字符和完整的 %XX 序列原样保留
+     */
+    private static void appendEscaped(StringBuilder uri, String endpoint) {
+        for (int i = 0; i < endpoint.length(); i++) {
+            char c = endpoint.charAt(i);
+            if (c == '%' && i + 2 < endpoint.length()
+                && isHex(endpoint.charAt(i + 1)) && isHex(endpoint.charAt(i + 2))) {
+                uri.append(c);
+            } else if (c < 0x80 && c != '%' && isLegal(c)) {
+                uri.append(c);
+            } else {
+                int end = Character.isHighSurrogate(c) && i + 1 < endpoint.length()
+                    && Character.isLowSurrogate(endpoint.charAt(i + 1)) ? i + 2 : i + 1;
+                for (byte b : endpoint.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+                    uri.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+                }
+                i = end - 1;
+            }
+        }
+    }
+
+    /**
+     * java.net.URI 在路径和查询串中接受的 ASCII 字符（不含 %）
+     */
+    private static boolean isLegal(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+            || "-._~!$&'()*+,;=:@/?".indexOf(c) >= 0;
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    @Override
+    public String name() {
+        return HTTP_CLIENT;
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        executor.shutdown();
+    }
+
+    /**
+     * HttpClient 响应，响应体直接从连接读取
+     */
+    private static class HttpClientResponse implements ESResponse {
+
+        private final HttpResponse<InputStream> response;
+
+        HttpClientResponse(HttpResponse<InputStream> response) {
+            this.response = response;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public long getContentLength() {
+            return response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        }
+
+        @Override
+        public InputStream getContent() {
+            return response.body();
+        }
+
+        @Override
+        public void close() throws IOException {
+            response.body().close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.elasticquest.backend.transport;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * 基于 ES 低级 RestClient（Apache HttpAsyncClient 4，HTTP/1.1）的传输实现
+ */
+public class RestClientTransport implements ESTransport {
+
+    private final RestClient client;
+
+    public RestClientTransport(RestClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public ESResponse perform(ESRequest request) throws IOException {
+        Request restRequest = new Request(request.getMethod(), request.getEndpoint());
+        for (Map.Entry<String, String> parameter : request.getParameters().entrySet()) {
+            restRequest.addParameter(parameter.getKey(), parameter.getValue());
+        }
+        if (request.hasBody()) {
+            restRequest.setEntity(new ByteArrayEntity(request.getBody(), request.getBodyOffset(),
+                request.getBodyLength(), ContentType.parse(request.getContentType())));
+        }
+        try {
+            return new RestClientResponse(client.performRequest(restRequest));
+        } catch (ResponseException e) {
+            HttpEntity entity = e.getResponse().getEntity();
+            throw new ESResponseException(e.getMessage(), e.getResponse().getStatusLine().getStatusCode(),
+                entity != null ? EntityUtils.toString(entity) : null);
+        }
+    }
+
+    @Override
+    public String name() {
+        return REST_CLIENT;
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    /**
+     * RestClient 响应（响应体已由客户端缓冲在内存中）
+     */
+    private static class RestClientResponse implements ESResponse {
+
+        private final Response response;
+
+        RestClientResponse(Response response) {
+            this.response = response;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.getStatusLine().getStatusCode();
+        }
+
+        @Override
+        public long getContentLength() {
+            return response.getEntity() != null ? response.getEntity().getContentLength() : 0;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return response.getEntity() != null ? response.getEntity().getContent() : InputStream.nullInputStream();
+        }
+
+        @Override
+        public void close() {
+            EntityUtils.consumeQuietly(response.getEntity());
+        }
+    }
+}
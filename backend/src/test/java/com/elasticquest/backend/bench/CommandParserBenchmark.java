@@ -0,0 +1,97 @@
+package com.elasticquest.backend.bench;
+
+import com.elasticquest.backend.service.ESCommandParser;
+import com.elasticquest.backend.transport.ESRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 命令解析基准（JMH）
+ * 对比旧的 split/拼接 解析方式与 ESCommandParser 的耗时；GC 分析器的 gc.alloc.rate.norm 为每次操作的分配量
+ *
+ * 运行：mvn test-compile 后
+ *       java -cp target/test-classes:target/classes:<依赖> com.elasticquest.backend.bench.CommandParserBenchmark
+ *       或 java -cp ... org.openjdk.jmh.Main CommandParserBenchmark -prof gc -p bodyMb=8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CommandParserBenchmark {
+
+    @Param({"1", "8"})
+    private int bodyMb;
+
+    private String command;
+
+    @Setup
+    public void setUp() {
+        command = buildCommand(bodyMb);
+    }
+
+    @Benchmark
+    public String[] legacySplit() {
+        return legacyParse(command);
+    }
+
+    @Benchmark
+    public ESCommandParser.ParsedCommand singlePass() {
+        return ESCommandParser.parse(command);
+    }
+
+    @Benchmark
+    public ESRequest singlePassRequest() {
+        return ESCommandParser.parse(command).toRequest();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+            .include(CommandParserBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+
+    /**
+     * 构造一个 _bulk 风格的多行大请求体
+     */
+    private static String buildCommand(int bodyMb) {
+        StringBuilder builder = new StringBuilder(bodyMb * 1024 * 1024 + 64);
+        builder.append("POST /products/_search\r\n");
+        builder.append("{\r\n  \"query\": {\r\n    \"terms\": {\r\n      \"sku\": [\r\n");
+        int i = 0;
+        while (builder.length() < bodyMb * 1024 * 1024) {
+            builder.append("        \"SKU-").append(i++).append("\",\r\n");
+        }
+        builder.append("        \"SKU-END\"\r\n      ]\r\n    }\r\n  }\r\n}\r\n");
+        return builder.toString();
+    }
+
+    /**
+     * 旧实现：trim + split + StringBuilder 拼接 + trim
+     */
+    private static String[] legacyParse(String command) {
+        String[] lines = command.trim().split("\n");
+        String[] parts = lines[0].trim().split("\\s+", 2);
+        StringBuilder bodyBuilder = new StringBuilder();
+        for (int i = 1; i < lines.length; i++) {
+            bodyBuilder.append(lines[i]).append("\n");
+        }
+        return new String[] { parts[0].toUpperCase(), parts[1], bodyBuilder.toString().trim() };
+    }
+}
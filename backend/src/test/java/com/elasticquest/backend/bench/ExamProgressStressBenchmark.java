@@ -0,0 +1,175 @@
+package com.elasticquest.backend.bench;
+
+import com.elasticquest.backend.model.ChallengeSubmission;
+import com.elasticquest.backend.model.ExamProgress;
+import com.elasticquest.backend.service.ExamService;
+import com.elasticquest.backend.service.LocalExamProgressStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 考试进度并发压测
+ * 多个线程同时为同一个热点用户和一批普通用户提交挑战、完成知识点，另有线程持续读取并序列化快照；
+ * 结束后校验：每个用户的挑战尝试次数和知识点数与成功调用次数一致，读到的快照满足统计不变式，
+ * 重新打开存储后恢复的进度与内存一致。任一校验失败时以非零状态退出
+ *
+ * 运行：java -cp target/test-classes:target/classes:<依赖> com.elasticquest.backend.bench.ExamProgressStressBenchmark
+ *       [writers] [readers] [seconds] [users]
+ */
+public class ExamProgressStressBenchmark {
+
+    private static final String HOT_USER = "hot";
+    private static final int CHALLENGES = 20;
+
+    public static void main(String[] args) throws Exception {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int users = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+        Path dir = Files.createTempDirectory("exam-stress");
+        LocalExamProgressStore store = open(dir);
+        ExamService examService = new ExamService(store);
+        examService.loadProgress();
+        System.out.printf("写线程: %d, 读线程: %d, 时长: %ds, 用户: %d + 热点用户, 目录: %s%n",
+            writers, readers, seconds, users, dir);
+
+        Map<String, LongAdder> submissions = new ConcurrentHashMap<>();
+        Map<String, LongAdder> topics = new ConcurrentHashMap<>();
+        AtomicLong reads = new AtomicLong();
+        AtomicLong violations = new AtomicLong();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        ExecutorService pool = Executors.newFixedThreadPool(writers + readers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writerId = w;
+            futures.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long topicSeq = 0;
+                while (System.nanoTime() < deadline) {
+                    // 一半的写入集中在热点用户上
+                    String userId = random.nextBoolean() ? HOT_USER : "user-" + random.nextInt(users);
+                    if (random.nextInt(4) == 0) {
+                        examService.completeTopic(userId, "topic-" + writerId + "-" + topicSeq++);
+                        topics.computeIfAbsent(userId, k -> new LongAdder()).increment();
+                    } else {
+                        ChallengeSubmission submission = new ChallengeSubmission();
+                        submission.setChallengeId("challenge-" + random.nextInt(CHALLENGES));
+                        submission.setAnswer(random.nextBoolean() ? "answer" : "");
+                        submission.setTimeSpent(random.nextInt(1, 300));
+                        examService.validateChallenge(submission, userId);
+                        submissions.computeIfAbsent(userId, k -> new LongAdder()).increment();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            futures.add(pool.submit(() -> {
+                ObjectMapper objectMapper = new ObjectMapper();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    String userId = random.nextBoolean() ? HOT_USER : "user-" + random.nextInt(users);
+                    ExamProgress progress = examService.getUserProgress(userId);
+                    // 与控制器返回进度时一样序列化，读到改了一半的集合会抛出异常
+                    objectMapper.writeValueAsBytes(progress);
+                    if (!consistent(progress)) {
+                        violations.incrementAndGet();
+                    }
+                    reads.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        long errors = 0;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (errors++ == 0) {
+                    System.out.println("线程异常: " + e.getCause());
+                }
+            }
+        }
+        pool.shutdown();
+
+        long writes = 0;
+        int mismatched = 0;
+        for (Map.Entry<String, LongAdder> entry : submissions.entrySet()) {
+            writes += entry.getValue().sum();
+            if (attempts(examService.getUserProgress(entry.getKey())) != entry.getValue().sum()) {
+                mismatched++;
+            }
+        }
+        for (Map.Entry<String, LongAdder> entry : topics.entrySet()) {
+            writes += entry.getValue().sum();
+            if (examService.getUserProgress(entry.getKey()).getCompletedTopics().size() != entry.getValue().sum()) {
+                mismatched++;
+            }
+        }
+        System.out.printf("写入: %d (%.0f/s), 读取: %d (%.0f/s)%n",
+            writes, writes / (double) seconds, reads.get(), reads.get() / (double) seconds);
+        System.out.printf("热点用户: 提交 %d 次, 尝试次数合计 %d; 知识点 %d%n",
+            submissions.getOrDefault(HOT_USER, new LongAdder()).sum(), attempts(examService.getUserProgress(HOT_USER)),
+            examService.getUserProgress(HOT_USER).getCompletedTopics().size());
+        System.out.printf("丢失更新的用户: %d, 不一致的快照: %d, 线程异常: %d%n", mismatched, violations.get(), errors);
+
+        // 关闭后重新打开，恢复的进度应与内存一致
+        store.flush();
+        store.close();
+        LocalExamProgressStore reopened = open(dir);
+        Map<String, ExamProgress> restored = reopened.loadAll();
+        int lost = 0;
+        for (String userId : submissions.keySet()) {
+            ExamProgress saved = restored.get(userId);
+            if (saved == null || attempts(saved) != attempts(examService.getUserProgress(userId))) {
+                lost++;
+            }
+        }
+        reopened.close();
+        System.out.printf("重新打开后恢复用户: %d, 与内存不一致: %d%n", restored.size(), lost);
+
+        boolean ok = errors == 0 && mismatched == 0 && violations.get() == 0 && lost == 0;
+        System.out.println(ok ? "OK" : "FAILED");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static LocalExamProgressStore open(Path dir) throws Exception {
+        LocalExamProgressStore store = new LocalExamProgressStore(dir.toString(), 50, 1000, 8 * 1024 * 1024,
+            new SimpleMeterRegistry());
+        store.open();
+        return store;
+    }
+
+    private static long attempts(ExamProgress progress) {
+        return progress.getCompletedChallenges().values().stream()
+            .mapToLong(ExamProgress.ChallengeResult::getAttempts)
+            .sum();
+    }
+
+    /**
+     * 快照内的统计与明细一致，经验值与知识点数一致
+     */
+    private static boolean consistent(ExamProgress progress) {
+        return progress.getStats().getTotalChallenges() == progress.getCompletedChallenges().size()
+            && progress.getTotalExperience() == progress.getCompletedTopics().size() * 50
+            && progress.getLevel() == progress.getTotalExperience() / 1000 + 1;
+    }
+}
@@ -0,0 +1,108 @@
+package com.elasticquest.backend.bench;
+
+import com.elasticquest.backend.loadtest.FakeElasticsearchServer;
+import com.elasticquest.backend.transport.ESRequest;
+import com.elasticquest.backend.transport.ESResponse;
+import com.elasticquest.backend.transport.ESTransport;
+import com.elasticquest.backend.transport.HttpClientTransport;
+import com.elasticquest.backend.transport.RestClientTransport;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * 传输实现基准
+ * 以 FakeElasticsearchServer 为服务端，对比 RestClient 与 JDK HttpClient 的
+ * 连接建立耗时（创建客户端 + 首个请求）、并发吞吐和每个请求的内存分配
+ *
+ * 运行：java -cp target/test-classes:target/classes:<依赖> com.elasticquest.backend.bench.TransportBenchmark
+ *       [concurrency] [seconds] [hits] [latencyMs]
+ */
+public class TransportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int hits = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        long latencyMs = args.length > 3 ? Long.parseLong(args[3]) : 5;
+
+        try (FakeElasticsearchServer server = new FakeElasticsearchServer(0, latencyMs, hits)) {
+            int port = server.getPort();
+            System.out.printf("并发: %d, 时长: %ds, 命中数: %d, 服务端延迟: %dms%n",
+                concurrency, seconds, hits, latencyMs);
+            System.out.printf("%-12s %14s %12s %10s %10s %16s%n",
+                "transport", "setup(ms)", "requests", "req/s", "errors", "alloc/req(KB)");
+
+            IntFunction<ESTransport> restClient = p -> new RestClientTransport(
+                RestClient.builder(new HttpHost("localhost", p, "http")).build());
+            IntFunction<ESTransport> httpClient = p -> new HttpClientTransport(
+                "http", "localhost", p, null, null, 5000, 60000);
+
+            // 预热一轮，结果不计
+            run("warmup", restClient, port, concurrency, 2, true);
+            run("warmup", httpClient, port, concurrency, 2, true);
+
+            run(ESTransport.REST_CLIENT, restClient, port, concurrency, seconds, false);
+            run(ESTransport.HTTP_CLIENT, httpClient, port, concurrency, seconds, false);
+        }
+    }
+
+    private static void run(String name, IntFunction<ESTransport> factory, int port,
+                            int concurrency, int seconds, boolean quiet) throws Exception {
+        com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        // 连接建立：创建客户端并完成首个请求
+        long setupStart = System.nanoTime();
+        ESTransport transport = factory.apply(port);
+        try (ESResponse response = transport.perform(new ESRequest("GET", "/"))) {
+            response.toByteArray();
+        }
+        double setupMs = (System.nanoTime() - setupStart) / 1_000_000.0;
+
+        AtomicLong requests = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long allocatedBefore = threadBean.getTotalThreadAllocatedBytes();
+
+        // 调用方使用虚拟线程，与 HttpClient 的阻塞式用法一致
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(workers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        ESRequest search = new ESRequest("POST", "/bench/_search");
+                        search.setJsonEntity("{\"query\":{\"match_all\":{}}}");
+                        try (ESResponse response = transport.perform(search)) {
+                            response.toByteArray();
+                            requests.incrementAndGet();
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        long allocated = threadBean.getTotalThreadAllocatedBytes() - allocatedBefore;
+        transport.close();
+
+        if (!quiet) {
+            long total = requests.get();
+            System.out.printf("%-12s %14.1f %12d %10.0f %10d %16.2f%n",
+                name, setupMs, total, total / (double) seconds, errors.get(),
+                total > 0 ? allocated / 1024.0 / total : 0);
+        }
+    }
+}
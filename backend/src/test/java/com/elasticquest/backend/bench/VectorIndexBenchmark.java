@@ -0,0 +1,172 @@
+package com.elasticquest.backend.bench;
+
+import com.elasticquest.backend.retrieval.EmbeddingProvider;
+import com.elasticquest.backend.retrieval.HashingEmbeddingProvider;
+import com.elasticquest.backend.retrieval.VectorIndex;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 向量索引基准
+ * 用 HashingEmbeddingProvider 为合成文本块计算向量，对比 HNSW 查询与暴力扫描的延迟，
+ * 并以暴力扫描结果为准计算 recall@k
+ *
+ * 运行：java -Xmx4g --add-modules jdk.incubator.vector -cp target/test-classes:target/classes:<依赖> \
+ *       com.elasticquest.backend.bench.VectorIndexBenchmark
+ *       [chunks,...] [queries] [k] [dimension] [m] [beamWidth]
+ * 规模默认 10000,100000；1000000 时索引写入临时目录（MMapDirectory），需要足够的堆和磁盘
+ */
+public class VectorIndexBenchmark {
+
+    private static final String[] WORDS = (
+        "索引 分片 副本 映射 字段 分词 倒排 文档 查询 过滤 聚合 排序 评分 相关性 集群 节点 "
+        + "主分片 刷新 合并 段 快照 别名 模板 管道 向量 召回 延迟 吞吐 缓存 路由 "
+        + "index shard replica mapping analyzer query filter aggregation score cluster node "
+        + "refresh merge segment snapshot alias template pipeline vector recall latency cache"
+    ).split(" ");
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = Arrays.stream((args.length > 0 ? args[0] : "10000,100000").split(","))
+            .mapToInt(Integer::parseInt).toArray();
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int dimension = args.length > 3 ? Integer.parseInt(args[3]) : 256;
+        int m = args.length > 4 ? Integer.parseInt(args[4]) : 16;
+        int beamWidth = args.length > 5 ? Integer.parseInt(args[5]) : 100;
+
+        EmbeddingProvider provider = new HashingEmbeddingProvider(dimension);
+        System.out.printf("维度: %d, k: %d, 查询数: %d, M: %d, beamWidth: %d%n", dimension, k, queries, m, beamWidth);
+        System.out.printf("%10s %12s %12s %10s %10s %12s %12s %10s%n",
+            "chunks", "embed(ms)", "build(ms)", "p50(ms)", "p99(ms)", "brute p50", "brute p99", "recall@k");
+
+        for (int size : sizes) {
+            run(provider, size, queries, k, m, beamWidth);
+        }
+    }
+
+    private static void run(EmbeddingProvider provider, int size, int queries, int k, int m, int beamWidth)
+            throws Exception {
+        Random random = new Random(42);
+
+        long embedStart = System.nanoTime();
+        List<float[]> vectors = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            vectors.add(provider.embed(sentence(random, 20 + random.nextInt(30))));
+        }
+        long embedMs = (System.nanoTime() - embedStart) / 1_000_000;
+
+        // 百万级时索引放到磁盘，避免全部占用堆内存
+        Path tempDir = null;
+        Directory directory;
+        if (size >= 1_000_000) {
+            tempDir = Files.createTempDirectory("vector-bench");
+            directory = new MMapDirectory(tempDir);
+        } else {
+            directory = new ByteBuffersDirectory();
+        }
+
+        long buildStart = System.nanoTime();
+        try (VectorIndex index = VectorIndex.build(directory, vectors, m, beamWidth)) {
+            long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+
+            List<float[]> queryVectors = new ArrayList<>(queries);
+            for (int i = 0; i < queries; i++) {
+                queryVectors.add(provider.embed(sentence(random, 5 + random.nextInt(10))));
+            }
+            // 预热
+            for (int i = 0; i < Math.min(50, queries); i++) {
+                index.search(queryVectors.get(i), k);
+            }
+
+            long[] annLatency = new long[queries];
+            long[] bruteLatency = new long[queries];
+            double recallSum = 0;
+            for (int q = 0; q < queries; q++) {
+                float[] query = queryVectors.get(q);
+                long start = System.nanoTime();
+                int[] approximate = index.search(query, k);
+                annLatency[q] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                int[] exact = bruteForce(vectors, query, k);
+                bruteLatency[q] = System.nanoTime() - start;
+
+                Set<Integer> expected = new HashSet<>();
+                for (int ordinal : exact) {
+                    expected.add(ordinal);
+                }
+                int found = 0;
+                for (int ordinal : approximate) {
+                    if (expected.contains(ordinal)) {
+                        found++;
+                    }
+                }
+                recallSum += found / (double) exact.length;
+            }
+
+            System.out.printf("%10d %12d %12d %10.2f %10.2f %12.2f %12.2f %10.3f%n",
+                size, embedMs, buildMs,
+                percentileMs(annLatency, 50), percentileMs(annLatency, 99),
+                percentileMs(bruteLatency, 50), percentileMs(bruteLatency, 99),
+                recallSum / queries);
+        } finally {
+            if (tempDir != null) {
+                try (var files = Files.walk(tempDir)) {
+                    files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+    }
+
+    private static double percentileMs(long[] samples, double percentile) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1_000_000.0;
+    }
+
+    /**
+     * 暴力扫描的精确 top-k（点积）
+     */
+    private static int[] bruteForce(List<float[]> vectors, float[] query, int k) {
+        int[] best = new int[k];
+        float[] scores = new float[k];
+        Arrays.fill(scores, Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < vectors.size(); i++) {
+            float[] vector = vectors.get(i);
+            float score = 0;
+            for (int d = 0; d < vector.length; d++) {
+                score += vector[d] * query[d];
+            }
+            if (score > scores[k - 1]) {
+                int position = k - 1;
+                while (position > 0 && scores[position - 1] < score) {
+                    scores[position] = scores[position - 1];
+                    best[position] = best[position - 1];
+                    position--;
+                }
+                scores[position] = score;
+                best[position] = i;
+            }
+        }
+        return best;
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package com.elasticquest.backend.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * 本地 ES 替身
+ * 对任意请求返回固定的 JSON 响应，可配置固定延迟，用于压测时隔离真实集群
+ */
+public class FakeElasticsearchServer implements AutoCloseable {
+
+    private static final byte[] ROOT_RESPONSE = ("{\"name\":\"fake-node\",\"cluster_name\":\"fake-cluster\","
+        + "\"version\":{\"number\":\"8.15.0\"},\"tagline\":\"You Know, for Search\"}").getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final long latencyMs;
+    private final byte[] searchResponse;
+
+    /**
+     * @param port 监听端口，0 表示随机端口
+     * @param latencyMs 每个请求的固定延迟
+     * @param hits 搜索响应中的命中数，用于控制响应大小
+     */
+    public FakeElasticsearchServer(int port, long latencyMs, int hits) throws IOException {
+        this.latencyMs = latencyMs;
+        this.searchResponse = buildSearchResponse(hits);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        String path = exchange.getRequestURI().getPath();
+        byte[] body = "/".equals(path) ? ROOT_RESPONSE
+            : path.contains("_search") ? searchResponse
+            : "{\"acknowledged\":true}".getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] buildSearchResponse(int hits) {
+        StringBuilder builder = new StringBuilder("{\"took\":1,\"timed_out\":false,\"hits\":{\"total\":{\"value\":")
+            .append(hits).append(",\"relation\":\"eq\"},\"hits\":[");
+        for (int i = 0; i < hits; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"_index\":\"products\",\"_id\":\"").append(i)
+                .append("\",\"_score\":1.0,\"_source\":{\"name\":\"product-").append(i)
+                .append("\",\"price\":").append(i % 1000).append("}}");
+        }
+        return builder.append("]}}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,221 @@
+package com.elasticquest.backend.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地 OpenAI 兼容 LLM 替身
+ * 以 SSE 形式返回 chat completions 流，首 token 延迟和 token 间隔可配置；
+ * 可设置每个事件包含的 token 数，并按比例注入错误响应和流中途断开；
+ * 调用方提前断开导致写入失败的流计为中止
+ */
+public class FakeLLMServer implements AutoCloseable {
+
+    private static final String[] TOKENS = {
+        "Elasticsearch ", "是一个", "分布式的", "搜索和", "分析引擎，", "基于 ", "Lucene ", "构建。"
+    };
+
+    private final HttpServer server;
+    private final long firstTokenDelayMs;
+    private final long tokenIntervalMs;
+    private final int tokenCount;
+
+    private volatile int chunkSize = 1;
+    private volatile double errorRate;
+    private volatile int errorStatus = 500;
+    private volatile double disconnectRate;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong disconnects = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong aborted = new AtomicLong();
+
+    /**
+     * @param port 监听端口，0 表示随机端口
+     * @param firstTokenDelayMs 首 token 延迟（TTFT）
+     * @param tokenIntervalMs token 间隔
+     * @param tokenCount 每次回答的 token 数
+     */
+    public FakeLLMServer(int port, long firstTokenDelayMs, long tokenIntervalMs, int tokenCount) throws IOException {
+        this.firstTokenDelayMs = firstTokenDelayMs;
+        this.tokenIntervalMs = tokenIntervalMs;
+        this.tokenCount = tokenCount;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/v1/chat/completions", this::handle);
+        this.server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * chat completions 接口地址
+     */
+    public String getApiUrl() {
+        return "http://127.0.0.1:" + getPort() + "/v1/chat/completions";
+    }
+
+    /**
+     * 每个 SSE 事件包含的 token 数，token 间隔按事件计算
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * 按比例直接返回错误状态码（不输出流）
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public void setErrorStatus(int errorStatus) {
+        this.errorStatus = errorStatus;
+    }
+
+    /**
+     * 按比例在输出一半 token 后断开连接（不发送 [DONE] 和分块结束标记）
+     */
+    public void setDisconnectRate(double disconnectRate) {
+        this.disconnectRate = disconnectRate;
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    public long getDisconnectCount() {
+        return disconnects.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * 调用方在流结束前断开的次数
+     */
+    public long getAbortedCount() {
+        return aborted.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String requestBody;
+        try (InputStream in = exchange.getRequestBody()) {
+            requestBody = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            errors.incrementAndGet();
+            byte[] body = ("{\"error\":{\"message\":\"injected error\",\"code\":" + errorStatus + "}}")
+                .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(errorStatus, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            return;
+        }
+        if (requestBody.replace(" ", "").contains("\"stream\":false")) {
+            completeWithoutStream(exchange);
+            return;
+        }
+        boolean disconnect = disconnectRate > 0 && random.nextDouble() < disconnectRate;
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        sleep(firstTokenDelayMs);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < tokenCount; i += chunkSize) {
+            if (disconnect && i >= tokenCount / 2) {
+                // 处理器抛出异常时 HttpServer 直接关闭连接，客户端读到不完整的分块流
+                disconnects.incrementAndGet();
+                throw new IOException("injected disconnect");
+            }
+            if (i > 0) {
+                sleep(tokenIntervalMs);
+            }
+            content.setLength(0);
+            for (int j = i; j < Math.min(i + chunkSize, tokenCount); j++) {
+                content.append(TOKENS[j % TOKENS.length]);
+            }
+            writeAndCount(out, "{\"id\":\"fake\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,"
+                + "\"delta\":{\"content\":\"" + content + "\"}}]}");
+        }
+        writeAndCount(out, "[DONE]");
+        out.close();
+        completed.incrementAndGet();
+    }
+
+    /**
+     * 写入失败说明调用方已断开
+     */
+    private void writeAndCount(OutputStream out, String data) throws IOException {
+        try {
+            writeEvent(out, data);
+        } catch (IOException e) {
+            aborted.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * 非流式请求：等待首 token 延迟后一次返回完整回答
+     */
+    private void completeWithoutStream(HttpExchange exchange) throws IOException {
+        sleep(firstTokenDelayMs);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < tokenCount; i++) {
+            content.append(TOKENS[i % TOKENS.length]);
+        }
+        byte[] body = ("{\"id\":\"fake\",\"object\":\"chat.completion\",\"choices\":[{\"index\":0,"
+            + "\"message\":{\"role\":\"assistant\",\"content\":\"" + content + "\"},\"finish_reason\":\"stop\"}]}")
+            .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        completed.incrementAndGet();
+    }
+
+    private void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
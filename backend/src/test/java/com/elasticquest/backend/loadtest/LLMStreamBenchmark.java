@@ -0,0 +1,203 @@
+package com.elasticquest.backend.loadtest;
+
+import com.elasticquest.backend.ElasticQuestApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RAG 流式聊天基准
+ * 在同一 JVM 内以 FakeLLMServer 为上游启动应用，N 个并发流持续请求 /rag-chat/stream，
+ * 统计客户端看到的首个内容块时间、内容块间隔、总耗时，以及正常完成、错误事件和连接失败的数量；
+ * 可注入上游错误与中途断开，验证失败路径在高并发下的表现
+ *
+ * 运行：java -cp target/test-classes:target/classes:<依赖> com.elasticquest.backend.loadtest.LLMStreamBenchmark
+ *       --streams=200 --duration=30 --llm-ttft=200 --llm-interval=20 --llm-tokens=50
+ *       --chunk-size=1 --error-rate=0 --disconnect-rate=0 [--llm-limits=true]
+ */
+public class LLMStreamBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        // DevTools 重启会用 Spring 的参数重新调用 main，压测时关闭
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        Map<String, String> options = parseOptions(args);
+        int streams = Integer.parseInt(options.getOrDefault("streams", "200"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+
+        try (FakeLLMServer fakeLlm = new FakeLLMServer(0,
+                 Long.parseLong(options.getOrDefault("llm-ttft", "200")),
+                 Long.parseLong(options.getOrDefault("llm-interval", "20")),
+                 Integer.parseInt(options.getOrDefault("llm-tokens", "50")))) {
+            fakeLlm.setChunkSize(Integer.parseInt(options.getOrDefault("chunk-size", "1")));
+            fakeLlm.setErrorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")));
+            fakeLlm.setDisconnectRate(Double.parseDouble(options.getOrDefault("disconnect-rate", "0")));
+
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(ElasticQuestApplication.class)
+                .run(
+                    "--server.port=0",
+                    "--llm.molizk.api-url=" + fakeLlm.getApiUrl(),
+                    "--llm.molizk.api-key=loadtest",
+                    "--llm.limits.enabled=" + options.getOrDefault("llm-limits", "false"),
+                    "--logging.level.root=WARN",
+                    "--logging.level.com.elasticquest.backend=OFF");
+            try {
+                String url = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port")
+                    + context.getEnvironment().getProperty("server.servlet.context-path", "") + "/rag-chat/stream";
+                System.out.printf("并发流 %d，持续 %d 秒，目标 %s%n", streams, durationSeconds, url);
+
+                Report report = run(url, streams, durationSeconds);
+                report.print();
+                System.out.printf("上游: 请求=%d, 完成=%d, 注入错误=%d, 注入断开=%d%n",
+                    fakeLlm.getRequestCount(), fakeLlm.getCompletedCount(),
+                    fakeLlm.getErrorCount(), fakeLlm.getDisconnectCount());
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    static Report run(String url, int streams, int durationSeconds) {
+        Report report = new Report();
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        threadBean.resetPeakThreadCount();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long start = System.nanoTime();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int s = 0; s < streams; s++) {
+                String userId = "bench-user-" + s;
+                workers.execute(() -> {
+                    while (System.nanoTime() < deadline) {
+                        stream(client, url, userId, report);
+                    }
+                });
+            }
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        report.peakThreads = threadBean.getPeakThreadCount();
+        return report;
+    }
+
+    static void stream(HttpClient client, String url, String userId, Report report) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .timeout(Duration.ofMinutes(2))
+            .header("Content-Type", "application/json")
+            .header("X-User-Id", userId)
+            .POST(HttpRequest.BodyPublishers.ofString(
+                "{\"question\":\"什么是倒排索引？\",\"contextMaterial\":\"倒排索引是 Elasticsearch 实现全文检索的核心数据结构。\"}"))
+            .build();
+
+        long start = System.nanoTime();
+        long firstChunk = -1;
+        long lastChunk = -1;
+        String outcome = "broken";
+        try {
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                // 事件以空行结束，Spring 先写 data 再写 event 名称
+                String event = null;
+                boolean hasData = false;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("event:")) {
+                        event = line.substring(6).trim();
+                    } else if (line.startsWith("data:")) {
+                        hasData = true;
+                    } else if (line.isEmpty() && hasData) {
+                        if ("message".equals(event)) {
+                            long now = System.nanoTime();
+                            if (firstChunk < 0) {
+                                firstChunk = now;
+                            } else {
+                                report.chunkGap.add(now - lastChunk);
+                            }
+                            lastChunk = now;
+                        } else if ("done".equals(event)) {
+                            outcome = "done";
+                        } else if ("error".equals(event)) {
+                            outcome = "error";
+                        }
+                        event = null;
+                        hasData = false;
+                    }
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            if (!"error".equals(outcome)) {
+                outcome = "failed";
+            }
+        }
+
+        report.total.add(System.nanoTime() - start);
+        if (firstChunk > 0) {
+            report.firstChunk.add(firstChunk - start);
+        }
+        report.outcomes.computeIfAbsent(outcome, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * 基准结果汇总
+     */
+    static class Report {
+
+        final LoadTestRunner.LatencySamples total = new LoadTestRunner.LatencySamples();
+        final LoadTestRunner.LatencySamples firstChunk = new LoadTestRunner.LatencySamples();
+        final LoadTestRunner.LatencySamples chunkGap = new LoadTestRunner.LatencySamples();
+        // done: 正常完成，error: 收到错误事件，broken: 流结束但没有结束事件，failed: 连接失败
+        final Map<String, AtomicLong> outcomes = new ConcurrentHashMap<>();
+        long elapsedNanos;
+        int peakThreads;
+
+        void print() {
+            double seconds = elapsedNanos / 1e9;
+            System.out.printf("%n流: %d (%.1f/s)%n", total.count(), total.count() / seconds);
+            System.out.printf("结果: %s%n", new TreeMap<>(outcomes));
+            System.out.printf("%-12s %10s %10s %10s%n", "", "p50(ms)", "p95(ms)", "p99(ms)");
+            print("首个内容块", firstChunk);
+            print("内容块间隔", chunkGap);
+            print("总耗时", total);
+            System.out.printf("峰值线程数=%d%n", peakThreads);
+        }
+
+        private void print(String name, LoadTestRunner.LatencySamples samples) {
+            System.out.printf("%-12s %10.1f %10.1f %10.1f%n", name,
+                samples.percentileMs(50), samples.percentileMs(95), samples.percentileMs(99));
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.elasticquest.backend.loadtest;
+
+import com.elasticquest.backend.ElasticQuestApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压测回放工具
+ * 启动 ES 与 LLM 替身，在同一 JVM 内以随机端口启动应用，用 N 个虚拟用户循环回放录制的请求，
+ * 输出吞吐、p50/p99 延迟、首 token 时间以及线程数和堆内存峰值
+ * 每个虚拟用户以自己的 X-User-Id 发送；--recorded-users=true 时沿用录制中的用户
+ *
+ * 运行：java -cp target/test-classes:target/classes:<依赖> com.elasticquest.backend.loadtest.LoadTestRunner
+ *       --recording=loadtest-recording.ndjson --users=50 --duration=60
+ *       --es-latency=5 --llm-ttft=200 --llm-interval=20 --llm-tokens=50 [--llm-limits=true] [--recorded-users=true]
+ */
+public class LoadTestRunner {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        // DevTools 重启会用 Spring 的参数重新调用 main，压测时关闭
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        Map<String, String> options = parseOptions(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "50"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "60"));
+        boolean recordedUsers = Boolean.parseBoolean(options.getOrDefault("recorded-users", "false"));
+
+        try (FakeElasticsearchServer fakeEs = new FakeElasticsearchServer(0,
+                 Long.parseLong(options.getOrDefault("es-latency", "5")),
+                 Integer.parseInt(options.getOrDefault("es-hits", "10")));
+             FakeLLMServer fakeLlm = new FakeLLMServer(0,
+                 Long.parseLong(options.getOrDefault("llm-ttft", "200")),
+                 Long.parseLong(options.getOrDefault("llm-interval", "20")),
+                 Integer.parseInt(options.getOrDefault("llm-tokens", "50")))) {
+
+            // 以命令行参数传入，优先级高于 application.yml
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(ElasticQuestApplication.class)
+                .run(
+                    "--server.port=0",
+                    "--llm.molizk.api-url=" + fakeLlm.getApiUrl(),
+                    "--llm.molizk.api-key=loadtest",
+                    // 回放的请求都来自同一个用户，关闭限流以测量服务本身的容量
+                    "--llm.limits.enabled=" + options.getOrDefault("llm-limits", "false"),
+                    "--logging.level.root=WARN",
+                    "--logging.level.com.elasticquest.backend=WARN");
+            try {
+                String baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port")
+                    + context.getEnvironment().getProperty("server.servlet.context-path", "");
+
+                List<RecordedRequest> requests = loadRecording(options.get("recording"));
+                requests.replaceAll(r -> redirectConnection(r, fakeEs.getPort()));
+
+                System.out.printf("回放 %d 条请求模板，虚拟用户 %d，持续 %d 秒，目标 %s%n",
+                    requests.size(), users, durationSeconds, baseUrl);
+                Report report = replay(baseUrl, requests, users, durationSeconds, recordedUsers);
+                report.print();
+            } finally {
+                context.close();
+            }
+        }
+        // 应用内的线程池不随上下文关闭，直接退出
+        System.exit(0);
+    }
+
+    /**
+     * 以 N 个虚拟用户循环回放
+     */
+    static Report replay(String baseUrl, List<RecordedRequest> requests, int users, int durationSeconds,
+                         boolean recordedUsers) throws InterruptedException {
+        Report report = new Report();
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        threadBean.resetPeakThreadCount();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> report.sampleHeap(memoryBean.getHeapMemoryUsage().getUsed()),
+            0, 200, TimeUnit.MILLISECONDS);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long start = System.nanoTime();
+        try (ExecutorService virtualUsers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int u = 0; u < users; u++) {
+                int userIndex = u;
+                virtualUsers.execute(() -> {
+                    for (int i = userIndex; System.nanoTime() < deadline; i++) {
+                        RecordedRequest request = requests.get(i % requests.size());
+                        String userId = recordedUsers && request.getUserId() != null
+                            ? request.getUserId() : "loadtest-user-" + userIndex;
+                        send(client, baseUrl, request, userId, report);
+                    }
+                });
+            }
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        report.peakThreads = threadBean.getPeakThreadCount();
+        sampler.shutdownNow();
+        return report;
+    }
+
+    private static void send(HttpClient client, String baseUrl, RecordedRequest recorded, String userId, Report report) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + recorded.getPath()))
+            .timeout(Duration.ofMinutes(2))
+            .header("X-User-Id", userId);
+        if (recorded.getBody() != null) {
+            builder.header("Content-Type", recorded.getContentType() != null ? recorded.getContentType() : "application/json");
+            builder.method(recorded.getMethod(), HttpRequest.BodyPublishers.ofString(recorded.getBody()));
+        } else {
+            builder.method(recorded.getMethod(), HttpRequest.BodyPublishers.noBody());
+        }
+
+        long start = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+            long firstByte = -1;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (firstByte < 0 && recorded.isStreaming() && line.startsWith("data:")) {
+                        firstByte = System.nanoTime();
+                    }
+                }
+            }
+            long end = System.nanoTime();
+            boolean ok = response.statusCode() < 400;
+            report.record(recorded.group(), end - start, firstByte > 0 ? firstByte - start : -1, ok);
+        } catch (IOException | InterruptedException e) {
+            report.record(recorded.group(), System.nanoTime() - start, -1, false);
+        }
+    }
+
+    /**
+     * 读取录制文件；未指定时使用内置场景
+     */
+    static List<RecordedRequest> loadRecording(String file) throws IOException {
+        List<RecordedRequest> requests = new ArrayList<>();
+        if (file != null) {
+            for (String line : Files.readAllLines(Path.of(file), StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    requests.add(objectMapper.readValue(line, RecordedRequest.class));
+                }
+            }
+            return requests;
+        }
+
+        String connection = "{\"name\":\"loadtest\",\"host\":\"127.0.0.1\",\"port\":9200,\"scheme\":\"http\",\"environment\":\"test\"}";
+        requests.add(new RecordedRequest("POST", "/es-execution/execute", "application/json", null,
+            "{\"command\":\"GET /products/_search\\n{\\\"query\\\":{\\\"match_all\\\":{}}}\",\"connection\":" + connection + "}"));
+        requests.add(new RecordedRequest("POST", "/rag-chat/stream", "application/json", null,
+            "{\"question\":\"什么是倒排索引？\",\"contextMaterial\":\"倒排索引是 Elasticsearch 实现全文检索的核心数据结构。\"}"));
+        requests.add(new RecordedRequest("GET", "/api/exam/progress/loadtest", null, null, null));
+        requests.add(new RecordedRequest("POST", "/api/exam/challenge/submit", "application/json", null,
+            "{\"challengeId\":\"challenge-001\",\"answer\":\"B\",\"timeSpent\":30}"));
+        return requests;
+    }
+
+    /**
+     * 将 ES 执行请求中的连接指向本地替身
+     */
+    private static RecordedRequest redirectConnection(RecordedRequest request, int esPort) {
+        if (!"es-execution".equals(request.group()) || request.getBody() == null) {
+            return request;
+        }
+        try {
+            ObjectNode body = (ObjectNode) objectMapper.readTree(request.getBody());
+            ObjectNode connection = body.withObjectProperty("connection");
+            connection.put("host", "127.0.0.1");
+            connection.put("port", esPort);
+            connection.put("scheme", "http");
+            connection.remove("username");
+            connection.remove("password");
+            request.setBody(objectMapper.writeValueAsString(body));
+        } catch (IOException e) {
+            // 无法解析时原样回放
+        }
+        return request;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * 压测结果汇总
+     */
+    static class Report {
+
+        private final Map<String, LatencySamples> latencies = new ConcurrentHashMap<>();
+        private final LatencySamples firstToken = new LatencySamples();
+        private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+        private final AtomicLong maxHeap = new AtomicLong();
+        long elapsedNanos;
+        int peakThreads;
+
+        void record(String group, long latencyNanos, long firstTokenNanos, boolean ok) {
+            latencies.computeIfAbsent(group, k -> new LatencySamples()).add(latencyNanos);
+            if (firstTokenNanos > 0) {
+                firstToken.add(firstTokenNanos);
+            }
+            if (!ok) {
+                errors.computeIfAbsent(group, k -> new AtomicLong()).incrementAndGet();
+            }
+        }
+
+        void sampleHeap(long used) {
+            maxHeap.accumulateAndGet(used, Math::max);
+        }
+
+        void print() {
+            double seconds = elapsedNanos / 1e9;
+            long total = 0;
+            System.out.printf("%n%-14s %10s %10s %10s %10s %8s%n", "group", "requests", "req/s", "p50(ms)", "p99(ms)", "errors");
+            for (Map.Entry<String, LatencySamples> entry : new TreeMap<>(latencies).entrySet()) {
+                LatencySamples samples = entry.getValue();
+                total += samples.count();
+                System.out.printf("%-14s %10d %10.1f %10.1f %10.1f %8d%n", entry.getKey(), samples.count(),
+                    samples.count() / seconds, samples.percentileMs(50), samples.percentileMs(99),
+                    errors.getOrDefault(entry.getKey(), new AtomicLong()).get());
+            }
+            System.out.printf("%-14s %10d %10.1f%n", "total", total, total / seconds);
+            if (firstToken.count() > 0) {
+                System.out.printf("TTFT p50=%.1fms p99=%.1fms%n", firstToken.percentileMs(50), firstToken.percentileMs(99));
+            }
+            System.out.printf("峰值线程数=%d, 堆内存峰值=%.1fMB%n", peakThreads, maxHeap.get() / (1024.0 * 1024.0));
+        }
+    }
+
+    /**
+     * 延迟样本（纳秒）
+     */
+    static class LatencySamples {
+
+        private long[] samples = new long[1024];
+        private int size;
+
+        synchronized void add(long nanos) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = nanos;
+        }
+
+        synchronized int count() {
+            return size;
+        }
+
+        synchronized double percentileMs(double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+            return sorted[Math.max(0, Math.min(size - 1, index))] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.elasticquest.backend.loadtest;
+
+import com.elasticquest.backend.ElasticQuestApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 以 FakeLLMServer 为上游，经 /rag-chat/stream 验证正常完成、上游错误、上游中途断开和客户端断开的结果
+ */
+class RAGChatStreamTest {
+
+    @TempDir
+    static Path dataDir;
+
+    private static FakeLLMServer fakeLlm;
+    private static ConfigurableApplicationContext context;
+    private static HttpClient client;
+    private static String url;
+
+    @BeforeAll
+    static void startApplication() throws Exception {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        fakeLlm = new FakeLLMServer(0, 20, 20, 20);
+        context = new SpringApplicationBuilder(ElasticQuestApplication.class)
+            .run(
+                "--server.port=0",
+                "--llm.molizk.api-url=" + fakeLlm.getApiUrl(),
+                "--llm.molizk.api-key=test",
+                "--llm.limits.enabled=false",
+                "--llm.batch.dir=" + dataDir.resolve("batch"),
+                "--llm.materials.dir=" + dataDir.resolve("materials"),
+                "--exam.store.type=memory",
+                "--logging.level.root=WARN",
+                "--logging.level.com.elasticquest.backend=OFF");
+        url = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port")
+            + context.getEnvironment().getProperty("server.servlet.context-path", "") + "/rag-chat/stream";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterAll
+    static void stopApplication() {
+        if (context != null) {
+            context.close();
+        }
+        if (fakeLlm != null) {
+            fakeLlm.close();
+        }
+    }
+
+    @BeforeEach
+    void resetInjection() {
+        fakeLlm.setErrorRate(0);
+        fakeLlm.setDisconnectRate(0);
+    }
+
+    @Test
+    void completesStream() {
+        assertThat(outcomes()).containsOnlyKeys("done");
+    }
+
+    @Test
+    void reportsUpstreamError() {
+        fakeLlm.setErrorRate(1);
+
+        assertThat(outcomes()).containsOnlyKeys("error");
+    }
+
+    @Test
+    void reportsUpstreamDisconnect() {
+        fakeLlm.setDisconnectRate(1);
+        long disconnects = fakeLlm.getDisconnectCount();
+
+        assertThat(outcomes()).containsOnlyKeys("error");
+        assertThat(fakeLlm.getDisconnectCount()).isEqualTo(disconnects + 1);
+    }
+
+    @Test
+    void cancelsUpstreamWhenClientDisconnects() throws Exception {
+        long completed = fakeLlm.getCompletedCount();
+        long aborted = fakeLlm.getAbortedCount();
+
+        HttpResponse<InputStream> response = client.send(request(), HttpResponse.BodyHandlers.ofInputStream());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null && !line.startsWith("event:message")) {
+            // 读到第一个内容块后断开
+        }
+        assertThat(line).isNotNull();
+        reader.close();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (fakeLlm.getAbortedCount() == aborted && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(fakeLlm.getAbortedCount()).isEqualTo(aborted + 1);
+        assertThat(fakeLlm.getCompletedCount()).isEqualTo(completed);
+    }
+
+    private static Map<String, Long> outcomes() {
+        LLMStreamBenchmark.Report report = new LLMStreamBenchmark.Report();
+        LLMStreamBenchmark.stream(client, url, "stream-test", report);
+        Map<String, Long> outcomes = new TreeMap<>();
+        report.outcomes.forEach((outcome, count) -> outcomes.put(outcome, count.get()));
+        return outcomes;
+    }
+
+    private static HttpRequest request() {
+        return HttpRequest.newBuilder(URI.create(url))
+            .timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json")
+            .header("X-User-Id", "stream-test")
+            .POST(HttpRequest.BodyPublishers.ofString(
+                "{\"question\":\"什么是倒排索引？\",\"contextMaterial\":\"倒排索引是 Elasticsearch 实现全文检索的核心数据结构。\"}"))
+            .build();
+    }
+}
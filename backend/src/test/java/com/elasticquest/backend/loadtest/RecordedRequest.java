@@ -0,0 +1,94 @@
+package com.elasticquest.backend.loadtest;
+
+/**
+ * 录制的一次 HTTP 请求
+ */
+public class RecordedRequest {
+
+    private long offsetMs; // 相对录制开始的时间
+    private String method;
+    private String path; // 不含 context-path 的请求路径（含查询串）
+    private String contentType;
+    private String userId; // X-User-Id 请求头
+    private String body;
+
+    public RecordedRequest() {
+    }
+
+    public RecordedRequest(String method, String path, String contentType, String userId, String body) {
+        this.method = method;
+        this.path = path;
+        this.contentType = contentType;
+        this.userId = userId;
+        this.body = body;
+    }
+
+    /**
+     * 请求分组，用于汇总报告
+     */
+    public String group() {
+        if (path.startsWith("/es-execution/")) {
+            return "es-execution";
+        }
+        if (path.startsWith("/rag-chat/stream")) {
+            return "rag-chat";
+        }
+        if (path.startsWith("/api/exam/")) {
+            return "exam";
+        }
+        return "other";
+    }
+
+    public boolean isStreaming() {
+        return path.startsWith("/rag-chat/stream");
+    }
+
+    // Getters and Setters
+    public long getOffsetMs() {
+        return offsetMs;
+    }
+
+    public void setOffsetMs(long offsetMs) {
+        this.offsetMs = offsetMs;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+}
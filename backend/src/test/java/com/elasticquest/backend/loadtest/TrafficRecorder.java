@@ -0,0 +1,123 @@
+package com.elasticquest.backend.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 流量录制过滤器
+ * 开启 loadtest.record.enabled 后，将 ES 执行、RAG 聊天和考试接口的请求逐行追加到录制文件（NDJSON），
+ * 供 LoadTestRunner 回放；请求体中 ES 连接的用户名和密码在写入前移除
+ */
+@Component
+@ConditionalOnProperty(name = "loadtest.record.enabled", havingValue = "true")
+public class TrafficRecorder extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficRecorder.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BufferedWriter writer;
+    private final long startTime = System.currentTimeMillis();
+
+    public TrafficRecorder(@Value("${loadtest.record.file:loadtest-recording.ndjson}") String file) throws IOException {
+        Path path = Path.of(file);
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        logger.info("流量录制已开启: {}", path.toAbsolutePath());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = pathWithinApplication(request);
+        return !(path.startsWith("/es-execution/execute")
+            || path.startsWith("/rag-chat/stream")
+            || path.startsWith("/api/exam/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContentCachingRequestWrapper wrapper = new ContentCachingRequestWrapper(request);
+        long offset = System.currentTimeMillis() - startTime;
+        try {
+            chain.doFilter(wrapper, response);
+        } finally {
+            String path = pathWithinApplication(request)
+                + (request.getQueryString() != null ? "?" + request.getQueryString() : "");
+            String body = wrapper.getContentAsByteArray().length > 0
+                ? redact(new String(wrapper.getContentAsByteArray(), StandardCharsets.UTF_8))
+                : null;
+            RecordedRequest recorded = new RecordedRequest(request.getMethod(), path,
+                request.getContentType(), request.getHeader("X-User-Id"), body);
+            recorded.setOffsetMs(offset);
+            write(recorded);
+        }
+    }
+
+    /**
+     * 移除请求体中 connection 的 username 和 password（回放时连接指向本地替身，不需要凭据）
+     * @return 无法解析且可能含有凭据时为 null
+     */
+    private String redact(String body) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(body);
+        } catch (IOException e) {
+            return body.contains("password") ? null : body;
+        }
+        if (root instanceof ObjectNode object && object.get("connection") instanceof ObjectNode connection) {
+            connection.remove("username");
+            connection.remove("password");
+            try {
+                return objectMapper.writeValueAsString(object);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return body;
+    }
+
+    /**
+     * 关闭录制文件
+     */
+    @Override
+    public synchronized void destroy() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.warn("关闭录制文件失败: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void write(RecordedRequest recorded) {
+        try {
+            writer.write(objectMapper.writeValueAsString(recorded));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            logger.warn("写入录制文件失败: {}", e.getMessage());
+        }
+    }
+
+    private String pathWithinApplication(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
@@ -0,0 +1,96 @@
+package com.elasticquest.backend.retrieval;
+
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SuffixArray 的最长匹配与逐位置暴力查找一致
+ */
+class SuffixArrayTest {
+
+    private static final String ALPHABET = "倒排索引分片副本集群节点 abc";
+
+    @Test
+    void longestMatchAgreesWithBruteForce() throws IOException {
+        Random random = new Random(3);
+        String content = randomText(random, 5000);
+
+        try (Directory directory = new ByteBuffersDirectory()) {
+            SuffixArray.write(directory, content);
+            try (SuffixArray suffixArray = SuffixArray.open(directory)) {
+                assertThat(suffixArray.length()).isEqualTo(content.length());
+                assertThat(suffixArray.content()).isEqualTo(content);
+
+                for (int i = 0; i < 500; i++) {
+                    String query = random.nextBoolean()
+                        ? randomText(random, 40)
+                        : randomText(random, 5) + substring(random, content, 30) + randomText(random, 5);
+                    int start = random.nextInt(query.length());
+                    int maxLength = 1 + random.nextInt(50);
+                    assertThat(suffixArray.longestMatch(query, start, maxLength))
+                        .as("query=%s start=%d maxLength=%d", query, start, maxLength)
+                        .isEqualTo(bruteForce(content, query, start, maxLength));
+                }
+            }
+        }
+    }
+
+    @Test
+    void capsMatchesAtSortedPrefixLength() throws IOException {
+        String content = "x".repeat(200) + "分片";
+
+        try (Directory directory = new ByteBuffersDirectory()) {
+            SuffixArray.write(directory, content);
+            try (SuffixArray suffixArray = SuffixArray.open(directory)) {
+                assertThat(suffixArray.longestMatch("x".repeat(150), 0, 150)).isEqualTo(64);
+                assertThat(suffixArray.longestMatch("xx分片段", 0, 10)).isEqualTo(4);
+                assertThat(suffixArray.longestMatch("副本", 0, 10)).isZero();
+                assertThat(suffixArray.longestMatch("分片", 2, 10)).isZero();
+            }
+        }
+    }
+
+    @Test
+    void handlesEmptyContent() throws IOException {
+        try (Directory directory = new ByteBuffersDirectory()) {
+            SuffixArray.write(directory, "");
+            try (SuffixArray suffixArray = SuffixArray.open(directory)) {
+                assertThat(suffixArray.length()).isZero();
+                assertThat(suffixArray.longestMatch("abc", 0, 3)).isZero();
+            }
+        }
+    }
+
+    private static int bruteForce(String content, String query, int start, int maxLength) {
+        int limit = Math.min(Math.min(maxLength, 64), query.length() - start);
+        int best = 0;
+        for (int position = 0; position < content.length(); position++) {
+            int matched = 0;
+            while (matched < limit && position + matched < content.length()
+                    && content.charAt(position + matched) == query.charAt(start + matched)) {
+                matched++;
+            }
+            best = Math.max(best, matched);
+        }
+        return best;
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return builder.toString();
+    }
+
+    private static String substring(Random random, String content, int maxLength) {
+        int start = random.nextInt(content.length());
+        return content.substring(start, Math.min(content.length(), start + 1 + random.nextInt(maxLength)));
+    }
+}
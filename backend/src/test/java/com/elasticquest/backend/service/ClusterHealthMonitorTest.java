@@ -0,0 +1,60 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.config.ElasticsearchProperties;
+import com.elasticquest.backend.model.ClusterStatus;
+import com.elasticquest.backend.model.ESConnectionConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ClusterHealthMonitor 只登记已保存的连接，且登记数量有上限
+ */
+class ClusterHealthMonitorTest {
+
+    private ESClientFactory clientFactory;
+    private ClusterHealthMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        ElasticsearchProperties properties = new ElasticsearchProperties();
+        clientFactory = new ESClientFactory(properties);
+        monitor = new ClusterHealthMonitor(clientFactory, properties, 2, 60000, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        monitor.shutdown();
+        clientFactory.closeAll();
+    }
+
+    @Test
+    void doesNotMonitorUnsavedConnections() {
+        ClusterStatus status = monitor.getStatus(config("", 9201));
+
+        assertThat(status.isPending()).isFalse();
+        assertThat(status.isReachable()).isFalse();
+        assertThat(status.getError()).isEqualTo("连接尚未保存");
+    }
+
+    @Test
+    void rejectsConnectionsBeyondLimit() {
+        String limitReached = "监控的连接数已达上限 2";
+        assertThat(monitor.getStatus(config("a", 9201)).getError()).isNotEqualTo(limitReached);
+        assertThat(monitor.getStatus(config("b", 9202)).getError()).isNotEqualTo(limitReached);
+
+        ClusterStatus rejected = monitor.getStatus(config("c", 9203));
+        assertThat(rejected.isPending()).isFalse();
+        assertThat(rejected.getError()).isEqualTo(limitReached);
+
+        // 已登记的连接不受影响
+        assertThat(monitor.getStatus(config("a", 9201)).getError()).isNotEqualTo(limitReached);
+    }
+
+    private static ESConnectionConfig config(String id, int port) {
+        return new ESConnectionConfig(id, "cluster-" + port, "127.0.0.1", port, "http",
+            null, null, null, "development", null, null);
+    }
+}
@@ -0,0 +1,96 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.config.LLMProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ConversationStore 摘要完成时移除已并入的轮次，摘要期间被丢弃的轮次不重复移除
+ */
+class ConversationStoreTest {
+
+    private ConversationStore store;
+
+    @BeforeEach
+    void setUp() {
+        LLMProperties properties = new LLMProperties();
+        properties.getConversation().setRecentTurns(2);
+        properties.getConversation().setSummarizeBatch(2);
+        properties.getConversation().setMaxRetainedTurns(4);
+        store = new ConversationStore(properties);
+    }
+
+    @Test
+    void foldsSummarizedTurns() {
+        ConversationStore.SummaryTask task = appendTurns(1, 4);
+        assertThat(questions(task.getTurns())).containsExactly("q1", "q2");
+
+        store.completeSummary(task, "摘要");
+
+        ConversationStore.Snapshot snapshot = store.snapshot("alice", "c1");
+        assertThat(snapshot.getSummary()).isEqualTo("摘要");
+        assertThat(questions(snapshot.getTurns())).containsExactly("q3", "q4");
+    }
+
+    @Test
+    void doesNotFoldTurnsDroppedDuringSummary() {
+        ConversationStore.SummaryTask task = appendTurns(1, 4);
+        // 摘要进行中，超出上限丢弃 q1
+        assertThat(appendTurns(5, 5)).isNull();
+
+        store.completeSummary(task, "摘要");
+
+        // 只移除仍在的 q2，不误删尚未摘要的 q3
+        assertThat(questions(store.snapshot("alice", "c1").getTurns())).containsExactly("q3", "q4", "q5");
+    }
+
+    @Test
+    void foldsNothingWhenAllSummarizedTurnsWereDropped() {
+        ConversationStore.SummaryTask task = appendTurns(1, 4);
+        appendTurns(5, 7);
+
+        store.completeSummary(task, "摘要");
+
+        assertThat(questions(store.snapshot("alice", "c1").getTurns())).containsExactly("q4", "q5", "q6", "q7");
+    }
+
+    @Test
+    void retriesAfterFailedSummary() {
+        ConversationStore.SummaryTask task = appendTurns(1, 4);
+        store.failSummary(task);
+
+        ConversationStore.SummaryTask retry = appendTurns(5, 5);
+        assertThat(retry).isNotNull();
+        assertThat(questions(retry.getTurns())).containsExactly("q2", "q3");
+        assertThat(questions(store.snapshot("alice", "c1").getTurns())).containsExactly("q2", "q3", "q4", "q5");
+    }
+
+    @Test
+    void ignoresSummaryOfRemovedConversation() {
+        ConversationStore.SummaryTask task = appendTurns(1, 4);
+        store.remove("alice", "c1");
+
+        store.completeSummary(task, "摘要");
+
+        assertThat(store.snapshot("alice", "c1").getSummary()).isNull();
+    }
+
+    /**
+     * 追加 q{from}..q{to}，返回最后一次追加产生的摘要任务
+     */
+    private ConversationStore.SummaryTask appendTurns(int from, int to) {
+        ConversationStore.SummaryTask task = null;
+        for (int i = from; i <= to; i++) {
+            task = store.append("alice", "c1", "q" + i, "a" + i);
+        }
+        return task;
+    }
+
+    private static List<String> questions(List<ConversationStore.Turn> turns) {
+        return turns.stream().map(ConversationStore.Turn::getQuestion).toList();
+    }
+}
@@ -0,0 +1,81 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.config.ElasticsearchProperties;
+import com.elasticquest.backend.model.ESConnectionConfig;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ESCommandMetrics 的标签归一化
+ */
+class ESCommandMetricsTest {
+
+    @Test
+    void normalizesEndpoints() {
+        assertThat(ESCommandMetrics.normalizeEndpoint("/products/_search?size=10")).isEqualTo("/{index}/_search");
+        assertThat(ESCommandMetrics.normalizeEndpoint("products/_doc/1")).isEqualTo("/{index}/_doc/{id}");
+        assertThat(ESCommandMetrics.normalizeEndpoint("/logs-2024/_update/abc")).isEqualTo("/{index}/_update/{id}");
+        assertThat(ESCommandMetrics.normalizeEndpoint("/_cat/indices?v")).isEqualTo("/_cat/indices");
+        assertThat(ESCommandMetrics.normalizeEndpoint("/_cat/indices/products")).isEqualTo("/_cat/indices/{name}");
+        assertThat(ESCommandMetrics.normalizeEndpoint("/_cluster/health")).isEqualTo("/_cluster/health");
+        assertThat(ESCommandMetrics.normalizeEndpoint("/_ingest/pipeline/my-pipeline"))
+            .isEqualTo("/_ingest/pipeline/{name}");
+        assertThat(ESCommandMetrics.normalizeEndpoint("//products//_mapping")).isEqualTo("/{index}/_mapping");
+        assertThat(ESCommandMetrics.normalizeEndpoint("")).isEqualTo("/");
+        assertThat(ESCommandMetrics.normalizeEndpoint(null)).isEqualTo("/");
+        assertThat(ESCommandMetrics.normalizeEndpoint("/?pretty")).isEqualTo("/");
+    }
+
+    @Test
+    void normalizesMethods() {
+        assertThat(ESCommandMetrics.normalizeMethod("GET")).isEqualTo("GET");
+        assertThat(ESCommandMetrics.normalizeMethod("PATCH")).isEqualTo("OTHER");
+        assertThat(ESCommandMetrics.normalizeMethod("get")).isEqualTo("OTHER");
+        assertThat(ESCommandMetrics.normalizeMethod(null)).isEqualTo("OTHER");
+    }
+
+    @Test
+    void tagsOnlyPreconfiguredConnectionsByName() {
+        ElasticsearchProperties properties = new ElasticsearchProperties();
+        properties.getProfiles().put("staging", new ElasticsearchProperties.ConnectionProperties());
+        ESCommandMetrics metrics = new ESCommandMetrics(new SimpleMeterRegistry(), new SlowCommandLog(10, 1000),
+            properties);
+
+        assertThat(metrics.connectionTag(null)).isEqualTo("unknown");
+        assertThat(metrics.connectionTag(connection("default"))).isEqualTo("default");
+        assertThat(metrics.connectionTag(connection("staging"))).isEqualTo("staging");
+        assertThat(metrics.connectionTag(connection("my laptop"))).isEqualTo("custom");
+        assertThat(metrics.connectionTag(connection(null))).isEqualTo("custom");
+    }
+
+    @Test
+    void capsEndpointPatterns() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ESCommandMetrics metrics = new ESCommandMetrics(registry, new SlowCommandLog(10, 1000),
+            new ElasticsearchProperties());
+        for (int i = 0; i < 300; i++) {
+            metrics.record(connection("default"), "GET", "/index/_custom_" + i, 200, 1_000_000, 10);
+        }
+        metrics.record(connection("default"), "GET", "/index/_custom_0", 200, 1_000_000, 10);
+
+        Set<String> endpoints = new HashSet<>();
+        for (Timer timer : registry.find("es.command.duration").timers()) {
+            endpoints.add(timer.getId().getTag("endpoint"));
+        }
+        assertThat(endpoints).hasSize(201).contains("other", "/{index}/_custom_0");
+        assertThat(registry.get("es.command.duration").tag("endpoint", "/{index}/_custom_0").timer().count())
+            .isEqualTo(2);
+    }
+
+    private static ESConnectionConfig connection(String name) {
+        ESConnectionConfig config = new ESConnectionConfig();
+        config.setName(name);
+        return config;
+    }
+}
@@ -0,0 +1,82 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.transport.ESRequest;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ESCommandParser 的命令解析与请求体编码
+ */
+class ESCommandParserTest {
+
+    @Test
+    void parsesMethodEndpointAndBody() {
+        ESCommandParser.ParsedCommand command = ESCommandParser.parse(
+            "\r\n  get   /products/_search?size=5  \r\n{\r\n  \"query\": {\"match_all\": {}}\r\n}\r\n\r\n");
+
+        assertThat(command.getMethod()).isEqualTo("GET");
+        assertThat(command.getEndpoint()).isEqualTo("/products/_search?size=5");
+        assertThat(command.getBody().toString()).isEqualTo("{\r\n  \"query\": {\"match_all\": {}}\r\n}");
+        assertThat(command.isNdjson()).isFalse();
+    }
+
+    @Test
+    void parsesCommandWithoutBody() {
+        ESCommandParser.ParsedCommand command = ESCommandParser.parse("GET _cat/indices");
+
+        assertThat(command.hasBody()).isFalse();
+        assertThat(command.toRequest().hasBody()).isFalse();
+    }
+
+    @Test
+    void rejectsMalformedCommands() {
+        assertThatThrownBy(() -> ESCommandParser.parse("  \n ")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ESCommandParser.parse("GET\n{}")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ESCommandParser.parse("POST /_search\n{\"q\": \"\"\"open"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void expandsTripleQuotedStrings() {
+        ESCommandParser.ParsedCommand command = ESCommandParser.parse(
+            "POST /_ingest/pipeline/_simulate\n{\"script\": \"\"\"if (a == \"b\") {\n  c\\d\n}\"\"\"}");
+
+        assertThat(command.getBody().toString()).isEqualTo("{\"script\": \"if (a == \\\"b\\\") {\\n  c\\\\d\\n}\"}");
+    }
+
+    @Test
+    void appendsTrailingNewlineToNdjsonBodies() {
+        ESRequest request = ESCommandParser.parse("POST /_bulk?refresh\n{\"index\":{}}\n{\"a\":1}").toRequest();
+
+        assertThat(request.getContentType()).isEqualTo(ESRequest.NDJSON);
+        assertThat(body(request)).isEqualTo("{\"index\":{}}\n{\"a\":1}\n");
+    }
+
+    @Test
+    void replacesLoneSurrogatesInsteadOfRejecting() {
+        ESRequest request = ESCommandParser.parse("POST /notes/_doc\n{\"text\": \"a\uD800b 中文\"}").toRequest();
+
+        assertThat(request.getContentType()).isEqualTo(ESRequest.JSON);
+        assertThat(body(request)).isEqualTo("{\"text\": \"a?b 中文\"}");
+
+        ESRequest bulk = ESCommandParser.parse("POST /_bulk\n{\"index\":{}}\n{\"t\":\"\uDC00\"}").toRequest();
+        assertThat(body(bulk)).isEqualTo("{\"index\":{}}\n{\"t\":\"?\"}\n");
+    }
+
+    @Test
+    void splitsScriptsOnMethodLines() {
+        List<String> commands = ESCommandParser.splitScript(
+            "# setup\n\nPUT /a\n{\"s\": \"\"\"\nGET /not-a-command\n\"\"\"}\n\nGET /a/_search\n");
+
+        assertThat(commands).containsExactly("PUT /a\n{\"s\": \"\"\"\nGET /not-a-command\n\"\"\"}", "GET /a/_search");
+    }
+
+    private static String body(ESRequest request) {
+        return new String(request.getBody(), request.getBodyOffset(), request.getBodyLength(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,84 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.config.ElasticsearchProperties;
+import com.elasticquest.backend.model.ESConnectionConfig;
+import com.elasticquest.backend.model.FieldSuggestion;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ESMetadataCache 的映射请求地址、字段解析和缓存上限
+ */
+class ESMetadataCacheTest {
+
+    private static final String MAPPING = "{\"logs-1\":{\"mappings\":{\"properties\":{"
+        + "\"title\":{\"type\":\"text\",\"fields\":{\"keyword\":{\"type\":\"keyword\"}}},"
+        + "\"user\":{\"properties\":{\"name\":{\"type\":\"keyword\"}}}}}}}";
+
+    private final List<String> paths = new CopyOnWriteArrayList<>();
+
+    private HttpServer server;
+    private ESClientFactory clientFactory;
+    private ESMetadataCache cache;
+    private ESConnectionConfig config;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 16);
+        server.createContext("/", exchange -> {
+            paths.add(exchange.getRequestURI().getRawPath());
+            byte[] body = MAPPING.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        ElasticsearchProperties properties = new ElasticsearchProperties();
+        clientFactory = new ESClientFactory(properties);
+        cache = new ESMetadataCache(clientFactory, properties, 300000, 10, 2);
+        config = new ESConnectionConfig("test", "test", "127.0.0.1", server.getAddress().getPort(), "http",
+            null, null, null, "development", null, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clientFactory.closeAll();
+        server.stop(0);
+    }
+
+    @Test
+    void encodesIndexExpressionAndReadsNestedAndMultiFields() throws IOException {
+        List<FieldSuggestion> fields = cache.findFields(config, "logs-*,商品", "", 10);
+
+        assertThat(paths).containsExactly("/logs-*%2C%E5%95%86%E5%93%81/_mapping");
+        assertThat(fields).extracting(FieldSuggestion::getName)
+            .containsExactlyInAnyOrder("title", "title.keyword", "user", "user.name");
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedCatalog() throws IOException {
+        cache.findFields(config, "a", "", 10);
+        cache.findFields(config, "b", "", 10);
+        cache.findFields(config, "a", "", 10);
+        // 超出上限，淘汰最久未使用的 b
+        cache.findFields(config, "c", "", 10);
+        cache.findFields(config, "a", "", 10);
+        cache.findFields(config, "b", "", 10);
+
+        assertThat(paths).containsExactly("/a/_mapping", "/b/_mapping", "/c/_mapping", "/b/_mapping");
+    }
+}
@@ -0,0 +1,141 @@
+package com.elasticquest.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ESResultSpool 按命中区间和 JSON Pointer 读取落盘结果，以及共用目录下遗留文件的清理
+ */
+class ESResultSpoolTest {
+
+    private static final int HITS = 50;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    private ESResultSpool spool;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        spool = new ESResultSpool(dir.toString(), 1024, 5, 600000, 1 << 20);
+    }
+
+    @AfterEach
+    void tearDown() {
+        spool.clear();
+    }
+
+    @Test
+    void keepsSmallResponsesInline() throws IOException {
+        ESResultSpool.Body body = spool.read("{\"acknowledged\":true}".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(body.isSpooled()).isFalse();
+        assertThat(body.getContent()).isEqualTo("{\"acknowledged\":true}");
+    }
+
+    @Test
+    void readsHitRanges() throws IOException {
+        ESResultSpool.Body body = spool.read(searchResponse());
+        assertThat(body.isSpooled()).isTrue();
+        assertThat(body.getHitCount()).isEqualTo(HITS);
+
+        JsonNode page = objectMapper.readTree(spool.readHits(body.getHandle(), 10, 3));
+        assertThat(page).hasSize(3);
+        for (int i = 0; i < 3; i++) {
+            assertThat(page.get(i).path("_id").asText()).isEqualTo("doc-" + (10 + i));
+        }
+
+        JsonNode tail = objectMapper.readTree(spool.readHits(body.getHandle(), HITS - 2, 10));
+        assertThat(tail).hasSize(2);
+        assertThat(tail.get(1).path("_id").asText()).isEqualTo("doc-" + (HITS - 1));
+
+        assertThat(spool.readHits(body.getHandle(), HITS, 10)).isEqualTo("[]");
+    }
+
+    @Test
+    void limitsHitRangeToThreshold() throws IOException {
+        ESResultSpool.Body body = spool.read(searchResponse());
+
+        String page = spool.readHits(body.getHandle(), 0, HITS);
+        JsonNode hits = objectMapper.readTree(page);
+        assertThat(hits.size()).isBetween(1, HITS - 1);
+        assertThat(page.length()).isLessThanOrEqualTo(1024 + 2);
+        assertThat(hits.get(0).path("_id").asText()).isEqualTo("doc-0");
+    }
+
+    @Test
+    void readsJsonPointers() throws IOException {
+        ESResultSpool.Body body = spool.read(searchResponse());
+        String handle = body.getHandle();
+
+        assertThat(spool.readPath(handle, "/took")).isEqualTo("7");
+        assertThat(spool.readPath(handle, "/hits/total/value")).isEqualTo(String.valueOf(HITS));
+        assertThat(spool.readPath(handle, "/hits/hits/7/_source/title")).isEqualTo("\"title 7\"");
+        assertThat(objectMapper.readTree(spool.readPath(handle, "/hits/hits/42")).path("_id").asText())
+            .isEqualTo("doc-42");
+        assertThat(spool.readPath(handle, "/aggregations/by_tag/buckets/1/key")).isEqualTo("\"tag-1\"");
+    }
+
+    @Test
+    void rejectsMissingPaths() throws IOException {
+        String handle = spool.read(searchResponse()).getHandle();
+
+        assertThatThrownBy(() -> spool.readPath(handle, "/hits/hits/" + HITS))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> spool.readPath(handle, "/missing"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> spool.readPath(handle, "/hits/hits/3/_source/missing"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void keepsDirectoriesOfRunningInstancesAndRemovesAbandonedOnes() throws IOException {
+        String handle = spool.read(searchResponse()).getHandle();
+        Path abandoned = Files.createDirectories(dir.resolve("abandoned"));
+        Files.writeString(abandoned.resolve("old.spool"), "{}");
+
+        ESResultSpool other = new ESResultSpool(dir.toString(), 1024, 5, 600000, 1 << 20);
+        try {
+            assertThat(abandoned).doesNotExist();
+            assertThat(spool.readHits(handle, 0, 1)).contains("doc-0");
+        } finally {
+            other.clear();
+        }
+    }
+
+    private byte[] searchResponse() throws IOException {
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("took", 7);
+        root.put("timed_out", false);
+        ObjectNode hits = root.putObject("hits");
+        hits.putObject("total").put("value", HITS).put("relation", "eq");
+        ArrayNode hitArray = hits.putArray("hits");
+        for (int i = 0; i < HITS; i++) {
+            ObjectNode hit = hitArray.addObject();
+            hit.put("_index", "products");
+            hit.put("_id", "doc-" + i);
+            hit.putObject("_source").put("title", "title " + i).put("price", i * 10);
+        }
+        ArrayNode buckets = root.putObject("aggregations").putObject("by_tag").putArray("buckets");
+        for (int i = 0; i < 3; i++) {
+            buckets.addObject().put("key", "tag-" + i).put("doc_count", i + 1);
+        }
+        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(root);
+    }
+}
@@ -0,0 +1,111 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.model.ChallengeSubmission;
+import com.elasticquest.backend.model.ExamProgress;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 并发修改同一用户和共享锁分段的不同用户时不丢失更新，快照按发布顺序交给存储
+ */
+class ExamServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int USERS = 600; // 多于锁分段数，部分用户共用一个分段
+    private static final int CHALLENGES_PER_THREAD = 50;
+
+    @Test
+    void concurrentUpdatesAreNotLost() throws Exception {
+        RecordingStore store = new RecordingStore();
+        ExamService service = new ExamService(store);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < CHALLENGES_PER_THREAD; i++) {
+                        ChallengeSubmission submission = new ChallengeSubmission();
+                        submission.setChallengeId("t" + thread + "-c" + i);
+                        submission.setAnswer(i % 2 == 0 ? "answer" : "");
+                        submission.setTimeSpent(10);
+                        submission.setCategory("category-" + i % 4);
+                        service.validateChallenge(submission, "shared");
+                        service.completeTopic("shared", "t" + thread + "-topic" + i);
+                        for (int u = thread; u < USERS; u += THREADS) {
+                            service.completeTopic("user-" + u, "topic-" + i);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int total = THREADS * CHALLENGES_PER_THREAD;
+        ExamProgress shared = service.getUserProgress("shared");
+        assertThat(shared.getCompletedChallenges()).hasSize(total);
+        assertThat(shared.getCompletedTopics()).hasSize(total);
+        assertThat(shared.getTotalExperience()).isEqualTo(total * 50);
+        assertThat(shared.getStats().getTotalChallenges()).isEqualTo(total);
+        assertThat(shared.getStats().getSuccessfulChallenges()).isEqualTo(total / 2);
+        assertThat(shared.getStats().getTotalTimeSpent()).isEqualTo(total * 10);
+        assertThat(store.latest.get("shared")).isSameAs(shared);
+
+        for (int u = 0; u < USERS; u++) {
+            ExamProgress progress = service.getUserProgress("user-" + u);
+            assertThat(progress.getCompletedTopics()).hasSize(CHALLENGES_PER_THREAD);
+            assertThat(store.latest.get("user-" + u)).isSameAs(progress);
+        }
+    }
+
+    /**
+     * 记录每个用户最后一次保存的快照
+     */
+    private static class RecordingStore implements ExamProgressStore {
+
+        final Map<String, ExamProgress> latest = new ConcurrentHashMap<>();
+
+        @Override
+        public Map<String, ExamProgress> loadAll() {
+            return Map.of();
+        }
+
+        @Override
+        public void save(ExamProgress progress) {
+            latest.put(progress.getUserId(), progress);
+        }
+
+        @Override
+        public void delete(String userId) {
+            latest.remove(userId);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public String name() {
+            return "recording";
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.model.ChallengeSubmission;
+import com.elasticquest.backend.model.ExamProgress;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 增量维护的统计与从挑战结果全量重算的结果一致
+ */
+class ExamServiceStatsTest {
+
+    private static final String[] CATEGORIES = {"query", "mapping", "aggregation", "cluster", null};
+
+    @Test
+    void incrementalStatsMatchRebuild() {
+        ExamService service = new ExamService(new InMemoryExamProgressStore());
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            ChallengeSubmission submission = new ChallengeSubmission();
+            submission.setChallengeId("challenge-" + random.nextInt(60));
+            submission.setAnswer(random.nextInt(3) == 0 ? "" : "answer");
+            submission.setTimeSpent(random.nextInt(300));
+            submission.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            service.validateChallenge(submission, "alice");
+
+            if (i % 50 == 0) {
+                assertMatchesRebuild(service, service.getUserProgress("alice"));
+            }
+        }
+        assertMatchesRebuild(service, service.getUserProgress("alice"));
+    }
+
+    @Test
+    void publishedSnapshotsAreNotModifiedByLaterResults() {
+        ExamService service = new ExamService(new InMemoryExamProgressStore());
+        ChallengeSubmission first = new ChallengeSubmission();
+        first.setChallengeId("c1");
+        first.setAnswer("answer");
+        first.setCategory("query");
+        service.validateChallenge(first, "alice");
+        ExamProgress before = service.getUserProgress("alice");
+
+        ChallengeSubmission second = new ChallengeSubmission();
+        second.setChallengeId("c2");
+        second.setAnswer("");
+        second.setCategory("query");
+        service.validateChallenge(second, "alice");
+        ExamProgress after = service.getUserProgress("alice");
+
+        assertThat(before.getCompletedChallenges()).containsOnlyKeys("c1");
+        assertThat(before.getStats().getTotalChallenges()).isEqualTo(1);
+        assertThat(before.getStats().getCategories().get("query").getChallenges()).isEqualTo(1);
+        assertThat(after.getCompletedChallenges()).containsOnlyKeys("c1", "c2");
+        assertThat(after.getCompletedChallenges().get("c1")).isSameAs(before.getCompletedChallenges().get("c1"));
+        assertThat(after.getStats().getCategories().get("query").getChallenges()).isEqualTo(2);
+    }
+
+    private static void assertMatchesRebuild(ExamService service, ExamProgress snapshot) {
+        ExamProgress rebuilt = new ExamProgress();
+        rebuilt.setCompletedChallenges(snapshot.getCompletedChallenges());
+        rebuilt.setStats(new ExamProgress.ExamStats());
+        service.rebuildStats(rebuilt);
+
+        ExamProgress.ExamStats expected = rebuilt.getStats();
+        ExamProgress.ExamStats actual = snapshot.getStats();
+        assertThat(actual.getTotalChallenges()).isEqualTo(expected.getTotalChallenges());
+        assertThat(actual.getSuccessfulChallenges()).isEqualTo(expected.getSuccessfulChallenges());
+        assertThat(actual.getSuccessRate()).isEqualTo(expected.getSuccessRate());
+        assertThat(actual.getTotalTimeSpent()).isEqualTo(expected.getTotalTimeSpent());
+        assertThat(actual.getTotalStudyTime()).isEqualTo(expected.getTotalStudyTime());
+        assertThat(actual.getStrongCategories()).isEqualTo(expected.getStrongCategories());
+        assertThat(actual.getWeakCategories()).isEqualTo(expected.getWeakCategories());
+        assertThat(summarize(actual.getCategories())).isEqualTo(summarize(expected.getCategories()));
+    }
+
+    private static Map<String, String> summarize(Map<String, ExamProgress.CategoryStats> categories) {
+        Map<String, String> summary = new TreeMap<>();
+        categories.forEach((category, stats) ->
+            summary.put(category, stats.getChallenges() + "/" + stats.getSuccessfulChallenges()));
+        return summary;
+    }
+}
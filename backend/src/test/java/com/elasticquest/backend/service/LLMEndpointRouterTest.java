@@ -0,0 +1,52 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.config.LLMProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LLMEndpointRouter 按 TTFT 中位数排序，冷却中的端点排在最后
+ */
+class LLMEndpointRouterTest {
+
+    private final LLMProperties.Endpoint fast = new LLMProperties.Endpoint("fast", "http://fast", "key", "model");
+    private final LLMProperties.Endpoint slow = new LLMProperties.Endpoint("slow", "http://slow", "key", "model");
+    private final LLMProperties.Endpoint fresh = new LLMProperties.Endpoint("fresh", "http://fresh", "key", "model");
+
+    private LLMEndpointRouter router;
+
+    @BeforeEach
+    void setUp() {
+        LLMProperties properties = new LLMProperties();
+        properties.setEndpoints(List.of(slow, fast, fresh));
+        router = new LLMEndpointRouter(properties, "http://default", "key", "model");
+    }
+
+    @Test
+    void ranksByMedianAndTriesEndpointsWithoutSamplesFirst() {
+        record(slow, 800, 900, 1000, 1100, 1200);
+        record(fast, 100, 5000, 120, 130, 140);
+
+        assertThat(router.rank()).containsExactly(fresh, fast, slow);
+    }
+
+    @Test
+    void ranksCoolingDownEndpointsLast() {
+        record(slow, 800, 900, 1000, 1100, 1200);
+        record(fast, 100, 110, 120, 130, 140);
+        router.recordFailure(fast);
+        router.recordFailure(fresh);
+
+        assertThat(router.rank()).containsExactly(slow, fresh, fast);
+    }
+
+    private void record(LLMProperties.Endpoint endpoint, long... samples) {
+        for (long sample : samples) {
+            router.recordFirstToken(endpoint, sample);
+        }
+    }
+}
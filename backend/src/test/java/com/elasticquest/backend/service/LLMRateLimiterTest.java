@@ -0,0 +1,54 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.config.LLMProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * LLMRateLimiter 扣减与退回令牌
+ */
+class LLMRateLimiterTest {
+
+    private LLMRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        LLMProperties properties = new LLMProperties();
+        properties.getLimits().setUserRequestsPerMinute(2);
+        properties.getLimits().setUserTokensPerMinute(1000);
+        rateLimiter = new LLMRateLimiter(properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void rejectsOnceUserBudgetIsSpent() {
+        rateLimiter.acquire("alice", 400);
+        rateLimiter.acquire("alice", 400);
+
+        assertThatThrownBy(() -> rateLimiter.acquire("alice", 100))
+            .isInstanceOf(LLMRejectedException.class)
+            .extracting(e -> ((LLMRejectedException) e).getReason())
+            .isEqualTo("user_requests");
+        assertThatCode(() -> rateLimiter.acquire("bob", 400)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void refundRestoresRequestsAndTokens() {
+        LLMRateLimiter.Charge first = rateLimiter.acquire("alice", 600);
+        assertThatThrownBy(() -> rateLimiter.acquire("alice", 600))
+            .isInstanceOf(LLMRejectedException.class)
+            .extracting(e -> ((LLMRejectedException) e).getReason())
+            .isEqualTo("user_tokens");
+
+        first.refund();
+        // 重复退回不会多给令牌
+        first.refund();
+
+        rateLimiter.acquire("alice", 600);
+        assertThatThrownBy(() -> rateLimiter.acquire("alice", 600))
+            .isInstanceOf(LLMRejectedException.class);
+    }
+}
@@ -0,0 +1,141 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.model.ExamProgress;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LocalExamProgressStore 的日志重放、截断与压缩
+ */
+class LocalExamProgressStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysLatestRecordPerUserAndDropsDeleted() throws IOException {
+        LocalExamProgressStore store = open(Long.MAX_VALUE);
+        store.save(progress("alice", 1));
+        store.save(progress("bob", 1));
+        store.flush();
+        store.save(progress("alice", 3));
+        store.delete("bob");
+        store.flush();
+        store.save(progress("carol", 2));
+        store.close();
+
+        Map<String, ExamProgress> loaded = reload(Long.MAX_VALUE);
+        assertThat(loaded).containsOnlyKeys("alice", "carol");
+        assertThat(loaded.get("alice").getLevel()).isEqualTo(3);
+        assertThat(loaded.get("carol").getLevel()).isEqualTo(2);
+    }
+
+    @Test
+    void truncatesTornTailAndKeepsAppending() throws IOException {
+        LocalExamProgressStore store = open(Long.MAX_VALUE);
+        store.save(progress("alice", 2));
+        store.close();
+        Path log = dir.resolve("progress.log");
+        long valid = Files.size(log);
+        Files.write(log, "{\"op\":\"put\",\"userId\":\"bob\",\"progr".getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.APPEND);
+
+        store = open(Long.MAX_VALUE);
+        assertThat(store.loadAll()).containsOnlyKeys("alice");
+        assertThat(Files.size(log)).isEqualTo(valid);
+        store.save(progress("bob", 4));
+        store.close();
+
+        Map<String, ExamProgress> loaded = reload(Long.MAX_VALUE);
+        assertThat(loaded).containsOnlyKeys("alice", "bob");
+        assertThat(loaded.get("bob").getLevel()).isEqualTo(4);
+    }
+
+    @Test
+    void skipsCorruptedRecordInTheMiddle() throws IOException {
+        LocalExamProgressStore store = open(Long.MAX_VALUE);
+        store.save(progress("alice", 1));
+        store.close();
+        Path log = dir.resolve("progress.log");
+        Files.write(log, "{\"op\":\"put\",\"userId\":\"alice\",\"progr\n".getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.APPEND);
+        store = open(Long.MAX_VALUE);
+        store.save(progress("bob", 2));
+        store.close();
+        long size = Files.size(log);
+
+        Map<String, ExamProgress> loaded = reload(Long.MAX_VALUE);
+        assertThat(loaded).containsOnlyKeys("alice", "bob");
+        assertThat(loaded.get("alice").getLevel()).isEqualTo(1);
+        assertThat(loaded.get("bob").getLevel()).isEqualTo(2);
+        // 完整的损坏记录不触发截断，后面的记录仍然保留
+        assertThat(Files.size(log)).isEqualTo(size);
+    }
+
+    @Test
+    void readsOperationFromParsedRecord() throws IOException {
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve("progress.log"),
+            "{\"userId\":\"dave\",\"op\":\"put\",\"progress\":{\"userId\":\"dave\",\"level\":5}}\n"
+                + "{\"userId\":\"erin\",\"op\":\"put\",\"progress\":{\"userId\":\"erin\",\"level\":1}}\n"
+                + "{\"userId\":\"erin\",\"op\":\"delete\"}\n");
+
+        Map<String, ExamProgress> loaded = reload(Long.MAX_VALUE);
+        assertThat(loaded).containsOnlyKeys("dave");
+        assertThat(loaded.get("dave").getLevel()).isEqualTo(5);
+    }
+
+    @Test
+    void compactsToOneRecordPerLiveUser() throws IOException {
+        LocalExamProgressStore store = open(0);
+        for (int level = 1; level <= 20; level++) {
+            store.save(progress("alice", level));
+            store.save(progress("bob", level));
+            store.flush();
+        }
+        store.delete("bob");
+        store.close();
+
+        Map<String, ExamProgress> loaded = reload(0);
+        assertThat(loaded).containsOnlyKeys("alice");
+        assertThat(loaded.get("alice").getLevel()).isEqualTo(20);
+        List<String> lines = Files.readAllLines(dir.resolve("progress.log"));
+        assertThat(lines).hasSize(1);
+        assertThat(lines.get(0)).contains("\"alice\"");
+        assertThat(dir.resolve("progress.log.tmp")).doesNotExist();
+    }
+
+    private LocalExamProgressStore open(long compactMinBytes) throws IOException {
+        LocalExamProgressStore store = new LocalExamProgressStore(dir.toString(), 1, 1000, compactMinBytes,
+            new SimpleMeterRegistry());
+        store.open();
+        return store;
+    }
+
+    private Map<String, ExamProgress> reload(long compactMinBytes) throws IOException {
+        LocalExamProgressStore store = open(compactMinBytes);
+        try {
+            return store.loadAll();
+        } finally {
+            store.close();
+        }
+    }
+
+    private static ExamProgress progress(String userId, int level) {
+        ExamProgress progress = new ExamProgress();
+        progress.setUserId(userId);
+        progress.setLevel(level);
+        return progress;
+    }
+}
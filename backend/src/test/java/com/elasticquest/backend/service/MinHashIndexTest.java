@@ -0,0 +1,55 @@
+package com.elasticquest.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MinHashIndex 的分句与相似度估计
+ */
+class MinHashIndexTest {
+
+    private static final String MATERIAL =
+        "倒排索引记录每个词项出现在哪些文档中。分片是索引的水平拆分单位，副本用于提高可用性和查询吞吐！"
+            + "Elasticsearch uses BM25 to score documents by relevance.";
+
+    @Test
+    void splitsClausesOnPunctuation() {
+        List<int[]> clauses = MinHashIndex.clauses("第一句。第二句，第三句\n最后");
+
+        assertThat(clauses).extracting(range -> range[0] + "-" + range[1])
+            .containsExactly("0-4", "4-8", "8-12", "12-14");
+        assertThat(MinHashIndex.clauses("")).isEmpty();
+    }
+
+    @Test
+    void findsExactAndParaphrasedClauses() {
+        MinHashIndex index = MinHashIndex.build(MATERIAL);
+
+        assertThat(similarity(index, "倒排索引记录每个词项出现在哪些文档中")).isEqualTo(1.0);
+        assertThat(similarity(index, "倒排索引会记录每个词项都出现在哪些文档里")).isGreaterThan(0.4);
+        assertThat(similarity(index, "ELASTICSEARCH uses bm25 to score documents by relevance")).isEqualTo(1.0);
+        assertThat(similarity(index, "今天天气晴朗适合出去散步和野餐")).isLessThan(0.2);
+    }
+
+    @Test
+    void matchesAnswersThatMergeAdjacentClauses() {
+        MinHashIndex index = MinHashIndex.build(MATERIAL);
+
+        assertThat(similarity(index, "分片是索引的水平拆分单位副本用于提高可用性和查询吞吐")).isEqualTo(1.0);
+    }
+
+    @Test
+    void ignoresClausesTooShortToEstimate() {
+        MinHashIndex index = MinHashIndex.build("短句很短。也很短。");
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(similarity(index, "短句很短")).isZero();
+    }
+
+    private static double similarity(MinHashIndex index, String text) {
+        return index.bestSimilarity(text, 0, text.length());
+    }
+}
@@ -0,0 +1,84 @@
+package com.elasticquest.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * PersistentHashMap 与 HashMap 行为一致，且旧版本不受后续修改影响
+ */
+class PersistentHashMapTest {
+
+    @Test
+    void matchesHashMapUnderRandomUpdates() {
+        Random random = new Random(7);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentHashMap<Integer, Integer> actual = PersistentHashMap.empty();
+
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(2000);
+            if (random.nextInt(4) == 0) {
+                expected.remove(key);
+                actual = actual.minus(key);
+            } else {
+                expected.put(key, i);
+                actual = actual.plus(key, i);
+            }
+            if (i % 1000 == 0) {
+                assertThat(actual).isEqualTo(expected);
+            }
+        }
+        assertThat(actual).isEqualTo(expected);
+        assertThat(actual.size()).isEqualTo(expected.size());
+        assertThat(actual.entrySet()).hasSize(expected.size());
+    }
+
+    @Test
+    void handlesHashCollisions() {
+        Map<CollidingKey, String> expected = new HashMap<>();
+        PersistentHashMap<CollidingKey, String> actual = PersistentHashMap.empty();
+        for (int i = 0; i < 40; i++) {
+            CollidingKey key = new CollidingKey(i, i % 3);
+            expected.put(key, "v" + i);
+            actual = actual.plus(key, "v" + i);
+        }
+        assertThat(actual).isEqualTo(expected);
+
+        for (int i = 0; i < 40; i += 2) {
+            CollidingKey key = new CollidingKey(i, i % 3);
+            expected.remove(key);
+            actual = actual.minus(key);
+        }
+        assertThat(actual).isEqualTo(expected);
+        assertThat(actual.get(new CollidingKey(1, 1))).isEqualTo("v1");
+        assertThat(actual.containsKey(new CollidingKey(2, 2))).isFalse();
+    }
+
+    @Test
+    void keepsEarlierVersionsUnchanged() {
+        PersistentHashMap<String, Integer> first = PersistentHashMap.<String, Integer>empty().plus("a", 1).plus("b", 2);
+        PersistentHashMap<String, Integer> second = first.plus("a", 10).minus("b").plus("c", 3);
+
+        assertThat(first).containsExactlyInAnyOrderEntriesOf(Map.of("a", 1, "b", 2));
+        assertThat(second).containsExactlyInAnyOrderEntriesOf(Map.of("a", 10, "c", 3));
+        assertThat(first.minus("missing")).isSameAs(first);
+        assertThat(PersistentHashMap.from(first)).isSameAs(first);
+        assertThatThrownBy(() -> second.put("d", 4)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    /**
+     * hashCode 只取 bucket，不同的 id 会落在同一个哈希上
+     */
+    private record CollidingKey(int id, int bucket) {
+
+        @Override
+        public int hashCode() {
+            return bucket;
+        }
+    }
+}
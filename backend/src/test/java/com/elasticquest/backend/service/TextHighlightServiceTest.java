@@ -0,0 +1,83 @@
+package com.elasticquest.backend.service;
+
+import com.elasticquest.backend.model.HighlightSegment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * TextHighlightService 多文档高亮的合并：长匹配优先，重叠时截取未覆盖的前缀，等长时按文档迭代顺序
+ */
+class TextHighlightServiceTest {
+
+    private final TextHighlightService service = new TextHighlightService();
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void longerMatchWinsAndLaterOverlapKeepsUncoveredSuffix() {
+        List<HighlightSegment> segments = highlight("xxABCDEFGHIJKLyy",
+            "doc-1", "ABCDEFGH", "doc-2", "FGHIJKL");
+
+        assertThat(describe(segments)).containsExactly("xx", "ABCDEFGH@doc-1", "IJKL@doc-2", "yy");
+    }
+
+    @Test
+    void shorterMatchIsCutAtLongerMatchFromAnotherDocument() {
+        List<HighlightSegment> segments = highlight("ABCDEFGHIJKL",
+            "doc-1", "ABCDEF", "doc-2", "EFGHIJKL");
+
+        assertThat(describe(segments)).containsExactly("ABCD@doc-1", "EFGHIJKL@doc-2");
+    }
+
+    @Test
+    void dropsOverlapRemainderShorterThanMinimum() {
+        List<HighlightSegment> segments = highlight("ABCDEFGHIJKL",
+            "doc-1", "ABCDEF", "doc-2", "DEFGHIJKL");
+
+        assertThat(describe(segments)).containsExactly("ABC", "DEFGHIJKL@doc-2");
+    }
+
+    @Test
+    void equalLengthTieGoesToFirstDocumentInIterationOrder() {
+        assertThat(describe(highlight("xxABCDEFGHyy", "doc-a", "ABCDEFGH", "doc-b", "--ABCDEFGH--")))
+            .containsExactly("xx", "ABCDEFGH@doc-a", "yy");
+        assertThat(describe(highlight("xxABCDEFGHyy", "doc-b", "--ABCDEFGH--", "doc-a", "ABCDEFGH")))
+            .containsExactly("xx", "ABCDEFGH@doc-b", "yy");
+    }
+
+    private List<HighlightSegment> highlight(String answer, String firstId, String first, String secondId, String second) {
+        Map<String, TextHighlightService.HighlightContext> sources = new LinkedHashMap<>();
+        sources.put(firstId, service.prepare(matcher(first)));
+        sources.put(secondId, service.prepare(matcher(second)));
+        return service.highlightAnswer(answer, sources);
+    }
+
+    /**
+     * 按子串查找的短语匹配器
+     */
+    private static TextHighlightService.PhraseMatcher matcher(String material) {
+        return (text, start, maxLength) -> {
+            int length = 0;
+            while (length < maxLength && start + length < text.length()
+                    && material.contains(text.substring(start, start + length + 1))) {
+                length++;
+            }
+            return length;
+        };
+    }
+
+    private static List<String> describe(List<HighlightSegment> segments) {
+        return segments.stream()
+            .map(segment -> segment.isHighlighted() ? segment.getText() + "@" + segment.getSourceId() : segment.getText())
+            .toList();
+    }
+}
@@ -0,0 +1,129 @@
+package com.elasticquest.backend.transport;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * HttpClientTransport 与 RestClientTransport 对同一 endpoint 发出相同的请求地址
+ */
+class HttpClientTransportTest {
+
+    private final AtomicReference<URI> received = new AtomicReference<>();
+
+    private HttpServer server;
+    private RestClientTransport restClient;
+    private HttpClientTransport httpClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 16);
+        server.createContext("/", exchange -> {
+            received.set(exchange.getRequestURI());
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        int port = server.getAddress().getPort();
+        restClient = new RestClientTransport(RestClient.builder(new HttpHost("127.0.0.1", port, "http")).build());
+        httpClient = new HttpClientTransport("http", "127.0.0.1", port, null, null, 5000, 5000);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        restClient.close();
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    void keepsAlreadyEncodedEndpoints() throws IOException {
+        URI uri = sendWithBoth("/%3Clogs-%7Bnow%2Fd%7D%3E/_search?q=message:%22err%22");
+
+        assertThat(uri.getRawPath()).isEqualTo("/%3Clogs-%7Bnow%2Fd%7D%3E/_search");
+        assertThat(uri.getRawQuery()).isEqualTo("q=message:%22err%22");
+    }
+
+    @Test
+    void escapesCjkIndexNames() throws IOException {
+        URI uri = sendWithBoth("/商品索引/_search?q=名称:手机");
+
+        assertThat(uri.getPath()).isEqualTo("/商品索引/_search");
+        assertThat(uri.getQuery()).isEqualTo("q=名称:手机");
+    }
+
+    @Test
+    void keepsEncodedCjkIndexNames() throws IOException {
+        URI uri = sendWithBoth("/%E5%95%86%E5%93%81/_count");
+
+        assertThat(uri.getPath()).isEqualTo("/商品/_count");
+    }
+
+    @Test
+    void encodesParameterValues() throws IOException {
+        ESRequest request = new ESRequest("GET", "/products/_search");
+        request.addParameter("q", "name:a&b=c+d e");
+        request.addParameter("filter_path", "hits.hits._id,took");
+
+        try (ESResponse response = httpClient.perform(request)) {
+            response.toByteArray();
+        }
+        Map<String, String> httpClientParameters = parameters(received.get());
+        try (ESResponse response = restClient.perform(request)) {
+            response.toByteArray();
+        }
+        Map<String, String> restClientParameters = parameters(received.get());
+
+        assertThat(httpClientParameters)
+            .containsEntry("q", "name:a&b=c+d e")
+            .containsEntry("filter_path", "hits.hits._id,took")
+            .isEqualTo(restClientParameters);
+    }
+
+    /**
+     * 两个传输各发一次同一 endpoint，断言服务端收到的原始地址相同
+     */
+    private URI sendWithBoth(String endpoint) throws IOException {
+        try (ESResponse response = restClient.perform(new ESRequest("GET", endpoint))) {
+            response.toByteArray();
+        }
+        URI expected = received.get();
+        try (ESResponse response = httpClient.perform(new ESRequest("GET", endpoint))) {
+            response.toByteArray();
+        }
+        URI actual = received.get();
+
+        assertThat(actual.getRawPath()).isEqualTo(expected.getRawPath());
+        assertThat(actual.getRawQuery()).isEqualTo(expected.getRawQuery());
+        return actual;
+    }
+
+    private static Map<String, String> parameters(URI uri) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        for (String pair : uri.getRawQuery().split("&")) {
+            int eq = pair.indexOf('=');
+            parameters.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+}
@@ -85,9 +85,9 @@ export default function ESConnectionForm({ onSuccess, editingConfig, onCancelEdi
       setTesting(true);
       const hideLoading = message.loading('正在测试连接...', 0);
 
-      // 构建临时配置用于测试
+      // 构建临时配置用于测试；未保存的配置不带 id，后端只探测一次、不纳入监控
       const testConfig: ESConnectionConfig = {
-        id: editingConfig?.id || 'temp',
+        id: editingConfig?.id || '',
         name: values.name,
         host: values.host,
         port: values.port,
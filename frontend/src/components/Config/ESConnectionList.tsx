@@ -3,8 +3,11 @@
 import { List, Card, Button, Tag, Space, Popconfirm, App } from 'antd';
 import { DeleteOutlined, CheckCircleOutlined, ApiOutlined, EditOutlined } from '@ant-design/icons';
 import { useAppStore, ESConnectionConfig } from '@/stores/useAppStore';
-import { testESConnection } from '@/lib/api/esConnection';
-import { useState } from 'react';
+import { testESConnection, fetchClusterStatuses, ClusterStatus } from '@/lib/api/esConnection';
+import { useEffect, useState } from 'react';
+
+// 与后端监控的探测间隔一致
+const STATUS_REFRESH_INTERVAL = 15000;
 
 interface ESConnectionListProps {
   onEdit?: (config: ESConnectionConfig) => void;
@@ -14,6 +17,62 @@ export default function ESConnectionList({ onEdit }: ESConnectionListProps) {
   const { message } = App.useApp();
   const { esConnections, activeConnectionId, setActiveConnection, removeConnection } = useAppStore();
   const [testingId, setTestingId] = useState<string | null>(null);
+  const [statuses, setStatuses] = useState<Record<string, ClusterStatus>>({});
+
+  const renderStatus = (status?: ClusterStatus) => {
+    if (!status || status.pending) {
+      return <Tag>检测中</Tag>;
+    }
+    if (!status.reachable) {
+      // 没有探测时间说明后端未监控该连接（如监控数量已达上限）
+      return (
+        <Tag color={status.lastUpdated ? 'error' : 'default'} title={status.error}>
+          {status.lastUpdated ? '不可达' : '未监控'}
+        </Tag>
+      );
+    }
+    const color = status.health === 'green' ? 'success' : status.health === 'yellow' ? 'warning' : 'error';
+    return (
+      <Space size={4} wrap>
+        <Tag color={color} title={status.error}>
+          {status.health ?? '未知'}
+        </Tag>
+        {status.numberOfNodes !== undefined && status.numberOfNodes !== null && (
+          <span>节点 {status.numberOfNodes}</span>
+        )}
+        {status.maxHeapUsedPercent !== undefined && status.maxHeapUsedPercent !== null && (
+          <span>堆内存 {status.maxHeapUsedPercent}%</span>
+        )}
+      </Space>
+    );
+  };
+
+  // 定时读取后端缓存的集群状态
+  useEffect(() => {
+    if (esConnections.length === 0) {
+      setStatuses({});
+      return;
+    }
+    let cancelled = false;
+    const load = async () => {
+      const result = await fetchClusterStatuses(esConnections);
+      if (!cancelled) {
+        const byId: Record<string, ClusterStatus> = {};
+        result.forEach((status) => {
+          if (status.connectionId) {
+            byId[status.connectionId] = status;
+          }
+        });
+        setStatuses(byId);
+      }
+    };
+    load();
+    const timer = setInterval(load, STATUS_REFRESH_INTERVAL);
+    return () => {
+      cancelled = true;
+      clearInterval(timer);
+    };
+  }, [esConnections]);
 
   const handleTest = async (config: ESConnectionConfig) => {
     setTestingId(config.id);
@@ -156,6 +215,9 @@ export default function ESConnectionList({ onEdit }: ESConnectionListProps) {
                   <strong>用户名:</strong> {config.username}
                 </div>
               )}
+              <div>
+                <strong>集群状态:</strong> {renderStatus(statuses[config.id])}
+              </div>
               <div>
                 <strong>环境:</strong>{' '}
                 <Tag color={getEnvironmentColor(config.environment)}>
@@ -26,8 +26,9 @@ export default function HighlightedText({ segments, className = '' }: Highlighte
   const markdownContent = segments
     .map((segment) => {
       if (segment.highlighted) {
-        // 使用 HTML mark 标签包裹高亮内容
-        return `<mark class="highlight-mark">${segment.text}</mark>`;
+        // 使用 HTML mark 标签包裹高亮内容，多文档时标注来源
+        const title = segment.sourceId ? ` title="来源: ${segment.sourceId}"` : '';
+        return `<mark class="highlight-mark"${title}>${segment.text}</mark>`;
       }
       return segment.text;
     })
@@ -51,11 +51,14 @@ export default function RAGChatPanel() {
           setAnswer((prev) => prev + content);
         },
         // onComplete
-        (highlightSegments) => {
+        (highlightSegments, notice) => {
           setHighlights(highlightSegments);
           setShowHighlights(true);
           setLoading(false);
           message.success('回答完成');
+          if (notice) {
+            message.info(notice);
+          }
         },
         // onError
         (error) => {
@@ -26,6 +26,38 @@ export async function testESConnection(config: ESConnectionConfig): Promise<Conn
   }
 }
 
+export interface ClusterStatus {
+  connectionId?: string;
+  name?: string;
+  url: string;
+  pending: boolean;
+  reachable: boolean;
+  clusterName?: string;
+  version?: string;
+  health?: 'green' | 'yellow' | 'red';
+  numberOfNodes?: number;
+  numberOfDataNodes?: number;
+  activeShards?: number;
+  unassignedShards?: number;
+  maxHeapUsedPercent?: number;
+  error?: string;
+  probeDurationMs: number;
+  lastUpdated?: string;
+}
+
+/**
+ * 获取已保存连接的集群状态（后端缓存的快照，不等待远程探测）
+ */
+export async function fetchClusterStatuses(configs: ESConnectionConfig[]): Promise<ClusterStatus[]> {
+  try {
+    const response = await apiClient.post<ClusterStatus[]>('/es-connection/status', configs);
+    return response.data;
+  } catch (error) {
+    console.error('获取集群状态失败:', error);
+    return [];
+  }
+}
+
 /**
  * 检查 ES 连接服务健康状态
  */
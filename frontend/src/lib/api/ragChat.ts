@@ -3,6 +3,8 @@ import { getApiUrl } from './config';
 export interface HighlightSegment {
   text: string;
   highlighted: boolean;
+  sourceId?: string; // 多文档高亮时匹配到的参考文档 ID
+  similarity?: number; // 原文匹配为 1，改写匹配为估计的相似度
 }
 
 export interface StreamChatChunk {
@@ -10,6 +12,7 @@ export interface StreamChatChunk {
   done: boolean;
   highlights?: HighlightSegment[];
   error?: string;
+  notice?: string; // 提示信息，如参考材料过长只使用了部分片段
 }
 
 export interface RAGChatRequest {
@@ -18,19 +21,22 @@ export interface RAGChatRequest {
   systemPrompt?: string;
   temperature?: number;
   maxTokens?: number;
+  conversationId?: string; // 多轮对话 ID，服务端保存历史并生成摘要
+  materialId?: string; // 资料库中的参考材料 ID（POST /materials 上传后返回），设置后忽略 contextMaterial
+  materialIds?: string[]; // 多份资料库材料，高亮片段的 sourceId 为匹配到的材料 ID
 }
 
 /**
  * 流式 RAG 聊天
  * @param request 聊天请求
  * @param onChunk 接收每个内容块的回调
- * @param onComplete 完成时的回调，返回高亮信息
+ * @param onComplete 完成时的回调，返回高亮信息和提示信息
  * @param onError 错误回调
  */
 export async function streamRAGChat(
   request: RAGChatRequest,
   onChunk: (content: string) => void,
-  onComplete: (highlights: HighlightSegment[]) => void,
+  onComplete: (highlights: HighlightSegment[], notice?: string) => void,
   onError: (error: string) => void
 ): Promise<void> {
   try {
@@ -82,7 +88,7 @@ export async function streamRAGChat(
 
             if (chunk.done) {
               // 完成，返回高亮信息
-              onComplete(chunk.highlights || []);
+              onComplete(chunk.highlights || [], chunk.notice);
               return;
             }
 
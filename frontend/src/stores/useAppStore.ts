@@ -10,6 +10,7 @@ interface ESConnectionConfig {
   username?: string;
   password?: string;
   apiKey?: string;
+  transport?: 'rest-client' | 'http-client';
   environment: 'development' | 'test' | 'production';
   createdAt: string;
   lastUsed?: string;